@@ -0,0 +1,23 @@
+plugins {
+  id("ai.java-conventions")
+  id("ai.jmh-conventions")
+}
+
+dependencies {
+  jmh(project(":agent:agent-tooling"))
+  jmh(project(":agent:agent-bootstrap"))
+  jmh(project(":agent:agent-profiler:agent-diagnostics"))
+  jmh(project(":agent:agent-profiler:agent-diagnostics-api"))
+
+  jmh("com.azure:azure-monitor-opentelemetry-exporter:1.0.0-beta.13")
+  jmh("com.azure:azure-core")
+  jmh("com.azure:azure-core-test")
+
+  jmh("io.opentelemetry:opentelemetry-sdk")
+  jmh("io.opentelemetry:opentelemetry-sdk-logs")
+  jmh("io.opentelemetry:opentelemetry-semconv")
+  jmh("io.opentelemetry.javaagent:opentelemetry-javaagent-bootstrap")
+
+  jmh("org.slf4j:slf4j-api")
+  jmh("ch.qos.logback:logback-classic")
+}
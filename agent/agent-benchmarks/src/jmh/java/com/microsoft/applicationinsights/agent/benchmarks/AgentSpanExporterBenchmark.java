@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.SpanDataMapper;
+import com.microsoft.applicationinsights.agent.internal.exporter.AgentSpanExporter;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AgentSpanExporterBenchmark {
+
+  private TelemetryClient telemetryClient;
+  private AgentSpanExporter exporter;
+  private List<SpanData> serverSpan;
+  private List<SpanData> serverAndClientSpans;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    telemetryClient = InMemoryTelemetry.newTelemetryClient();
+    // AgentSpanExporter checks the active TelemetryClient for an instrumentation key
+    TelemetryClient.setActive(telemetryClient);
+
+    SpanDataMapper mapper =
+        new SpanDataMapper(
+            true,
+            telemetryClient::populateDefaults,
+            (event, instrumentationName) -> false,
+            (span, event) -> false);
+    exporter =
+        new AgentSpanExporter(mapper, null, telemetryClient.getGeneralBatchItemProcessor());
+
+    Tracer tracer =
+        OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().build())
+            .build()
+            .getTracer("benchmark");
+
+    Span server =
+        tracer
+            .spanBuilder("GET /api/orders/{id}")
+            .setSpanKind(SpanKind.SERVER)
+            .setAttribute("http.method", "GET")
+            .setAttribute("http.scheme", "http")
+            .setAttribute("http.target", "/api/orders/123")
+            .setAttribute("net.host.name", "localhost")
+            .setAttribute("net.host.port", 8080L)
+            .setAttribute("http.route", "/api/orders/{id}")
+            .setAttribute("http.status_code", 200L)
+            .startSpan();
+    Span client =
+        tracer
+            .spanBuilder("SELECT orders")
+            .setSpanKind(SpanKind.CLIENT)
+            .setParent(Context.root().with(server))
+            .setAttribute("db.system", "postgresql")
+            .setAttribute("db.name", "orders")
+            .setAttribute("db.statement", "select * from orders where id = ?")
+            .setAttribute("net.peer.name", "db.example.com")
+            .setAttribute("net.peer.port", 5432L)
+            .startSpan();
+    client.end();
+    server.end();
+
+    serverSpan = new ArrayList<>();
+    serverSpan.add(((ReadableSpan) server).toSpanData());
+    serverAndClientSpans = new ArrayList<>(serverSpan);
+    serverAndClientSpans.add(((ReadableSpan) client).toSpanData());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    telemetryClient.forceFlush().join(10, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  public CompletableResultCode export_serverSpan() {
+    return exporter.export(serverSpan);
+  }
+
+  @Benchmark
+  public CompletableResultCode export_serverAndClientSpans() {
+    return exporter.export(serverAndClientSpans);
+  }
+}
@@ -0,0 +1,158 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAction;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorActionType;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorType;
+import com.microsoft.applicationinsights.agent.internal.processors.AttributeProcessor;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithProcessors;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributeProcessorBenchmark {
+
+  @Param({"1", "5", "10"})
+  public int actionCount;
+
+  private AttributeProcessor attributeProcessor;
+  // same actions, but spread across one processor per action
+  private SpanExporter processorPipeline;
+  private List<SpanData> spans;
+  private SpanData span;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    ProcessorConfig config = new ProcessorConfig();
+    config.type = ProcessorType.ATTRIBUTE;
+    config.id = "benchmark";
+    for (int i = 0; i < actionCount; i++) {
+      config.actions.add(newAction(i));
+    }
+    attributeProcessor = AttributeProcessor.create(config, false);
+
+    List<ProcessorConfig> configs = new ArrayList<>();
+    for (int i = 0; i < actionCount; i++) {
+      ProcessorConfig processorConfig = new ProcessorConfig();
+      processorConfig.type = ProcessorType.ATTRIBUTE;
+      processorConfig.id = "benchmark" + i;
+      processorConfig.actions.add(newAction(i));
+      configs.add(processorConfig);
+    }
+    processorPipeline = new SpanExporterWithProcessors(configs, new NoopSpanExporter());
+
+    Tracer tracer =
+        OpenTelemetrySdk.builder()
+            .setTracerProvider(SdkTracerProvider.builder().build())
+            .build()
+            .getTracer("benchmark");
+    Span span =
+        tracer
+            .spanBuilder("GET /api/orders/{id}")
+            .setSpanKind(SpanKind.SERVER)
+            .setAttribute("http.method", "GET")
+            .setAttribute("http.target", "/api/orders/123?token=secret")
+            .setAttribute("http.status_code", 200L)
+            .setAttribute("user.email", "someone@example.com")
+            .setAttribute("user.id", "12345")
+            .setAttribute("db.statement", "select * from orders where id = 123")
+            .startSpan();
+    this.span = ((ReadableSpan) span).toSpanData();
+    this.spans = Collections.singletonList(this.span);
+    span.end();
+  }
+
+  @Benchmark
+  public SpanData processActions() {
+    return attributeProcessor.processActions(span);
+  }
+
+  @Benchmark
+  public CompletableResultCode processorPipeline() {
+    return processorPipeline.export(spans);
+  }
+
+  // cycles through the action types, so that higher action counts exercise all of them
+  private static ProcessorAction newAction(int i) {
+    switch (i % 6) {
+      case 0:
+        return new ProcessorAction(
+            "inserted." + i, ProcessorActionType.INSERT, "value", null, null, null);
+      case 1:
+        return new ProcessorAction(
+            "user.id", ProcessorActionType.UPDATE, "redacted", null, null, null);
+      case 2:
+        return new ProcessorAction(
+            "db.statement", ProcessorActionType.DELETE, null, null, null, null);
+      case 3:
+        return new ProcessorAction(
+            "user.email", ProcessorActionType.HASH, null, null, null, null);
+      case 4:
+        return new ProcessorAction(
+            "http.target",
+            ProcessorActionType.EXTRACT,
+            null,
+            null,
+            "^/api/(?<resource>[a-z]+)/.*$",
+            null);
+      default:
+        return new ProcessorAction(
+            "http.target",
+            ProcessorActionType.MASK,
+            null,
+            null,
+            "token=[^&]*",
+            "token=***");
+    }
+  }
+
+  private static class NoopSpanExporter implements SpanExporter {
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+}
@@ -0,0 +1,64 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchItemProcessorBenchmark {
+
+  private BatchItemProcessor batchItemProcessor;
+  private TelemetryItem telemetryItem;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    TelemetryClient telemetryClient = InMemoryTelemetry.newTelemetryClient();
+    batchItemProcessor = telemetryClient.getGeneralBatchItemProcessor();
+    telemetryItem = InMemoryTelemetry.newMessageTelemetry(telemetryClient);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    batchItemProcessor.shutdown().join(10, TimeUnit.SECONDS);
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void trackAsync_01Thread() {
+    batchItemProcessor.trackAsync(telemetryItem);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void trackAsync_04Threads() {
+    batchItemProcessor.trackAsync(telemetryItem);
+  }
+
+  @Benchmark
+  @Threads(16)
+  public void trackAsync_16Threads() {
+    batchItemProcessor.trackAsync(telemetryItem);
+  }
+}
@@ -0,0 +1,51 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.azure.core.http.HttpClient;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.test.http.MockHttpResponse;
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MessageTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.statsbeat.StatsbeatModule;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import reactor.core.publisher.Mono;
+
+// in-memory stand-in for the ingestion endpoint, so that the benchmarks can run offline
+final class InMemoryTelemetry {
+
+  static final String CONNECTION_STRING =
+      "InstrumentationKey=00000000-0000-0000-0000-0000000000ff;"
+          + "IngestionEndpoint=http://localhost:1/";
+
+  private InMemoryTelemetry() {}
+
+  static TelemetryClient newTelemetryClient() {
+    HttpPipeline httpPipeline =
+        new HttpPipelineBuilder()
+            .httpClient((HttpClient) request -> Mono.just(new MockHttpResponse(request, 200)))
+            .build();
+
+    return TelemetryClient.builder()
+        .setCustomDimensions(new HashMap<>())
+        .setMetricFilters(new ArrayList<>())
+        .setStatsbeatModule(new StatsbeatModule(response -> {}))
+        .setGeneralExportQueueSize(65536)
+        .setMetricsExportQueueSize(65536)
+        .setConnectionStrings(CONNECTION_STRING, null, null)
+        .setHttpPipeline(httpPipeline)
+        .build();
+  }
+
+  static TelemetryItem newMessageTelemetry(TelemetryClient telemetryClient) {
+    MessageTelemetryBuilder telemetryBuilder = telemetryClient.newMessageTelemetryBuilder();
+    telemetryBuilder.setMessage("benchmark message");
+    telemetryBuilder.setTime(FormattedTime.offSetDateTimeFromNow());
+    return telemetryBuilder.build();
+  }
+}
@@ -0,0 +1,77 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.OperatingSystemInteractionException;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxKernelStats;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxMemoryInfoReader;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.LinuxProcessCpuStats;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// only meaningful on linux, since these read from /proc
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcReadersBenchmark {
+
+  private LinuxProcessCpuStats processCpuStats;
+  private LinuxMemoryInfoReader memoryInfoReader;
+  private LinuxKernelStats kernelStats;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    File self = new File("/proc/self");
+    if (!self.exists()) {
+      throw new IllegalStateException("ProcReadersBenchmark requires /proc (linux only)");
+    }
+    processCpuStats = new LinuxProcessCpuStats(self);
+    memoryInfoReader = new LinuxMemoryInfoReader();
+    kernelStats = new LinuxKernelStats();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    processCpuStats.close();
+    memoryInfoReader.close();
+    kernelStats.close();
+  }
+
+  @Benchmark
+  public Object processCpuStats() {
+    processCpuStats.poll();
+    processCpuStats.update();
+    return processCpuStats.getTotalTime();
+  }
+
+  @Benchmark
+  public Object memoryInfo() {
+    memoryInfoReader.poll();
+    memoryInfoReader.update();
+    return memoryInfoReader.getMemoryInfo();
+  }
+
+  @Benchmark
+  public Object kernelStats() throws OperatingSystemInteractionException {
+    kernelStats.poll();
+    kernelStats.update();
+    return kernelStats.getCounters();
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.benchmarks;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MatchType;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SamplingOverride;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SamplingOverrideAttribute;
+import com.microsoft.applicationinsights.agent.internal.sampling.SamplingOverrides;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplingOverridesBenchmark {
+
+  @Param({"1", "10", "100"})
+  public int overrideCount;
+
+  private SamplingOverrides samplingOverrides;
+  private Attributes matchingLastAttributes;
+  private Attributes notMatchingAttributes;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    List<SamplingOverride> overrides = new ArrayList<>();
+    for (int i = 0; i < overrideCount; i++) {
+      // alternate between strict and regexp, which is typical of health check suppression
+      if (i % 2 == 0) {
+        overrides.add(
+            newOverride(newAttribute("http.target", "/health/" + i, MatchType.STRICT)));
+      } else {
+        overrides.add(
+            newOverride(newAttribute("http.url", "https?://[^/]+/ping/" + i, MatchType.REGEXP)));
+      }
+    }
+    samplingOverrides = new SamplingOverrides(overrides);
+
+    int last = overrideCount - 1;
+    matchingLastAttributes =
+        last % 2 == 0
+            ? Attributes.of(SemanticAttributes.HTTP_TARGET, "/health/" + last)
+            : Attributes.of(SemanticAttributes.HTTP_URL, "http://localhost:8080/ping/" + last);
+    notMatchingAttributes =
+        Attributes.builder()
+            .put(SemanticAttributes.HTTP_METHOD, "GET")
+            .put(SemanticAttributes.HTTP_SCHEME, "http")
+            .put(SemanticAttributes.HTTP_TARGET, "/api/orders/123")
+            .put(SemanticAttributes.NET_HOST_NAME, "localhost")
+            .put(SemanticAttributes.NET_HOST_PORT, 8080L)
+            .build();
+  }
+
+  @Benchmark
+  public Sampler getOverride_matchingLast() {
+    return samplingOverrides.getOverride(matchingLastAttributes);
+  }
+
+  @Benchmark
+  public Sampler getOverride_notMatching() {
+    return samplingOverrides.getOverride(notMatchingAttributes);
+  }
+
+  private static SamplingOverride newOverride(SamplingOverrideAttribute attribute) {
+    SamplingOverride override = new SamplingOverride();
+    override.attributes.add(attribute);
+    override.percentage = 0.0;
+    return override;
+  }
+
+  private static SamplingOverrideAttribute newAttribute(
+      String key, String value, MatchType matchType) {
+    SamplingOverrideAttribute attribute = new SamplingOverrideAttribute();
+    attribute.key = key;
+    attribute.value = value;
+    attribute.matchType = matchType;
+    return attribute;
+  }
+}
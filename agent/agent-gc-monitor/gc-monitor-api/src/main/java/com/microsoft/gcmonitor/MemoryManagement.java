@@ -26,4 +26,12 @@ public interface MemoryManagement {
 
   /** Returns the memory management group that manages this JVM. */
   MemoryManagers getCollectorGroup();
+
+  /**
+   * Returns the number of gc notifications that were dropped, because they arrived faster than
+   * they could be processed, since monitoring started.
+   */
+  default long getDroppedNotificationCount() {
+    return 0;
+  }
 }
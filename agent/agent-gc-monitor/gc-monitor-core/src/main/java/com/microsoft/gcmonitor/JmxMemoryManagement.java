@@ -19,6 +19,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.JMX;
@@ -38,6 +39,7 @@ public class JmxMemoryManagement implements MemoryManagement {
   private Set<JmxGarbageCollectorStats> collectors;
   private RuntimeMXBean runtimeBean;
   private MemoryManagers collectorGroup;
+  @Nullable private NotificationObserver notificationObserver;
 
   public static JmxMemoryManagement create(
       MBeanServerConnection connection, ExecutorService executorService, GcEventConsumer consumer)
@@ -82,6 +84,7 @@ public class JmxMemoryManagement implements MemoryManagement {
       throws UnableToMonitorMemoryException {
     NotificationObserver observer = new NotificationObserver(executorService);
     observer.watchGcNotificationEvents();
+    notificationObserver = observer;
     try {
       collectors.forEach(
           collector -> {
@@ -108,7 +111,7 @@ public class JmxMemoryManagement implements MemoryManagement {
   public JmxGarbageCollectorStats getJmxGarbageCollector(
       MBeanServerConnection connection, GcEventConsumer consumer, ObjectName name)
       throws UnableToMonitorMemoryException {
-    return new JmxGarbageCollectorStats(this, connection, name, consumer);
+    return new JmxGarbageCollectorStats(connection, name, consumer);
   }
 
   private static Set<MemoryPool> initPools(
@@ -172,4 +175,9 @@ public class JmxMemoryManagement implements MemoryManagement {
   public MemoryManagers getCollectorGroup() {
     return collectorGroup;
   }
+
+  @Override
+  public long getDroppedNotificationCount() {
+    return notificationObserver == null ? 0 : notificationObserver.getDroppedNotificationCount();
+  }
 }
@@ -4,17 +4,15 @@
 package com.microsoft.gcmonitor.collectors;
 
 import com.microsoft.gcmonitor.GcCollectionEvent;
-import com.microsoft.gcmonitor.MemoryManagement;
 import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.MemoryUsage;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import javax.management.openmbean.CompositeData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,47 +37,46 @@ class GcCollectionSample implements GcCollectionEvent {
   private final String gcCause;
   private final String gcAction;
 
-  private final Map<MemoryPool, MemoryUsage> memoryUsageBeforeGc;
-  private final Map<MemoryPool, MemoryUsage> memoryUsageAfterGc;
+  private final PoolUsages memoryUsageBeforeGc;
+  private final PoolUsages memoryUsageAfterGc;
 
-  public GcCollectionSample(
+  GcCollectionSample(
       GarbageCollector collector,
       CompositeData collectionData,
       String gcCause,
       String gcAction,
-      MemoryManagement memoryManagement) {
+      Map<String, MemoryPool> poolsByName) {
     this.collector = collector;
     id = (Long) collectionData.get(ID);
     gcThreadCount = (Integer) collectionData.get(GC_THREAD_COUNT);
     duration = (Long) collectionData.get(DURATION);
     endTime = (Long) collectionData.get(END_TIME);
     memoryUsageBeforeGc =
-        groupMemoryUsageByPoolName(collectionData.get(MEMORY_USAGE_BEFORE_GC), memoryManagement);
+        groupMemoryUsageByPoolName(collectionData.get(MEMORY_USAGE_BEFORE_GC), poolsByName);
     memoryUsageAfterGc =
-        groupMemoryUsageByPoolName(collectionData.get(MEMORY_USAGE_AFTER_GC), memoryManagement);
+        groupMemoryUsageByPoolName(collectionData.get(MEMORY_USAGE_AFTER_GC), poolsByName);
     this.gcCause = gcCause;
     this.gcAction = gcAction;
   }
 
-  private static Map<MemoryPool, MemoryUsage> groupMemoryUsageByPoolName(
-      Object map, MemoryManagement memoryManagement) {
+  private static PoolUsages groupMemoryUsageByPoolName(
+      Object map, Map<String, MemoryPool> poolsByName) {
     @SuppressWarnings("unchecked")
     Map<List<String>, CompositeData> byName = (Map<List<String>, CompositeData>) map;
-    Map<MemoryPool, MemoryUsage> byIdentifier = new HashMap<>();
+    PoolUsages byIdentifier = new PoolUsages(byName.size());
     try {
-      for (Map.Entry<List<String>, CompositeData> pool : byName.entrySet()) {
-        Iterator<?> pair = pool.getValue().values().iterator();
+      for (CompositeData pool : byName.values()) {
+        Iterator<?> pair = pool.values().iterator();
 
-        Optional<MemoryPool> name = memoryManagement.getPool((String) pair.next());
-        if (name.isPresent()) {
-          MemoryUsage usage = MemoryUsage.from((CompositeData) pair.next());
-          byIdentifier.put(name.get(), usage);
+        MemoryPool memoryPool = poolsByName.get((String) pair.next());
+        if (memoryPool != null) {
+          byIdentifier.add(memoryPool, MemoryUsage.from((CompositeData) pair.next()));
         }
       }
     } catch (RuntimeException e) {
       LOGGER.error("Failed to group pool data", e);
     }
-    return Collections.unmodifiableMap(byIdentifier);
+    return byIdentifier;
   }
 
   @Override
@@ -92,25 +89,18 @@ class GcCollectionSample implements GcCollectionEvent {
     return aggregateMemoryPools(pools, memoryUsageBeforeGc);
   }
 
-  private static MemoryUsage aggregateMemoryPools(
-      List<MemoryPool> pools, Map<MemoryPool, MemoryUsage> pool) {
-    return pools.stream()
-        .map(pool::get)
-        .reduce(
-            new MemoryUsage(0, 0, 0, -1),
-            (acc, value) -> {
-              long max;
-              if (acc.getMax() == -1 || value.getMax() == -1) {
-                max = -1;
-              } else {
-                max = acc.getMax() + value.getMax();
-              }
-              return new MemoryUsage(
-                  acc.getInit() + value.getInit(),
-                  acc.getUsed() + value.getUsed(),
-                  acc.getCommitted() + value.getCommitted(),
-                  max);
-            });
+  private static MemoryUsage aggregateMemoryPools(List<MemoryPool> pools, PoolUsages usages) {
+    long init = 0;
+    long used = 0;
+    long committed = 0;
+    for (MemoryPool pool : pools) {
+      MemoryUsage value = usages.get(pool);
+      init += value.getInit();
+      used += value.getUsed();
+      committed += value.getCommitted();
+    }
+    // the max of the aggregate is reported as undefined
+    return new MemoryUsage(init, used, committed, -1);
   }
 
   @Override
@@ -160,13 +150,51 @@ class GcCollectionSample implements GcCollectionEvent {
 
   @Override
   public Optional<MemoryPool> getTenuredPool() {
-    return memoryUsageAfterGc.keySet().stream().filter(MemoryPool::isTenuredPool).findFirst();
+    for (int i = 0; i < memoryUsageAfterGc.size; i++) {
+      if (memoryUsageAfterGc.pools[i].isTenuredPool()) {
+        return Optional.of(memoryUsageAfterGc.pools[i]);
+      }
+    }
+    return Optional.empty();
   }
 
   @Override
   public List<MemoryPool> getYoungPools() {
-    return memoryUsageAfterGc.keySet().stream()
-        .filter(MemoryPool::isYoungPool)
-        .collect(Collectors.toList());
+    List<MemoryPool> youngPools = new ArrayList<>(memoryUsageAfterGc.size);
+    for (int i = 0; i < memoryUsageAfterGc.size; i++) {
+      if (memoryUsageAfterGc.pools[i].isYoungPool()) {
+        youngPools.add(memoryUsageAfterGc.pools[i]);
+      }
+    }
+    return youngPools;
+  }
+
+  // there are only a handful of pools, so parallel arrays that are searched linearly are cheaper to
+  // build and to read than a hash map
+  private static class PoolUsages {
+    private final MemoryPool[] pools;
+    private final MemoryUsage[] usages;
+    private int size;
+
+    private PoolUsages(int capacity) {
+      pools = new MemoryPool[capacity];
+      usages = new MemoryUsage[capacity];
+    }
+
+    private void add(MemoryPool pool, MemoryUsage usage) {
+      pools[size] = pool;
+      usages[size] = usage;
+      size++;
+    }
+
+    @Nullable
+    private MemoryUsage get(MemoryPool pool) {
+      for (int i = 0; i < size; i++) {
+        if (pools[i].equals(pool)) {
+          return usages[i];
+        }
+      }
+      return null;
+    }
   }
 }
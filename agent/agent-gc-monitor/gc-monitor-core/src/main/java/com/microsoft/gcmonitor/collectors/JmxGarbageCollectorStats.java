@@ -4,7 +4,6 @@
 package com.microsoft.gcmonitor.collectors;
 
 import com.microsoft.gcmonitor.GcEventConsumer;
-import com.microsoft.gcmonitor.MemoryManagement;
 import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
 import com.microsoft.gcmonitor.garbagecollectors.GarbageCollector;
 import com.microsoft.gcmonitor.garbagecollectors.GarbageCollectorStats;
@@ -13,7 +12,9 @@ import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.GarbageCollectorMXBean;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import javax.management.JMX;
 import javax.management.MBeanServerConnection;
 import javax.management.Notification;
@@ -24,17 +25,17 @@ import javax.management.openmbean.CompositeData;
 public class JmxGarbageCollectorStats implements GarbageCollectorStats {
 
   private final List<MemoryPool> managedPools;
+  // all pools by name, so that the pools of a collection can be looked up without a search
+  private final Map<String, MemoryPool> poolsByName = new HashMap<>();
   private final IncrementalCounter countCounter;
   private final IncrementalCounter timeCounter;
 
   private final GarbageCollectorMXBean mxbean;
   private final ObjectName name;
   private final GcEventConsumer observer;
-  private final MemoryManagement memoryManagement;
   private final GarbageCollector garbageCollector;
 
   public JmxGarbageCollectorStats(
-      MemoryManagement memoryManagement,
       MBeanServerConnection connection,
       ObjectName name,
       GcEventConsumer observer)
@@ -46,7 +47,6 @@ public class JmxGarbageCollectorStats implements GarbageCollectorStats {
       countCounter = new IncrementalCounter();
       timeCounter = new IncrementalCounter();
       this.observer = observer;
-      this.memoryManagement = memoryManagement;
 
       String gcName = (String) connection.getAttribute(name, "Name");
       this.garbageCollector = GarbageCollectors.create(gcName, this);
@@ -57,6 +57,7 @@ public class JmxGarbageCollectorStats implements GarbageCollectorStats {
 
   public void visitPools(Collection<MemoryPool> collection) {
     for (MemoryPool memoryPool : collection) {
+      poolsByName.put(memoryPool.getName(), memoryPool);
       if (memoryPool.isManagedBy(garbageCollector)) {
         managedPools.add(memoryPool);
       }
@@ -91,7 +92,7 @@ public class JmxGarbageCollectorStats implements GarbageCollectorStats {
                 (CompositeData) data.get("gcInfo"),
                 (String) data.get("gcCause"),
                 (String) data.get("gcAction"),
-                memoryManagement);
+                poolsByName);
         observer.accept(cs);
       }
     }
@@ -5,8 +5,7 @@ package com.microsoft.gcmonitor.notifications;
 
 import com.microsoft.gcmonitor.collectors.JmxGarbageCollectorStats;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import javax.management.Notification;
 import javax.management.NotificationListener;
@@ -16,40 +15,94 @@ import org.slf4j.LoggerFactory;
 /**
  * Provides an execution context for the observers to receive notifications off of the original
  * thread.
+ *
+ * <p>Notifications are handed over through a preallocated ring buffer, whose slots are reused, so
+ * that no objects are created per notification on the (shared) JMX notification thread. That thread
+ * is never blocked, so if the ring buffer is full the notification is dropped, and counted (see
+ * {@link #getDroppedNotificationCount()}).
  */
 public class NotificationObserver implements NotificationListener {
   private static final Logger LOGGER = LoggerFactory.getLogger(NotificationObserver.class);
-  private static final int MAX_QUEUE_SIZE = 1000;
-  private final LinkedBlockingQueue<NotificationJob> workQueue =
-      new LinkedBlockingQueue<>(MAX_QUEUE_SIZE);
+
+  // a full heap can produce a burst of collections, this leaves plenty of room for that
+  public static final int DEFAULT_CAPACITY = 1024;
+
   private final ExecutorService executorService;
 
+  private final Object lock = new Object();
+  private final NotificationJob[] ring;
+  // the capacity is a power of two, so that the slot of a sequence number can be masked out
+  private final int mask;
+  // sequence numbers of the next slot to read and the next slot to write (guarded by lock)
+  private long head;
+  private long tail;
+
+  private final AtomicLong droppedNotifications = new AtomicLong();
+
   public NotificationObserver(ExecutorService executorService) {
-    this.executorService = executorService;
+    this(executorService, DEFAULT_CAPACITY);
   }
 
-  public static class NotificationJob {
-    final JmxGarbageCollectorStats collector;
-    final Notification notification;
-
-    public NotificationJob(JmxGarbageCollectorStats collector, Notification notification) {
-      this.collector = collector;
-      this.notification = notification;
+  /** Creates an observer that buffers (at least) the given number of notifications. */
+  public NotificationObserver(ExecutorService executorService, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    this.executorService = executorService;
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    ring = new NotificationJob[size];
+    for (int i = 0; i < size; i++) {
+      ring[i] = new NotificationJob();
     }
+    mask = size - 1;
+  }
+
+  // a slot of the ring buffer, which is reused once its notification has been taken
+  private static class NotificationJob {
+    @Nullable private JmxGarbageCollectorStats collector;
+    @Nullable private Notification notification;
   }
 
   /** Enqueue notification to be executed. */
   @Override
   public void handleNotification(@Nullable Notification notification, Object handback) {
+    if (notification == null) {
+      return;
+    }
     try {
-      if (notification != null) {
-        workQueue.offer(new NotificationJob((JmxGarbageCollectorStats) handback, notification));
+      JmxGarbageCollectorStats collector = (JmxGarbageCollectorStats) handback;
+      synchronized (lock) {
+        if (tail - head < ring.length) {
+          NotificationJob job = ring[(int) (tail & mask)];
+          job.collector = collector;
+          job.notification = notification;
+          if (tail++ == head) {
+            // the ring buffer was empty, so the event loop may be waiting
+            lock.notifyAll();
+          }
+          return;
+        }
+      }
+      long dropped = droppedNotifications.incrementAndGet();
+      if (dropped == 1) {
+        LOGGER.warn(
+            "GC notifications are arriving faster than they can be processed, dropping them");
+      } else {
+        LOGGER.debug("Dropped gc notification, {} dropped so far", dropped);
       }
     } catch (RuntimeException e) {
       LOGGER.error("Failed to process gc notification", e);
     }
   }
 
+  /** Returns the number of notifications that were dropped because the ring buffer was full. */
+  public long getDroppedNotificationCount() {
+    return droppedNotifications.get();
+  }
+
   /** Start event loop that monitors for new notifications and processes them. */
   public void watchGcNotificationEvents() {
     executorService.submit(
@@ -57,10 +110,23 @@ public class NotificationObserver implements NotificationListener {
           try {
             //noinspection InfiniteLoopStatement
             while (true) {
+              JmxGarbageCollectorStats collector;
+              Notification notification;
+              synchronized (lock) {
+                while (head == tail) {
+                  lock.wait();
+                }
+                NotificationJob job = ring[(int) (head & mask)];
+                collector = job.collector;
+                notification = job.notification;
+                // release the references, so that the slot does not keep the notification alive
+                job.collector = null;
+                job.notification = null;
+                head++;
+              }
               try {
-                NotificationJob sample = workQueue.poll(Long.MAX_VALUE, TimeUnit.SECONDS);
-                if (sample != null) {
-                  sample.collector.update(sample.notification);
+                if (collector != null && notification != null) {
+                  collector.update(notification);
                 }
               } catch (RuntimeException e) {
                 LOGGER.error("Error while reading GC notification data", e);
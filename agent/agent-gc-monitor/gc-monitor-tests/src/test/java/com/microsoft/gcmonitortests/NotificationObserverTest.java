@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.gcmonitortests;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
+import com.microsoft.gcmonitor.collectors.JmxGarbageCollectorStats;
+import com.microsoft.gcmonitor.notifications.NotificationObserver;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.management.Notification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class NotificationObserverTest {
+
+  private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  @AfterEach
+  void tearDown() {
+    // interrupts the event loop
+    executorService.shutdownNow();
+  }
+
+  @Test
+  void deliversNotificationsInOrder() throws Exception {
+    NotificationObserver observer = new NotificationObserver(executorService, 16);
+    RecordingCollectorStats collector = new RecordingCollectorStats(100);
+    observer.watchGcNotificationEvents();
+
+    // more notifications than the ring buffer holds, which wraps around as they are taken
+    for (int i = 0; i < 100; i++) {
+      observer.handleNotification(newNotification(i), collector);
+      if (i % 10 == 9) {
+        collector.awaitUpdates(i + 1);
+      }
+    }
+
+    assertThat(collector.awaitAll()).isTrue();
+    assertThat(collector.sequenceNumbers).hasSize(100).isSorted();
+    assertThat(observer.getDroppedNotificationCount()).isZero();
+  }
+
+  @Test
+  void dropsNotificationsWhenTheRingBufferIsFull() throws Exception {
+    // rounded up to a ring buffer of 4 notifications
+    NotificationObserver observer = new NotificationObserver(executorService, 3);
+    RecordingCollectorStats collector = new RecordingCollectorStats(5);
+    collector.blockUpdates();
+    observer.watchGcNotificationEvents();
+
+    // taken by the event loop, which then blocks while processing it
+    observer.handleNotification(newNotification(0), collector);
+    collector.awaitUpdateStarted();
+
+    // fill the ring buffer, and then some
+    for (int i = 1; i < 8; i++) {
+      observer.handleNotification(newNotification(i), collector);
+    }
+    assertThat(observer.getDroppedNotificationCount()).isEqualTo(3);
+
+    collector.unblockUpdates();
+    assertThat(collector.awaitAll()).isTrue();
+    assertThat(collector.sequenceNumbers).containsExactly(0L, 1L, 2L, 3L, 4L);
+
+    // there is room again
+    observer.handleNotification(newNotification(8), collector);
+    assertThat(observer.getDroppedNotificationCount()).isEqualTo(3);
+  }
+
+  private static Notification newNotification(long sequenceNumber) {
+    return new Notification("test", "test", sequenceNumber);
+  }
+
+  // records the notifications that are delivered to it, instead of reading the gc info
+  private static class RecordingCollectorStats extends JmxGarbageCollectorStats {
+
+    private final List<Long> sequenceNumbers = new CopyOnWriteArrayList<>();
+    private final CountDownLatch updates;
+    private final CountDownLatch updateStarted = new CountDownLatch(1);
+    private volatile CountDownLatch unblock = new CountDownLatch(0);
+
+    private RecordingCollectorStats(int expectedUpdates) throws UnableToMonitorMemoryException {
+      super(
+          ManagementFactory.getPlatformMBeanServer(),
+          ManagementFactory.getGarbageCollectorMXBeans().get(0).getObjectName(),
+          event -> {});
+      updates = new CountDownLatch(expectedUpdates);
+    }
+
+    @Override
+    public void update(Notification notification) {
+      updateStarted.countDown();
+      try {
+        unblock.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      sequenceNumbers.add(notification.getSequenceNumber());
+      updates.countDown();
+    }
+
+    private void blockUpdates() {
+      unblock = new CountDownLatch(1);
+    }
+
+    private void unblockUpdates() {
+      unblock.countDown();
+    }
+
+    private void awaitUpdateStarted() throws InterruptedException {
+      assertThat(updateStarted.await(10, SECONDS)).isTrue();
+    }
+
+    private void awaitUpdates(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + SECONDS.toNanos(10);
+      while (sequenceNumbers.size() < count) {
+        assertThat(System.nanoTime()).isLessThan(deadline);
+        Thread.sleep(1);
+      }
+    }
+
+    private boolean awaitAll() throws InterruptedException {
+      return updates.await(10, SECONDS);
+    }
+  }
+}
@@ -9,11 +9,21 @@ import java.time.Instant;
 public abstract class TimeSource {
   public abstract Instant getNow();
 
+  /** Current time in epoch millis, which sources can provide without allocating an Instant. */
+  public long getNowMillis() {
+    return getNow().toEpochMilli();
+  }
+
   public static final TimeSource DEFAULT =
       new TimeSource() {
         @Override
         public Instant getNow() {
           return Instant.now();
         }
+
+        @Override
+        public long getNowMillis() {
+          return System.currentTimeMillis();
+        }
       };
 }
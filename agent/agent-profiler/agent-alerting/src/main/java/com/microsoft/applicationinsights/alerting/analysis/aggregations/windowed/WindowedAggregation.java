@@ -4,99 +4,121 @@
 package com.microsoft.applicationinsights.alerting.analysis.aggregations.windowed;
 
 import com.microsoft.applicationinsights.alerting.analysis.TimeSource;
-import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * Holds a series of buckets of fixed duration. Each bucket aggregates data gathered within that
- * time period.
+ * Holds a fixed-size ring of buckets of fixed duration, indexed by time slot. Each bucket
+ * aggregates the count and the sum of the samples gathered within that time period.
+ *
+ * <p>Updates are lock-free, as this is fed from the request path.
  */
-public class WindowedAggregation<T extends BucketData<U>, U> {
+public class WindowedAggregation {
   public static final int BUCKET_DURATION_SECONDS = 2;
-  private final long windowLengthInSec;
+  private static final long BUCKET_DURATION_MILLIS =
+      TimeUnit.SECONDS.toMillis(BUCKET_DURATION_SECONDS);
+
+  private final long windowLengthMillis;
   private final TimeSource timeSource;
 
-  private final Object bucketLock = new Object();
-  private final List<WindowedAggregationBucket<T, U>> buckets =
-      Collections.synchronizedList(new ArrayList<>());
-  private WindowedAggregationBucket<T, U> currentBucket;
-  private final Supplier<T> bucketFactory;
+  // a bucket is replaced (instead of reset) when its index is reused for a new time slot, so that
+  // concurrent updates never end up in the wrong time slot
+  private final AtomicReferenceArray<Bucket> buckets;
 
   // Determines if the current bucket that is in the process of being calculated is included
   // in the returned data
   private final boolean trackCurrentBucket;
 
   public WindowedAggregation(
-      long windowLengthInSec,
-      TimeSource timeSource,
-      Supplier<T> bucketFactory,
-      boolean trackCurrentBucket) {
-    this.windowLengthInSec = windowLengthInSec;
+      long windowLengthInSec, TimeSource timeSource, boolean trackCurrentBucket) {
+    this.windowLengthMillis = TimeUnit.SECONDS.toMillis(windowLengthInSec);
     this.timeSource = timeSource;
-    this.bucketFactory = bucketFactory;
     this.trackCurrentBucket = trackCurrentBucket;
 
-    Instant now = timeSource.getNow();
-    currentBucket =
-        new WindowedAggregationBucket<>(
-            now.plusSeconds(BUCKET_DURATION_SECONDS), bucketFactory.get());
-    if (trackCurrentBucket) {
-      buckets.add(currentBucket);
-    }
+    // enough for every bucket that overlaps the window, plus the current bucket
+    int bucketCount = (int) (Math.max(0, windowLengthInSec) / BUCKET_DURATION_SECONDS) + 3;
+    buckets = new AtomicReferenceArray<>(bucketCount);
   }
 
-  public void update(U breached) {
-    getBucket().update(breached);
+  public void update(double sample) {
+    getBucket(timeSource.getNowMillis() / BUCKET_DURATION_MILLIS).update(sample);
   }
 
-  public List<T> getData() {
-    Instant now = timeSource.getNow();
-    Instant cutoff = now.minusSeconds(windowLengthInSec);
-    removeBucketsBeforeCutoff(cutoff);
-    return buckets.stream().map(WindowedAggregationBucket::getData).collect(Collectors.toList());
+  /** Returns the totals of the buckets within the window. */
+  public Snapshot getSnapshot() {
+    long now = timeSource.getNowMillis();
+    long currentSlot = now / BUCKET_DURATION_MILLIS;
+    long cutoff = now - windowLengthMillis;
+
+    long count = 0;
+    double sum = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      Bucket bucket = buckets.get(i);
+      if (bucket == null || bucket.slot > currentSlot) {
+        continue;
+      }
+      if (bucket.slot == currentSlot && !trackCurrentBucket) {
+        continue;
+      }
+      // Skip buckets that ended before the cutoff
+      if ((bucket.slot + 1) * BUCKET_DURATION_MILLIS < cutoff) {
+        continue;
+      }
+      count += bucket.count.sum();
+      sum += bucket.sum.sum();
+    }
+    return new Snapshot(count, sum);
   }
 
-  private WindowedAggregationBucket<T, U> getBucket() {
-    synchronized (bucketLock) {
-      Instant now = timeSource.getNow();
-
-      if (currentBucket.getBucketEnd().isBefore(now)) {
-        // Gone past end of current bucket, close it off and create a new bucket
+  private Bucket getBucket(long slot) {
+    int index = (int) (slot % buckets.length());
+    while (true) {
+      Bucket bucket = buckets.get(index);
+      if (bucket != null && bucket.slot >= slot) {
+        // (a later slot only happens if the time source went backwards, in which case the sample
+        // is simply counted in the later slot)
+        return bucket;
+      }
+      Bucket newBucket = new Bucket(slot);
+      if (buckets.compareAndSet(index, bucket, newBucket)) {
+        return newBucket;
+      }
+    }
+  }
 
-        Instant cutoff = now.minusSeconds(windowLengthInSec);
+  /** Totals of the buckets within the window. */
+  public static class Snapshot {
+    private final long count;
+    private final double sum;
 
-        // Remove old buckets
-        removeBucketsBeforeCutoff(cutoff);
+    Snapshot(long count, double sum) {
+      this.count = count;
+      this.sum = sum;
+    }
 
-        if (!trackCurrentBucket) {
-          // If we are lazily adding to the data set, add the completed bucket
-          buckets.add(currentBucket);
-        }
+    public long getCount() {
+      return count;
+    }
 
-        currentBucket =
-            new WindowedAggregationBucket<>(
-                now.plusSeconds(BUCKET_DURATION_SECONDS), bucketFactory.get());
+    public double getSum() {
+      return sum;
+    }
+  }
 
-        if (trackCurrentBucket) {
-          // If we are eagerly adding to the data set, add it now
-          buckets.add(currentBucket);
-        }
-      }
+  private static class Bucket {
+    private final long slot;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
 
-      return currentBucket;
+    private Bucket(long slot) {
+      this.slot = slot;
     }
-  }
 
-  private void removeBucketsBeforeCutoff(Instant cutoff) {
-    synchronized (bucketLock) {
-      // Remove buckets that ended before the cutoff
-      while (buckets.size() > 0 && buckets.get(0).getBucketEnd().isBefore(cutoff)) {
-        buckets.remove(0);
-      }
+    private void update(double sample) {
+      sum.add(sample);
+      count.increment();
     }
   }
 }
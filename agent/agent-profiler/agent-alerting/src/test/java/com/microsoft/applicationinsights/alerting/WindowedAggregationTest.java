@@ -0,0 +1,75 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.alerting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.alerting.analysis.aggregations.windowed.WindowedAggregation;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class WindowedAggregationTest {
+
+  @Test
+  void excludesCurrentBucketUnlessTracked() {
+    TestTimeSource timeSource = new TestTimeSource();
+    WindowedAggregation lazy = new WindowedAggregation(60, timeSource, false);
+    WindowedAggregation eager = new WindowedAggregation(60, timeSource, true);
+
+    lazy.update(1.0);
+    eager.update(1.0);
+
+    assertThat(lazy.getSnapshot().getCount()).isZero();
+    assertThat(eager.getSnapshot().getCount()).isEqualTo(1);
+
+    timeSource.increment(WindowedAggregation.BUCKET_DURATION_SECONDS * 1000);
+
+    assertThat(lazy.getSnapshot().getCount()).isEqualTo(1);
+    assertThat(eager.getSnapshot().getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void reusesBucketsAsTheWindowMoves() {
+    TestTimeSource timeSource = new TestTimeSource();
+    WindowedAggregation aggregation = new WindowedAggregation(10, timeSource, true);
+
+    // many times around the ring, the window only ever covers the last few buckets
+    for (int i = 0; i < 1000; i++) {
+      aggregation.update(i);
+      timeSource.increment(1000);
+    }
+
+    WindowedAggregation.Snapshot snapshot = aggregation.getSnapshot();
+    // (the window starts in the middle of a bucket, so up to one more bucket is included)
+    assertThat(snapshot.getCount()).isBetween(10L, 12L);
+    assertThat(snapshot.getSum() / snapshot.getCount()).isGreaterThan(985);
+  }
+
+  @Test
+  void countsConcurrentUpdates() throws InterruptedException {
+    TestTimeSource timeSource = new TestTimeSource();
+    WindowedAggregation aggregation = new WindowedAggregation(60, timeSource, true);
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 10000; j++) {
+                  aggregation.update(1.0);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    WindowedAggregation.Snapshot snapshot = aggregation.getSnapshot();
+    assertThat(snapshot.getCount()).isEqualTo(40000);
+    assertThat(snapshot.getSum()).isEqualTo(40000.0);
+  }
+}
@@ -3,7 +3,7 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
-import com.microsoft.applicationinsights.diagnostics.collection.libos.BigIncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.OperatingSystemInteractionException;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.TwoStepUpdatable;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.kernel.KernelCounters;
@@ -12,39 +12,30 @@ import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 
 /** Scrapes data from /proc/stat */
 public class LinuxKernelStats implements KernelStatsReader, TwoStepUpdatable, Closeable {
 
-  private static final int NOTHING_READ = -1;
-
-  private static final Charset PROC_CHARSET = StandardCharsets.US_ASCII;
   private static final String PROC_STAT = "/proc/stat";
 
-  public static final String PROCS_RUNNING = "procs_running";
-  public static final String PROCS_BLOCKED = "procs_blocked";
-  public static final String CTXT = "ctxt";
-
-  private static final int PROCS_RUNNABLE_OFFSET = PROCS_RUNNING.length() + 1;
-  private static final int PROCS_BLOCKED_OFFSET = PROCS_BLOCKED.length() + 1;
-  private static final int CONTEXT_SWITCH_OFFSET = CTXT.length() + 1;
-  private int bufferSize = 1024 * 3;
+  private static final byte[] CPU = "cpu ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PROCS_RUNNING = "procs_running ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] PROCS_BLOCKED = "procs_blocked ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CTXT = "ctxt ".getBytes(StandardCharsets.US_ASCII);
 
   private final RandomAccessFile procFile;
-  private byte[] buff;
-  private int amountRead = NOTHING_READ;
+  private final ProcBuffer contents = new ProcBuffer();
+  private boolean hasContents;
 
-  private final BigIncrementalCounter contextSwitches = new BigIncrementalCounter();
-  private final BigIncrementalCounter userTime = new BigIncrementalCounter();
-  private final BigIncrementalCounter systemTime = new BigIncrementalCounter();
-  private final BigIncrementalCounter idleTime = new BigIncrementalCounter();
-  private final BigIncrementalCounter waitTime = new BigIncrementalCounter();
+  private final IncrementalCounter contextSwitches = new IncrementalCounter();
+  private final IncrementalCounter userTime = new IncrementalCounter();
+  private final IncrementalCounter systemTime = new IncrementalCounter();
+  private final IncrementalCounter idleTime = new IncrementalCounter();
+  private final IncrementalCounter waitTime = new IncrementalCounter();
 
-  private int procsRunnableLineOffset = 0;
-  private int procsBlockedLineOffset = 0;
-  private int ctxLineOffset = 0;
+  private long procsRunnable;
+  private long procsBlocked;
 
   private KernelCounters counters;
 
@@ -55,22 +46,12 @@ public class LinuxKernelStats implements KernelStatsReader, TwoStepUpdatable, Cl
   public LinuxKernelStats(String statFile) {
     try {
       procFile = new RandomAccessFile(statFile, "r");
-      generateBuffer();
+      poll();
     } catch (FileNotFoundException | OperatingSystemInteractionException e) {
       throw new IllegalStateException(e);
     }
   }
 
-  private void generateBuffer() throws OperatingSystemInteractionException {
-    buff = new byte[bufferSize];
-    poll();
-    while (amountRead == bufferSize) {
-      bufferSize += 1024;
-      buff = new byte[bufferSize];
-      poll();
-    }
-  }
-
   @Override
   public KernelCounters getCounters() {
     return counters;
@@ -79,8 +60,9 @@ public class LinuxKernelStats implements KernelStatsReader, TwoStepUpdatable, Cl
   @Override
   public void poll() throws OperatingSystemInteractionException {
     try {
-      procFile.seek(0);
-      amountRead = procFile.read(buff);
+      hasContents = false;
+      contents.read(procFile.getChannel());
+      hasContents = true;
     } catch (IOException e) {
       throw new OperatingSystemInteractionException("Error reading kernel counters", e);
     }
@@ -93,55 +75,46 @@ public class LinuxKernelStats implements KernelStatsReader, TwoStepUpdatable, Cl
 
   @Override
   public void update() throws OperatingSystemInteractionException {
-    if (amountRead != NOTHING_READ) {
-      String[] procStatContents = new String(buff, 0, amountRead, PROC_CHARSET).split("\n");
-
-      String[] cpuSplit = procStatContents[0].split(" ");
-      userTime.newValue(cpuSplit[2]);
-      // skip user niced
-      systemTime.newValue(cpuSplit[4]);
-      idleTime.newValue(cpuSplit[5]);
-      // TODO: optional
-      waitTime.newValue(cpuSplit[6]);
-
-      if (procsRunnableLineOffset == 0) {
-        procsRunnableLineOffset = lineIndexFor(procStatContents, PROCS_RUNNING);
-      }
-      if (procsBlockedLineOffset == 0) {
-        procsBlockedLineOffset = lineIndexFor(procStatContents, PROCS_BLOCKED);
-      }
-      if (ctxLineOffset == 0) {
-        ctxLineOffset = lineIndexFor(procStatContents, CTXT);
-      }
-
-      String contextSwitchString = procStatContents[ctxLineOffset];
-      contextSwitches.newValue(contextSwitchString.substring(CONTEXT_SWITCH_OFFSET));
-
-      String runnableString = procStatContents[procsRunnableLineOffset];
-      long procsRunnable = Long.parseLong(runnableString.substring(PROCS_RUNNABLE_OFFSET));
-      String blockedString = procStatContents[procsBlockedLineOffset];
-      long procsBlocked = Long.parseLong(blockedString.substring(PROCS_BLOCKED_OFFSET));
-
-      updateCounter(procsRunnable, procsBlocked);
-    } else {
+    if (!hasContents) {
       throw new OperatingSystemInteractionException("Must poll before parsing");
     }
+    int limit = contents.limit();
+    int start = 0;
+    while (start < limit) {
+      int end = contents.lineEnd(start);
+      parseLine(start, end);
+      start = end + 1;
+    }
+    updateCounter(procsRunnable, procsBlocked);
   }
 
-  @SuppressWarnings({"AvoidObjectArrays"})
-  public static int lineIndexFor(String[] procStatContents, String lineContents) {
-    int index = 0;
-    while (index < procStatContents.length && !procStatContents[index].contains(lineContents)) {
-      index++;
+  private void parseLine(int start, int end) {
+    if (contents.startsWith(start, end, CPU)) {
+      // cpu  user nice system idle iowait irq softirq ...
+      int field = contents.nextField(start, end);
+      userTime.newValue(contents.parseLong(field, end));
+      // skip user niced
+      field = contents.nextField(contents.nextField(field, end), end);
+      systemTime.newValue(contents.parseLong(field, end));
+      field = contents.nextField(field, end);
+      idleTime.newValue(contents.parseLong(field, end));
+      // TODO: optional
+      field = contents.nextField(field, end);
+      waitTime.newValue(contents.parseLong(field, end));
+    } else if (contents.startsWith(start, end, CTXT)) {
+      contextSwitches.newValue(contents.parseLong(start + CTXT.length, end));
+    } else if (contents.startsWith(start, end, PROCS_RUNNING)) {
+      procsRunnable = contents.parseLong(start + PROCS_RUNNING.length, end);
+    } else if (contents.startsWith(start, end, PROCS_BLOCKED)) {
+      procsBlocked = contents.parseLong(start + PROCS_BLOCKED.length, end);
     }
-    return index;
   }
 
   private void updateCounter(long procsRunnable, long procsBlocked) {
-    long incrementInSystemTime = systemTime.getNonNullIncrement().longValue();
-    long incrementInUserTime = userTime.getNonNullIncrement().longValue();
-    long incrementInIdleTime = idleTime.getNonNullIncrement().longValue();
-    long incrementInWaitTime = waitTime.getNonNullIncrement().longValue();
+    long incrementInSystemTime = systemTime.getIncrement();
+    long incrementInUserTime = userTime.getIncrement();
+    long incrementInIdleTime = idleTime.getIncrement();
+    long incrementInWaitTime = waitTime.getIncrement();
 
     long totalTime =
         incrementInSystemTime + incrementInUserTime + incrementInIdleTime + incrementInWaitTime;
@@ -154,7 +127,7 @@ public class LinuxKernelStats implements KernelStatsReader, TwoStepUpdatable, Cl
 
     this.counters =
         new KernelCounters(
-            contextSwitches.getNonNullIncrement().longValue(),
+            contextSwitches.getIncrement(),
             incrementInUserTime,
             incrementInSystemTime,
             incrementInIdleTime,
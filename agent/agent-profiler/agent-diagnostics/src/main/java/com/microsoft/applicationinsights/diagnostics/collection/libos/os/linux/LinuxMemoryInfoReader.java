@@ -6,63 +6,59 @@ package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.hardware.MemoryInfo;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.hardware.MemoryInfoReader;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 /** Reads memory usage info from /proc/meminfo */
 public class LinuxMemoryInfoReader extends TwoStepProcReader implements MemoryInfoReader {
-  private static final int MEMINFO_LINE_SUFFIX = " kB".length();
   private static final String MEMINFO = "/proc/meminfo";
 
-  private int totalInKbIndex = -1;
-  private int freeInKbIndex = -1;
-  private int virtualMemoryTotalInKbIndex = -1;
-  private int virtualMemoryUsedInKbIndex = -1;
+  private static final byte[] MEM_TOTAL = "MemTotal:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] MEM_FREE = "MemFree:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] VMALLOC_TOTAL = "VmallocTotal:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] VMALLOC_USED = "VmallocUsed:".getBytes(StandardCharsets.US_ASCII);
+
+  private long totalInKb;
+  private long freeInKb;
+  private long virtualMemoryTotalInKb;
+  private long virtualMemoryUsedInKb;
   private MemoryInfo memoryInfo = new MemoryInfo(-1, -1, -1, -1);
 
   public LinuxMemoryInfoReader() {
-    super(new File(MEMINFO));
-  }
-
-  public MemoryInfo readMemoryInfo(String content) {
-    String[] lines = content.split("\n");
-
-    if (totalInKbIndex == -1) {
-      totalInKbIndex = LinuxKernelStats.lineIndexFor(lines, "MemTotal");
-    }
-
-    if (freeInKbIndex == -1) {
-      freeInKbIndex = LinuxKernelStats.lineIndexFor(lines, "MemFree");
-    }
-
-    if (virtualMemoryTotalInKbIndex == -1) {
-      virtualMemoryTotalInKbIndex = LinuxKernelStats.lineIndexFor(lines, "VmallocTotal");
-    }
-
-    if (virtualMemoryUsedInKbIndex == -1) {
-      virtualMemoryUsedInKbIndex = LinuxKernelStats.lineIndexFor(lines, "VmallocUsed");
-    }
-
-    long totalInKb = readMemoryNumber(lines[totalInKbIndex]);
-    long freeInKb = readMemoryNumber(lines[freeInKbIndex]);
-    long virtualMemoryTotalInKb = readMemoryNumber(lines[virtualMemoryTotalInKbIndex]);
-    long virtualMemoryUsedInKb = readMemoryNumber(lines[virtualMemoryUsedInKbIndex]);
-
-    return new MemoryInfo(totalInKb, freeInKb, virtualMemoryTotalInKb, virtualMemoryUsedInKb);
+    this(new File(MEMINFO));
   }
 
-  private static long readMemoryNumber(String line) {
-    int start = line.indexOf(':') + 1;
-    int end = line.length() - MEMINFO_LINE_SUFFIX;
-    String number = line.substring(start, end).trim();
-    return Long.parseLong(number);
+  // visible for testing
+  LinuxMemoryInfoReader(File file) {
+    super(file);
   }
 
   @Override
   public void update() {
-    this.memoryInfo = readMemoryInfo(contents);
+    if (!hasContents()) {
+      return;
+    }
+    totalInKb = -1;
+    freeInKb = -1;
+    virtualMemoryTotalInKb = -1;
+    virtualMemoryUsedInKb = -1;
+    super.update();
+    this.memoryInfo =
+        new MemoryInfo(totalInKb, freeInKb, virtualMemoryTotalInKb, virtualMemoryUsedInKb);
   }
 
   @Override
-  protected void parseLine(String line) {}
+  protected void parseLine(int start, int end) {
+    // e.g. "MemTotal:       16337212 kB"
+    if (contents.startsWith(start, end, MEM_TOTAL)) {
+      totalInKb = contents.parseLong(start + MEM_TOTAL.length, end);
+    } else if (contents.startsWith(start, end, MEM_FREE)) {
+      freeInKb = contents.parseLong(start + MEM_FREE.length, end);
+    } else if (contents.startsWith(start, end, VMALLOC_TOTAL)) {
+      virtualMemoryTotalInKb = contents.parseLong(start + VMALLOC_TOTAL.length, end);
+    } else if (contents.startsWith(start, end, VMALLOC_USED)) {
+      virtualMemoryUsedInKb = contents.parseLong(start + VMALLOC_USED.length, end);
+    }
+  }
 
   @Override
   public MemoryInfo getMemoryInfo() {
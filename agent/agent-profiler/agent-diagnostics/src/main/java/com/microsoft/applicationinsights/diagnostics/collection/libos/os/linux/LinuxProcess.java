@@ -50,7 +50,7 @@ public class LinuxProcess extends Process implements Closeable {
 
   private static final List<String> JAVA_ARGUMENT_WITH_SUFFIX = Arrays.asList("-cp", "-classpath");
 
-  private static final File DEFAULT_HSPERF_DIR =
+  static final File DEFAULT_HSPERF_DIR =
       new File("/tmp/hsperfdata_" + System.getProperty("user.name"));
 
   private final LinuxProcessIoStats ioStats;
@@ -134,6 +134,14 @@ public class LinuxProcess extends Process implements Closeable {
     ioStats.close();
   }
 
+  /**
+   * Returns true if the stats of this process could not be read by the last poll, e.g. since it
+   * has exited (its files cannot be read anymore, even if its pid has been reused since).
+   */
+  boolean hasExited() {
+    return !cpuStats.hasContents();
+  }
+
   @Override
   public ProcessIoStats getIoStats() {
     return ioStats;
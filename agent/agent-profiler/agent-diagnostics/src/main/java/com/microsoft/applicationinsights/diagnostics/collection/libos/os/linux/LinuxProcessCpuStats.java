@@ -3,10 +3,10 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
-import com.microsoft.applicationinsights.diagnostics.collection.libos.BigIncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.process.ProcessCpuStats;
 import java.io.File;
-import java.math.BigInteger;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -22,119 +22,115 @@ public class LinuxProcessCpuStats extends TwoStepProcReader implements ProcessCp
   private static final int N_SWAPPED_OFFSET_FROM_NAME = 34;
   private static final Logger LOGGER = LoggerFactory.getLogger(LinuxProcessCpuStats.class);
 
-  private final BigIncrementalCounter userTime;
-  private final BigIncrementalCounter systemTime;
-  private final BigIncrementalCounter priority;
-  private final BigIncrementalCounter nice;
-  private final BigIncrementalCounter numThreads;
-  private final BigIncrementalCounter vmSize;
-  private final BigIncrementalCounter rss;
-  private final BigIncrementalCounter swapped;
+  private final IncrementalCounter userTime = new IncrementalCounter();
+  private final IncrementalCounter systemTime = new IncrementalCounter();
+  private final IncrementalCounter priority = new IncrementalCounter();
+  private final IncrementalCounter nice = new IncrementalCounter();
+  private final IncrementalCounter numThreads = new IncrementalCounter();
+  private final IncrementalCounter vmSize = new IncrementalCounter();
+  private final IncrementalCounter rss = new IncrementalCounter();
+  private final IncrementalCounter swapped = new IncrementalCounter();
 
   public LinuxProcessCpuStats(File candidate) {
     super(new File(candidate, "stat"));
-    this.userTime = new BigIncrementalCounter();
-    this.systemTime = new BigIncrementalCounter();
-    this.priority = new BigIncrementalCounter();
-    this.nice = new BigIncrementalCounter();
-    this.numThreads = new BigIncrementalCounter();
-    this.vmSize = new BigIncrementalCounter();
-    this.rss = new BigIncrementalCounter();
-    this.swapped = new BigIncrementalCounter();
   }
 
   @Override
   public void update() {
-    updateProcessTimes(contents, contents.indexOf(')'));
-  }
-
-  private void updateProcessTimes(String contents, int nameEnd) {
-    String userTime = getVaule(contents, nameEnd, USER_TIME_OFFSET_FROM_NAME);
-    String systemTime = getVaule(contents, nameEnd, SYSTEM_TIME_OFFSET_FROM_NAME);
-    String priority = getVaule(contents, nameEnd, PRIORITY_OFFSET_FROM_NAME);
-    String nice = getVaule(contents, nameEnd, NICE_TIME_OFFSET_FROM_NAME);
-    String numThreads = getVaule(contents, nameEnd, NUM_THREADS_OFFSET_FROM_NAME);
-    String vmSize = getVaule(contents, nameEnd, VM_SIZE_OFFSET_FROM_NAME);
-    String rss = getVaule(contents, nameEnd, RSS_OFFSET_FROM_NAME);
-    String swapped = getVaule(contents, nameEnd, N_SWAPPED_OFFSET_FROM_NAME);
-
-    setValue(this.userTime, userTime);
-    setValue(this.systemTime, systemTime);
-    setValue(this.priority, priority);
-    setValue(this.nice, nice);
-    setValue(this.numThreads, numThreads);
-    setValue(this.vmSize, vmSize);
-    setValue(this.rss, rss);
-    setValue(this.swapped, swapped);
+    if (!hasContents()) {
+      return;
+    }
+    int limit = contents.limit();
+    // the process name can contain spaces (and parentheses), so the fields are counted from the
+    // end of the name
+    int nameEnd = contents.lastIndexOf((byte) ')', 0, limit);
+    if (nameEnd == -1) {
+      return;
+    }
+    int position = contents.skipSpaces(nameEnd + 1, limit);
+    for (int field = 1; field <= N_SWAPPED_OFFSET_FROM_NAME && position < limit; field++) {
+      IncrementalCounter counter = getCounter(field);
+      if (counter != null) {
+        setValue(counter, field, position, limit);
+      }
+      position = contents.nextField(position, limit);
+    }
   }
 
-  private static void setValue(BigIncrementalCounter userTime, String userTime1) {
+  private void setValue(IncrementalCounter counter, int field, int position, int limit) {
     try {
-      userTime.newValue(new BigInteger(userTime1));
+      counter.newValue(contents.parseLong(position, limit));
     } catch (NumberFormatException e) {
-      LOGGER.trace("Failed to parse {}", userTime1);
+      LOGGER.trace("Failed to parse field {}", field);
     }
   }
 
-  private static String getVaule(String contents, int nameEnd, int index) {
-    int start = spaceOffset(contents, nameEnd, index) + 1;
-    int end = contents.indexOf(' ', start + 1);
-    return contents.substring(start, end);
-  }
-
-  private static int spaceOffset(String s, int fromIndex, int numberOfSpaces) {
-    int index;
-    for (index = fromIndex; numberOfSpaces > 0; numberOfSpaces--) {
-      index = s.indexOf(' ', index + 1);
+  @Nullable
+  private IncrementalCounter getCounter(int field) {
+    switch (field) {
+      case USER_TIME_OFFSET_FROM_NAME:
+        return userTime;
+      case SYSTEM_TIME_OFFSET_FROM_NAME:
+        return systemTime;
+      case PRIORITY_OFFSET_FROM_NAME:
+        return priority;
+      case NICE_TIME_OFFSET_FROM_NAME:
+        return nice;
+      case NUM_THREADS_OFFSET_FROM_NAME:
+        return numThreads;
+      case VM_SIZE_OFFSET_FROM_NAME:
+        return vmSize;
+      case RSS_OFFSET_FROM_NAME:
+        return rss;
+      case N_SWAPPED_OFFSET_FROM_NAME:
+        return swapped;
+      default:
+        return null;
     }
-    return index;
   }
 
   @Override
-  protected void parseLine(String line) {}
-
-  @Override
-  public BigInteger getUserTime() {
+  public long getUserTime() {
     return userTime.getIncrement();
   }
 
   @Override
-  public BigInteger getSystemTime() {
+  public long getSystemTime() {
     return systemTime.getIncrement();
   }
 
   @Override
-  public BigInteger getTotalTime() {
-    return getUserTime().add(getSystemTime());
+  public long getTotalTime() {
+    return getUserTime() + getSystemTime();
   }
 
   @Override
-  public BigInteger getPriority() {
+  public long getPriority() {
     return priority.getValue();
   }
 
   @Override
-  public BigInteger getNice() {
+  public long getNice() {
     return nice.getValue();
   }
 
   @Override
-  public BigInteger getNumThreads() {
+  public long getNumThreads() {
     return this.numThreads.getValue();
   }
 
   @Override
-  public BigInteger getVmSize() {
+  public long getVmSize() {
     return vmSize.getValue();
   }
 
   @Override
-  public BigInteger getRss() {
+  public long getRss() {
     return rss.getValue();
   }
 
   @Override
-  public BigInteger getSwapped() {
+  public long getSwapped() {
     return swapped.getValue();
   }
 }
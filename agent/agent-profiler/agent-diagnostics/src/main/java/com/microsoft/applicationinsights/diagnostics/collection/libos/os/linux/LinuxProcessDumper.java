@@ -8,88 +8,213 @@ import com.microsoft.applicationinsights.diagnostics.collection.libos.process.Pr
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/** Detects running processes on the host. */
+/**
+ * Detects running processes on the host.
+ *
+ * <p>Processes are kept across polls, so each poll only opens the files of processes that have
+ * started since the previous poll, and closes the ones of processes that have exited (either when
+ * their pid is no longer listed in /proc, or as soon as their stats can no longer be read). The
+ * work per poll can be bounded by {@code maxProcessesPerPoll}, in which case new processes are
+ * picked up over several polls, and the stats of the known processes are refreshed in turn.
+ *
+ * <p>Since each process holds open files (and buffers) for as long as it is tracked, at most
+ * {@link #MAX_OPEN_PROCESSES} processes are tracked at a time, even when the work per poll is not
+ * bounded. Processes past that are picked up once some of the tracked ones have exited.
+ */
 public class LinuxProcessDumper implements ProcessDumper, Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(LinuxProcessDumper.class);
 
-  private final boolean isDaemon;
-  private Map<Integer, LinuxProcess> usage = new HashMap<>();
+  public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  // each process holds two files open
+  static final int MAX_OPEN_PROCESSES = 512;
+
+  private static final Comparator<Process> BY_CPU_TIME_DESCENDING =
+      Comparator.comparingLong((Process process) -> process.getCpuStats().getTotalTime())
+          .reversed();
 
+  private final boolean isDaemon;
   private final int thisPid;
+  private final File procDir;
+  private final File hsperfDir;
+  private final int maxProcessesPerPoll;
+  private final int topN;
+  private final int maxOpenProcesses;
+
+  private final Map<Integer, LinuxProcess> usage = new HashMap<>();
+
+  // pids in the order that they are due to be refreshed (this process is refreshed on every poll,
+  // so it is not in here)
+  private final ArrayDeque<Integer> refreshQueue = new ArrayDeque<>();
+
+  // reused across polls
+  private final Set<Integer> runningPids = new HashSet<>();
 
   public LinuxProcessDumper(boolean isDaemon, int thisPid) {
-    this.thisPid = thisPid;
+    this(isDaemon, thisPid, UNBOUNDED, 0);
+  }
+
+  /**
+   * Creates a dumper that opens or refreshes at most {@code maxProcessesPerPoll} processes per poll
+   * (in addition to this process), and if {@code topN} is positive, only reports the {@code topN}
+   * processes that have used the most cpu time.
+   */
+  public LinuxProcessDumper(boolean isDaemon, int thisPid, int maxProcessesPerPoll, int topN) {
+    this(
+        isDaemon,
+        thisPid,
+        maxProcessesPerPoll,
+        topN,
+        MAX_OPEN_PROCESSES,
+        Proc.TOP_DIR,
+        LinuxProcess.DEFAULT_HSPERF_DIR);
+  }
+
+  // visible for testing
+  LinuxProcessDumper(
+      boolean isDaemon,
+      int thisPid,
+      int maxProcessesPerPoll,
+      int topN,
+      int maxOpenProcesses,
+      File procDir,
+      File hsperfDir) {
     this.isDaemon = isDaemon;
+    this.thisPid = thisPid;
+    this.maxProcessesPerPoll = maxProcessesPerPoll;
+    this.topN = topN;
+    this.maxOpenProcesses = maxOpenProcesses;
+    this.procDir = procDir;
+    this.hsperfDir = hsperfDir;
   }
 
   @Override
   @SuppressWarnings({"unchecked", "rawtypes"})
   public Iterable<Process> all(boolean includeSelf) {
-    if (includeSelf || !isDaemon) {
+    if (topN <= 0 && (includeSelf || !isDaemon)) {
       return (Iterable) usage.values();
-    } else {
-      List<Process> processes = new ArrayList<>(usage.values());
+    }
+    List<Process> processes = new ArrayList<>(usage.values());
+    if (!includeSelf && isDaemon) {
       processes.removeIf(process -> process.getPid() == thisPid);
-      return processes;
     }
+    if (topN > 0 && processes.size() > topN) {
+      processes.sort(BY_CPU_TIME_DESCENDING);
+      return new ArrayList<>(processes.subList(0, topN));
+    }
+    return processes;
   }
 
   @Override
   public void poll() {
-    Map<Integer, LinuxProcess> updatedUsage = new HashMap<>();
-
-    for (File candidate : Objects.requireNonNull(Proc.TOP_DIR.listFiles())) {
-      if (candidate.isDirectory()) {
-        String filename = candidate.getName();
-        char firstChar = filename.charAt(0);
-        if (Character.isDigit(firstChar)) {
-          try {
-            int pid = Integer.parseInt(filename);
-            LinuxProcess process = recordProcess(candidate, pid);
-            updatedUsage.put(pid, process);
-          } catch (NumberFormatException | IOException e) {
-            // NOP
-          }
+    // only the names are listed, since every numeric entry in /proc is a process directory
+    String[] names = procDir.list();
+    if (names == null) {
+      return;
+    }
+    runningPids.clear();
+    for (String name : names) {
+      if (Character.isDigit(name.charAt(0))) {
+        try {
+          runningPids.add(Integer.parseInt(name));
+        } catch (NumberFormatException e) {
+          // NOP
         }
       }
     }
-    usage = updatedUsage;
+
+    removeProcesses(pid -> !runningPids.contains(pid));
+
+    if (runningPids.contains(thisPid)) {
+      refresh(thisPid);
+    }
+
+    int budget = maxProcessesPerPoll;
+    // the known processes are counted before adding new ones, so that new processes are not
+    // refreshed twice in the same poll
+    int known = refreshQueue.size();
+    for (Integer pid : runningPids) {
+      if (budget <= 0 || usage.size() >= maxOpenProcesses) {
+        break;
+      }
+      if (pid != thisPid && !usage.containsKey(pid) && refresh(pid)) {
+        refreshQueue.addLast(pid);
+        budget--;
+      }
+    }
+
+    for (int i = 0; i < known && budget > 0; i++) {
+      Integer pid = refreshQueue.pollFirst();
+      if (refresh(pid)) {
+        refreshQueue.addLast(pid);
+      }
+      budget--;
+    }
   }
 
-  @Override
-  public void closeProcesses(List<Integer> exclusions) {
-    List<Integer> toRemove =
-        usage.keySet().stream().filter(it -> !exclusions.contains(it)).collect(Collectors.toList());
-
-    toRemove.forEach(
-        exclusion -> {
-          LinuxProcess removed = usage.remove(exclusion);
-          try {
-            removed.close();
-          } catch (IOException e) {
-            LOGGER.error("Failed to close process", e);
-          }
-        });
+  private void removeProcesses(Predicate<Integer> shouldRemove) {
+    boolean removed = false;
+    Iterator<Map.Entry<Integer, LinuxProcess>> i = usage.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<Integer, LinuxProcess> entry = i.next();
+      if (shouldRemove.test(entry.getKey())) {
+        i.remove();
+        close(entry.getValue());
+        removed = true;
+      }
+    }
+    if (removed) {
+      refreshQueue.removeIf(pid -> !usage.containsKey(pid));
+    }
   }
 
-  private LinuxProcess recordProcess(File candidate, int pid) throws IOException {
+  // returns false if the process could not be read (e.g. it exited after /proc was listed), in
+  // which case it is no longer tracked
+  private boolean refresh(int pid) {
     LinuxProcess process = usage.get(pid);
-
     if (process == null) {
-      process = new LinuxProcess(pid, candidate);
+      try {
+        File candidate = new File(procDir, String.valueOf(pid));
+        process = LinuxProcess.create(procDir, hsperfDir, pid, candidate);
+      } catch (IOException e) {
+        return false;
+      }
+      usage.put(pid, process);
     }
     process.poll();
+    if (process.hasExited()) {
+      usage.remove(pid);
+      close(process);
+      return false;
+    }
     process.update();
-    return process;
+    return true;
+  }
+
+  @Override
+  public void closeProcesses(List<Integer> exclusions) {
+    removeProcesses(pid -> !exclusions.contains(pid));
+  }
+
+  private static void close(LinuxProcess process) {
+    try {
+      process.close();
+    } catch (IOException e) {
+      LOGGER.error("Failed to close process", e);
+    }
   }
 
   public LinuxProcess getProcess(int pid) {
@@ -101,6 +226,8 @@ public class LinuxProcessDumper implements ProcessDumper, Closeable {
     for (LinuxProcess process : usage.values()) {
       process.close();
     }
+    usage.clear();
+    refreshQueue.clear();
   }
 
   @Override
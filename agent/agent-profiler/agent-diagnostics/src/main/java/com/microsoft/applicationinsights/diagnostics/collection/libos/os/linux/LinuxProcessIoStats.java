@@ -3,12 +3,10 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
-import com.microsoft.applicationinsights.diagnostics.collection.libos.BigIncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.process.ProcessIoStats;
 import java.io.File;
-import java.math.BigInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.nio.charset.StandardCharsets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,19 +14,16 @@ import org.slf4j.LoggerFactory;
 public class LinuxProcessIoStats extends TwoStepProcReader implements ProcessIoStats {
   private static final Logger LOGGER = LoggerFactory.getLogger(LinuxProcessIoStats.class);
 
-  private static final Pattern IO_READ_PATTERN =
-      Pattern.compile("^rchar: (\\d+)$", Pattern.MULTILINE);
-  private static final Pattern IO_WRITE_PATTERN =
-      Pattern.compile("^wchar: (\\d+)$", Pattern.MULTILINE);
-  private static final Pattern DISK_READ_PATTERN =
-      Pattern.compile("^read_bytes: (\\d+)$", Pattern.MULTILINE);
-  private static final Pattern DISK_WRITE_PATTERN =
-      Pattern.compile("^write_bytes: (\\d+)$", Pattern.MULTILINE);
+  private static final byte[] IO_READ_PREFIX = "rchar:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] IO_WRITE_PREFIX = "wchar:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] DISK_READ_PREFIX = "read_bytes:".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] DISK_WRITE_PREFIX =
+      "write_bytes:".getBytes(StandardCharsets.US_ASCII);
 
-  protected final BigIncrementalCounter ioRead = new BigIncrementalCounter();
-  protected final BigIncrementalCounter ioWrite = new BigIncrementalCounter();
-  protected final BigIncrementalCounter diskRead = new BigIncrementalCounter();
-  protected final BigIncrementalCounter diskWrite = new BigIncrementalCounter();
+  protected final IncrementalCounter ioRead = new IncrementalCounter();
+  protected final IncrementalCounter ioWrite = new IncrementalCounter();
+  protected final IncrementalCounter diskRead = new IncrementalCounter();
+  protected final IncrementalCounter diskWrite = new IncrementalCounter();
 
   private boolean canBeInspected = true;
 
@@ -47,14 +42,12 @@ public class LinuxProcessIoStats extends TwoStepProcReader implements ProcessIoS
     }
   }
 
-  private static boolean findBigIntegerValue(
-      Pattern pattern, String contents, BigIncrementalCounter counter) {
-    Matcher matcher = pattern.matcher(contents);
-    if (matcher.find()) {
+  private boolean findValue(int start, int end, byte[] prefix, IncrementalCounter counter) {
+    if (contents.startsWith(start, end, prefix)) {
       try {
-        counter.newValue(new BigInteger(matcher.group(1)));
+        counter.newValue(contents.parseLong(start + prefix.length, end));
       } catch (NumberFormatException e) {
-        LOGGER.trace("Failed to parse {}", matcher.group(1));
+        LOGGER.trace("Failed to parse {}", contents.getString(start, end));
       }
       return true;
     }
@@ -62,36 +55,36 @@ public class LinuxProcessIoStats extends TwoStepProcReader implements ProcessIoS
   }
 
   @Override
-  protected void parseLine(String line) {
-    if (findBigIntegerValue(DISK_WRITE_PATTERN, line, diskWrite)) {
+  protected void parseLine(int start, int end) {
+    if (findValue(start, end, DISK_WRITE_PREFIX, diskWrite)) {
       return;
     }
-    if (findBigIntegerValue(DISK_READ_PATTERN, line, diskRead)) {
+    if (findValue(start, end, DISK_READ_PREFIX, diskRead)) {
       return;
     }
-    if (findBigIntegerValue(IO_WRITE_PATTERN, line, ioWrite)) {
+    if (findValue(start, end, IO_WRITE_PREFIX, ioWrite)) {
       return;
     }
-    findBigIntegerValue(IO_READ_PATTERN, line, ioRead);
+    findValue(start, end, IO_READ_PREFIX, ioRead);
   }
 
   @Override
-  public BigInteger getIoRead() {
+  public long getIoRead() {
     return ioRead.getIncrement();
   }
 
   @Override
-  public BigInteger getIoWrite() {
+  public long getIoWrite() {
     return ioWrite.getIncrement();
   }
 
   @Override
-  public BigInteger getDiskRead() {
+  public long getDiskRead() {
     return diskRead.getIncrement();
   }
 
   @Override
-  public BigInteger getDiskWrite() {
+  public long getDiskWrite() {
     return diskWrite.getIncrement();
   }
 }
@@ -3,8 +3,6 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
 
-import static java.lang.Integer.parseInt;
-
 import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpStats;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpStatsReader;
 import java.io.File;
@@ -20,8 +18,6 @@ public class LinuxTcpStatsReader extends TwoStepProcReader implements TcpStatsRe
   private static final int TX_END = 45;
   private static final int TX_START = 38;
 
-  private static final int AS_HEX = 16;
-
   private static final String PROC_FILE = "/proc/net/tcp";
 
   private TcpStats stats;
@@ -30,19 +26,24 @@ public class LinuxTcpStatsReader extends TwoStepProcReader implements TcpStatsRe
   private long receivedQueue = 0;
 
   public LinuxTcpStatsReader() {
-    super(new File(PROC_FILE));
+    this(new File(PROC_FILE));
+  }
+
+  // visible for testing
+  LinuxTcpStatsReader(File file) {
+    super(file);
   }
 
   @Override
-  protected void parseLine(String line) {
+  protected void parseLine(int start, int end) {
+    // skips the header line (and anything else that is not a connection)
+    if (end - start < RX_END || contents.indexOf((byte) ':', start, start + TX_START) == -1) {
+      return;
+    }
     try {
-      if (line.contains("sl")) {
-        return;
-      }
-      transferredQueue += parseInt(line.substring(TX_START, TX_END), AS_HEX);
-      String received = line.substring(RX_START, RX_END);
-      receivedQueue += parseInt(received, AS_HEX);
-    } catch (RuntimeException e) {
+      transferredQueue += contents.parseHex(start + TX_START, start + TX_END);
+      receivedQueue += contents.parseHex(start + RX_START, start + RX_END);
+    } catch (NumberFormatException e) {
       // ignore
     }
   }
@@ -14,22 +14,20 @@ final class Proc {
   static final File TOP_DIR = new File("/proc/");
 
   private static final int BUFFER_SIZE = 1024 * 3;
-  private static final byte[] buffer = new byte[BUFFER_SIZE];
 
   private Proc() {}
 
+  // this is only for one-off reads (e.g. a process command line), so it uses a buffer per call,
+  // which keeps it safe to call from multiple threads (the periodic readers each have their own
+  // ProcBuffer instead)
   static String read(File file) throws IOException {
+    byte[] buffer = new byte[BUFFER_SIZE];
     try (RandomAccessFile resource = new RandomAccessFile(file, "r")) {
-      return read(resource);
+      int totalRead = resource.read(buffer, 0, buffer.length);
+      if (totalRead == -1) {
+        return "";
+      }
+      return new String(buffer, 0, totalRead, StandardCharsets.UTF_8);
     }
   }
-
-  static String read(RandomAccessFile resource) throws IOException {
-    resource.seek(0);
-    int totalRead = resource.read(buffer, 0, buffer.length);
-    if (totalRead == -1) {
-      return "";
-    }
-    return new String(buffer, 0, totalRead, StandardCharsets.UTF_8);
-  }
 }
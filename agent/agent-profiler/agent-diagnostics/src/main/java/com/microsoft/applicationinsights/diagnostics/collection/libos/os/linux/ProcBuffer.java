@@ -0,0 +1,188 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffer that a proc (or cgroup) file is read into, so that its values can be parsed in place
+ * without creating Strings on every poll.
+ *
+ * <p>Each reader owns its own buffer, which is reused for every poll, so this is not thread safe.
+ * All indexes are absolute positions within the contents that were last read.
+ */
+public final class ProcBuffer {
+
+  private static final int INITIAL_SIZE = 1024 * 3;
+
+  // puts a bound on the files that grow with the number of connections or devices (e.g.
+  // /proc/net/tcp), anything past this is ignored
+  private static final int MAX_SIZE = 1024 * 256;
+
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_SIZE);
+
+  public ProcBuffer() {
+    buffer.limit(0);
+  }
+
+  /**
+   * Drops the direct buffer (so that its memory can be reclaimed), once the file that it is read
+   * from has been closed.
+   */
+  public void release() {
+    buffer = ByteBuffer.allocate(0);
+  }
+
+  /** Reads the whole file, replacing the previous contents. */
+  public void read(FileChannel channel) throws IOException {
+    buffer.clear();
+    while (true) {
+      int read = channel.read(buffer, buffer.position());
+      if (read <= 0) {
+        break;
+      }
+      if (!buffer.hasRemaining()) {
+        if (buffer.capacity() >= MAX_SIZE) {
+          truncateToLastLine();
+          return;
+        }
+        grow();
+      }
+    }
+    buffer.flip();
+  }
+
+  public int limit() {
+    return buffer.limit();
+  }
+
+  public byte get(int index) {
+    return buffer.get(index);
+  }
+
+  /** Returns the index of the newline that ends the line starting at from (or the limit). */
+  public int lineEnd(int from) {
+    int index = indexOf((byte) '\n', from, buffer.limit());
+    return index == -1 ? buffer.limit() : index;
+  }
+
+  public int indexOf(byte b, int from, int to) {
+    for (int i = from; i < to; i++) {
+      if (buffer.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public int lastIndexOf(byte b, int from, int to) {
+    for (int i = to - 1; i >= from; i--) {
+      if (buffer.get(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public int skipSpaces(int from, int to) {
+    int i = from;
+    while (i < to && isSpace(buffer.get(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  /** Returns the start of the field that follows the (space separated) field starting at from. */
+  public int nextField(int from, int to) {
+    int i = from;
+    while (i < to && !isSpace(buffer.get(i))) {
+      i++;
+    }
+    return skipSpaces(i, to);
+  }
+
+  public boolean startsWith(int from, int to, byte[] prefix) {
+    if (to - from < prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(from + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses the decimal number at from (after skipping any leading spaces), stopping at the first
+   * character that is not a digit.
+   */
+  public long parseLong(int from, int to) {
+    int i = skipSpaces(from, to);
+    boolean negative = i < to && buffer.get(i) == '-';
+    if (negative) {
+      i++;
+    }
+    int start = i;
+    long value = 0;
+    for (; i < to; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        break;
+      }
+      value = value * 10 + digit;
+    }
+    if (i == start) {
+      throw new NumberFormatException("No number at index " + from);
+    }
+    return negative ? -value : value;
+  }
+
+  /** Parses the hexadecimal number between from and to (which must only contain hex digits). */
+  public long parseHex(int from, int to) {
+    if (from >= to) {
+      throw new NumberFormatException("No number at index " + from);
+    }
+    long value = 0;
+    for (int i = from; i < to; i++) {
+      int digit = Character.digit(buffer.get(i), 16);
+      if (digit == -1) {
+        throw new NumberFormatException("Not a hex digit at index " + i);
+      }
+      value = (value << 4) + digit;
+    }
+    return value;
+  }
+
+  /** Copies the given range into a String, only for values that need to be kept (e.g. names). */
+  public String getString(int from, int to) {
+    byte[] bytes = new byte[to - from];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(from + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isSpace(byte b) {
+    return b == ' ' || b == '\t';
+  }
+
+  private void grow() {
+    ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(buffer.capacity() * 2, MAX_SIZE));
+    buffer.flip();
+    larger.put(buffer);
+    buffer = larger;
+  }
+
+  private void truncateToLastLine() {
+    buffer.flip();
+    int lastNewline = lastIndexOf((byte) '\n', 0, buffer.limit());
+    if (lastNewline != -1) {
+      buffer.limit(lastNewline + 1);
+    }
+  }
+}
@@ -17,7 +17,10 @@ public abstract class TwoStepProcReader implements TwoStepUpdatable, Closeable {
   private static final Logger LOGGER = LoggerFactory.getLogger(TwoStepProcReader.class);
 
   protected RandomAccessFile file;
-  protected String contents;
+
+  // owned by this reader (and not shared), since readers are polled from different threads
+  protected final ProcBuffer contents = new ProcBuffer();
+  private boolean hasContents;
 
   TwoStepProcReader(String fileLocation) {
     this(new File(fileLocation));
@@ -38,20 +41,38 @@ public abstract class TwoStepProcReader implements TwoStepUpdatable, Closeable {
     }
   }
 
-  protected abstract void parseLine(String line);
+  /**
+   * Parses the line between start (inclusive) and end (exclusive) in place. By default this falls
+   * back to {@link #parseLine(String)}, readers that only extract numbers should override this
+   * instead, in order to avoid creating a String for every line.
+   */
+  protected void parseLine(int start, int end) {
+    String line = contents.getString(start, end);
+    if (trim()) {
+      line = line.trim();
+    }
+    parseLine(line);
+  }
+
+  protected void parseLine(String line) {}
 
   @Override
   public void close() throws IOException {
     if (file != null) {
       file.close();
+      file = null;
     }
+    hasContents = false;
+    contents.release();
   }
 
   @Override
   public void poll() {
     try {
       if (file != null) {
-        contents = Proc.read(file);
+        hasContents = false;
+        contents.read(file.getChannel());
+        hasContents = true;
       }
     } catch (IOException e) {
       LOGGER.error("Failed to read stats for file", e);
@@ -60,17 +81,21 @@ public abstract class TwoStepProcReader implements TwoStepUpdatable, Closeable {
 
   @Override
   public void update() {
-    if (contents != null) {
-      String[] lines = contents.split("\n");
-      for (String line : lines) {
-        if (trim()) {
-          line = line.trim();
-        }
-        parseLine(line);
+    if (hasContents) {
+      int limit = contents.limit();
+      int start = 0;
+      while (start < limit) {
+        int end = contents.lineEnd(start);
+        parseLine(start, end);
+        start = end + 1;
       }
     }
   }
 
+  protected boolean hasContents() {
+    return hasContents;
+  }
+
   protected boolean trim() {
     return true;
   }
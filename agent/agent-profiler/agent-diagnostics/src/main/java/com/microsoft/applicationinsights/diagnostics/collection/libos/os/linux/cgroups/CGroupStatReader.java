@@ -3,21 +3,25 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.cgroups;
 
-import com.microsoft.applicationinsights.diagnostics.collection.libos.BigIncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.TwoStepProcReader;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
 public class CGroupStatReader extends TwoStepProcReader {
-  private final BigIncrementalCounter user = new BigIncrementalCounter();
-  private final BigIncrementalCounter system = new BigIncrementalCounter();
+  private static final byte[] USER = "user ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] SYSTEM = "system ".getBytes(StandardCharsets.US_ASCII);
+
+  private final IncrementalCounter user = new IncrementalCounter();
+  private final IncrementalCounter system = new IncrementalCounter();
 
   public CGroupStatReader() {
     super(new File("/sys/fs/cgroup/cpu,cpuacct/cpuacct.stat"), true);
   }
 
   @Override
-  protected void parseLine(String line) {
+  protected void parseLine(int start, int end) {
     /*
      Example contents:
      ```
@@ -25,22 +29,18 @@ public class CGroupStatReader extends TwoStepProcReader {
        system 127178
      ```
     */
-    String[] tokens = line.split(" ");
-
-    if (tokens.length == 2) {
-      if ("user".equals(tokens[0])) {
-        user.newValue(Long.parseLong(tokens[1]));
-      } else if ("system".equals(tokens[0])) {
-        system.newValue(Long.parseLong(tokens[1]));
-      }
+    if (contents.startsWith(start, end, USER)) {
+      user.newValue(contents.parseLong(start + USER.length, end));
+    } else if (contents.startsWith(start, end, SYSTEM)) {
+      system.newValue(contents.parseLong(start + SYSTEM.length, end));
     }
   }
 
-  public BigIncrementalCounter getUser() {
+  public IncrementalCounter getUser() {
     return user;
   }
 
-  public BigIncrementalCounter getSystem() {
+  public IncrementalCounter getSystem() {
     return system;
   }
 }
@@ -3,25 +3,27 @@
 
 package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.cgroups;
 
-import com.microsoft.applicationinsights.diagnostics.collection.libos.BigIncrementalCounter;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.IncrementalCounter;
 import com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux.TwoStepProcReader;
 import java.io.File;
 
 @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
 public abstract class CGroupValueReader extends TwoStepProcReader {
-  private final BigIncrementalCounter usage = new BigIncrementalCounter();
+  private final IncrementalCounter usage = new IncrementalCounter();
 
   public CGroupValueReader(String fileName) {
     super(new File(fileName), true);
   }
 
   @Override
-  protected void parseLine(String line) {
-    long newUsage = Long.parseLong(line);
-    usage.newValue(newUsage);
+  protected void parseLine(int start, int end) {
+    if (contents.skipSpaces(start, end) == end) {
+      return;
+    }
+    usage.newValue(contents.parseLong(start, end));
   }
 
-  public BigIncrementalCounter getUsage() {
+  public IncrementalCounter getUsage() {
     return usage;
   }
 }
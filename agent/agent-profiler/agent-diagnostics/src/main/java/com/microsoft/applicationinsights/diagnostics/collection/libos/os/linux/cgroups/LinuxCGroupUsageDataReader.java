@@ -44,14 +44,8 @@ public class LinuxCGroupUsageDataReader implements CGroupUsageDataReader {
             cgroupCpuSystemReader.getUsage().getIncrement(),
             cgroupStatReader.getUser().getIncrement(),
             cgroupStatReader.getSystem().getIncrement())
-        .map(
-            value -> {
-              if (value == null) {
-                return -1.0d;
-              } else {
-                return value.doubleValue();
-              }
-            })
+        // increments are -1 until there is a previous value
+        .map(value -> (double) value)
         .collect(Collectors.toList());
   }
 
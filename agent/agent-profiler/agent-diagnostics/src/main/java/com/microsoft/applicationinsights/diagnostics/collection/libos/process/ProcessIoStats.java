@@ -5,14 +5,13 @@ package com.microsoft.applicationinsights.diagnostics.collection.libos.process;
 
 import com.microsoft.applicationinsights.diagnostics.collection.libos.TwoStepUpdatable;
 import java.io.Closeable;
-import java.math.BigInteger;
 
 public interface ProcessIoStats extends TwoStepUpdatable, Closeable {
-  BigInteger getIoRead();
+  long getIoRead();
 
-  BigInteger getIoWrite();
+  long getIoWrite();
 
-  BigInteger getDiskRead();
+  long getDiskRead();
 
-  BigInteger getDiskWrite();
+  long getDiskWrite();
 }
@@ -176,7 +176,8 @@ public class SystemStatsProvider {
     ThisPidSupplier pidSupplier = getSingleton(ThisPidSupplier.class);
     switch (OperatingSystemDetector.getOperatingSystem()) {
       case LINUX:
-        return new LinuxProcessDumper(false, pidSupplier.get());
+        // only this process is used, so there is no need to open the files of every other process
+        return new LinuxProcessDumper(false, pidSupplier.get(), 0, 0);
       default:
         return new NoOpProcessDumper();
     }
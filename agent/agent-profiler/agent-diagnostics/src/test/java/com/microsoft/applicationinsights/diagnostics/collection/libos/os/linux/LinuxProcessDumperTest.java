@@ -0,0 +1,184 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.process.Process;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LinuxProcessDumperTest {
+
+  private static final int THIS_PID = 1;
+
+  @TempDir File procDir;
+
+  @Test
+  void shouldOnlyOpenNewProcessesAndCloseExitedOnes() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    writeProcess(3, 100);
+
+    try (LinuxProcessDumper dumper = newDumper(LinuxProcessDumper.UNBOUNDED, 0)) {
+      dumper.poll();
+      assertThat(pids(dumper.all(true))).containsExactlyInAnyOrder(1, 2, 3);
+      LinuxProcess process = dumper.getProcess(2);
+      LinuxProcess exited = dumper.getProcess(3);
+
+      deleteProcess(3);
+      writeProcess(4, 100);
+      dumper.poll();
+
+      assertThat(pids(dumper.all(true))).containsExactlyInAnyOrder(1, 2, 4);
+      assertThat(dumper.getProcess(2)).isSameAs(process);
+      assertThat(((TwoStepProcReader) exited.getCpuStats()).file).isNull();
+      assertThat(((TwoStepProcReader) exited.getIoStats()).file).isNull();
+    }
+  }
+
+  @Test
+  void shouldNotTrackProcessesWhoseStatsCannotBeRead() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    // exited after its command line was read
+    Files.delete(new File(procDir, "2/stat").toPath());
+
+    try (LinuxProcessDumper dumper = newDumper(LinuxProcessDumper.UNBOUNDED, 0)) {
+      dumper.poll();
+
+      assertThat(pids(dumper.all(true))).containsExactly(THIS_PID);
+    }
+  }
+
+  @Test
+  void shouldBoundOpenProcesses() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    writeProcess(3, 100);
+
+    try (LinuxProcessDumper dumper = newDumper(LinuxProcessDumper.UNBOUNDED, 0, 2)) {
+      dumper.poll();
+      dumper.poll();
+      List<Integer> pids = pids(dumper.all(true));
+      assertThat(pids).hasSize(2).contains(THIS_PID);
+      int tracked = pids.contains(2) ? 2 : 3;
+      int untracked = tracked == 2 ? 3 : 2;
+
+      // picked up once the other process has exited
+      deleteProcess(tracked);
+      dumper.poll();
+
+      assertThat(pids(dumper.all(true))).containsExactlyInAnyOrder(THIS_PID, untracked);
+    }
+  }
+
+  @Test
+  void shouldBoundWorkPerPoll() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    writeProcess(3, 100);
+    writeProcess(4, 100);
+
+    try (LinuxProcessDumper dumper = newDumper(1, 0)) {
+      dumper.poll();
+      // this process is always included, on top of the budget
+      assertThat(pids(dumper.all(true))).hasSize(2).contains(THIS_PID);
+
+      dumper.poll();
+      assertThat(pids(dumper.all(true))).hasSize(3);
+
+      dumper.poll();
+      assertThat(pids(dumper.all(true))).containsExactlyInAnyOrder(1, 2, 3, 4);
+    }
+  }
+
+  @Test
+  void shouldRefreshKnownProcessesInTurn() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    writeProcess(3, 100);
+
+    try (LinuxProcessDumper dumper = newDumper(1, 0)) {
+      dumper.poll();
+      dumper.poll();
+
+      writeProcess(2, 150);
+      writeProcess(3, 170);
+      dumper.poll();
+      dumper.poll();
+
+      assertThat(dumper.getProcess(2).getCpuStats().getUserTime()).isEqualTo(50);
+      assertThat(dumper.getProcess(3).getCpuStats().getUserTime()).isEqualTo(70);
+    }
+  }
+
+  @Test
+  void shouldOnlyReportTopN() throws IOException {
+    writeProcess(THIS_PID, 100);
+    writeProcess(2, 100);
+    writeProcess(3, 100);
+
+    try (LinuxProcessDumper dumper = newDumper(LinuxProcessDumper.UNBOUNDED, 2)) {
+      dumper.poll();
+      writeProcess(THIS_PID, 110);
+      writeProcess(2, 130);
+      writeProcess(3, 120);
+      dumper.poll();
+
+      assertThat(pids(dumper.all(true))).containsExactly(2, 3);
+    }
+  }
+
+  private LinuxProcessDumper newDumper(int maxProcessesPerPoll, int topN) {
+    return newDumper(maxProcessesPerPoll, topN, LinuxProcessDumper.MAX_OPEN_PROCESSES);
+  }
+
+  private LinuxProcessDumper newDumper(int maxProcessesPerPoll, int topN, int maxOpenProcesses) {
+    File hsperfDir = new File(procDir, "hsperfdata");
+    return new LinuxProcessDumper(
+        false, THIS_PID, maxProcessesPerPoll, topN, maxOpenProcesses, procDir, hsperfDir);
+  }
+
+  private void writeProcess(int pid, long userTime) throws IOException {
+    File dir = new File(procDir, String.valueOf(pid));
+    Files.createDirectories(dir.toPath());
+    write(new File(dir, "cmdline"), "process" + pid);
+    write(
+        new File(dir, "stat"),
+        pid
+            + " (process"
+            + pid
+            + ") S 1 1 1 0 -1 0 0 0 0 0 "
+            + userTime
+            + " 10 0 0 20 0 1 0 0 1000 100 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0 0\n");
+    write(new File(dir, "io"), "rchar: 0\nwchar: 0\nread_bytes: 0\nwrite_bytes: 0\n");
+  }
+
+  private void deleteProcess(int pid) throws IOException {
+    File dir = new File(procDir, String.valueOf(pid));
+    for (String file : new String[] {"cmdline", "stat", "io"}) {
+      Files.delete(new File(dir, file).toPath());
+    }
+    Files.delete(dir.toPath());
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static List<Integer> pids(Iterable<Process> processes) {
+    List<Integer> pids = new ArrayList<>();
+    for (Process process : processes) {
+      pids.add(process.getPid());
+    }
+    return pids;
+  }
+}
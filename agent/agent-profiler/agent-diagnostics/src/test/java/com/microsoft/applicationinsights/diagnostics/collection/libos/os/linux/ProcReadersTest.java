@@ -0,0 +1,177 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.diagnostics.collection.libos.os.linux;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.diagnostics.collection.libos.OperatingSystemInteractionException;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.hardware.MemoryInfo;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.kernel.KernelCounters;
+import com.microsoft.applicationinsights.diagnostics.collection.libos.net.TcpStats;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcReadersTest {
+
+  @TempDir File tempFolder;
+
+  @Test
+  void processCpuStats() throws IOException {
+    // the process name contains spaces and parentheses
+    File stat = new File(tempFolder, "stat");
+    write(stat, stat(100, 20));
+
+    try (LinuxProcessCpuStats cpuStats = new LinuxProcessCpuStats(tempFolder)) {
+      cpuStats.poll();
+      cpuStats.update();
+      write(stat, stat(130, 25));
+      cpuStats.poll();
+      cpuStats.update();
+
+      assertThat(cpuStats.getUserTime()).isEqualTo(30);
+      assertThat(cpuStats.getSystemTime()).isEqualTo(5);
+      assertThat(cpuStats.getTotalTime()).isEqualTo(35);
+      assertThat(cpuStats.getPriority()).isEqualTo(20);
+      assertThat(cpuStats.getNice()).isEqualTo(-5);
+      assertThat(cpuStats.getNumThreads()).isEqualTo(42);
+      assertThat(cpuStats.getVmSize()).isEqualTo(3698876416L);
+      assertThat(cpuStats.getRss()).isEqualTo(9206);
+      assertThat(cpuStats.getSwapped()).isEqualTo(7);
+    }
+  }
+
+  @Test
+  void processIoStats() throws IOException {
+    File io = new File(tempFolder, "io");
+    write(io, io(1000, 2000));
+
+    try (LinuxProcessIoStats ioStats = new LinuxProcessIoStats(tempFolder)) {
+      ioStats.poll();
+      ioStats.update();
+      write(io, io(1500, 2100));
+      ioStats.poll();
+      ioStats.update();
+
+      assertThat(ioStats.getIoRead()).isEqualTo(500);
+      assertThat(ioStats.getIoWrite()).isEqualTo(100);
+      assertThat(ioStats.getDiskRead()).isEqualTo(50);
+      assertThat(ioStats.getDiskWrite()).isEqualTo(10);
+    }
+  }
+
+  @Test
+  void memoryInfo() throws IOException {
+    File meminfo = new File(tempFolder, "meminfo");
+    write(
+        meminfo,
+        "MemTotal:        6147400 kB\n"
+            + "MemFree:         5206920 kB\n"
+            + "MemAvailable:    5650000 kB\n"
+            + "VmallocTotal:   34359738367 kB\n"
+            + "VmallocUsed:       16088 kB\n"
+            + "VmallocChunk:          0 kB\n");
+
+    try (LinuxMemoryInfoReader reader = new LinuxMemoryInfoReader(meminfo)) {
+      reader.poll();
+      reader.update();
+
+      MemoryInfo memoryInfo = reader.getMemoryInfo();
+      assertThat(memoryInfo.getTotalInKb()).isEqualTo(6147400);
+      assertThat(memoryInfo.getFreeInKb()).isEqualTo(5206920);
+      assertThat(memoryInfo.getVirtualMemoryTotalInKb()).isEqualTo(34359738367L);
+      assertThat(memoryInfo.getVirtualMemoryUsedInKb()).isEqualTo(16088);
+    }
+  }
+
+  @Test
+  void tcpStats() throws IOException {
+    File tcp = new File(tempFolder, "tcp");
+    write(
+        tcp,
+        "  sl  local_address rem_address   st tx_queue rx_queue tr tm->when retrnsmt   uid  "
+            + "timeout inode\n"
+            + "   0: 00000000:07E8 00000000:0000 0A 00000010:00000002 00:00000000 00000000     0"
+            + "        0 662 1 00000000f26ce138 100 0 0 10 0\n"
+            + "   1: 0100007F:BC8F 00000000:0000 0A 00000001:0000000A 00:00000000 00000000 65534"
+            + "        0 929 1 00000000a3b1c2d4 100 0 0 10 0\n");
+
+    try (LinuxTcpStatsReader reader = new LinuxTcpStatsReader(tcp)) {
+      reader.poll();
+      reader.update();
+
+      TcpStats tcpStats = reader.getTcpStats();
+      assertThat(tcpStats.getTotalTransferredQueuesSize()).isEqualTo(17);
+      assertThat(tcpStats.getTotalReceivedQueuesSize()).isEqualTo(12);
+    }
+  }
+
+  @Test
+  void kernelStats() throws IOException, OperatingSystemInteractionException {
+    File stat = new File(tempFolder, "stat");
+    write(stat, kernelStat(100, 50, 800, 50, 1000));
+
+    try (LinuxKernelStats kernelStats = new LinuxKernelStats(stat.getAbsolutePath())) {
+      kernelStats.update();
+      write(stat, kernelStat(130, 60, 850, 60, 1500));
+      kernelStats.poll();
+      kernelStats.update();
+
+      KernelCounters counters = kernelStats.getCounters();
+      assertThat(counters.getContextSwitches()).isEqualTo(500);
+      // increments are normalized to percentages of the total time
+      assertThat(counters.getUserTime()).isEqualTo(30);
+      assertThat(counters.getSystemTime()).isEqualTo(10);
+      assertThat(counters.getIdleTime()).isEqualTo(50);
+      assertThat(counters.getWaitTime()).isEqualTo(10);
+      assertThat(counters.getProcsRunnable()).isEqualTo(3);
+      assertThat(counters.getProcsBlocked()).isEqualTo(1);
+    }
+  }
+
+  private static String stat(long userTime, long systemTime) {
+    return "1234 (my (java) app) S 1 1234 1234 0 -1 4194560 12345 0 3 0 "
+        + userTime
+        + " "
+        + systemTime
+        + " 0 0 20 -5 42 0 987654 3698876416 9206 18446744073709551615 1 1 0 0 0 0 0 0 0 0 "
+        + "7 0 17 3 0 0 0 0 0\n";
+  }
+
+  private static String io(long rchar, long wchar) {
+    return "rchar: "
+        + rchar
+        + "\nwchar: "
+        + wchar
+        + "\nsyscr: 10\nsyscw: 20\nread_bytes: "
+        + rchar / 10
+        + "\nwrite_bytes: "
+        + wchar / 10
+        + "\ncancelled_write_bytes: 0\n";
+  }
+
+  private static String kernelStat(long user, long system, long idle, long wait, long ctxt) {
+    return "cpu  "
+        + user
+        + " 7 "
+        + system
+        + " "
+        + idle
+        + " "
+        + wait
+        + " 0 9 0 0 0\n"
+        + "cpu0 1 2 3 4 5 0 0 0 0 0\n"
+        + "intr 123 0 0\n"
+        + "ctxt "
+        + ctxt
+        + "\nbtime 1700000000\nprocesses 1000\nprocs_running 3\nprocs_blocked 1\n";
+  }
+
+  private static void write(File file, String contents) throws IOException {
+    Files.write(file.toPath(), contents.getBytes(StandardCharsets.US_ASCII));
+  }
+}
@@ -6,6 +6,7 @@ package com.microsoft.applicationinsights.agent.internal.configuration;
 import static java.util.Arrays.asList;
 import static java.util.concurrent.TimeUnit.DAYS;
 import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.PropertyHelper;
 import com.fasterxml.jackson.annotation.JsonCreator;
@@ -268,6 +269,9 @@ public class Configuration {
   public static class MicrometerInstrumentation {
     public boolean enabled = true;
     public String namespace;
+    // when enabled, counters and long task timers are not exported for intervals in which they were
+    // not used
+    public boolean suppressUnchangedMeters;
     // this is just here to detect if using this old undocumented setting in order to give a helpful
     // error message
     @Deprecated public int reportingIntervalSeconds = 60;
@@ -362,6 +366,22 @@ public class Configuration {
     // metrics get flooded every 60 seconds by default, so need larger queue size to avoid dropping
     // telemetry (they are much smaller so a larger queue size is ok)
     public int metricsExportQueueCapacity = 65536;
+    // number of worker threads (each with its own share of the export queue capacity) per export
+    // queue, increasing this can help on many-core hosts where a single worker thread is not able
+    // to keep up with bursts of telemetry
+    public int exportWorkerCount = 1;
+    // when enabled, telemetry that doesn't fit in the export queue is spilled to memory-mapped
+    // files under the temp directory (instead of being dropped), and is exported once the export
+    // queue has caught up
+    public ExportQueueOverflow exportQueueOverflow = new ExportQueueOverflow();
+
+    // when enabled, spans are buffered per trace until the local root span ends, and the whole
+    // trace is then kept or dropped (on top of the regular head sampling above)
+    public TailSampling tailSampling = new TailSampling();
+
+    // by default performance counters are collected one after the other on a single thread
+    public PerformanceCounterCollection performanceCounterCollection =
+        new PerformanceCounterCollection();
 
     // disk persistence has a default capacity of 50MB
     public int diskPersistenceMaxSizeMb = 50;
@@ -398,6 +418,24 @@ public class Configuration {
       for (ProcessorConfig processorConfig : processors) {
         processorConfig.validate();
       }
+      if (exportWorkerCount < 1) {
+        throw new FriendlyException(
+            "The \"exportWorkerCount\" configuration must be at least 1: " + exportWorkerCount,
+            "Please provide a positive value for \"exportWorkerCount\" configuration.");
+      }
+      // each worker gets its own share of the export queue capacity, which needs to hold at least
+      // two items
+      validateExportQueueCapacity("generalExportQueueCapacity", generalExportQueueCapacity);
+      validateExportQueueCapacity("metricsExportQueueCapacity", metricsExportQueueCapacity);
+      if (exportQueueOverflow.maxSizeMb < 1) {
+        throw new FriendlyException(
+            "The \"exportQueueOverflow\" \"maxSizeMb\" configuration must be at least 1: "
+                + exportQueueOverflow.maxSizeMb,
+            "Please provide a positive value for \"exportQueueOverflow\" \"maxSizeMb\" configuration.");
+      }
+      tailSampling.validate();
+      performanceCounterCollection.validate();
+      profiler.validate();
       for (String additionalPropagator : additionalPropagators) {
         if (!VALID_ADDITIONAL_PROPAGATORS.contains(additionalPropagator)) {
           throw new FriendlyException(
@@ -407,6 +445,17 @@ public class Configuration {
         }
       }
     }
+
+    private void validateExportQueueCapacity(String name, int exportQueueCapacity) {
+      if (exportQueueCapacity < 2 * exportWorkerCount) {
+        throw new FriendlyException(
+            "The \""
+                + name
+                + "\" configuration must be at least twice the \"exportWorkerCount\": "
+                + exportQueueCapacity,
+            "Please provide a larger value for \"" + name + "\" configuration.");
+      }
+    }
   }
 
   public static class InheritedAttribute {
@@ -603,6 +652,99 @@ public class Configuration {
     public boolean enabled = true;
   }
 
+  public static class PerformanceCounterCollection {
+    // number of threads that performance counters (e.g. JMX, OSHI, GC) are collected on, with more
+    // than one thread a slow counter no longer delays the others
+    public int threads = 1;
+    // counters that have not started this long after a collection started are skipped until the
+    // next collection (0 means the metric interval)
+    public int deadlineSeconds;
+    // counters that take longer than this are logged as slow in the self-diagnostics logs
+    public int slowThresholdMillis = 5000;
+
+    private void validate() {
+      if (threads < 1) {
+        throw new FriendlyException(
+            "The \"performanceCounterCollection\" \"threads\" configuration must be at least 1: "
+                + threads,
+            "Please provide a positive value for \"performanceCounterCollection\" \"threads\" configuration.");
+      }
+      if (deadlineSeconds < 0) {
+        throw new FriendlyException(
+            "The \"performanceCounterCollection\" \"deadlineSeconds\" configuration must not be negative: "
+                + deadlineSeconds,
+            "Please provide a non-negative value for \"performanceCounterCollection\" \"deadlineSeconds\" configuration.");
+      }
+      if (slowThresholdMillis < 0) {
+        throw new FriendlyException(
+            "The \"performanceCounterCollection\" \"slowThresholdMillis\" configuration must not be negative: "
+                + slowThresholdMillis,
+            "Please provide a non-negative value for \"performanceCounterCollection\" \"slowThresholdMillis\" configuration.");
+      }
+      if (deadlineSeconds > 0 && slowThresholdMillis > SECONDS.toMillis(deadlineSeconds)) {
+        throw new FriendlyException(
+            "The \"performanceCounterCollection\" \"slowThresholdMillis\" configuration must not be greater than the \"deadlineSeconds\" configuration: "
+                + slowThresholdMillis,
+            "Please provide a \"slowThresholdMillis\" that is not greater than the \"deadlineSeconds\" for the \"performanceCounterCollection\" configuration.");
+      }
+    }
+  }
+
+  public static class ExportQueueOverflow {
+    public boolean enabled;
+    // this is per export queue
+    public int maxSizeMb = 50;
+  }
+
+  public static class TailSampling {
+    // note that live metrics only sees the spans of the traces that are kept
+    public boolean enabled;
+    // percentage of the traces to keep when none of the rules below apply (this is applied on top
+    // of the regular sampling percentage)
+    public double percentage = 100;
+    // traces that contain an error are always kept
+    public boolean keepErrors = true;
+    // traces that contain a span taking at least this long are always kept (0 disables this)
+    public long latencyThresholdMillis;
+    // same format as the sampling overrides, and traces are kept at the highest percentage of any
+    // of their spans
+    public List<SamplingOverride> overrides = new ArrayList<>();
+    // once either of these is exceeded, the oldest buffered traces are decided early based on the
+    // spans that have been buffered for them so far
+    public int maxBufferedSpans = 10000;
+    public int maxBufferedSeconds = 30;
+
+    private void validate() {
+      if (percentage < 0 || percentage > 100) {
+        throw new FriendlyException(
+            "The \"tailSampling\" \"percentage\" configuration must be between 0 and 100: "
+                + percentage,
+            "Please provide a \"percentage\" that is between 0 and 100 for the \"tailSampling\" configuration.");
+      }
+      if (latencyThresholdMillis < 0) {
+        throw new FriendlyException(
+            "The \"tailSampling\" \"latencyThresholdMillis\" configuration must not be negative: "
+                + latencyThresholdMillis,
+            "Please provide a non-negative value for \"tailSampling\" \"latencyThresholdMillis\" configuration.");
+      }
+      if (maxBufferedSpans < 1) {
+        throw new FriendlyException(
+            "The \"tailSampling\" \"maxBufferedSpans\" configuration must be at least 1: "
+                + maxBufferedSpans,
+            "Please provide a positive value for \"tailSampling\" \"maxBufferedSpans\" configuration.");
+      }
+      if (maxBufferedSeconds < 1) {
+        throw new FriendlyException(
+            "The \"tailSampling\" \"maxBufferedSeconds\" configuration must be at least 1: "
+                + maxBufferedSeconds,
+            "Please provide a positive value for \"tailSampling\" \"maxBufferedSeconds\" configuration.");
+      }
+      for (SamplingOverride override : overrides) {
+        override.validate();
+      }
+    }
+  }
+
   public static class SelfDiagnostics {
 
     public String level = "info";
@@ -1415,6 +1557,70 @@ public class Configuration {
     public boolean enableDiagnostics = false;
     public boolean enableRequestTriggering = false;
     public List<RequestTrigger> requestTriggerEndpoints = new ArrayList<>();
+    // when enabled, a single recording is kept running instead of starting a new recording for
+    // each alert, and alerts upload the part of that recording which covers them
+    public ContinuousRecording continuousRecording = new ContinuousRecording();
+    // alerts that arrive while a profile is in progress extend that profile when possible, and are
+    // otherwise queued (up to this many) and profiled once the cooldown after that profile passed
+    public int maxQueuedTriggers = 4;
+    public int triggerCooldownSeconds = 10;
+
+    private void validate() {
+      continuousRecording.validate();
+      if (continuousRecording.enabled) {
+        int longestProfileDurationSeconds = periodicRecordingDurationSeconds;
+        for (RequestTrigger requestTrigger : requestTriggerEndpoints) {
+          longestProfileDurationSeconds =
+              Math.max(longestProfileDurationSeconds, requestTrigger.profileDuration);
+        }
+        if (continuousRecording.maxAgeSeconds < longestProfileDurationSeconds) {
+          throw new FriendlyException(
+              "The \"continuousRecording\" \"maxAgeSeconds\" configuration must be at least as"
+                  + " long as the longest profile ("
+                  + longestProfileDurationSeconds
+                  + " seconds): "
+                  + continuousRecording.maxAgeSeconds,
+              "Please provide a larger value for \"continuousRecording\" \"maxAgeSeconds\""
+                  + " configuration.");
+        }
+      }
+      if (maxQueuedTriggers < 0) {
+        throw new FriendlyException(
+            "The \"profiler\" \"maxQueuedTriggers\" configuration must not be negative: "
+                + maxQueuedTriggers,
+            "Please provide a non-negative value for \"profiler\" \"maxQueuedTriggers\" configuration.");
+      }
+      if (triggerCooldownSeconds < 0) {
+        throw new FriendlyException(
+            "The \"profiler\" \"triggerCooldownSeconds\" configuration must not be negative: "
+                + triggerCooldownSeconds,
+            "Please provide a non-negative value for \"profiler\" \"triggerCooldownSeconds\" configuration.");
+      }
+    }
+  }
+
+  public static class ContinuousRecording {
+    public boolean enabled;
+    // JFR drops the chunks of the recording that are older than this, so this needs to be longer
+    // than the profile duration of the alerts
+    public int maxAgeSeconds = 600;
+    // JFR drops the oldest chunks of the recording once it is larger than this on disk
+    public int maxSizeMb = 100;
+
+    private void validate() {
+      if (maxAgeSeconds < 1) {
+        throw new FriendlyException(
+            "The \"continuousRecording\" \"maxAgeSeconds\" configuration must be at least 1: "
+                + maxAgeSeconds,
+            "Please provide a positive value for \"continuousRecording\" \"maxAgeSeconds\" configuration.");
+      }
+      if (maxSizeMb < 1) {
+        throw new FriendlyException(
+            "The \"continuousRecording\" \"maxSizeMb\" configuration must be at least 1: "
+                + maxSizeMb,
+            "Please provide a positive value for \"continuousRecording\" \"maxSizeMb\" configuration.");
+      }
+    }
   }
 
   public static class GcEventConfiguration {
@@ -12,7 +12,8 @@ public enum MsgId {
   FREE_MEMORY_METRIC_ERROR("2001"),
   CUSTOM_JMX_METRIC_ERROR("2002"),
   STATUS_FILE_ERROR("2004"),
-  STARTUP_FAILURE_ERROR("2005");
+  STARTUP_FAILURE_ERROR("2005"),
+  SLOW_PERFORMANCE_COUNTER_WARNING("2006");
 
   private final String value;
 
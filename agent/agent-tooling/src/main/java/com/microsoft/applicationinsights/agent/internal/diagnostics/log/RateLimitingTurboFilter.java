@@ -0,0 +1,228 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.diagnostics.log;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+import org.slf4j.Marker;
+
+/**
+ * Limits how many times the same warning or error (same logger and same message format, regardless
+ * of the arguments) is logged per interval, so that floods of the same message (e.g. while the
+ * ingestion endpoint is unavailable) don't flood the self-diagnostics output.
+ *
+ * <p>The number of messages that were suppressed is logged along with the first message of the
+ * next interval, or once the interval has ended if the message isn't logged again. This runs
+ * before the logging event is even created, so suppressed messages cost next to nothing.
+ */
+public class RateLimitingTurboFilter extends TurboFilter {
+
+  private static final String SUMMARY_FORMAT =
+      "{} similar messages were suppressed in the last {} seconds: {}";
+
+  // bounds the memory used when messages are not constant (e.g. when they are built using string
+  // concatenation instead of arguments)
+  private static final int MAX_TRACKED_MESSAGES = 1000;
+
+  private final int maxMessagesPerInterval;
+  private final long intervalNanos;
+  private final LongSupplier nanoTime;
+
+  private final ConcurrentMap<MessageKey, MessageWindow> windows = new ConcurrentHashMap<>();
+
+  @Nullable private ScheduledExecutorService flushExecutor;
+
+  public RateLimitingTurboFilter(int maxMessagesPerInterval, long intervalSeconds) {
+    this(maxMessagesPerInterval, intervalSeconds, System::nanoTime);
+  }
+
+  // visible for testing
+  RateLimitingTurboFilter(int maxMessagesPerInterval, long intervalSeconds, LongSupplier nanoTime) {
+    this.maxMessagesPerInterval = maxMessagesPerInterval;
+    this.intervalNanos = SECONDS.toNanos(intervalSeconds);
+    this.nanoTime = nanoTime;
+  }
+
+  @Override
+  public void start() {
+    flushExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(RateLimitingTurboFilter.class));
+    flushExecutor.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, NANOSECONDS);
+    super.start();
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    if (flushExecutor != null) {
+      flushExecutor.shutdownNow();
+      flushExecutor = null;
+    }
+  }
+
+  @Override
+  public FilterReply decide(
+      @Nullable Marker marker,
+      Logger logger,
+      @Nullable Level level,
+      @Nullable String format,
+      @Nullable Object[] params,
+      @Nullable Throwable t) {
+    // this is called for every log statement (even the ones that are disabled)
+    if (level == null
+        || level.levelInt < Level.WARN_INT
+        || format == null
+        || !level.isGreaterOrEqual(logger.getEffectiveLevel())
+        || SUMMARY_FORMAT.equals(format)) {
+      return FilterReply.NEUTRAL;
+    }
+
+    MessageKey key = new MessageKey(logger.getName(), format);
+    MessageWindow window = windows.get(key);
+    if (window == null) {
+      if (windows.size() >= MAX_TRACKED_MESSAGES) {
+        evictOldest();
+      }
+      window =
+          windows.computeIfAbsent(
+              key, k -> new MessageWindow(logger, level, format, nanoTime.getAsLong()));
+    }
+
+    long now = nanoTime.getAsLong();
+    long start = window.start.get();
+    if (now - start >= intervalNanos && window.start.compareAndSet(start, now)) {
+      // first message of a new interval
+      window.count.set(1);
+      int suppressed = window.suppressed.getAndSet(0);
+      if (suppressed > 0) {
+        logSummary(logger, level, suppressed, NANOSECONDS.toSeconds(now - start), format);
+      }
+      return FilterReply.NEUTRAL;
+    }
+    if (window.count.incrementAndGet() <= maxMessagesPerInterval) {
+      return FilterReply.NEUTRAL;
+    }
+    window.suppressed.incrementAndGet();
+    return FilterReply.DENY;
+  }
+
+  // logs the suppressed messages of the intervals that have ended, and stops tracking the messages
+  // that weren't suppressed (which is what keeps the number of tracked messages down)
+  //
+  // visible for testing
+  void flush() {
+    long now = nanoTime.getAsLong();
+    for (Map.Entry<MessageKey, MessageWindow> entry : windows.entrySet()) {
+      MessageWindow window = entry.getValue();
+      long start = window.start.get();
+      if (now - start < intervalNanos) {
+        continue;
+      }
+      if (window.suppressed.get() == 0) {
+        if (windows.remove(entry.getKey(), window)) {
+          // in case a message was suppressed in the meantime
+          logSuppressed(window, now - start);
+        }
+      } else if (window.start.compareAndSet(start, now)) {
+        window.count.set(0);
+        logSuppressed(window, now - start);
+      }
+    }
+  }
+
+  // makes room for another message by no longer tracking the one whose interval started first
+  // (after logging its suppressed messages), so that the other messages are still limited
+  //
+  // this only happens once too many different messages are tracked, and always along with logging
+  // the new message, which costs a lot more than going through the tracked messages
+  private void evictOldest() {
+    Map.Entry<MessageKey, MessageWindow> oldest = null;
+    for (Map.Entry<MessageKey, MessageWindow> entry : windows.entrySet()) {
+      if (oldest == null || entry.getValue().start.get() - oldest.getValue().start.get() < 0) {
+        oldest = entry;
+      }
+    }
+    if (oldest != null && windows.remove(oldest.getKey(), oldest.getValue())) {
+      MessageWindow window = oldest.getValue();
+      logSuppressed(window, nanoTime.getAsLong() - window.start.get());
+    }
+  }
+
+  private static void logSuppressed(MessageWindow window, long nanos) {
+    int suppressed = window.suppressed.getAndSet(0);
+    if (suppressed > 0) {
+      logSummary(
+          window.logger, window.level, suppressed, NANOSECONDS.toSeconds(nanos), window.format);
+    }
+  }
+
+  private static void logSummary(
+      Logger logger, Level level, int suppressed, long seconds, String format) {
+    if (level.levelInt >= Level.ERROR_INT) {
+      logger.error(SUMMARY_FORMAT, suppressed, seconds, format);
+    } else {
+      logger.warn(SUMMARY_FORMAT, suppressed, seconds, format);
+    }
+  }
+
+  private static final class MessageKey {
+
+    private final String loggerName;
+    private final String format;
+
+    private MessageKey(String loggerName, String format) {
+      this.loggerName = loggerName;
+      this.format = format;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof MessageKey)) {
+        return false;
+      }
+      MessageKey other = (MessageKey) obj;
+      return loggerName.equals(other.loggerName) && format.equals(other.format);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * loggerName.hashCode() + format.hashCode();
+    }
+  }
+
+  private static final class MessageWindow {
+
+    // for logging the summary when the message itself isn't logged again
+    private final Logger logger;
+    private final Level level;
+    private final String format;
+
+    private final AtomicLong start;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicInteger suppressed = new AtomicInteger();
+
+    private MessageWindow(Logger logger, Level level, String format, long start) {
+      this.logger = logger;
+      this.level = level;
+      this.format = format;
+      this.start = new AtomicLong(start);
+    }
+  }
+}
@@ -14,7 +14,7 @@ import com.microsoft.applicationinsights.agent.internal.configuration.Configurat
 import com.microsoft.applicationinsights.agent.internal.sampling.SamplingOverrides;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryFanOut;
 import io.opentelemetry.api.trace.SpanContext;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.logs.data.LogRecordData;
@@ -55,12 +55,7 @@ public class AgentLogExporter implements LogRecordExporter {
     this.mapper = mapper;
     telemetryItemConsumer =
         telemetryItem -> {
-          if (quickPulse != null) {
-            quickPulse.add(telemetryItem);
-          }
-          TelemetryObservers.INSTANCE
-              .getObservers()
-              .forEach(consumer -> consumer.accept(telemetryItem));
+          TelemetryFanOut.getInstance().add(telemetryItem, quickPulse);
           batchItemProcessor.trackAsync(telemetryItem);
         };
   }
@@ -12,7 +12,7 @@ import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.MetricFilter;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryFanOut;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
@@ -44,9 +44,7 @@ public class AgentMetricExporter implements MetricExporter {
     this.mapper = mapper;
     this.telemetryItemConsumer =
         telemetryItem -> {
-          TelemetryObservers.INSTANCE
-              .getObservers()
-              .forEach(consumer -> consumer.accept(telemetryItem));
+          TelemetryFanOut.getInstance().add(telemetryItem, null);
           batchItemProcessor.trackAsync(telemetryItem);
         };
   }
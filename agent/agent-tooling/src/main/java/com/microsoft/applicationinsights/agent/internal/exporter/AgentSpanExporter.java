@@ -12,7 +12,7 @@ import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.QuickP
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.Strings;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryFanOut;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
@@ -39,12 +39,7 @@ public final class AgentSpanExporter implements SpanExporter {
     this.mapper = mapper;
     telemetryItemConsumer =
         telemetryItem -> {
-          if (quickPulse != null) {
-            quickPulse.add(telemetryItem);
-          }
-          TelemetryObservers.INSTANCE
-              .getObservers()
-              .forEach(consumer -> consumer.accept(telemetryItem));
+          TelemetryFanOut.getInstance().add(telemetryItem, quickPulse);
           batchItemProcessor.trackAsync(telemetryItem);
         };
   }
@@ -26,20 +26,24 @@ public class AfterAgentListener implements AgentListener {
     LazyHttpClient.safeToInitLatch.countDown();
 
     Configuration configuration = FirstEntryPoint.getConfiguration();
-    PerformanceCounterInitializer.initialize(configuration);
+    StartupTimings.run(
+        "PerformanceCounters", () -> PerformanceCounterInitializer.initialize(configuration));
 
     TelemetryClient telemetryClient = TelemetryClient.getActive();
     if (configuration.preview.profiler.enabled
         && telemetryClient != null
         && telemetryClient.getConnectionString() != null) {
       try {
-        ProfilingInitializer.initialize(
-            SecondEntryPoint.getTempDir(),
-            configuration.preview.profiler,
-            configuration.preview.gcEvents.reportingLevel,
-            configuration.role.name,
-            configuration.role.instance,
-            TelemetryClient.getActive());
+        StartupTimings.run(
+            "Profiler",
+            () ->
+                ProfilingInitializer.initialize(
+                    SecondEntryPoint.getTempDir(),
+                    configuration.preview.profiler,
+                    configuration.preview.gcEvents.reportingLevel,
+                    configuration.role.name,
+                    configuration.role.instance,
+                    TelemetryClient.getActive()));
       } catch (RuntimeException e) {
         logger.warn("Failed to initialize profiler", e);
       }
@@ -205,6 +205,9 @@ public class AiConfigCustomizer implements Function<ConfigProperties, Map<String
     if (namespace != null) {
       properties.put("applicationinsights.internal.micrometer.namespace", namespace);
     }
+    if (config.instrumentation.micrometer.suppressUnchangedMeters) {
+      properties.put("applicationinsights.internal.micrometer.suppress-unchanged-meters", "true");
+    }
     if (config.instrumentation.azureSdk.enabled) {
       properties.put("otel.instrumentation.azure-core.enabled", "true");
     }
@@ -21,14 +21,21 @@ import javax.annotation.Nullable;
 //     .getContext().getCloud().setRole(...)
 public class AiContextCustomizer<R> implements ContextCustomizer<R> {
 
-  private final List<Configuration.ConnectionStringOverride> connectionStringOverrides;
-  private final List<Configuration.RoleNameOverride> roleNameOverrides;
+  // the overrides are compiled once, since they are matched on every server span start
+  private final PathPrefixMatcher<String> connectionStringOverrides;
+  private final PathPrefixMatcher<String> roleNameOverrides;
 
   public AiContextCustomizer(
       List<Configuration.ConnectionStringOverride> connectionStringOverrides,
       List<Configuration.RoleNameOverride> roleNameOverrides) {
-    this.connectionStringOverrides = connectionStringOverrides;
-    this.roleNameOverrides = roleNameOverrides;
+    this.connectionStringOverrides =
+        PathPrefixMatcher.create(
+            connectionStringOverrides,
+            override -> override.httpPathPrefix,
+            override -> override.connectionString);
+    this.roleNameOverrides =
+        PathPrefixMatcher.create(
+            roleNameOverrides, override -> override.httpPathPrefix, override -> override.roleName);
   }
 
   @Override
@@ -65,28 +72,12 @@ public class AiContextCustomizer<R> implements ContextCustomizer<R> {
   }
 
   @Nullable
-  private String getConnectionStringOverride(String target) {
-    if (target == null) {
-      return null;
-    }
-    for (Configuration.ConnectionStringOverride override : connectionStringOverrides) {
-      if (target.startsWith(override.httpPathPrefix)) {
-        return override.connectionString;
-      }
-    }
-    return null;
+  private String getConnectionStringOverride(@Nullable String target) {
+    return connectionStringOverrides.match(target);
   }
 
   @Nullable
-  private String getRoleNameOverride(String target) {
-    if (target == null) {
-      return null;
-    }
-    for (Configuration.RoleNameOverride override : roleNameOverrides) {
-      if (target.startsWith(override.httpPathPrefix)) {
-        return override.roleName;
-      }
-    }
-    return null;
+  private String getRoleNameOverride(@Nullable String target) {
+    return roleNameOverrides.match(target);
   }
 }
@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import com.google.auto.service.AutoService;
+import io.opentelemetry.javaagent.tooling.AgentExtension;
+import io.opentelemetry.sdk.autoconfigure.spi.ConfigProperties;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.security.ProtectionDomain;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Measures the cumulative time that the agent spends transforming classes (including matching the
+ * classes that end up not being transformed) until the agent has started, for the startup timings
+ * (see {@link StartupTimings}).
+ *
+ * <p>The Byte Buddy transformations are measured by a listener, and the class file transformers
+ * that are registered directly (e.g. the Classic SDK instrumentation) are measured by wrapping them
+ * with {@link #timed}, and the two are reported separately.
+ */
+@AutoService(AgentExtension.class)
+public class ClassTransformationTimer implements AgentExtension {
+
+  private static final AtomicLong byteBuddyNanos = new AtomicLong();
+  private static final AtomicLong byteBuddyCount = new AtomicLong();
+  private static final AtomicLong classFileTransformerNanos = new AtomicLong();
+
+  private static volatile boolean stopped;
+
+  // the start of the class that the thread is currently transforming (byte buddy does not
+  // transform classes recursively on the same thread)
+  private static final ThreadLocal<long[]> discoveryNanos =
+      ThreadLocal.withInitial(() -> new long[1]);
+
+  @Override
+  public AgentBuilder extend(AgentBuilder agentBuilder, ConfigProperties config) {
+    return agentBuilder.with(new TimingListener());
+  }
+
+  @Override
+  public String extensionName() {
+    return "applicationinsights-class-transformation-timer";
+  }
+
+  /** Stops measuring, so that the listener does not cost anything after startup. */
+  static void stop() {
+    stopped = true;
+  }
+
+  /** Wraps a class file transformer that is not registered through Byte Buddy, to measure it. */
+  static ClassFileTransformer timed(ClassFileTransformer transformer) {
+    return new TimingClassFileTransformer(transformer);
+  }
+
+  static long getByteBuddyNanos() {
+    return byteBuddyNanos.get();
+  }
+
+  static long getByteBuddyCount() {
+    return byteBuddyCount.get();
+  }
+
+  static long getClassFileTransformerNanos() {
+    return classFileTransformerNanos.get();
+  }
+
+  private static class TimingListener extends AgentBuilder.Listener.Adapter {
+
+    @Override
+    public void onDiscovery(
+        String typeName,
+        @Nullable ClassLoader classLoader,
+        @Nullable JavaModule module,
+        boolean loaded) {
+      if (!stopped) {
+        discoveryNanos.get()[0] = System.nanoTime();
+      }
+    }
+
+    @Override
+    public void onComplete(
+        String typeName,
+        @Nullable ClassLoader classLoader,
+        @Nullable JavaModule module,
+        boolean loaded) {
+      if (stopped) {
+        return;
+      }
+      long[] start = discoveryNanos.get();
+      if (start[0] != 0) {
+        byteBuddyNanos.addAndGet(System.nanoTime() - start[0]);
+        byteBuddyCount.incrementAndGet();
+        start[0] = 0;
+      }
+    }
+  }
+
+  private static class TimingClassFileTransformer implements ClassFileTransformer {
+
+    private final ClassFileTransformer delegate;
+
+    private TimingClassFileTransformer(ClassFileTransformer delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    @Nullable
+    public byte[] transform(
+        @Nullable ClassLoader loader,
+        @Nullable String className,
+        @Nullable Class<?> classBeingRedefined,
+        @Nullable ProtectionDomain protectionDomain,
+        byte[] classfileBuffer)
+        throws IllegalClassFormatException {
+      if (stopped) {
+        return delegate.transform(
+            loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+      }
+      long start = System.nanoTime();
+      try {
+        return delegate.transform(
+            loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+      } finally {
+        classFileTransformerNanos.addAndGet(System.nanoTime() - start);
+      }
+    }
+  }
+}
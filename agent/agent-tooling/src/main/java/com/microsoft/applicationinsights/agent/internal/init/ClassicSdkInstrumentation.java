@@ -3,6 +3,8 @@
 
 package com.microsoft.applicationinsights.agent.internal.init;
 
+import static com.microsoft.applicationinsights.agent.internal.init.ClassTransformationTimer.timed;
+
 import com.microsoft.applicationinsights.agent.bootstrap.BytecodeUtil;
 import com.microsoft.applicationinsights.agent.internal.classicsdk.ApplicationInsightsAppenderClassFileTransformer;
 import com.microsoft.applicationinsights.agent.internal.classicsdk.BytecodeUtilImpl;
@@ -27,20 +29,21 @@ class ClassicSdkInstrumentation {
     Instrumentation instrumentation = InstrumentationHolder.getInstrumentation();
 
     // add sdk instrumentation after ensuring Global.getTelemetryClient() will not return null
-    instrumentation.addTransformer(new TelemetryClientClassFileTransformer());
-    instrumentation.addTransformer(new DependencyTelemetryClassFileTransformer());
-    instrumentation.addTransformer(new RequestTelemetryClassFileTransformer());
-    instrumentation.addTransformer(new ExceptionTelemetryClassFileTransformer());
-    instrumentation.addTransformer(new MetricTelemetryClassFileTransformer());
-    instrumentation.addTransformer(new TelemetryContextClassFileTransformer());
-    instrumentation.addTransformer(new PerformanceCounterModuleClassFileTransformer());
-    instrumentation.addTransformer(new QuickPulseClassFileTransformer());
-    instrumentation.addTransformer(new HeartBeatModuleClassFileTransformer());
-    instrumentation.addTransformer(new ApplicationInsightsAppenderClassFileTransformer());
-    instrumentation.addTransformer(new WebRequestTrackingFilterClassFileTransformer());
-    instrumentation.addTransformer(new RequestNameHandlerClassFileTransformer());
-    instrumentation.addTransformer(new DuplicateAgentClassFileTransformer());
-    instrumentation.addTransformer(new ConnectionStringClassFileTransformer());
+    // (these are timed for the startup timings, since they are not registered through byte buddy)
+    instrumentation.addTransformer(timed(new TelemetryClientClassFileTransformer()));
+    instrumentation.addTransformer(timed(new DependencyTelemetryClassFileTransformer()));
+    instrumentation.addTransformer(timed(new RequestTelemetryClassFileTransformer()));
+    instrumentation.addTransformer(timed(new ExceptionTelemetryClassFileTransformer()));
+    instrumentation.addTransformer(timed(new MetricTelemetryClassFileTransformer()));
+    instrumentation.addTransformer(timed(new TelemetryContextClassFileTransformer()));
+    instrumentation.addTransformer(timed(new PerformanceCounterModuleClassFileTransformer()));
+    instrumentation.addTransformer(timed(new QuickPulseClassFileTransformer()));
+    instrumentation.addTransformer(timed(new HeartBeatModuleClassFileTransformer()));
+    instrumentation.addTransformer(timed(new ApplicationInsightsAppenderClassFileTransformer()));
+    instrumentation.addTransformer(timed(new WebRequestTrackingFilterClassFileTransformer()));
+    instrumentation.addTransformer(timed(new RequestNameHandlerClassFileTransformer()));
+    instrumentation.addTransformer(timed(new DuplicateAgentClassFileTransformer()));
+    instrumentation.addTransformer(timed(new ConnectionStringClassFileTransformer()));
 
     // this is currently used by Micrometer instrumentation in addition to 2.x SDK
     BytecodeUtil.setDelegate(new BytecodeUtilImpl());
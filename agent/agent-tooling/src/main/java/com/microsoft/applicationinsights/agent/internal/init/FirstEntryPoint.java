@@ -74,6 +74,7 @@ public class FirstEntryPoint implements LoggingCustomizer {
 
   @Override
   public void init(EarlyInitAgentConfig earlyConfig) {
+    StartupTimings.start();
     try {
       if (DEBUG_SIGNED_JAR_ACCESS) {
         JarVerifierClassFileTransformer transformer = new JarVerifierClassFileTransformer();
@@ -89,6 +90,7 @@ public class FirstEntryPoint implements LoggingCustomizer {
       // configuration is only read this early in order to extract logging configuration
       rpConfiguration = RpConfigurationBuilder.create(agentPath);
       configuration = ConfigurationBuilder.create(agentPath, rpConfiguration);
+      StartupTimings.mark("Configuration");
 
       String codelessSdkNamePrefix = getCodelessSdkNamePrefix();
       if (codelessSdkNamePrefix != null) {
@@ -96,10 +98,13 @@ public class FirstEntryPoint implements LoggingCustomizer {
       }
       startupLogger = configureLogging(configuration.selfDiagnostics, agentPath);
       ConfigurationBuilder.logConfigurationWarnMessages();
+      StartupTimings.mark("Logging");
 
       ClassicSdkInstrumentation.registerTransformers();
+      StartupTimings.mark("ClassicSdkTransformers");
 
       StartupDiagnostics.execute();
+      StartupTimings.mark("StartupDiagnostics");
 
       InternalLogger.initialize(Slf4jInternalLogger::create);
 
@@ -130,6 +135,7 @@ public class FirstEntryPoint implements LoggingCustomizer {
             "Application Insights root certificate in the Java keystore: "
                 + appInsightsCertificate.isInJavaKeystore());
       }
+      StartupTimings.mark("EnvironmentChecks");
 
     } catch (Exception e) {
       throw new IllegalStateException(e);
@@ -188,6 +194,7 @@ public class FirstEntryPoint implements LoggingCustomizer {
       MDC.remove(DiagnosticsHelper.MDC_PROP_OPERATION);
     }
 
+    StartupDiagnostics.reportStartupTimings();
     updateStatusFile(true);
   }
 
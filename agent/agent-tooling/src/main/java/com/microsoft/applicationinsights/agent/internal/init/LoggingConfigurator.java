@@ -4,8 +4,10 @@
 package com.microsoft.applicationinsights.agent.internal.init;
 
 import static com.microsoft.applicationinsights.agent.internal.diagnostics.DiagnosticsHelper.LINUX_DEFAULT;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.slf4j.Logger.ROOT_LOGGER_NAME;
 
+import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -27,12 +29,22 @@ import com.microsoft.applicationinsights.agent.internal.diagnostics.log.Applicat
 import com.microsoft.applicationinsights.agent.internal.diagnostics.log.ApplicationInsightsDiagnosticsLogFilter;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.log.ApplicationInsightsJsonLayout;
 import com.microsoft.applicationinsights.agent.internal.diagnostics.log.JacksonJsonFormatter;
+import com.microsoft.applicationinsights.agent.internal.diagnostics.log.RateLimitingTurboFilter;
 import com.microsoft.applicationinsights.agent.internal.logbackpatch.FixedWindowRollingPolicy;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import org.slf4j.LoggerFactory;
 
 public class LoggingConfigurator {
 
+  private static final int ASYNC_QUEUE_SIZE = 1024;
+  private static final long SHUTDOWN_FLUSH_TIMEOUT_MILLIS = 1000;
+
+  // the same warning or error is logged at most this many times per interval
+  private static final int MAX_SIMILAR_MESSAGES_PER_INTERVAL = 10;
+  private static final long SIMILAR_MESSAGES_INTERVAL_SECONDS = 60;
+
   private final LoggerContext loggerContext;
 
   private final String destination;
@@ -43,6 +55,8 @@ public class LoggingConfigurator {
 
   private final LoggingLevelConfigurator loggingLevelConfigurator;
 
+  private final List<AsyncAppender> asyncAppenders = new CopyOnWriteArrayList<>();
+
   LoggingConfigurator(Configuration.SelfDiagnostics selfDiagnostics, Path agentPath) {
     loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
 
@@ -57,6 +71,13 @@ public class LoggingConfigurator {
   void configure() {
     loggerContext.getLogger(ROOT_LOGGER_NAME).detachAndStopAllAppenders();
 
+    RateLimitingTurboFilter rateLimitingFilter =
+        new RateLimitingTurboFilter(
+            MAX_SIMILAR_MESSAGES_PER_INTERVAL, SIMILAR_MESSAGES_INTERVAL_SECONDS);
+    rateLimitingFilter.setContext(loggerContext);
+    rateLimitingFilter.start();
+    loggerContext.addTurboFilter(rateLimitingFilter);
+
     if (DiagnosticsHelper.isAppSvcRpIntegration()) {
       configureAppSvc();
     } else if (DiagnosticsHelper.isFunctionsRpIntegration()) {
@@ -74,12 +95,13 @@ public class LoggingConfigurator {
 
   private void configureAppSvc() {
     Logger rootLogger = loggerContext.getLogger(ROOT_LOGGER_NAME);
-    rootLogger.addAppender(configureFileAppender());
-    rootLogger.addAppender(configureConsoleAppender());
+    rootLogger.addAppender(async(configureFileAppender()));
+    rootLogger.addAppender(async(configureConsoleAppender()));
 
     // App Services linux is default to "/var/log/applicationinsights".
     if (!DiagnosticsHelper.isOsWindows()) {
-      Appender<ILoggingEvent> diagnosticAppender = configureDiagnosticAppender(LINUX_DEFAULT);
+      Appender<ILoggingEvent> diagnosticAppender =
+          async(configureDiagnosticAppender(LINUX_DEFAULT));
 
       // applicationinsights.extension.diagnostics logging should go to extension diagnostic log,
       // but should not go to normal user-facing log
@@ -100,7 +122,7 @@ public class LoggingConfigurator {
     // diagnostic logging without building the etw dll locally
     if (DiagnosticsHelper.isOsWindows()
         && !Boolean.getBoolean("applicationinsights.testing.etw.disabled")) {
-      rootLogger.addAppender(configureEtwAppender());
+      rootLogger.addAppender(async(configureEtwAppender()));
     }
 
     loggingLevelConfigurator.initLoggerLevels(loggerContext);
@@ -108,17 +130,19 @@ public class LoggingConfigurator {
 
   private void configureFunctions() {
     Logger rootLogger = loggerContext.getLogger(ROOT_LOGGER_NAME);
-    rootLogger.addAppender(configureFileAppender());
+    rootLogger.addAppender(async(configureFileAppender()));
     Logger diagnosticLogger = loggerContext.getLogger(DiagnosticsHelper.DIAGNOSTICS_LOGGER_NAME);
     diagnosticLogger.setLevel(Level.INFO);
     diagnosticLogger.setAdditive(false);
-    Appender<ILoggingEvent> diagnosticAppender = configureConsoleAppender();
-    diagnosticLogger.addAppender(diagnosticAppender);
+    Appender<ILoggingEvent> diagnosticConsoleAppender = configureConsoleAppender();
 
     ApplicationInsightsDiagnosticsLogFilter filter = new ApplicationInsightsDiagnosticsLogFilter();
     filter.setContext(loggerContext);
     filter.start();
-    diagnosticAppender.addFilter(filter);
+    diagnosticConsoleAppender.addFilter(filter);
+
+    Appender<ILoggingEvent> diagnosticAppender = async(diagnosticConsoleAppender);
+    diagnosticLogger.addAppender(diagnosticAppender);
 
     // errors reported by other loggers should also go to diagnostic log
     // (level filter for these is applied in ApplicationInsightsDiagnosticsLogFilter)
@@ -129,8 +153,8 @@ public class LoggingConfigurator {
 
   private void configureFileAndConsole() {
     Logger rootLogger = loggerContext.getLogger(ROOT_LOGGER_NAME);
-    rootLogger.addAppender(configureFileAppender());
-    rootLogger.addAppender(configureConsoleAppender());
+    rootLogger.addAppender(async(configureFileAppender()));
+    rootLogger.addAppender(async(configureConsoleAppender()));
     loggingLevelConfigurator.initLoggerLevels(loggerContext);
     // these messages are specifically designed for attach
     loggerContext.getLogger("applicationinsights.extension.diagnostics").setLevel(Level.OFF);
@@ -138,7 +162,7 @@ public class LoggingConfigurator {
 
   private void configureFile() {
     Logger rootLogger = loggerContext.getLogger(ROOT_LOGGER_NAME);
-    rootLogger.addAppender(configureFileAppender());
+    rootLogger.addAppender(async(configureFileAppender()));
 
     loggingLevelConfigurator.initLoggerLevels(loggerContext);
     // these messages are specifically designed for attach
@@ -147,7 +171,7 @@ public class LoggingConfigurator {
 
   private void configureConsole() {
     Logger rootLogger = loggerContext.getLogger(ROOT_LOGGER_NAME);
-    rootLogger.addAppender(configureConsoleAppender());
+    rootLogger.addAppender(async(configureConsoleAppender()));
 
     loggingLevelConfigurator.initLoggerLevels(loggerContext);
     // these messages are specifically designed for attach
@@ -277,6 +301,44 @@ public class LoggingConfigurator {
     return appender;
   }
 
+  // the appenders write to files, to the console and to ETW on a background thread, so that the
+  // threads that log (which can be application threads) never block on that
+  private Appender<ILoggingEvent> async(Appender<ILoggingEvent> appender) {
+    AsyncAppender asyncAppender = new AsyncAppender();
+    asyncAppender.setContext(loggerContext);
+    asyncAppender.setName("ASYNC_" + appender.getName());
+    asyncAppender.setQueueSize(ASYNC_QUEUE_SIZE);
+    // drops the event (instead of blocking) when the queue is full, and also drops info and lower
+    // when the queue is almost full (the logback default), in favor of warnings and errors
+    asyncAppender.setNeverBlock(true);
+    asyncAppender.addAppender(appender);
+    asyncAppender.start();
+
+    if (asyncAppenders.isEmpty()) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(this::awaitAsyncAppenders, "applicationinsights-logging"));
+    }
+    asyncAppenders.add(asyncAppender);
+    return asyncAppender;
+  }
+
+  // gives the background threads a chance to write the last messages (e.g. the ones explaining
+  // why the application is exiting) without stopping them, since other shutdown hooks can still
+  // be logging
+  private void awaitAsyncAppenders() {
+    long deadline = System.nanoTime() + MILLISECONDS.toNanos(SHUTDOWN_FLUSH_TIMEOUT_MILLIS);
+    for (AsyncAppender asyncAppender : asyncAppenders) {
+      while (asyncAppender.getNumberOfElementsInQueue() > 0 && System.nanoTime() < deadline) {
+        try {
+          MILLISECONDS.sleep(10);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
   private Encoder<ILoggingEvent> createEncoder() {
     PatternLayoutEncoder encoder = new PatternLayoutEncoder();
     encoder.setContext(loggerContext);
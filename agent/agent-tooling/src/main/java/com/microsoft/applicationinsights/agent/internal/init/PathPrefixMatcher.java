@@ -0,0 +1,118 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+
+/**
+ * Matches paths against a list of path prefixes, and returns the value of the first prefix in the
+ * list that the path starts with (the same as checking each prefix in turn with {@link
+ * String#startsWith}).
+ *
+ * <p>The prefixes are compiled into a trie up front, so that a match takes time proportional to the
+ * length of the path instead of to the number of prefixes, and does not allocate.
+ */
+final class PathPrefixMatcher<T> {
+
+  private final Node<T> root = new Node<>();
+
+  static <E, T> PathPrefixMatcher<T> create(
+      List<E> entries, Function<E, String> prefix, Function<E, T> value) {
+    PathPrefixMatcher<T> matcher = new PathPrefixMatcher<>();
+    for (int i = 0; i < entries.size(); i++) {
+      E entry = entries.get(i);
+      String entryPrefix = prefix.apply(entry);
+      if (entryPrefix != null) {
+        matcher.add(entryPrefix, value.apply(entry), i);
+      }
+    }
+    return matcher;
+  }
+
+  private PathPrefixMatcher() {}
+
+  private void add(String prefix, T value, int order) {
+    Node<T> node = root;
+    for (int i = 0; i < prefix.length(); i++) {
+      node = node.getOrAddChild(prefix.charAt(i));
+    }
+    // the same prefix can be listed more than once, in which case the first one wins
+    if (node.order == Node.NO_VALUE) {
+      node.order = order;
+      node.value = value;
+    }
+  }
+
+  /** Returns the value of the first prefix (in list order) that the path starts with. */
+  @Nullable
+  T match(@Nullable String path) {
+    if (path == null) {
+      return null;
+    }
+    Node<T> node = root;
+    int bestOrder = node.order;
+    T bestValue = node.value;
+    // every node on the way down is a prefix of the path, so the earliest one listed wins, not
+    // necessarily the longest one
+    for (int i = 0; i < path.length() && bestOrder != 0; i++) {
+      node = node.getChild(path.charAt(i));
+      if (node == null) {
+        break;
+      }
+      if (node.order < bestOrder) {
+        bestOrder = node.order;
+        bestValue = node.value;
+      }
+    }
+    return bestValue;
+  }
+
+  private static class Node<T> {
+
+    private static final int NO_VALUE = Integer.MAX_VALUE;
+
+    // the children are kept sorted by key, so that they can be binary searched
+    private char[] keys = new char[0];
+
+    @SuppressWarnings("unchecked")
+    private Node<T>[] children = new Node[0];
+
+    // the position in the list of the prefix that ends at this node
+    private int order = NO_VALUE;
+    @Nullable private T value;
+
+    @Nullable
+    private Node<T> getChild(char key) {
+      int index = Arrays.binarySearch(keys, key);
+      return index < 0 ? null : children[index];
+    }
+
+    private Node<T> getOrAddChild(char key) {
+      int index = Arrays.binarySearch(keys, key);
+      if (index >= 0) {
+        return children[index];
+      }
+      int insertAt = -index - 1;
+      Node<T> child = new Node<>();
+
+      char[] newKeys = new char[keys.length + 1];
+      System.arraycopy(keys, 0, newKeys, 0, insertAt);
+      newKeys[insertAt] = key;
+      System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+      keys = newKeys;
+
+      @SuppressWarnings("unchecked")
+      Node<T>[] newChildren = new Node[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, insertAt);
+      newChildren[insertAt] = child;
+      System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+      children = newChildren;
+
+      return child;
+    }
+  }
+}
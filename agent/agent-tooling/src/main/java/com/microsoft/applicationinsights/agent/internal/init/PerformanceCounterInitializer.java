@@ -37,6 +37,12 @@ public class PerformanceCounterInitializer {
 
     PerformanceCounterContainer.INSTANCE.setCollectionFrequencyInSec(
         configuration.metricIntervalSeconds);
+    Configuration.PerformanceCounterCollection collection =
+        configuration.preview.performanceCounterCollection;
+    PerformanceCounterContainer.INSTANCE.setCollectionThreads(collection.threads);
+    PerformanceCounterContainer.INSTANCE.setCollectionDeadlineInSec(collection.deadlineSeconds);
+    PerformanceCounterContainer.INSTANCE.setSlowCounterThresholdInMillis(
+        collection.slowThresholdMillis);
 
     if (logger.isDebugEnabled()) {
       PerformanceCounterContainer.INSTANCE.setLogAvailableJmxMetrics();
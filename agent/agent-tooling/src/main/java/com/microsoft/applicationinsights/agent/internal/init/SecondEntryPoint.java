@@ -6,6 +6,8 @@ package com.microsoft.applicationinsights.agent.internal.init;
 import static java.util.concurrent.TimeUnit.MINUTES;
 
 import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.policy.DefaultRedirectStrategy;
+import com.azure.core.http.policy.RedirectPolicy;
 import com.azure.core.util.logging.ClientLogger;
 import com.azure.monitor.opentelemetry.exporter.implementation.LogDataMapper;
 import com.azure.monitor.opentelemetry.exporter.implementation.MetricDataMapper;
@@ -42,19 +44,16 @@ import com.microsoft.applicationinsights.agent.internal.exporter.AgentSpanExport
 import com.microsoft.applicationinsights.agent.internal.exporter.ExporterUtils;
 import com.microsoft.applicationinsights.agent.internal.httpclient.LazyHttpClient;
 import com.microsoft.applicationinsights.agent.internal.legacyheaders.AiLegacyHeaderSpanProcessor;
-import com.microsoft.applicationinsights.agent.internal.processors.ExporterWithLogProcessor;
-import com.microsoft.applicationinsights.agent.internal.processors.ExporterWithSpanProcessor;
-import com.microsoft.applicationinsights.agent.internal.processors.LogExporterWithAttributeProcessor;
-import com.microsoft.applicationinsights.agent.internal.processors.MySpanData;
-import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithAttributeProcessor;
+import com.microsoft.applicationinsights.agent.internal.processors.LogExporterWithProcessors;
+import com.microsoft.applicationinsights.agent.internal.processors.SpanExporterWithProcessors;
 import com.microsoft.applicationinsights.agent.internal.profiler.triggers.AlertTriggerSpanProcessor;
 import com.microsoft.applicationinsights.agent.internal.sampling.SamplingOverrides;
+import com.microsoft.applicationinsights.agent.internal.sampling.TailSamplingSpanExporter;
 import com.microsoft.applicationinsights.agent.internal.telemetry.BatchItemProcessor;
+import com.microsoft.applicationinsights.agent.internal.telemetry.LiveMetricsSessionPolicy;
 import com.microsoft.applicationinsights.agent.internal.telemetry.MetricFilter;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryObservers;
-import io.opentelemetry.api.common.Attributes;
-import io.opentelemetry.api.common.AttributesBuilder;
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryFanOut;
 import io.opentelemetry.sdk.autoconfigure.AutoConfiguredOpenTelemetrySdkBuilder;
 import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizer;
 import io.opentelemetry.sdk.autoconfigure.spi.AutoConfigurationCustomizerProvider;
@@ -69,15 +68,11 @@ import io.opentelemetry.sdk.metrics.export.PeriodicMetricReader;
 import io.opentelemetry.sdk.metrics.export.PeriodicMetricReaderBuilder;
 import io.opentelemetry.sdk.metrics.internal.view.AiViewRegistry;
 import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
-import io.opentelemetry.sdk.trace.data.SpanData;
 import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
 import io.opentelemetry.sdk.trace.export.SpanExporter;
-import io.opentelemetry.semconv.SemanticAttributes;
 import java.io.File;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -98,6 +93,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
   @Nullable private static BatchLogRecordProcessor batchLogProcessor;
   @Nullable private static BatchSpanProcessor batchSpanProcessor;
+  @Nullable private static TailSamplingSpanExporter tailSamplingSpanExporter;
   @Nullable private static MetricReader metricReader;
 
   static File getTempDir() {
@@ -106,6 +102,9 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
   @Override
   public void customize(AutoConfigurationCustomizer autoConfiguration) {
+    // the time since the end of FirstEntryPoint.init() is spent in the OpenTelemetry agent
+    StartupTimings.mark("OpenTelemetryAgent");
+
     tempDir =
         TempDirs.getApplicationInsightsTempDir(
             startupLogger,
@@ -128,6 +127,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       LazyHttpClient.proxyUsername = configuration.proxy.username;
       LazyHttpClient.proxyPassword = configuration.proxy.password;
     }
+    StartupTimings.mark("ConfigurationValidation");
 
     List<MetricFilter> metricFilters =
         configuration.preview.processors.stream()
@@ -145,6 +145,11 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
             .setTempDir(tempDir)
             .setGeneralExportQueueSize(configuration.preview.generalExportQueueCapacity)
             .setMetricsExportQueueSize(configuration.preview.metricsExportQueueCapacity)
+            .setExportWorkerCount(configuration.preview.exportWorkerCount)
+            .setExportQueueOverflowMaxSizeMb(
+                configuration.preview.exportQueueOverflow.enabled
+                    ? configuration.preview.exportQueueOverflow.maxSizeMb
+                    : 0)
             .setAadAuthentication(configuration.authentication)
             .setConnectionStrings(
                 configuration.connectionString,
@@ -154,13 +159,12 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
             .setRoleInstance(configuration.role.instance)
             .setDiskPersistenceMaxSizeMb(configuration.preview.diskPersistenceMaxSizeMb)
             .build();
+    StartupTimings.mark("TelemetryClient");
 
     Consumer<List<TelemetryItem>> heartbeatTelemetryItemConsumer =
         telemetryItems -> {
           for (TelemetryItem telemetryItem : telemetryItems) {
-            TelemetryObservers.INSTANCE
-                .getObservers()
-                .forEach(consumer -> consumer.accept(telemetryItem));
+            TelemetryFanOut.getInstance().add(telemetryItem, null);
             telemetryClient.getMetricsBatchItemProcessor().trackAsync(telemetryItem);
           }
         };
@@ -173,6 +177,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       HeartbeatExporter.start(
           intervalSeconds, telemetryClient::populateDefaults, heartbeatTelemetryItemConsumer);
     }
+    StartupTimings.mark("Heartbeat");
 
     TelemetryClient.setActive(telemetryClient);
 
@@ -205,6 +210,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
     if (rpConfiguration != null) {
       RpConfigurationPolling.startPolling(rpConfiguration, runtimeConfigurator);
     }
+    StartupTimings.mark("RuntimeConfigurator");
 
     // initialize StatsbeatModule
     if (telemetryClient.getConnectionString() != null) {
@@ -225,15 +231,21 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
         SnippetConfiguration.initializeSnippet(configuration.connectionString);
       }
     }
+    StartupTimings.mark("Statsbeat");
 
     // TODO (trask) add this method to AutoConfigurationCustomizer upstream?
     ((AutoConfiguredOpenTelemetrySdkBuilder) autoConfiguration).disableShutdownHook();
 
     QuickPulse quickPulse;
     if (configuration.preview.liveMetrics.enabled) {
+      LiveMetricsSessionPolicy liveMetricsSession = new LiveMetricsSessionPolicy();
+      TelemetryFanOut.getInstance().setLiveMetricsSubscribed(liveMetricsSession::isSubscribed);
       quickPulse =
           QuickPulse.create(
-              LazyHttpClient.newHttpPipeLineWithDefaultRedirect(configuration.authentication),
+              LazyHttpClient.newHttpPipeLine(
+                  configuration.authentication,
+                  new RedirectPolicy(new DefaultRedirectStrategy()),
+                  liveMetricsSession),
               () -> {
                 ConnectionString connectionString = telemetryClient.getConnectionString();
                 return connectionString == null ? null : connectionString.getLiveEndpoint();
@@ -247,6 +259,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       quickPulse = null;
     }
     telemetryClient.setQuickPulse(quickPulse);
+    StartupTimings.mark("LiveMetrics");
 
     autoConfiguration
         .addPropertiesCustomizer(new AiConfigCustomizer())
@@ -256,27 +269,40 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
                 // in this case the spanExporter here is the noop spanExporter
                 return spanExporter;
               } else {
-                return wrapSpanExporter(spanExporter, configuration);
+                return StartupTimings.time(
+                    "SpanExporter", () -> wrapSpanExporter(spanExporter, configuration));
               }
             })
         .addTracerProviderCustomizer(
             (builder, otelConfig) ->
-                configureTracing(builder, telemetryClient, quickPulse, otelConfig, configuration))
+                StartupTimings.time(
+                    "TracerProvider",
+                    () ->
+                        configureTracing(
+                            builder, telemetryClient, quickPulse, otelConfig, configuration)))
         .addLogRecordExporterCustomizer(
             (logExporter, otelConfig) -> {
               if ("none".equals(otelConfig.getString("otel.logs.exporter"))) {
                 // in this case the logExporter here is the noop spanExporter
                 return logExporter;
               } else {
-                return wrapLogExporter(logExporter, configuration);
+                return StartupTimings.time(
+                    "LogExporter", () -> wrapLogExporter(logExporter, configuration));
               }
             })
         .addLoggerProviderCustomizer(
             (builder, otelConfig) ->
-                configureLogging(builder, telemetryClient, quickPulse, otelConfig, configuration))
+                StartupTimings.time(
+                    "LoggerProvider",
+                    () ->
+                        configureLogging(
+                            builder, telemetryClient, quickPulse, otelConfig, configuration)))
         .addMeterProviderCustomizer(
             (builder, otelConfig) ->
-                configureMetrics(metricFilters, builder, telemetryClient, configuration));
+                StartupTimings.time(
+                    "MeterProvider",
+                    () ->
+                        configureMetrics(metricFilters, builder, telemetryClient, configuration)));
 
     AiContextCustomizerHolder.setInstance(
         new AiContextCustomizer<>(
@@ -285,6 +311,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
     Runtime.getRuntime()
         .addShutdownHook(new Thread(() -> flushAll(telemetryClient).join(10, TimeUnit.SECONDS)));
+    StartupTimings.mark("CustomizerRegistration");
   }
 
   private static TelemetryItemExporter initStatsbeatTelemetryItemExporter(
@@ -481,7 +508,27 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
   private static CompletableResultCode flushAll(TelemetryClient telemetryClient) {
     List<CompletableResultCode> results = new ArrayList<>();
     if (batchSpanProcessor != null) {
-      results.add(batchSpanProcessor.forceFlush());
+      CompletableResultCode spanResult = batchSpanProcessor.forceFlush();
+      TailSamplingSpanExporter tailSamplingExporter = tailSamplingSpanExporter;
+      if (tailSamplingExporter != null) {
+        // BatchSpanProcessor doesn't flush its exporter, and the tail sampling buffer needs to be
+        // released after everything that was queued ahead of it has been exported
+        CompletableResultCode result = new CompletableResultCode();
+        spanResult.whenComplete(
+            () -> {
+              CompletableResultCode tailSamplingResult = tailSamplingExporter.flush();
+              tailSamplingResult.whenComplete(
+                  () -> {
+                    if (spanResult.isSuccess() && tailSamplingResult.isSuccess()) {
+                      result.succeed();
+                    } else {
+                      result.fail();
+                    }
+                  });
+            });
+        spanResult = result;
+      }
+      results.add(spanResult);
     }
     if (metricReader != null) {
       results.add(metricReader.forceFlush());
@@ -556,7 +603,8 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
               telemetryClient,
               quickPulse,
               configuration.preview.captureHttpServer4xxAsError,
-              new SamplingOverrides(exceptionSamplingOverrides));
+              new SamplingOverrides(exceptionSamplingOverrides),
+              configuration.preview.tailSampling);
 
       spanExporter = wrapSpanExporter(spanExporter, configuration);
 
@@ -576,7 +624,8 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
       TelemetryClient telemetryClient,
       @Nullable QuickPulse quickPulse,
       boolean captureHttpServer4xxAsError,
-      SamplingOverrides exceptionSamplingOverrides) {
+      SamplingOverrides exceptionSamplingOverrides,
+      Configuration.TailSampling tailSampling) {
 
     SpanDataMapper mapper =
         new SpanDataMapper(
@@ -607,9 +656,13 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
     BatchItemProcessor batchItemProcessor = telemetryClient.getGeneralBatchItemProcessor();
 
-    return new StatsbeatSpanExporter(
-        new AgentSpanExporter(mapper, quickPulse, batchItemProcessor),
-        telemetryClient.getStatsbeatModule());
+    SpanExporter spanExporter = new AgentSpanExporter(mapper, quickPulse, batchItemProcessor);
+    if (tailSampling.enabled) {
+      tailSamplingSpanExporter = new TailSamplingSpanExporter(tailSampling, spanExporter);
+      spanExporter = tailSamplingSpanExporter;
+    }
+
+    return new StatsbeatSpanExporter(spanExporter, telemetryClient.getStatsbeatModule());
   }
 
   private static SpanExporter wrapSpanExporter(
@@ -619,25 +672,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
     // NOTE if changing the span processor to something async, flush it in the shutdown hook before
     // flushing TelemetryClient
     if (!processorConfigs.isEmpty()) {
-      // Reversing the order of processors before passing it Span processor
-      Collections.reverse(processorConfigs);
-      for (ProcessorConfig processorConfig : processorConfigs) {
-        switch (processorConfig.type) {
-          case ATTRIBUTE:
-            spanExporter = new SpanExporterWithAttributeProcessor(processorConfig, spanExporter);
-            break;
-          case SPAN:
-            spanExporter = new ExporterWithSpanProcessor(processorConfig, spanExporter);
-            break;
-          default:
-            throw new IllegalStateException(
-                "Not an expected ProcessorType: " + processorConfig.type);
-        }
-      }
-
-      // this is temporary until semantic attributes stabilize and we make breaking change
-      // then can use java.util.functions.Predicate<Attributes>
-      spanExporter = new BackCompatHttpUrlProcessor(spanExporter);
+      spanExporter = new SpanExporterWithProcessors(processorConfigs, spanExporter);
     }
 
     return spanExporter;
@@ -735,21 +770,7 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
 
     List<ProcessorConfig> processorConfigs = getLogProcessorConfigs(configuration);
     if (!processorConfigs.isEmpty()) {
-      // Reversing the order of processors before passing it Log processor
-      Collections.reverse(processorConfigs);
-      for (ProcessorConfig processorConfig : processorConfigs) {
-        switch (processorConfig.type) {
-          case ATTRIBUTE:
-            logExporter = new LogExporterWithAttributeProcessor(processorConfig, logExporter);
-            break;
-          case LOG:
-            logExporter = new ExporterWithLogProcessor(processorConfig, logExporter);
-            break;
-          default:
-            throw new IllegalStateException(
-                "Not an expected ProcessorType: " + processorConfig.type);
-        }
-      }
+      logExporter = new LogExporterWithProcessors(processorConfigs, logExporter);
     }
     return logExporter;
   }
@@ -797,47 +818,4 @@ public class SecondEntryPoint implements AutoConfigurationCustomizerProvider {
     }
     return builder.registerMetricReader(metricReader);
   }
-
-  private static class BackCompatHttpUrlProcessor implements SpanExporter {
-
-    private final SpanExporter delegate;
-
-    private BackCompatHttpUrlProcessor(SpanExporter delegate) {
-      this.delegate = delegate;
-    }
-
-    @Override
-    public CompletableResultCode export(Collection<SpanData> spans) {
-      List<SpanData> copy = new ArrayList<>();
-      for (SpanData span : spans) {
-        copy.add(addBackCompatHttpUrl(span));
-      }
-      return delegate.export(copy);
-    }
-
-    private static SpanData addBackCompatHttpUrl(SpanData span) {
-      Attributes attributes = span.getAttributes();
-      if (attributes.get(SemanticAttributes.HTTP_URL) != null) {
-        // already has http.url
-        return span;
-      }
-      String httpUrl = SpanDataMapper.getHttpUrlFromServerSpan(attributes);
-      if (httpUrl == null) {
-        return span;
-      }
-      AttributesBuilder builder = attributes.toBuilder();
-      builder.put(SemanticAttributes.HTTP_URL, httpUrl);
-      return new MySpanData(span, builder.build());
-    }
-
-    @Override
-    public CompletableResultCode flush() {
-      return delegate.flush();
-    }
-
-    @Override
-    public CompletableResultCode shutdown() {
-      return delegate.shutdown();
-    }
-  }
 }
@@ -4,12 +4,17 @@
 package com.microsoft.applicationinsights.agent.internal.init;
 
 import com.microsoft.applicationinsights.agent.internal.diagnostics.PidFinder;
+import com.microsoft.applicationinsights.agent.internal.diagnostics.status.StatusFile;
+import com.sun.management.HotSpotDiagnosticMXBean;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import org.slf4j.Logger;
@@ -27,6 +32,20 @@ class StartupDiagnostics {
   public static final String APPLICATIONINSIGHTS_DEBUG_DIAG_EXPORT_TO_FILE =
       "applicationinsights.debug.startup.diag-export-to-file";
 
+  // logs the startup timings at info level (instead of debug)
+  private static final String APPLICATIONINSIGHTS_DEBUG_TIMINGS_ENABLED =
+      "applicationinsights.debug.startup.timings.enabled";
+
+  private static final String STATUS_FILE_STARTUP_TIMINGS = "StartupTimings";
+
+  private static final String DIAGNOSTICS_FILE_NAME = "diagnostics.txt";
+  // separate from the diagnostics file, which is written earlier during startup
+  private static final String STARTUP_TIMINGS_FILE_NAME = "startup-timings.txt";
+
+  private static final String[] CLASS_DATA_SHARING_OPTIONS = {
+    "UseSharedSpaces", "SharedArchiveFile", "ArchiveClassesAtExit", "AutoCreateSharedArchive"
+  };
+
   private static final Logger startupLogger =
       LoggerFactory.getLogger("com.microsoft.applicationinsights.agent");
 
@@ -69,15 +88,34 @@ class StartupDiagnostics {
       diagnosticsReport.addDiagnostic(nativeSummary);
     }
 
-    generateReport(diagnosticsReport);
+    generateReport(diagnosticsReport, DIAGNOSTICS_FILE_NAME);
+  }
+
+  /**
+   * Reports how long each phase of the startup took, in the status file (which is written along
+   * with the startup status), and in the startup diagnostics.
+   */
+  static void reportStartupTimings() {
+    ClassTransformationTimer.stop();
+    Map<String, Object> timings = StartupTimings.getReport();
+    // so that the timings can be compared with and without a class data sharing archive
+    timings.put("ClassDataSharing", findClassDataSharingOptions());
+    StatusFile.putValue(STATUS_FILE_STARTUP_TIMINGS, timings);
+    if (Boolean.getBoolean(APPLICATIONINSIGHTS_DEBUG_TIMINGS_ENABLED)) {
+      DiagnosticsReport diagnosticsReport = new DiagnosticsReport();
+      diagnosticsReport.addDiagnostic("Start-up timings: " + timings);
+      generateReport(diagnosticsReport, STARTUP_TIMINGS_FILE_NAME);
+    } else {
+      startupLogger.debug("Start-up timings: {}", timings);
+    }
   }
 
-  private static void generateReport(DiagnosticsReport diagnosticsReport) {
+  private static void generateReport(DiagnosticsReport diagnosticsReport, String fileName) {
     if (!diagnosticsReport.isEmpty()) {
       startupLogger.info("Start-up diagnostics" + File.separator + diagnosticsReport);
       boolean exportToFile = Boolean.getBoolean(APPLICATIONINSIGHTS_DEBUG_DIAG_EXPORT_TO_FILE);
       if (exportToFile) {
-        saveIntoFile(diagnosticsReport);
+        saveIntoFile(diagnosticsReport, fileName);
       }
     }
   }
@@ -91,11 +129,43 @@ class StartupDiagnostics {
     }
   }
 
-  private static void saveIntoFile(DiagnosticsReport diagnosticsReport) {
+  /**
+   * Returns the JVM options that control class data sharing, so that it's clear whether the
+   * agent's classes were loaded from an archive.
+   *
+   * <p>The archive is created on HotSpot 13+ by a training run with {@code
+   * -XX:ArchiveClassesAtExit=<file>} (or automatically on HotSpot 19+ with {@code
+   * -XX:+AutoCreateSharedArchive -XX:SharedArchiveFile=<file>}), and is then used by the following
+   * runs with {@code -XX:SharedArchiveFile=<file>}, as long as the JVM version, the agent jar and
+   * the classpath stay the same.
+   */
+  private static Map<String, String> findClassDataSharingOptions() {
+    Map<String, String> options = new LinkedHashMap<>();
+    HotSpotDiagnosticMXBean hotSpotDiagnostic;
+    try {
+      hotSpotDiagnostic = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+    } catch (RuntimeException | LinkageError e) {
+      // not a HotSpot JVM
+      return options;
+    }
+    if (hotSpotDiagnostic == null) {
+      return options;
+    }
+    for (String name : CLASS_DATA_SHARING_OPTIONS) {
+      try {
+        options.put(name, hotSpotDiagnostic.getVMOption(name).getValue());
+      } catch (IllegalArgumentException e) {
+        // the option does not exist in this JVM version
+      }
+    }
+    return options;
+  }
+
+  private static void saveIntoFile(DiagnosticsReport diagnosticsReport, String fileName) {
     Optional<File> optionalTempDir = createTempDirIfNotExists();
     if (optionalTempDir.isPresent()) {
       File tempDir = optionalTempDir.get();
-      File diagFile = new File(tempDir, "diagnostics.txt");
+      File diagFile = new File(tempDir, fileName);
       write(diagnosticsReport, diagFile);
     }
   }
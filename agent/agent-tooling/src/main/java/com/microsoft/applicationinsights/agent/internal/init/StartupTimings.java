@@ -0,0 +1,96 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Records how long the phases of the agent startup take, so that they can be reported once the
+ * agent has started (see {@link StartupDiagnostics}).
+ *
+ * <p>The sequential phases of the entry points are recorded with {@link #mark}, each one lasting
+ * from the previous mark, and the callbacks that run at some later point during startup are timed
+ * on their own with {@link #time} or {@link #run}.
+ */
+final class StartupTimings {
+
+  // guarded by StartupTimings.class
+  private static final Map<String, Long> phaseNanos = new LinkedHashMap<>();
+  private static long startNanos;
+  private static long lastMarkNanos;
+
+  /** Starts the timings, at the very beginning of the agent initialization. */
+  static synchronized void start() {
+    startNanos = System.nanoTime();
+    lastMarkNanos = startNanos;
+  }
+
+  /** Records the time since the previous mark as the duration of the given phase. */
+  static synchronized void mark(String phase) {
+    long now = System.nanoTime();
+    add(phase, now - lastMarkNanos);
+    lastMarkNanos = now;
+  }
+
+  /** Runs the given supplier, and adds the time that it takes to the given phase. */
+  static <T> T time(String phase, Supplier<T> supplier) {
+    long start = System.nanoTime();
+    try {
+      return supplier.get();
+    } finally {
+      long durationNanos = System.nanoTime() - start;
+      synchronized (StartupTimings.class) {
+        add(phase, durationNanos);
+      }
+    }
+  }
+
+  /** Runs the given runnable, and adds the time that it takes to the given phase. */
+  static void run(String phase, Runnable runnable) {
+    time(
+        phase,
+        () -> {
+          runnable.run();
+          return null;
+        });
+  }
+
+  /**
+   * Returns the report of the timings (in milliseconds) so far, in a form that can be written to
+   * the status file.
+   */
+  static synchronized Map<String, Object> getReport() {
+    Map<String, Object> report = new LinkedHashMap<>();
+    report.put("TotalMs", NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    Map<String, Long> phases = new LinkedHashMap<>();
+    for (Map.Entry<String, Long> entry : phaseNanos.entrySet()) {
+      phases.put(entry.getKey(), NANOSECONDS.toMillis(entry.getValue()));
+    }
+    report.put("PhasesMs", phases);
+    report.put(
+        "ByteBuddyTransformationMs",
+        NANOSECONDS.toMillis(ClassTransformationTimer.getByteBuddyNanos()));
+    report.put("ByteBuddyTransformationCount", ClassTransformationTimer.getByteBuddyCount());
+    report.put(
+        "ClassFileTransformerMs",
+        NANOSECONDS.toMillis(ClassTransformationTimer.getClassFileTransformerNanos()));
+    return report;
+  }
+
+  // visible for testing
+  static synchronized void reset() {
+    phaseNanos.clear();
+    start();
+  }
+
+  private static void add(String phase, long nanos) {
+    phaseNanos.merge(phase, nanos, Long::sum);
+  }
+
+  private StartupTimings() {}
+}
@@ -8,6 +8,7 @@ import static com.microsoft.applicationinsights.agent.internal.diagnostics.MsgId
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import java.util.Collection;
 import java.util.Map;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -24,6 +25,10 @@ public abstract class AbstractJmxPerformanceCounter implements PerformanceCounte
   private final Collection<JmxAttributeData> attributes;
   private boolean alreadyLogged = false;
 
+  // created on first use (and kept), so that the object names and attribute names are only resolved
+  // and parsed once, instead of on every report
+  @Nullable private JmxDataFetcher fetcher;
+
   /**
    * The main method. The method will fetch the data and send it. The method will not do anything if
    * there was a major problem accessing the needed counter.
@@ -33,7 +38,10 @@ public abstract class AbstractJmxPerformanceCounter implements PerformanceCounte
   @Override
   public synchronized void report(TelemetryClient telemetryClient) {
     try {
-      Map<String, Collection<Object>> result = JmxDataFetcher.fetch(objectName, attributes);
+      if (fetcher == null) {
+        fetcher = new JmxDataFetcher(objectName, attributes);
+      }
+      Map<String, Collection<Object>> result = fetcher.fetch();
 
       for (Map.Entry<String, Collection<Object>> displayAndValues : result.entrySet()) {
         boolean ok = true;
@@ -79,5 +87,10 @@ public abstract class AbstractJmxPerformanceCounter implements PerformanceCounte
     this.attributes = attributes;
   }
 
+  @Override
+  public String getName() {
+    return getClass().getName() + " (" + objectName + ")";
+  }
+
   protected abstract void send(TelemetryClient telemetryClient, String displayName, double value);
 }
@@ -6,28 +6,58 @@ package com.microsoft.applicationinsights.agent.internal.perfcounter;
 import static com.microsoft.applicationinsights.agent.internal.diagnostics.MsgId.CUSTOM_JMX_METRIC_ERROR;
 
 import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nullable;
+import javax.management.Attribute;
+import javax.management.AttributeList;
 import javax.management.AttributeNotFoundException;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanException;
 import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 import javax.management.ReflectionException;
 import javax.management.openmbean.CompositeData;
+import javax.management.relation.MBeanServerNotificationFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
-/** A utility class that knows how to fetch JMX data. */
+/**
+ * Knows how to fetch JMX data for an object name (which can be a pattern) and its attributes.
+ *
+ * <p>The object names that the pattern resolves to, and the parsed attribute names, are cached
+ * across fetches. The cached object names are resolved again after an MBean that matches the
+ * object name is registered or unregistered. All attributes are fetched with a single {@link
+ * MBeanServer#getAttributes} call per MBean.
+ *
+ * <p>Instances are not thread safe.
+ */
 public class JmxDataFetcher {
 
   private static final Logger logger = LoggerFactory.getLogger(JmxDataFetcher.class);
 
+  private static final Object NOT_FOUND = new Object();
+
+  private final MBeanServer server;
+  private final ObjectName objectName;
+  private final List<ParsedAttribute> attributes;
+  // the distinct top level attribute names, which are fetched together for each MBean
+  private final String[] attributeNames;
+
+  private final Subscription subscription;
+  @Nullable private Set<ObjectName> objects;
+
   /**
    * Gets an object name and its attributes to fetch and will return the data.
    *
@@ -39,57 +69,133 @@ public class JmxDataFetcher {
    */
   public static Map<String, Collection<Object>> fetch(
       String objectName, Collection<JmxAttributeData> attributes) throws Exception {
-    Map<String, Collection<Object>> result = new HashMap<>();
+    return new JmxDataFetcher(objectName, attributes).fetch();
+  }
 
-    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
-    Set<ObjectName> objects = server.queryNames(new ObjectName(objectName), null);
-    if (objects.isEmpty()) {
-      String errorMsg = String.format("Cannot find object name '%s'", objectName);
-      throw new IllegalArgumentException(errorMsg);
+  /**
+   * Parses the object name and the attributes that 'belong' to it, so that they can be fetched
+   * repeatedly.
+   *
+   * @throws MalformedObjectNameException In case the object name is not valid.
+   * @throws IllegalArgumentException In case one of the attribute names is not valid.
+   */
+  public JmxDataFetcher(String objectName, Collection<JmxAttributeData> attributes)
+      throws MalformedObjectNameException {
+    this.server = ManagementFactory.getPlatformMBeanServer();
+    this.objectName = new ObjectName(objectName);
+    this.attributes = new ArrayList<>(attributes.size());
+    List<String> attributeNames = new ArrayList<>();
+    for (JmxAttributeData attribute : attributes) {
+      List<String> path;
+      try {
+        path = splitByDot(attribute.attribute);
+      } catch (IllegalArgumentException e) {
+        logFailure(objectName, attribute.attribute);
+        throw e;
+      }
+      int index = attributeNames.indexOf(path.get(0));
+      if (index == -1) {
+        index = attributeNames.size();
+        attributeNames.add(path.get(0));
+      }
+      this.attributes.add(new ParsedAttribute(attribute, index, path));
     }
+    this.attributeNames = attributeNames.toArray(new String[0]);
+    this.subscription = RegistrationListener.subscribe(server, this.objectName);
+  }
 
-    for (JmxAttributeData attribute : attributes) {
+  /**
+   * Fetches the current values of the attributes.
+   *
+   * @return A map that represent each attribute: the key is the displayed name for that attribute
+   *     and the value is a list of values found
+   * @throws Exception In case the object name is not found.
+   */
+  public Map<String, Collection<Object>> fetch() throws Exception {
+    Set<ObjectName> resolved = getObjects();
+
+    List<Object[]> values = new ArrayList<>(resolved.size());
+    for (ObjectName object : resolved) {
       try {
-        List<Object> resultForAttribute = fetch(server, objects, attribute.attribute);
-        result.put(attribute.metricName, resultForAttribute);
-      } catch (Exception e) {
-        try (MDC.MDCCloseable ignored = CUSTOM_JMX_METRIC_ERROR.makeActive()) {
-          logger.warn(
-              "Failed to fetch JMX object '{}' with attribute '{}': ",
-              objectName,
-              attribute.attribute);
-        }
+        values.add(getAttributes(object));
+      } catch (InstanceNotFoundException e) {
+        // unregistered since the object names were resolved
+        objects = null;
         throw e;
       }
     }
 
+    Map<String, Collection<Object>> result = new HashMap<>();
+    for (ParsedAttribute attribute : attributes) {
+      List<Object> resultForAttribute = new ArrayList<>(values.size());
+      for (Object[] valuesForObject : values) {
+        Object value = valuesForObject[attribute.index];
+        if (value != null && attribute.path.size() > 1) {
+          // TODO (trask) will support more nesting after moving to upstream otel jmx component
+          value = ((CompositeData) value).get(attribute.path.get(1));
+        }
+        if (value != null) {
+          resultForAttribute.add(value);
+        }
+      }
+      result.put(attribute.data.metricName, resultForAttribute);
+    }
     return result;
   }
 
-  private static List<Object> fetch(
-      MBeanServer server, Set<ObjectName> objects, String attributeName)
+  // visible for testing
+  boolean hasResolvedObjects() {
+    return objects != null && !subscription.changed && RegistrationListener.isListening();
+  }
+
+  private Set<ObjectName> getObjects() {
+    if (!hasResolvedObjects()) {
+      // reset before resolving, so that changes made while resolving are not missed
+      subscription.changed = false;
+      objects = server.queryNames(objectName, null);
+    }
+    if (objects.isEmpty()) {
+      String errorMsg = String.format("Cannot find object name '%s'", objectName);
+      throw new IllegalArgumentException(errorMsg);
+    }
+    return objects;
+  }
+
+  private Object[] getAttributes(ObjectName object)
       throws AttributeNotFoundException,
           MBeanException,
           ReflectionException,
           InstanceNotFoundException {
-    ArrayList<Object> result = new ArrayList<>();
-
-    List<String> inners = splitByDot(attributeName);
-
-    for (ObjectName object : objects) {
-      Object value = server.getAttribute(object, inners.get(0));
-      if (inners.size() > 1) {
-        if (value != null) {
-          // TODO (trask) will support more nesting after moving to upstream otel jmx component
-          value = ((CompositeData) value).get(inners.get(1));
+    Object[] values = new Object[attributeNames.length];
+    Arrays.fill(values, NOT_FOUND);
+    AttributeList attributeList = server.getAttributes(object, attributeNames);
+    for (Attribute attribute : attributeList.asList()) {
+      for (int i = 0; i < attributeNames.length; i++) {
+        if (attributeNames[i].equals(attribute.getName())) {
+          values[i] = attribute.getValue();
+          break;
         }
       }
-      if (value != null) {
-        result.add(value);
+    }
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == NOT_FOUND) {
+        // getAttributes() silently leaves out attributes that could not be read, so read it on its
+        // own in order to get the underlying failure
+        try {
+          values[i] = server.getAttribute(object, attributeNames[i]);
+        } catch (Exception e) {
+          logFailure(objectName.toString(), attributeNames[i]);
+          throw e;
+        }
       }
     }
+    return values;
+  }
 
-    return result;
+  private static void logFailure(String objectName, String attribute) {
+    try (MDC.MDCCloseable ignored = CUSTOM_JMX_METRIC_ERROR.makeActive()) {
+      logger.warn("Failed to fetch JMX object '{}' with attribute '{}': ", objectName, attribute);
+    }
   }
 
   // This code is copied in from upstream otel java instrumentation repository
@@ -141,5 +247,87 @@ public class JmxDataFetcher {
     segments.add(newSegment);
   }
 
-  private JmxDataFetcher() {}
+  private static class ParsedAttribute {
+
+    private final JmxAttributeData data;
+    // index into the attribute names that are fetched for each MBean
+    private final int index;
+    private final List<String> path;
+
+    private ParsedAttribute(JmxAttributeData data, int index, List<String> path) {
+      this.data = data;
+      this.index = index;
+      this.path = path;
+    }
+  }
+
+  // flags the object name (which can be a pattern) of a fetcher when a matching MBean is registered
+  // or unregistered
+  private static class Subscription {
+
+    private final ObjectName objectName;
+    private volatile boolean changed;
+
+    private Subscription(ObjectName objectName) {
+      this.objectName = objectName;
+    }
+  }
+
+  // keeps track of MBean registrations, so that cached object names can be resolved again when
+  // they may have changed
+  //
+  // fetchers are not closed, so the subscriptions are only weakly referenced, and the ones whose
+  // fetcher has been garbage collected are removed along the way
+  private static class RegistrationListener {
+
+    private static final List<WeakReference<Subscription>> subscriptions =
+        new CopyOnWriteArrayList<>();
+    private static volatile boolean listening;
+
+    private static Subscription subscribe(MBeanServer server, ObjectName objectName) {
+      register(server);
+      Subscription subscription = new Subscription(objectName);
+      subscriptions.removeIf(reference -> reference.get() == null);
+      subscriptions.add(new WeakReference<>(subscription));
+      return subscription;
+    }
+
+    private static synchronized void register(MBeanServer server) {
+      if (listening) {
+        return;
+      }
+      MBeanServerNotificationFilter filter = new MBeanServerNotificationFilter();
+      filter.enableAllObjectNames();
+      try {
+        server.addNotificationListener(
+            MBeanServerDelegate.DELEGATE_NAME,
+            (notification, handback) -> {
+              if (notification instanceof MBeanServerNotification) {
+                onChange(((MBeanServerNotification) notification).getMBeanName());
+              }
+            },
+            filter,
+            null);
+        listening = true;
+      } catch (InstanceNotFoundException e) {
+        // object names are then resolved on every fetch
+        logger.debug("Unable to listen for MBean registrations", e);
+      }
+    }
+
+    private static void onChange(ObjectName mbeanName) {
+      for (WeakReference<Subscription> reference : subscriptions) {
+        Subscription subscription = reference.get();
+        if (subscription == null) {
+          subscriptions.remove(reference);
+        } else if (subscription.objectName.apply(mbeanName)) {
+          subscription.changed = true;
+        }
+      }
+    }
+
+    private static boolean isListening() {
+      return listening;
+    }
+  }
 }
@@ -8,4 +8,9 @@ import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClien
 public interface PerformanceCounter {
 
   void report(TelemetryClient telemetryClient);
+
+  // used in self-diagnostics logging
+  default String getName() {
+    return getClass().getName();
+  }
 }
@@ -0,0 +1,156 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static com.microsoft.applicationinsights.agent.internal.diagnostics.MsgId.SLOW_PERFORMANCE_COUNTER_WARNING;
+
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+/**
+ * Runs the registered performance counters once per collection, either one after the other on the
+ * calling thread, or in parallel on the given executor.
+ *
+ * <p>Counters that have not started by the deadline (measured from the start of the collection)
+ * are skipped until the next collection, and so are counters that are still running from a previous
+ * collection. Counters that are slow or skipped are logged (once, until they recover).
+ *
+ * <p>The counter that is run first moves along with each collection, so that a counter that is
+ * consistently slow doesn't keep pushing the same counters past the deadline.
+ */
+class PerformanceCounterCollector {
+
+  private static final Logger logger = LoggerFactory.getLogger(PerformanceCounterCollector.class);
+
+  private final List<RegisteredCounter> counters = new CopyOnWriteArrayList<>();
+
+  @Nullable private final Executor executor;
+  private final long deadlineNanos;
+  private final long slowThresholdNanos;
+
+  private final AtomicInteger collections = new AtomicInteger();
+
+  /**
+   * Creates a collector.
+   *
+   * @param executor The executor to run counters on in parallel, or null to run them one after the
+   *     other on the thread that calls {@link #collect}.
+   * @param deadlineMillis The time after the start of a collection after which counters that have
+   *     not started yet are skipped.
+   * @param slowThresholdMillis The time a counter can take before it is logged as slow, which must
+   *     not be greater than the deadline.
+   * @throws IllegalArgumentException In case the deadline or the threshold is negative, or the
+   *     threshold is greater than the deadline.
+   */
+  PerformanceCounterCollector(
+      @Nullable Executor executor, long deadlineMillis, long slowThresholdMillis) {
+    if (deadlineMillis < 0) {
+      throw new IllegalArgumentException("deadlineMillis must not be negative: " + deadlineMillis);
+    }
+    if (slowThresholdMillis < 0 || slowThresholdMillis > deadlineMillis) {
+      throw new IllegalArgumentException(
+          "slowThresholdMillis must be between 0 and deadlineMillis ("
+              + deadlineMillis
+              + "): "
+              + slowThresholdMillis);
+    }
+    this.executor = executor;
+    this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+    this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+  }
+
+  void register(PerformanceCounter performanceCounter) {
+    counters.add(new RegisteredCounter(performanceCounter));
+  }
+
+  void collect(TelemetryClient telemetryClient) {
+    long deadline = System.nanoTime() + deadlineNanos;
+    RegisteredCounter[] snapshot = counters.toArray(new RegisteredCounter[0]);
+    if (snapshot.length == 0) {
+      return;
+    }
+    int first = Math.floorMod(collections.getAndIncrement(), snapshot.length);
+    for (int i = 0; i < snapshot.length; i++) {
+      RegisteredCounter counter = snapshot[(first + i) % snapshot.length];
+      if (!counter.running.compareAndSet(false, true)) {
+        counter.warn("is still running from a previous collection, skipping it");
+        continue;
+      }
+      if (executor == null) {
+        counter.run(telemetryClient, deadline);
+      } else {
+        try {
+          executor.execute(() -> counter.run(telemetryClient, deadline));
+        } catch (RejectedExecutionException e) {
+          // shutting down
+          counter.running.set(false);
+          return;
+        }
+      }
+    }
+  }
+
+  private class RegisteredCounter {
+
+    private final PerformanceCounter counter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    // so that a slow counter is only logged once, and not on every collection
+    private volatile boolean warned;
+
+    private RegisteredCounter(PerformanceCounter counter) {
+      this.counter = counter;
+    }
+
+    private void run(TelemetryClient telemetryClient, long deadline) {
+      try {
+        long start = System.nanoTime();
+        if (start - deadline > 0) {
+          warn("has not started by the collection deadline, skipping it");
+          return;
+        }
+        report(telemetryClient);
+        long durationNanos = System.nanoTime() - start;
+        logger.trace("Performance counter '{}' took {} ns", counter.getName(), durationNanos);
+        if (durationNanos >= slowThresholdNanos) {
+          warn("took " + TimeUnit.NANOSECONDS.toMillis(durationNanos) + " ms to collect");
+        } else if (warned) {
+          warned = false;
+          logger.info("Performance counter '{}' has recovered", counter.getName());
+        }
+      } finally {
+        running.set(false);
+      }
+    }
+
+    private void report(TelemetryClient telemetryClient) {
+      try {
+        counter.report(telemetryClient);
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t) {
+        logger.error("Exception while reporting performance counter: '{}'", counter.getName(), t);
+      }
+    }
+
+    private void warn(String message) {
+      if (warned) {
+        return;
+      }
+      warned = true;
+      try (MDC.MDCCloseable ignored = SLOW_PERFORMANCE_COUNTER_WARNING.makeActive()) {
+        logger.warn("Performance counter '{}' {}", counter.getName(), message);
+      }
+    }
+  }
+}
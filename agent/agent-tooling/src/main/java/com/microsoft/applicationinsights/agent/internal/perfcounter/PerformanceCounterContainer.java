@@ -5,8 +5,8 @@ package com.microsoft.applicationinsights.agent.internal.perfcounter;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
@@ -27,6 +27,11 @@ import org.slf4j.LoggerFactory;
  * 'report' method. By default the container will start reporting after 5 minutes and will continue
  * doing so every 1 minute.
  *
+ * <p>By default the Performance Counters are triggered one after the other, they can also be
+ * triggered in parallel (see {@link #setCollectionThreads}), so that a slow counter doesn't delay
+ * the others. Either way, counters that haven't started by the collection deadline are skipped
+ * until the next collection.
+ *
  * <p>The user of this class can add (register), remove (unregister) a performance counter while the
  * container is working.
  *
@@ -42,7 +47,7 @@ public enum PerformanceCounterContainer {
   public static final long DEFAULT_COLLECTION_FREQUENCY_IN_SEC = 60;
   private static final long MIN_COLLECTION_FREQUENCY_IN_SEC = 1;
 
-  private final List<PerformanceCounter> performanceCounters = new CopyOnWriteArrayList<>();
+  public static final long DEFAULT_SLOW_COUNTER_THRESHOLD_IN_MILLIS = 5000;
 
   @Nullable private volatile AvailableJmxMetricLogger availableJmxMetricLogger;
 
@@ -50,8 +55,17 @@ public enum PerformanceCounterContainer {
 
   private long collectionFrequencyInMillis = DEFAULT_COLLECTION_FREQUENCY_IN_SEC * 1000;
 
+  private int collectionThreads = 1;
+
+  // 0 means the collection frequency
+  private long collectionDeadlineInMillis;
+
+  private long slowCounterThresholdInMillis = DEFAULT_SLOW_COUNTER_THRESHOLD_IN_MILLIS;
+
   private ScheduledThreadPoolExecutor threads;
 
+  private PerformanceCounterCollector collector;
+
   /**
    * Adds a {@link PerformanceCounter} that can collect data.
    *
@@ -59,7 +73,7 @@ public enum PerformanceCounterContainer {
    */
   public void register(PerformanceCounter performanceCounter) {
     initialize();
-    performanceCounters.add(performanceCounter);
+    collector.register(performanceCounter);
   }
 
   /**
@@ -87,6 +101,40 @@ public enum PerformanceCounterContainer {
     this.collectionFrequencyInMillis = collectionFrequencyInSec * 1000;
   }
 
+  /**
+   * Sets the number of threads that Performance Counters are collected on, with a single thread
+   * (the default) they are collected one after the other.
+   *
+   * <p>Note that the method will be effective if called before the first call to the 'register'
+   * method.
+   */
+  public void setCollectionThreads(int collectionThreads) {
+    this.collectionThreads = Math.max(collectionThreads, 1);
+  }
+
+  /**
+   * Sets the time (from the start of each collection) after which Performance Counters that haven't
+   * started are skipped until the next collection. Zero (the default) means the collection
+   * frequency.
+   *
+   * <p>Note that the method will be effective if called before the first call to the 'register'
+   * method.
+   */
+  public void setCollectionDeadlineInSec(long collectionDeadlineInSec) {
+    this.collectionDeadlineInMillis = Math.max(collectionDeadlineInSec, 0) * 1000;
+  }
+
+  /**
+   * Sets the time that a Performance Counter can take before it is reported as slow in the
+   * self-diagnostics logs.
+   *
+   * <p>Note that the method will be effective if called before the first call to the 'register'
+   * method.
+   */
+  public void setSlowCounterThresholdInMillis(long slowCounterThresholdInMillis) {
+    this.slowCounterThresholdInMillis = slowCounterThresholdInMillis;
+  }
+
   public void setLogAvailableJmxMetrics() {
     availableJmxMetricLogger = new AvailableJmxMetricLogger();
   }
@@ -120,20 +168,7 @@ public enum PerformanceCounterContainer {
               availableJmxMetricLogger.logAvailableJmxMetrics();
             }
 
-            TelemetryClient telemetryClient = TelemetryClient.getActive();
-
-            for (PerformanceCounter performanceCounter : performanceCounters) {
-              try {
-                performanceCounter.report(telemetryClient);
-              } catch (ThreadDeath td) {
-                throw td;
-              } catch (Throwable t) {
-                logger.error(
-                    "Exception while reporting performance counter: '{}'",
-                    performanceCounter.getClass().getName(),
-                    t);
-              }
-            }
+            collector.collect(TelemetryClient.getActive());
           }
         },
         collectionFrequencyInMillis,
@@ -145,5 +180,22 @@ public enum PerformanceCounterContainer {
     threads = new ScheduledThreadPoolExecutor(1);
     threads.setThreadFactory(
         ThreadPoolUtils.createDaemonThreadFactory(PerformanceCounterContainer.class));
+
+    ExecutorService parallelThreads = null;
+    if (collectionThreads > 1) {
+      parallelThreads =
+          Executors.newFixedThreadPool(
+              collectionThreads,
+              ThreadPoolUtils.createDaemonThreadFactory(
+                  PerformanceCounterContainer.class, "Collector"));
+    }
+    long deadlineInMillis =
+        collectionDeadlineInMillis > 0 ? collectionDeadlineInMillis : collectionFrequencyInMillis;
+    // (the metric interval, which is the default deadline, can be shorter than the threshold)
+    collector =
+        new PerformanceCounterCollector(
+            parallelThreads,
+            deadlineInMillis,
+            Math.min(slowCounterThresholdInMillis, deadlineInMillis));
   }
 }
@@ -7,7 +7,6 @@ import com.microsoft.applicationinsights.agent.internal.configuration.Configurat
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAttribute;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorIncludeExclude;
 import io.opentelemetry.api.common.AttributeKey;
-import io.opentelemetry.api.common.Attributes;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -43,9 +42,24 @@ public abstract class AgentProcessor {
     return exclude;
   }
 
+  // include/exclude are evaluated against the span/log as it is at this point in the pipeline,
+  // i.e. after all of the processors that come before this one have been applied
+  boolean shouldProcess(MutableAttributes attributes, String name) {
+    if (include != null && !include.isMatch(attributes, name)) {
+      // If not included we can skip further processing
+      return false;
+    }
+    // If excluded we can skip further processing
+    return exclude == null || !exclude.isMatch(attributes, name);
+  }
+
+  // applies this processor to the span name/log body and attributes, and returns the (possibly
+  // updated) span name/log body
+  abstract String process(String name, MutableAttributes attributes);
+
   public abstract static class IncludeExclude {
     // Function to compare span/log with user provided span/log names or span/log patterns
-    public abstract boolean isMatch(Attributes attributes, String name);
+    public abstract boolean isMatch(MutableAttributes attributes, String name);
   }
 
   public static class StrictIncludeExclude extends IncludeExclude {
@@ -73,7 +87,7 @@ public abstract class AgentProcessor {
 
     // compare span/log with user provided span/log names
     @Override
-    public boolean isMatch(Attributes attributes, String name) {
+    public boolean isMatch(MutableAttributes attributes, String name) {
       if (!names.isEmpty() && !names.contains(name)) {
         return false;
       }
@@ -82,7 +96,7 @@ public abstract class AgentProcessor {
     }
 
     // Function to compare span with user provided attributes list
-    private boolean checkAttributes(Attributes attributes) {
+    private boolean checkAttributes(MutableAttributes attributes) {
       for (ProcessorAttribute attribute : processorAttributes) {
         // All of these attributes must match exactly for a match to occur.
         Object existingAttributeValue = attributes.get(AttributeKey.stringKey(attribute.key));
@@ -164,7 +178,7 @@ public abstract class AgentProcessor {
 
     // Function to compare span/log with user provided span patterns/log patterns
     @Override
-    public boolean isMatch(Attributes attributes, String name) {
+    public boolean isMatch(MutableAttributes attributes, String name) {
       if (!patterns.isEmpty() && !isPatternFound(name, patterns)) {
         return false;
       }
@@ -173,7 +187,7 @@ public abstract class AgentProcessor {
     }
 
     // Function to compare span with user provided attributes list
-    private boolean checkAttributes(Attributes attributes) {
+    private boolean checkAttributes(MutableAttributes attributes) {
       for (Entry<AttributeKey<?>, Pattern> attributeEntry : attributeValuePatterns.entrySet()) {
         // All of these attributes must match exactly for a match to occur.
         Object existingAttributeValue = attributes.get(attributeEntry.getKey());
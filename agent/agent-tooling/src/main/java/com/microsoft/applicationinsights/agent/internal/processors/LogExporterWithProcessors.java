@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.logs.data.Body;
+import io.opentelemetry.sdk.logs.data.LogRecordData;
+import io.opentelemetry.sdk.logs.export.LogRecordExporter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// all of the attribute and log processors are compiled up front and then applied in a single pass
+// over each log, so that the log attributes are copied (at most) once and rebuilt (at most) once
+// per log, no matter how many processors and actions are configured
+public class LogExporterWithProcessors implements LogRecordExporter {
+
+  private final LogRecordExporter delegate;
+  private final List<AgentProcessor> processors;
+
+  // caller should check config.isValid before creating
+  public LogExporterWithProcessors(List<ProcessorConfig> configs, LogRecordExporter delegate) {
+    List<AgentProcessor> processors = new ArrayList<>();
+    for (ProcessorConfig config : configs) {
+      config.validate();
+      switch (config.type) {
+        case ATTRIBUTE:
+          processors.add(AttributeProcessor.create(config, true));
+          break;
+        case LOG:
+          processors.add(LogProcessor.create(config));
+          break;
+        default:
+          throw new IllegalStateException("Not an expected ProcessorType: " + config.type);
+      }
+    }
+    this.processors = processors;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<LogRecordData> logs) {
+    // we need to filter attributes before passing on to delegate
+    List<LogRecordData> copy = new ArrayList<>(logs.size());
+    for (LogRecordData log : logs) {
+      copy.add(process(log));
+    }
+    return delegate.export(copy);
+  }
+
+  private LogRecordData process(LogRecordData log) {
+    MutableAttributes attributes = new MutableAttributes(log.getAttributes());
+    String originalBody = log.getBody().asString();
+    String body = originalBody;
+    for (AgentProcessor processor : processors) {
+      if (processor.shouldProcess(attributes, body)) {
+        body = processor.process(body, attributes);
+      }
+    }
+    boolean bodyModified = !body.equals(originalBody);
+    if (!attributes.isModified() && !bodyModified) {
+      return log;
+    }
+    return new MyLogData(
+        log, attributes.build(), bodyModified ? Body.string(body) : log.getBody());
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
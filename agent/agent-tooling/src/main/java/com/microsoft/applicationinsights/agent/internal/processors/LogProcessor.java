@@ -5,13 +5,10 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.applyRule;
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.getGroupNamesList;
+import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.hasAllFromAttributeKeys;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import io.opentelemetry.api.common.AttributeKey;
-import io.opentelemetry.api.common.Attributes;
-import io.opentelemetry.api.common.AttributesBuilder;
-import io.opentelemetry.sdk.logs.data.Body;
-import io.opentelemetry.sdk.logs.data.LogRecordData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -69,58 +66,39 @@ public class LogProcessor extends AgentProcessor {
         separator);
   }
 
+  @Override
+  String process(String body, MutableAttributes attributes) {
+    String updatedBody = processFromAttributes(body, attributes);
+    return processToAttributes(updatedBody, attributes);
+  }
+
   // fromAttributes represents the attribute keys to pull the values from to generate the new log
   // body.
-  public LogRecordData processFromAttributes(LogRecordData log) {
-    if (logHasAllFromAttributeKeys(log, fromAttributes)) {
+  private String processFromAttributes(String body, MutableAttributes attributes) {
+    if (hasAllFromAttributeKeys(attributes, fromAttributes)) {
       StringBuilder updatedLogBuffer = new StringBuilder();
-      Attributes existingLogAttributes = log.getAttributes();
       for (AttributeKey<?> attributeKey : fromAttributes) {
-        updatedLogBuffer.append(existingLogAttributes.get(attributeKey));
+        updatedLogBuffer.append(attributes.get(attributeKey));
         updatedLogBuffer.append(separator);
       }
       // Removing the last appended separator
       if (separator.length() > 0) {
         updatedLogBuffer.setLength(updatedLogBuffer.length() - separator.length());
       }
-
-      return new MyLogData(log, existingLogAttributes, Body.string(updatedLogBuffer.toString()));
+      return updatedLogBuffer.toString();
     }
-
-    return log;
+    return body;
   }
 
   // The following function extracts attributes from log name and replaces extracted parts with
   // attribute names
-  public LogRecordData processToAttributes(LogRecordData log) {
-    if (toAttributeRulePatterns.isEmpty()) {
-      return log;
-    }
-    String bodyAsString = log.getBody().asString();
-    // copy existing attributes.
+  private String processToAttributes(String body, MutableAttributes attributes) {
     // According to Collector docs, The matched portion
     // in the log name is replaced by extracted attribute name. If the attributes exist
-    // they will be overwritten. Need a way to optimize this.
-    AttributesBuilder builder = log.getAttributes().toBuilder();
+    // they will be overwritten.
     for (int i = 0; i < groupNames.size(); i++) {
-      bodyAsString =
-          applyRule(groupNames.get(i), toAttributeRulePatterns.get(i), bodyAsString, builder);
-    }
-
-    return new MyLogData(log, builder.build(), Body.string(bodyAsString));
-  }
-
-  public static boolean logHasAllFromAttributeKeys(
-      LogRecordData log, List<AttributeKey<?>> fromAttributes) {
-    if (fromAttributes.isEmpty()) {
-      return false;
-    }
-    Attributes existingSpanAttributes = log.getAttributes();
-    for (AttributeKey<?> attributeKey : fromAttributes) {
-      if (existingSpanAttributes.get(attributeKey) == null) {
-        return false;
-      }
+      body = applyRule(groupNames.get(i), toAttributeRulePatterns.get(i), body, attributes);
     }
-    return true;
+    return body;
   }
 }
@@ -0,0 +1,137 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+// working copy of the attributes for a single pass through the processors
+//
+// the original attributes are only copied on the first write, and are only rebuilt once at the end
+// of the pass (and only if something actually changed), instead of once per processor action
+public final class MutableAttributes {
+
+  private final Attributes original;
+
+  // keyed by attribute name (and not by AttributeKey), since that is how AttributesBuilder
+  // de-duplicates, e.g. putting a string key replaces an existing long key with the same name
+  // (these don't allocate their backing tables until the first write)
+  private final Map<String, AttributeKey<?>> keys = new HashMap<>();
+  private final Map<String, Object> values = new HashMap<>();
+
+  private boolean copied;
+  private boolean modified;
+
+  public MutableAttributes(Attributes original) {
+    this.original = original;
+  }
+
+  @Nullable
+  @SuppressWarnings("unchecked")
+  public <T> T get(AttributeKey<T> key) {
+    if (!copied) {
+      return original.get(key);
+    }
+    String name = key.getKey();
+    // same as Attributes.get(), the type has to match too
+    if (!key.equals(keys.get(name))) {
+      return null;
+    }
+    return (T) values.get(name);
+  }
+
+  public void put(String key, @Nullable String value) {
+    put(AttributeKey.stringKey(key), value);
+  }
+
+  // null values are ignored, same as AttributesBuilder
+  public void put(AttributeKey<String> key, @Nullable String value) {
+    if (value == null) {
+      return;
+    }
+    copyOnWrite();
+    keys.put(key.getKey(), key);
+    values.put(key.getKey(), value);
+    modified = true;
+  }
+
+  // only puts the value if there is no attribute with the same name (regardless of type)
+  public void putIfAbsent(AttributeKey<String> key, @Nullable String value) {
+    if (value == null) {
+      return;
+    }
+    copyOnWrite();
+    if (!keys.containsKey(key.getKey())) {
+      keys.put(key.getKey(), key);
+      values.put(key.getKey(), value);
+      modified = true;
+    }
+  }
+
+  public void remove(AttributeKey<?> key) {
+    if (get(key) == null) {
+      return;
+    }
+    copyOnWrite();
+    keys.remove(key.getKey());
+    values.remove(key.getKey());
+    modified = true;
+  }
+
+  public boolean isModified() {
+    return modified;
+  }
+
+  public Attributes build() {
+    if (!modified) {
+      return original;
+    }
+    AttributesBuilder builder = Attributes.builder();
+    for (Map.Entry<String, AttributeKey<?>> entry : keys.entrySet()) {
+      putIntoBuilder(builder, entry.getValue(), values.get(entry.getKey()));
+    }
+    return builder.build();
+  }
+
+  private void copyOnWrite() {
+    if (copied) {
+      return;
+    }
+    original.forEach(
+        (key, value) -> {
+          keys.put(key.getKey(), key);
+          values.put(key.getKey(), value);
+        });
+    copied = true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void putIntoBuilder(AttributesBuilder builder, AttributeKey<?> key, Object value) {
+    switch (key.getType()) {
+      case STRING:
+        builder.put((AttributeKey<String>) key, (String) value);
+        break;
+      case LONG:
+        builder.put((AttributeKey<Long>) key, (Long) value);
+        break;
+      case BOOLEAN:
+        builder.put((AttributeKey<Boolean>) key, (Boolean) value);
+        break;
+      case DOUBLE:
+        builder.put((AttributeKey<Double>) key, (Double) value);
+        break;
+      case STRING_ARRAY:
+      case LONG_ARRAY:
+      case BOOLEAN_ARRAY:
+      case DOUBLE_ARRAY:
+        builder.put((AttributeKey<List<?>>) key, (List<?>) value);
+        break;
+    }
+  }
+}
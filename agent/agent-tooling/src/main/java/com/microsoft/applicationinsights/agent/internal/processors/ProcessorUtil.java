@@ -5,9 +5,6 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Patterns;
 import io.opentelemetry.api.common.AttributeKey;
-import io.opentelemetry.api.common.Attributes;
-import io.opentelemetry.api.common.AttributesBuilder;
-import io.opentelemetry.sdk.trace.data.SpanData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -21,7 +18,7 @@ public class ProcessorUtil {
       List<String> groupNamesList,
       Pattern pattern,
       String name,
-      AttributesBuilder attributesBuilder) {
+      MutableAttributes attributes) {
     if (groupNamesList.isEmpty()) {
       return name;
     }
@@ -31,7 +28,7 @@ public class ProcessorUtil {
     boolean firstMatch = true;
     while (matcher.find()) {
       lastEnd =
-          applyRule(groupNamesList, name, attributesBuilder, output, lastEnd, matcher, firstMatch);
+          applyRule(groupNamesList, name, attributes, output, lastEnd, matcher, firstMatch);
       firstMatch = false;
     }
     output.append(name, lastEnd, name.length());
@@ -42,7 +39,7 @@ public class ProcessorUtil {
   private static int applyRule(
       List<String> groupNamesList,
       String name,
-      AttributesBuilder attributesBuilder,
+      MutableAttributes attributes,
       StringBuilder output,
       int lastEnd,
       Matcher matcher,
@@ -55,7 +52,7 @@ public class ProcessorUtil {
       output.append(groupNamesList.get(i - 1));
       // add attribute key=groupNames.get(i-1), value=matcher.group(i)
       if (firstMatch) {
-        attributesBuilder.put(groupNamesList.get(i - 1), matcher.group(i));
+        attributes.put(groupNamesList.get(i - 1), matcher.group(i));
       }
       output.append("}");
       innerLastEnd = matcher.end(i);
@@ -73,14 +70,13 @@ public class ProcessorUtil {
     return groupNamesList;
   }
 
-  public static boolean spanHasAllFromAttributeKeys(
-      SpanData span, List<AttributeKey<?>> fromAttributes) {
+  public static boolean hasAllFromAttributeKeys(
+      MutableAttributes attributes, List<AttributeKey<?>> fromAttributes) {
     if (fromAttributes.isEmpty()) {
       return false;
     }
-    Attributes existingSpanAttributes = span.getAttributes();
     for (AttributeKey<?> attributeKey : fromAttributes) {
-      if (existingSpanAttributes.get(attributeKey) == null) {
+      if (attributes.get(attributeKey) == null) {
         return false;
       }
     }
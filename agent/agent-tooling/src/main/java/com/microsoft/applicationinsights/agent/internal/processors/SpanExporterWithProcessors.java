@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.SpanDataMapper;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.semconv.SemanticAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// all of the attribute and span processors are compiled up front and then applied in a single pass
+// over each span, so that the span attributes are copied (at most) once and rebuilt (at most) once
+// per span, no matter how many processors and actions are configured
+//
+// (this includes adding the back-compat http.url attribute, which the processors can match on)
+public class SpanExporterWithProcessors implements SpanExporter {
+
+  private final SpanExporter delegate;
+  private final List<AgentProcessor> processors;
+
+  // caller should check config.isValid before creating
+  public SpanExporterWithProcessors(List<ProcessorConfig> configs, SpanExporter delegate) {
+    List<AgentProcessor> processors = new ArrayList<>();
+    for (ProcessorConfig config : configs) {
+      config.validate();
+      switch (config.type) {
+        case ATTRIBUTE:
+          processors.add(AttributeProcessor.create(config, false));
+          break;
+        case SPAN:
+          processors.add(SpanProcessor.create(config));
+          break;
+        default:
+          throw new IllegalStateException("Not an expected ProcessorType: " + config.type);
+      }
+    }
+    this.processors = processors;
+    this.delegate = delegate;
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    // we need to filter attributes before passing on to delegate
+    List<SpanData> copy = new ArrayList<>(spans.size());
+    for (SpanData span : spans) {
+      copy.add(process(span));
+    }
+    return delegate.export(copy);
+  }
+
+  private SpanData process(SpanData span) {
+    MutableAttributes attributes = new MutableAttributes(span.getAttributes());
+    addBackCompatHttpUrl(span, attributes);
+    String spanName = span.getName();
+    for (AgentProcessor processor : processors) {
+      if (processor.shouldProcess(attributes, spanName)) {
+        spanName = processor.process(spanName, attributes);
+      }
+    }
+    if (!attributes.isModified() && spanName.equals(span.getName())) {
+      return span;
+    }
+    return new MySpanData(span, attributes.build(), spanName);
+  }
+
+  // this is temporary until semantic attributes stabilize and we make breaking change
+  // then can use java.util.functions.Predicate<Attributes>
+  private static void addBackCompatHttpUrl(SpanData span, MutableAttributes attributes) {
+    if (attributes.get(SemanticAttributes.HTTP_URL) != null) {
+      // already has http.url
+      return;
+    }
+    attributes.put(
+        SemanticAttributes.HTTP_URL, SpanDataMapper.getHttpUrlFromServerSpan(span.getAttributes()));
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return delegate.flush();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return delegate.shutdown();
+  }
+}
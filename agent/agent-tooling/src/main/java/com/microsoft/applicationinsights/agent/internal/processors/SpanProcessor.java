@@ -5,13 +5,10 @@ package com.microsoft.applicationinsights.agent.internal.processors;
 
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.applyRule;
 import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.getGroupNamesList;
-import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.spanHasAllFromAttributeKeys;
+import static com.microsoft.applicationinsights.agent.internal.processors.ProcessorUtil.hasAllFromAttributeKeys;
 
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
 import io.opentelemetry.api.common.AttributeKey;
-import io.opentelemetry.api.common.Attributes;
-import io.opentelemetry.api.common.AttributesBuilder;
-import io.opentelemetry.sdk.trace.data.SpanData;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
@@ -69,40 +66,39 @@ public class SpanProcessor extends AgentProcessor {
         separator);
   }
 
+  @Override
+  String process(String spanName, MutableAttributes attributes) {
+    String updatedSpanName = processFromAttributes(spanName, attributes);
+    return processToAttributes(updatedSpanName, attributes);
+  }
+
   // fromAttributes represents the attribute keys to pull the values from to generate the new span
   // name.
-  public SpanData processFromAttributes(SpanData span) {
-    if (spanHasAllFromAttributeKeys(span, fromAttributes)) {
+  private String processFromAttributes(String spanName, MutableAttributes attributes) {
+    if (hasAllFromAttributeKeys(attributes, fromAttributes)) {
       StringBuilder updatedSpanBuffer = new StringBuilder();
-      Attributes existingSpanAttributes = span.getAttributes();
       for (AttributeKey<?> attributeKey : fromAttributes) {
-        updatedSpanBuffer.append(existingSpanAttributes.get(attributeKey));
+        updatedSpanBuffer.append(attributes.get(attributeKey));
         updatedSpanBuffer.append(separator);
       }
       // Removing the last appended separator
       if (separator.length() > 0) {
         updatedSpanBuffer.setLength(updatedSpanBuffer.length() - separator.length());
       }
-      return new MySpanData(span, span.getAttributes(), updatedSpanBuffer.toString());
+      return updatedSpanBuffer.toString();
     }
-    return span;
+    return spanName;
   }
 
   // The following function extracts attributes from span name and replaces extracted parts with
   // attribute names
-  public SpanData processToAttributes(SpanData span) {
-    if (toAttributeRulePatterns.isEmpty()) {
-      return span;
-    }
-    String spanName = span.getName();
-    // copy existing attributes.
+  private String processToAttributes(String spanName, MutableAttributes attributes) {
     // According to Collector docs, The matched portion
     // in the span name is replaced by extracted attribute name. If the attributes exist
-    // they will be overwritten. Need a way to optimize this.
-    AttributesBuilder builder = span.getAttributes().toBuilder();
+    // they will be overwritten.
     for (int i = 0; i < groupNames.size(); i++) {
-      spanName = applyRule(groupNames.get(i), toAttributeRulePatterns.get(i), spanName, builder);
+      spanName = applyRule(groupNames.get(i), toAttributeRulePatterns.get(i), spanName, attributes);
     }
-    return new MySpanData(span, builder.build(), spanName);
+    return spanName;
   }
 }
@@ -20,15 +20,19 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServerConnection;
@@ -42,6 +46,16 @@ import org.slf4j.LoggerFactory;
  *   <li>Instantiates FlightRecorder subsystem
  *   <li>Creates profiles on demand
  * </ul>
+ *
+ * <p>Alerts that arrive while a profile is in progress extend that profile when they use the same
+ * recording settings (up to twice the duration of the alert that started it), and are otherwise
+ * queued, and profiled once a cooldown has passed after the profile in progress. The profile that
+ * is uploaded records which alerts it covered.
+ *
+ * <p>When continuous recording is enabled, a single recording is started up front (JFR rotates it
+ * into chunks, and drops the chunks that are too old or that exceed the configured size), and each
+ * alert uploads the time range of that recording which covers the alert, streaming it from JFR
+ * instead of dumping it to a file first. Overlapping alerts then each get their own profile.
  */
 public class Profiler {
 
@@ -58,9 +72,31 @@ public class Profiler {
 
   private final AlertConfiguration periodicConfig;
 
+  // a recording is extended to cover later alerts up to this multiple of the duration of the
+  // alert that started it
+  private static final int MAX_EXTENSION_FACTOR = 2;
+
   private final Object activeRecordingLock = new Object();
   @Nullable private Recording activeRecording = null;
   @Nullable private File activeRecordingFile = null;
+  // the following are guarded by activeRecordingLock
+  @Nullable private RecordingConfiguration activeRecordingConfiguration = null;
+  // the triggers that the active recording covers, the first of which started it
+  private final List<Trigger> activeRecordingTriggers = new ArrayList<>();
+  private Instant activeRecordingStart = Instant.EPOCH;
+  private Instant activeRecordingEnd = Instant.EPOCH;
+  private Instant activeRecordingMaxEnd = Instant.EPOCH;
+  // incremented whenever the active recording is extended, so that stale close tasks do nothing
+  private long activeRecordingCloseId;
+  @Nullable private ScheduledFuture<?> activeRecordingClose = null;
+  private final Deque<Trigger> queuedTriggers = new ArrayDeque<>();
+  private boolean coolingDown;
+
+  private final int maxQueuedTriggers;
+  private final Duration triggerCooldown;
+
+  private final Configuration.ContinuousRecording continuousRecordingConfig;
+  @Nullable private volatile Recording continuousRecording = null;
 
   private final RecordingConfiguration memoryRecordingConfiguration;
   private final RecordingConfiguration cpuRecordingConfiguration;
@@ -84,6 +120,9 @@ public class Profiler {
     cpuRecordingConfiguration = AlternativeJfrConfigurations.getCpuProfileConfig(config);
     spanRecordingConfiguration = AlternativeJfrConfigurations.getSpanProfileConfig(config);
     manualRecordingConfiguration = AlternativeJfrConfigurations.getManualProfileConfig(config);
+    continuousRecordingConfig = config.continuousRecording;
+    maxQueuedTriggers = config.maxQueuedTriggers;
+    triggerCooldown = Duration.ofSeconds(config.triggerCooldownSeconds);
     temporaryDirectory = tempDir;
   }
 
@@ -97,20 +136,75 @@ public class Profiler {
   public void initialize(
       UploadService uploadService, ScheduledExecutorService scheduledExecutorService)
       throws Exception {
-    this.uploadService = uploadService;
-    this.scheduledExecutorService = scheduledExecutorService;
-
-    // TODO -  allow user configuration of profile options
-    recordingOptionsBuilder = new RecordingOptions.Builder();
-
     // connect to mbeans
     MBeanServerConnection mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    FlightRecorderConnection flightRecorderConnection;
     try {
       flightRecorderConnection = FlightRecorderConnection.connect(mbeanServer);
     } catch (JfrStreamingException | InstanceNotFoundException jfrStreamingException) {
       // Possibly an older JVM, try using Diagnostic command
       flightRecorderConnection = FlightRecorderDiagnosticCommandConnection.connect(mbeanServer);
     }
+
+    initialize(uploadService, scheduledExecutorService, flightRecorderConnection);
+
+    if (continuousRecording != null) {
+      Runtime.getRuntime()
+          .addShutdownHook(new Thread(this::shutdown, "applicationinsights-profiler"));
+    }
+  }
+
+  // visible for testing
+  void initialize(
+      UploadService uploadService,
+      ScheduledExecutorService scheduledExecutorService,
+      FlightRecorderConnection flightRecorderConnection) {
+    this.uploadService = uploadService;
+    this.scheduledExecutorService = scheduledExecutorService;
+    this.flightRecorderConnection = flightRecorderConnection;
+
+    // TODO -  allow user configuration of profile options
+    recordingOptionsBuilder = new RecordingOptions.Builder();
+
+    if (continuousRecordingConfig.enabled) {
+      startContinuousRecording();
+    }
+  }
+
+  private void startContinuousRecording() {
+    RecordingOptions recordingOptions =
+        new RecordingOptions.Builder()
+            // chunks are only rotated (and dropped) when the recording is on disk
+            .disk("true")
+            .maxAge(TimeUnit.SECONDS.toMillis(continuousRecordingConfig.maxAgeSeconds) + " ms")
+            .maxSize(Long.toString(continuousRecordingConfig.maxSizeMb * 1024L * 1024L))
+            .build();
+    Recording recording = createRecording(recordingOptions, cpuRecordingConfiguration);
+    try {
+      recording.start();
+      continuousRecording = recording;
+      logger.info("Started continuous JFR recording");
+    } catch (IOException | JfrStreamingException e) {
+      // alerts then start their own recordings
+      logger.error("Failed to start continuous JFR recording", e);
+    }
+  }
+
+  /** Closes the continuous recording, which otherwise keeps running until the JVM exits. */
+  // visible for testing
+  void shutdown() {
+    Recording recording = continuousRecording;
+    if (recording == null) {
+      return;
+    }
+    // alerts that are received from now on start their own recordings
+    continuousRecording = null;
+    try {
+      recording.close();
+      logger.info("Closed continuous JFR recording");
+    } catch (IOException e) {
+      logger.error("Failed to close continuous JFR recording", e);
+    }
   }
 
   /** Apply new configuration settings obtained from Service Profiler. */
@@ -123,121 +217,258 @@ public class Profiler {
   // visible for tests
   void profileAndUpload(AlertBreach alertBreach, Duration duration, UploadListener uploadListener) {
     Instant recordingStart = Instant.now();
-    executeProfile(
-        alertBreach.getType(),
-        duration,
-        uploadNewRecording(alertBreach, recordingStart, uploadListener));
+    Recording continuousRecording = this.continuousRecording;
+    if (continuousRecording != null
+        && duration.getSeconds() > continuousRecordingConfig.maxAgeSeconds) {
+      // JFR would already have dropped the start of the profile by the time it is uploaded
+      logger.warn(
+          "The {} second profile is longer than the \"maxAgeSeconds\" of the continuous recording,"
+              + " recording it separately",
+          duration.getSeconds());
+    } else if (continuousRecording != null) {
+      logger.info("Received " + alertBreach.getType() + " alert, marking continuous recording");
+      scheduledExecutorService.schedule(
+          () ->
+              uploadRecordingRange(
+                  continuousRecording,
+                  alertBreach,
+                  recordingStart,
+                  recordingStart.plus(duration),
+                  uploadListener),
+          duration.getSeconds(),
+          TimeUnit.SECONDS);
+      return;
+    }
+    profile(new Trigger(alertBreach, duration, uploadListener));
   }
 
-  @Nullable
-  private Recording startRecording(AlertMetricType alertType, Duration duration) {
+  /**
+   * Starts a recording for the trigger, or if a recording is already in progress, extends that
+   * recording to cover the trigger or queues the trigger.
+   */
+  private void profile(Trigger trigger) {
+    AlertMetricType alertType = trigger.alertBreach.getType();
+
+    if (flightRecorderConnection == null) {
+      logger.error("Flight recorder not initialised");
+      return;
+    }
+
     synchronized (activeRecordingLock) {
       if (activeRecording != null) {
-        logger.warn("Alert received, however a profile is already in progress, ignoring request.");
-        return null;
+        if (extendActiveRecording(trigger)) {
+          logger.info("Received " + alertType + " alert, extending the profile in progress");
+        } else {
+          queue(trigger);
+        }
+        return;
       }
-
-      RecordingConfiguration recordingConfiguration;
-      switch (alertType) {
-        case REQUEST:
-          recordingConfiguration = spanRecordingConfiguration;
-          break;
-        case MEMORY:
-          recordingConfiguration = memoryRecordingConfiguration;
-          break;
-        case MANUAL:
-          recordingConfiguration = manualRecordingConfiguration;
-          break;
-        default:
-          recordingConfiguration = cpuRecordingConfiguration;
-          break;
+      if (coolingDown) {
+        queue(trigger);
+        return;
       }
 
-      try {
-        activeRecordingFile = createJfrFile(duration);
-
-        // As a fallback in case recording closing logic does not succeed, set the recording
-        // duration to the expected duration plus 60 seconds
-        Duration requestedDuration = duration.plus(60, ChronoUnit.SECONDS);
+      logger.info("Received " + alertType + " alert, Starting profile");
+      startRecording(trigger);
+    }
+  }
 
-        RecordingOptions recordingOptions =
-            recordingOptionsBuilder.duration(requestedDuration.toMillis() + " ms").build();
+  // must be called while holding activeRecordingLock
+  private void startRecording(Trigger trigger) {
+    RecordingConfiguration recordingConfiguration =
+        getRecordingConfiguration(trigger.alertBreach.getType());
 
-        this.activeRecording = createRecording(recordingOptions, recordingConfiguration);
+    try {
+      activeRecordingFile = createJfrFile(trigger.duration);
+
+      // As a fallback in case recording closing logic does not succeed, set the recording
+      // duration to the longest it can be extended to plus 60 seconds
+      Duration requestedDuration =
+          trigger.duration.multipliedBy(MAX_EXTENSION_FACTOR).plus(60, ChronoUnit.SECONDS);
+
+      RecordingOptions recordingOptions =
+          recordingOptionsBuilder.duration(requestedDuration.toMillis() + " ms").build();
+
+      Recording recording = createRecording(recordingOptions, recordingConfiguration);
+      recording.start();
+
+      activeRecording = recording;
+      activeRecordingConfiguration = recordingConfiguration;
+      activeRecordingTriggers.add(trigger);
+      activeRecordingStart = Instant.now();
+      activeRecordingEnd = activeRecordingStart.plus(trigger.duration);
+      activeRecordingMaxEnd =
+          activeRecordingStart.plus(trigger.duration.multipliedBy(MAX_EXTENSION_FACTOR));
+      scheduleClose();
+    } catch (IOException e) {
+      logger.error("Failed to start JFR recording", e);
+      clearActiveRecording();
+    } catch (JfrStreamingException internalError) {
+      logger.error("Internal JFR Error", internalError);
+      clearActiveRecording();
+    }
+  }
 
-        return activeRecording;
-      } catch (IOException e) {
-        logger.error("Failed to create jfr file", e);
-        return null;
+  // must be called while holding activeRecordingLock
+  private boolean extendActiveRecording(Trigger trigger) {
+    if (getRecordingConfiguration(trigger.alertBreach.getType()) != activeRecordingConfiguration) {
+      return false;
+    }
+    Instant end = Instant.now().plus(trigger.duration);
+    if (end.isAfter(activeRecordingMaxEnd)) {
+      return false;
+    }
+    activeRecordingTriggers.add(trigger);
+    if (end.isAfter(activeRecordingEnd)) {
+      activeRecordingEnd = end;
+      if (activeRecordingClose != null) {
+        activeRecordingClose.cancel(false);
       }
+      scheduleClose();
     }
+    return true;
   }
 
-  // visible for tests
-  protected Recording createRecording(
-      RecordingOptions recordingOptions, RecordingConfiguration recordingConfiguration) {
-    return flightRecorderConnection.newRecording(recordingOptions, recordingConfiguration);
+  // must be called while holding activeRecordingLock
+  private void queue(Trigger trigger) {
+    if (queuedTriggers.size() >= maxQueuedTriggers) {
+      logger.warn(
+          "Alert received, however a profile is already in progress and {} alerts are queued,"
+              + " ignoring request.",
+          queuedTriggers.size());
+      return;
+    }
+    queuedTriggers.addLast(trigger);
+    logger.info(
+        "Received "
+            + trigger.alertBreach.getType()
+            + " alert, a profile is already in progress, queueing request.");
   }
 
-  /** Perform a profile and notify the handler. */
-  private void executeProfile(
-      AlertMetricType alertType, Duration duration, Consumer<Recording> handler) {
-
-    logger.info("Received " + alertType + " alert, Starting profile");
+  // must be called while holding activeRecordingLock
+  private void scheduleClose() {
+    long closeId = ++activeRecordingCloseId;
+    long delayMillis = Math.max(0, Duration.between(Instant.now(), activeRecordingEnd).toMillis());
+    activeRecordingClose =
+        scheduledExecutorService.schedule(
+            () -> closeAndUploadActiveRecording(closeId), delayMillis, TimeUnit.MILLISECONDS);
+  }
 
-    if (flightRecorderConnection == null) {
-      logger.error("Flight recorder not initialised");
-      return;
+  private RecordingConfiguration getRecordingConfiguration(AlertMetricType alertType) {
+    switch (alertType) {
+      case REQUEST:
+        return spanRecordingConfiguration;
+      case MEMORY:
+        return memoryRecordingConfiguration;
+      case MANUAL:
+        return manualRecordingConfiguration;
+      default:
+        return cpuRecordingConfiguration;
     }
+  }
 
-    Recording newRecording = startRecording(alertType, duration);
+  // visible for tests
+  protected Recording createRecording(
+      RecordingOptions recordingOptions, RecordingConfiguration recordingConfiguration) {
+    return flightRecorderConnection.newRecording(recordingOptions, recordingConfiguration);
+  }
 
-    if (newRecording == null) {
-      return;
+  /** When a profile has been created, upload it to service profiler. */
+  @SuppressWarnings("CatchingUnchecked")
+  private void closeAndUploadActiveRecording(long closeId) {
+    Recording recording;
+    File recordingFile;
+    List<Trigger> triggers;
+    Instant recordingStart;
+    synchronized (activeRecordingLock) {
+      if (activeRecording == null || closeId != activeRecordingCloseId) {
+        // the recording has been extended since this was scheduled
+        return;
+      }
+      recording = activeRecording;
+      recordingFile = activeRecordingFile;
+      triggers = new ArrayList<>(activeRecordingTriggers);
+      recordingStart = activeRecordingStart;
+      // the upload takes ownership of the file
+      activeRecordingFile = null;
+      clearActiveRecording();
+      coolingDown = true;
     }
 
+    logger.info("Closing and uploading recording");
     try {
-      newRecording.start();
+      // dump profile to file
+      closeRecording(recording, recordingFile);
 
-      // schedule closing the recording
+      // upload new profile, the file is read while it is uploaded, and deleted afterwards
+      List<AlertBreach> alertBreaches = new ArrayList<>(triggers.size());
+      for (Trigger trigger : triggers) {
+        alertBreaches.add(trigger.alertBreach);
+      }
+      // each of the alerts that the profile covers is notified of the upload
+      uploadService.upload(
+          alertBreaches,
+          recordingStart.toEpochMilli(),
+          recordingFile,
+          serviceProfilerIndex -> {
+            for (Trigger trigger : triggers) {
+              trigger.uploadListener.onUpload(serviceProfilerIndex);
+            }
+          });
+
+    } catch (Exception e) {
+      logger.error("Failed to upload recording", e);
+    } catch (Error e) {
+      // rethrow errors
+      logger.error("Failed to upload recording", e);
+      throw e;
+    } finally {
       scheduledExecutorService.schedule(
-          () -> handler.accept(newRecording), duration.getSeconds(), TimeUnit.SECONDS);
+          this::endCooldown, triggerCooldown.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
 
-    } catch (IOException ioException) {
-      logger.error("Failed to start JFR recording", ioException);
-      CompletableFuture<?> future = new CompletableFuture<>();
-      future.completeExceptionally(ioException);
-    } catch (JfrStreamingException internalError) {
-      logger.error("Internal JFR Error", internalError);
-      CompletableFuture<?> future = new CompletableFuture<>();
-      future.completeExceptionally(internalError);
+  /** Profiles the triggers that were queued while the previous profile was in progress. */
+  private void endCooldown() {
+    List<Trigger> triggers;
+    synchronized (activeRecordingLock) {
+      coolingDown = false;
+      triggers = new ArrayList<>(queuedTriggers);
+      queuedTriggers.clear();
+    }
+    // the first trigger starts a recording, and the others extend it or are queued again
+    for (Trigger trigger : triggers) {
+      profile(trigger);
     }
   }
 
-  /** When a profile has been created, upload it to service profiler. */
+  /** Upload the part of the continuous recording between the given times to service profiler. */
   @SuppressWarnings("CatchingUnchecked")
-  private Consumer<Recording> uploadNewRecording(
-      AlertBreach alertBreach, Instant recordingStart, UploadListener uploadListener) {
-    return recording -> {
-      logger.info("Closing and uploading recording");
-      try {
-        // dump profile to file
-        closeRecording(activeRecording, activeRecordingFile);
-
-        // upload new profile
-        uploadService.upload(
-            alertBreach, recordingStart.toEpochMilli(), activeRecordingFile, uploadListener);
-
-      } catch (Exception e) {
-        logger.error("Failed to upload recording", e);
-      } catch (Error e) {
-        // rethrow errors
-        logger.error("Failed to upload recording", e);
-        throw e;
-      } finally {
-        clearActiveRecording();
-      }
-    };
+  private void uploadRecordingRange(
+      Recording recording,
+      AlertBreach alertBreach,
+      Instant start,
+      Instant end,
+      UploadListener uploadListener) {
+    logger.info("Uploading continuous recording from {} to {}", start, end);
+    try {
+      uploadService.upload(
+          alertBreach,
+          start.toEpochMilli(),
+          () -> openRecordingRange(recording, start, end),
+          uploadListener);
+    } catch (Exception e) {
+      logger.error("Failed to upload recording", e);
+    }
+  }
+
+  private static InputStream openRecordingRange(Recording recording, Instant start, Instant end)
+      throws IOException {
+    try {
+      return recording.getStream(start, end);
+    } catch (JfrStreamingException e) {
+      throw new IOException("Failed to read JFR recording", e);
+    }
   }
 
   private static void closeRecording(Recording recording, File recordingFile) {
@@ -281,18 +512,20 @@ public class Profiler {
     }
   }
 
+  // must be called while holding activeRecordingLock
   private void clearActiveRecording() {
-    synchronized (activeRecordingLock) {
-      activeRecording = null;
-
-      // delete uploaded profile
-      if (activeRecordingFile != null && activeRecordingFile.exists()) {
-        if (!activeRecordingFile.delete()) {
-          logger.error("Failed to remove file " + activeRecordingFile.getAbsolutePath());
-        }
+    activeRecording = null;
+    activeRecordingConfiguration = null;
+    activeRecordingTriggers.clear();
+    activeRecordingClose = null;
+
+    // delete the profile if it was not handed over to the upload (which deletes it afterwards)
+    if (activeRecordingFile != null && activeRecordingFile.exists()) {
+      if (!activeRecordingFile.delete()) {
+        logger.error("Failed to remove file " + activeRecordingFile.getAbsolutePath());
       }
-      activeRecordingFile = null;
     }
+    activeRecordingFile = null;
   }
 
   /** Dump JFR profile to file. */
@@ -343,4 +576,17 @@ public class Profiler {
           uploadListener);
     }
   }
+
+  private static class Trigger {
+
+    private final AlertBreach alertBreach;
+    private final Duration duration;
+    private final UploadListener uploadListener;
+
+    private Trigger(AlertBreach alertBreach, Duration duration, UploadListener uploadListener) {
+      this.alertBreach = alertBreach;
+      this.duration = duration;
+      this.uploadListener = uploadListener;
+    }
+  }
 }
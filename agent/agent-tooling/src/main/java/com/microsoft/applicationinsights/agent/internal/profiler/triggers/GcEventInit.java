@@ -6,6 +6,8 @@ package com.microsoft.applicationinsights.agent.internal.profiler.triggers;
 import com.azure.monitor.opentelemetry.exporter.implementation.builders.EventTelemetryBuilder;
 import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
 import com.microsoft.applicationinsights.agent.internal.configuration.GcReportingLevel;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounter;
+import com.microsoft.applicationinsights.agent.internal.perfcounter.PerformanceCounterContainer;
 import com.microsoft.applicationinsights.agent.internal.profiler.util.ServiceLoaderUtil;
 import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
 import com.microsoft.applicationinsights.alerting.AlertingSubsystem;
@@ -13,6 +15,7 @@ import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
 import com.microsoft.gcmonitor.GcCollectionEvent;
 import com.microsoft.gcmonitor.GcEventConsumer;
 import com.microsoft.gcmonitor.GcMonitorFactory;
+import com.microsoft.gcmonitor.MemoryManagement;
 import com.microsoft.gcmonitor.UnableToMonitorMemoryException;
 import com.microsoft.gcmonitor.memorypools.MemoryPool;
 import java.lang.management.MemoryUsage;
@@ -72,9 +75,14 @@ class GcEventInit {
       GcEventMonitorConfiguration gcEventMonitorConfiguration,
       GcMonitorFactory gcMonitorFactory) {
     try {
-      gcMonitorFactory.monitorSelf(
-          executorService,
-          process(alertingSubsystem, telemetryClient, gcEventMonitorConfiguration));
+      MemoryManagement memoryManagement =
+          gcMonitorFactory.monitorSelf(
+              executorService,
+              process(alertingSubsystem, telemetryClient, gcEventMonitorConfiguration));
+      if (memoryManagement != null) {
+        PerformanceCounterContainer.INSTANCE.register(
+            new DroppedGcNotificationsPerformanceCounter(memoryManagement));
+      }
     } catch (UnableToMonitorMemoryException e) {
       logger.error("Failed to monitor gc mxbeans");
     }
@@ -167,5 +175,31 @@ class GcEventInit {
     telemetryBuilder.addMeasurement(poolName + "_max", (double) memory.getMax());
   }
 
+  /**
+   * Reports the gc notifications that were dropped since the previous report (if any), so that
+   * gaps in the gc events (and in the memory alerting) are visible.
+   */
+  private static class DroppedGcNotificationsPerformanceCounter implements PerformanceCounter {
+
+    private static final String METRIC_NAME = "GC Notifications Dropped";
+
+    private final MemoryManagement memoryManagement;
+    private long previouslyDropped;
+
+    private DroppedGcNotificationsPerformanceCounter(MemoryManagement memoryManagement) {
+      this.memoryManagement = memoryManagement;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+      long dropped = memoryManagement.getDroppedNotificationCount();
+      long delta = dropped - previouslyDropped;
+      previouslyDropped = dropped;
+      if (delta > 0) {
+        telemetryClient.trackAsync(telemetryClient.newMetricTelemetry(METRIC_NAME, delta));
+      }
+    }
+  }
+
   private GcEventInit() {}
 }
@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Gzips a trace while it is being uploaded, so that the compressed trace never has to be written to
+ * disk.
+ *
+ * <p>This holds one chunk of compressed data at a time, but the blob client collects the chunks
+ * into blocks before uploading them (see {@link UploadService}), so the compressed data held in
+ * memory per upload is bounded by the block size times the number of blocks that are uploaded
+ * concurrently (plus the block being filled and the current chunk), not by the size of the trace.
+ */
+final class CompressedChunks {
+
+  private static final Logger logger = LoggerFactory.getLogger(CompressedChunks.class);
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Returns the compressed contents of the trace as chunks of (at least) the given size, except for
+   * the last chunk. The trace is read from the start on every subscription.
+   *
+   * <p>The trace is read (which blocks) and compressed on the bounded elastic scheduler, since the
+   * blob client subscribes from the http client's event loop.
+   */
+  static Flux<ByteBuffer> of(TraceSource source, int chunkSize) {
+    return Flux.using(
+            () -> new Compressor(source.open(), chunkSize),
+            compressor ->
+                Flux.generate(
+                    sink -> {
+                      try {
+                        ByteBuffer chunk = compressor.next();
+                        if (chunk == null) {
+                          sink.complete();
+                        } else {
+                          sink.next(chunk);
+                        }
+                      } catch (IOException e) {
+                        sink.error(e);
+                      }
+                    }),
+            Compressor::close)
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+
+  private static class Compressor {
+
+    private final InputStream in;
+    private final int chunkSize;
+    private final ByteArrayOutputStream compressed;
+    private final GZIPOutputStream gzip;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+    private boolean finished;
+
+    private Compressor(InputStream in, int chunkSize) throws IOException {
+      this.in = in;
+      this.chunkSize = chunkSize;
+      this.compressed = new ByteArrayOutputStream(chunkSize);
+      this.gzip = new GZIPOutputStream(compressed, READ_BUFFER_SIZE);
+    }
+
+    // returns null once all of the trace has been returned
+    @Nullable
+    private ByteBuffer next() throws IOException {
+      if (finished) {
+        return null;
+      }
+      while (compressed.size() < chunkSize) {
+        int read = in.read(readBuffer);
+        if (read == -1) {
+          gzip.finish();
+          finished = true;
+          break;
+        }
+        gzip.write(readBuffer, 0, read);
+      }
+      ByteBuffer chunk = ByteBuffer.wrap(compressed.toByteArray());
+      compressed.reset();
+      return chunk;
+    }
+
+    private void close() {
+      // closing the gzip stream also releases the native memory of its deflater
+      closeQuietly(in);
+      closeQuietly(gzip);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // the upload has either completed or failed already
+        logger.debug("Failed to close trace", e);
+      }
+    }
+  }
+
+  private CompressedChunks() {}
+}
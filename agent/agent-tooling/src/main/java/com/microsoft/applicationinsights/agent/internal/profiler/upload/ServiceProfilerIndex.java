@@ -50,6 +50,8 @@ public class ServiceProfilerIndex {
     private static final String SERVICE_PROFILER_ARTIFACT_KIND_NAME = "ArtifactKind";
     private static final String SERVICE_PROFILER_ARTIFACT_ID_NAME = "ArtifactId";
     private static final String SERVICE_PROFILER_EXTENSION_NAME = "Extension";
+    // visible for testing
+    public static final String SERVICE_PROFILER_COVERED_ALERTS_PROPERTY_NAME = "CoveredAlerts";
 
     private final Map<String, String> sampleEvent = new HashMap<>();
     private final Map<String, Double> metrics = new HashMap<>();
@@ -109,6 +111,12 @@ public class ServiceProfilerIndex {
       return this;
     }
 
+    // the alerts that the profile covers (more than one if alerts arrived while it was in progress)
+    public Builder setCoveredAlerts(String coveredAlerts) {
+      sampleEvent.put(SERVICE_PROFILER_COVERED_ALERTS_PROPERTY_NAME, coveredAlerts);
+      return this;
+    }
+
     public Builder setCpuUsage(double cpuUsage) {
       metrics.put(SERVICE_PROFILER_AVERAGECPUUSAGE_METRIC_NAME, cpuUsage);
       return this;
@@ -0,0 +1,35 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/** Where the contents of a trace are read from when it is uploaded. */
+@FunctionalInterface
+public interface TraceSource {
+
+  /**
+   * Opens a new stream over the whole trace. This can be called more than once for the same trace
+   * (e.g. when an upload is retried).
+   */
+  InputStream open() throws IOException;
+
+  /**
+   * Creates a source that reads the given file.
+   *
+   * @throws IOException In case the file cannot be read, so that this fails before an upload is
+   *     started.
+   */
+  static TraceSource ofFile(File file) throws IOException {
+    if (!Files.isReadable(file.toPath())) {
+      // throws NoSuchFileException if the file does not exist
+      Files.size(file.toPath());
+      throw new IOException("Cannot read trace file " + file.getAbsolutePath());
+    }
+    return () -> Files.newInputStream(file.toPath());
+  }
+}
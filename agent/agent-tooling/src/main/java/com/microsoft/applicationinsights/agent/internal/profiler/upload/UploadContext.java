@@ -4,7 +4,6 @@
 package com.microsoft.applicationinsights.agent.internal.profiler.upload;
 
 import com.google.auto.value.AutoValue;
-import java.io.File;
 import java.util.UUID;
 
 /**
@@ -17,7 +16,7 @@ abstract class UploadContext {
 
   abstract String getMachineName();
 
-  abstract File getTraceFile();
+  abstract TraceSource getTraceSource();
 
   abstract long getSessionId();
 
@@ -38,7 +37,7 @@ abstract class UploadContext {
 
     abstract Builder setMachineName(String machineName);
 
-    abstract Builder setTraceFile(File traceFile);
+    abstract Builder setTraceSource(TraceSource traceSource);
 
     abstract Builder setSessionId(long sessionId);
 
@@ -10,7 +10,7 @@ import com.azure.storage.blob.BlobContainerClientBuilder;
 import com.azure.storage.blob.models.BlobHttpHeaders;
 import com.azure.storage.blob.models.BlockBlobItem;
 import com.azure.storage.blob.models.ParallelTransferOptions;
-import com.azure.storage.blob.options.BlobUploadFromFileOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
 import com.microsoft.applicationinsights.agent.internal.profiler.service.BlobAccessPass;
 import com.microsoft.applicationinsights.agent.internal.profiler.service.ServiceProfilerClient;
 import com.microsoft.applicationinsights.agent.internal.profiler.util.OsPlatformProvider;
@@ -19,24 +19,22 @@ import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.nio.ByteBuffer;
 import java.util.Base64;
-import java.util.Comparator;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
-import java.util.stream.Stream;
-import java.util.zip.GZIPOutputStream;
 import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /** Uploads profiles to the service profiler endpoint. */
@@ -54,6 +52,10 @@ public class UploadService {
   private static final Logger logger = LoggerFactory.getLogger(UploadService.class);
 
   private static final long UPLOAD_BLOCK_LENGTH = 8 * 1024 * 1024;
+  // bounds the compressed data that is buffered in memory to roughly one block per concurrent
+  // block upload
+  private static final int UPLOAD_CONCURRENCY = 2;
+  private static final int COMPRESSED_CHUNK_LENGTH = 1024 * 1024;
 
   // For debug purposes, can use settings to tell the profiler to retain the profile after
   // it has been uploaded
@@ -85,25 +87,74 @@ public class UploadService {
     this.roleName = roleName;
   }
 
+  /**
+   * Uploads the given file, which is read while it is being uploaded, and is deleted once the
+   * upload has completed or failed.
+   *
+   * @param alertBreaches The alerts that the profile covers, the first of which started it.
+   */
   public void upload(
-      AlertBreach alertBreach, long timestamp, File file, UploadListener uploadListener) {
+      List<AlertBreach> alertBreaches, long timestamp, File file, UploadListener uploadListener) {
+    TraceSource traceSource;
+    try {
+      traceSource = TraceSource.ofFile(file);
+    } catch (IOException e) {
+      logger.error("Failed to upload file", e);
+      deleteFile(file);
+      return;
+    }
+    upload(alertBreaches, timestamp, traceSource, uploadListener, () -> deleteFile(file));
+  }
+
+  /** Uploads a trace that is compressed while it is being read from the given source. */
+  public void upload(
+      AlertBreach alertBreach,
+      long timestamp,
+      TraceSource traceSource,
+      UploadListener uploadListener) {
+    upload(
+        Collections.singletonList(alertBreach), timestamp, traceSource, uploadListener, () -> {});
+  }
+
+  private void upload(
+      List<AlertBreach> alertBreaches,
+      long timestamp,
+      TraceSource traceSource,
+      UploadListener uploadListener,
+      Runnable onUploadTerminated) {
 
     String appId = appIdSupplier.get();
     if (appId == null || appId.isEmpty()) {
       logger.error("Not uploading file due to lack of app id");
+      onUploadTerminated.run();
       return;
     }
 
-    uploadJfrFile(
+    AlertBreach alertBreach = alertBreaches.get(0);
+    uploadJfr(
             UUID.fromString(alertBreach.getProfileId()),
             "JFR-" + alertBreach.getType().name(),
             timestamp,
-            file,
+            traceSource,
             alertBreach.getCpuMetric(),
-            alertBreach.getMemoryUsage())
+            alertBreach.getMemoryUsage(),
+            describe(alertBreaches))
+        .doFinally(signal -> onUploadTerminated.run())
         .subscribe(onUploadComplete(uploadListener), e -> logger.error("Failed to upload file", e));
   }
 
+  // e.g. "CPU:<profile id>,MEMORY:<profile id>"
+  private static String describe(List<AlertBreach> alertBreaches) {
+    StringBuilder sb = new StringBuilder();
+    for (AlertBreach alertBreach : alertBreaches) {
+      if (sb.length() > 0) {
+        sb.append(',');
+      }
+      sb.append(alertBreach.getType().name()).append(':').append(alertBreach.getProfileId());
+    }
+    return sb.toString();
+  }
+
   // Notify listener that full profile and upload cycle has completed and log success
   private static Consumer<? super ServiceProfilerIndex> onUploadComplete(
       UploadListener uploadListener) {
@@ -127,6 +178,28 @@ public class UploadService {
         triggerName, timestamp, profileId, file, cpuUsage, memoryUsage, "Profile", "jfr", "jfr");
   }
 
+  private Mono<ServiceProfilerIndex> uploadJfr(
+      UUID profileId,
+      String triggerName,
+      long timestamp,
+      TraceSource traceSource,
+      double cpuUsage,
+      double memoryUsage,
+      String coveredAlerts) {
+
+    return upload(
+        triggerName,
+        timestamp,
+        profileId,
+        traceSource,
+        cpuUsage,
+        memoryUsage,
+        "Profile",
+        "jfr",
+        "jfr",
+        coveredAlerts);
+  }
+
   public Mono<ServiceProfilerIndex> uploadFile(
       String triggerName,
       long timestamp,
@@ -137,6 +210,37 @@ public class UploadService {
       String artifactKind,
       String extension,
       String fileFormat) {
+    TraceSource traceSource;
+    try {
+      traceSource = TraceSource.ofFile(file);
+    } catch (IOException e) {
+      logger.error("Upload of the trace file failed", e);
+      return Mono.error(new UploadFailedException(e));
+    }
+    return upload(
+        triggerName,
+        timestamp,
+        profileId,
+        traceSource,
+        cpuUsage,
+        memoryUsage,
+        artifactKind,
+        extension,
+        fileFormat,
+        null);
+  }
+
+  private Mono<ServiceProfilerIndex> upload(
+      String triggerName,
+      long timestamp,
+      UUID profileId,
+      TraceSource traceSource,
+      double cpuUsage,
+      double memoryUsage,
+      String artifactKind,
+      String extension,
+      String fileFormat,
+      @Nullable String coveredAlerts) {
     String appId = appIdSupplier.get();
     if (appId == null || appId.isEmpty()) {
       logger.error("Failed to upload due to lack of appId");
@@ -148,7 +252,7 @@ public class UploadService {
             .setMachineName(machineName)
             .setDataCube(UUID.fromString(appId))
             .setSessionId(timestamp)
-            .setTraceFile(file)
+            .setTraceSource(traceSource)
             .setProfileId(profileId)
             .setFileFormat(fileFormat)
             .setExtension(extension)
@@ -162,21 +266,25 @@ public class UploadService {
               String fileId = createId();
               String formattedTimestamp = TimestampContract.padNanos(done.getTimeStamp());
 
-              return ServiceProfilerIndex.builder()
-                  .setTriggeredBy(triggerName)
-                  .setFileId(fileId)
-                  .setStampId(done.getStampId())
-                  .setDataCubeId(UUID.fromString(appId))
-                  .setTimeStamp(formattedTimestamp)
-                  .setMachineName(uploadContext.getMachineName())
-                  .setOs(OsPlatformProvider.getOsPlatformDescription())
-                  .setProcessId(processId)
-                  .setArtifactKind(artifactKind)
-                  .setArtifactId(profileId.toString())
-                  .setExtension(extension)
-                  .setCpuUsage(cpuUsage)
-                  .setMemoryUsage(memoryUsage)
-                  .build();
+              ServiceProfilerIndex.Builder builder =
+                  ServiceProfilerIndex.builder()
+                      .setTriggeredBy(triggerName)
+                      .setFileId(fileId)
+                      .setStampId(done.getStampId())
+                      .setDataCubeId(UUID.fromString(appId))
+                      .setTimeStamp(formattedTimestamp)
+                      .setMachineName(uploadContext.getMachineName())
+                      .setOs(OsPlatformProvider.getOsPlatformDescription())
+                      .setProcessId(processId)
+                      .setArtifactKind(artifactKind)
+                      .setArtifactId(profileId.toString())
+                      .setExtension(extension)
+                      .setCpuUsage(cpuUsage)
+                      .setMemoryUsage(memoryUsage);
+              if (coveredAlerts != null) {
+                builder.setCoveredAlerts(coveredAlerts);
+              }
+              return builder.build();
             });
   }
 
@@ -192,50 +300,38 @@ public class UploadService {
   /** Upload profile to service profiler. */
   private Mono<UploadFinishArgs> uploadTrace(UploadContext uploadContext) {
 
-    File zippedTraceFile = null;
-
-    try {
-      // Zip up profile
-      zippedTraceFile = createZippedTraceFile(uploadContext);
-
-      // Obtain permission to upload profile
-
-      File finalZippedTraceFile1 = zippedTraceFile;
-      return serviceProfilerClient
-          .getUploadAccess(uploadContext.getProfileId(), uploadContext.getExtension())
-          .flatMap(
-              uploadPass -> {
-                if (uploadPass == null) {
-                  close(finalZippedTraceFile1);
-                  return Mono.error(new UploadFailedException("Failed to obtain upload pass"));
-                }
+    // Obtain permission to upload profile
+    return serviceProfilerClient
+        .getUploadAccess(uploadContext.getProfileId(), uploadContext.getExtension())
+        .flatMap(
+            uploadPass -> {
+              if (uploadPass == null) {
+                return Mono.error(new UploadFailedException("Failed to obtain upload pass"));
+              }
 
-                // perform upload then finally close file
-                return performUpload(uploadContext, uploadPass, finalZippedTraceFile1)
-                    .doFinally((signal) -> close(finalZippedTraceFile1));
-              });
-    } catch (Exception e) {
-      logger.error("Upload of the trace file failed", e);
-      if (zippedTraceFile != null) {
-        close(zippedTraceFile);
-      }
-      return Mono.error(new UploadFailedException(e));
-    }
+              return performUpload(uploadContext, uploadPass);
+            });
   }
 
   protected Mono<UploadFinishArgs> performUpload(
-      UploadContext uploadContext, BlobAccessPass uploadPass, File file) {
-    return uploadToSasLink(uploadPass, uploadContext, file)
+      UploadContext uploadContext, BlobAccessPass uploadPass) {
+    return uploadToSasLink(uploadPass, uploadContext)
         .flatMap(response -> reportUploadComplete(uploadContext, response));
   }
 
-  /** Upload the given file to a blob storage defined by a sas link. */
+  /**
+   * Upload the given trace to a blob storage defined by a sas link, compressing it while it is
+   * being uploaded.
+   */
   private Mono<Response<BlockBlobItem>> uploadToSasLink(
-      BlobAccessPass uploadPass, UploadContext uploadContext, File file) {
+      BlobAccessPass uploadPass, UploadContext uploadContext) {
     try {
       URL sasUrl = new URL(uploadPass.getUriWithSasToken());
 
-      BlobUploadFromFileOptions options = createBlockBlobOptions(file, uploadContext);
+      BlobParallelUploadOptions options =
+          createBlockBlobOptions(
+              CompressedChunks.of(uploadContext.getTraceSource(), COMPRESSED_CHUNK_LENGTH),
+              uploadContext);
       // TODO (trask) should we be injecting our HttpClient into the blob container client?
       BlobContainerClientBuilder builder =
           new BlobContainerClientBuilder().endpoint(sasUrl.toString());
@@ -244,21 +340,13 @@ public class UploadService {
 
       BlobAsyncClient blobClient = blobContainerClient.getBlobAsyncClient(uploadPass.getBlobName());
       return blobClient
-          .uploadFromFileWithResponse(options)
+          .uploadWithResponse(options)
           .doFinally((done) -> logger.info("upload done"));
     } catch (MalformedURLException e) {
       throw new IllegalArgumentException("Malformed url", e);
     }
   }
 
-  private static void close(File zippedTraceFile) {
-    try {
-      deletePathRecursive(zippedTraceFile);
-    } catch (Exception e) {
-      logger.warn("An error occurred when closing the zipped trace file", e);
-    }
-  }
-
   /** Report the success of an upload or throw an exception. */
   protected Mono<UploadFinishArgs> reportUploadComplete(
       UploadContext uploadContext, Response<BlockBlobItem> response) {
@@ -290,7 +378,8 @@ public class UploadService {
     }
   }
 
-  BlobUploadFromFileOptions createBlockBlobOptions(File file, UploadContext uploadContext) {
+  BlobParallelUploadOptions createBlockBlobOptions(
+      Flux<ByteBuffer> data, UploadContext uploadContext) {
     HashMap<String, String> metadata = new HashMap<>();
 
     metadata.put(
@@ -306,61 +395,26 @@ public class UploadService {
       metadata.put(ROLE_NAME_META_NAME, roleName);
     }
 
-    String fullFilePath = file.getAbsoluteFile().toString();
-
-    return new BlobUploadFromFileOptions(fullFilePath)
+    // the size of the compressed trace is not known up front, so the single upload size is
+    // limited to a block, otherwise the whole compressed trace would be buffered before uploading
+    return new BlobParallelUploadOptions(data)
         .setHeaders(new BlobHttpHeaders().setContentEncoding("gzip"))
         .setMetadata(metadata)
         .setParallelTransferOptions(
-            new ParallelTransferOptions().setBlockSizeLong(UPLOAD_BLOCK_LENGTH));
-  }
-
-  /** Zip up profile. */
-  @SuppressFBWarnings(
-      value = "SECPTI", // Potential Path Traversal
-      justification =
-          "The constructed file path cannot be controlled by an end user of the instrumented application")
-  private static File createZippedTraceFile(UploadContext uploadContext) throws IOException {
-    File traceFile = uploadContext.getTraceFile();
-    logger.debug("Trace file: {}", traceFile.toString());
-
-    File targetFile =
-        Files.createTempFile(traceFile.getParentFile().toPath(), traceFile.getName(), ".gz")
-            .toFile();
-    if (!retainJfrFile) {
-      targetFile.deleteOnExit();
-    }
-
-    try (OutputStream target = new GZIPOutputStream(Files.newOutputStream(targetFile.toPath()))) {
-      Files.copy(traceFile.toPath(), target);
-    }
-
-    return targetFile;
+            new ParallelTransferOptions()
+                .setBlockSizeLong(UPLOAD_BLOCK_LENGTH)
+                .setMaxSingleUploadSizeLong(UPLOAD_BLOCK_LENGTH)
+                .setMaxConcurrency(UPLOAD_CONCURRENCY));
   }
 
-  // Deleting file recursively.
-  private static void deletePathRecursive(@Nullable File fileToDelete) throws IOException {
-    if (fileToDelete != null && fileToDelete.exists()) {
-      if (retainJfrFile) {
-        logger.info("JFR file retained at: {}", fileToDelete.getAbsolutePath());
-      } else {
-        deletePathRecursive(fileToDelete.toPath());
-      }
+  private static void deleteFile(File file) {
+    if (!file.exists()) {
+      return;
     }
-  }
-
-  // Deleting file recursively.
-  private static void deletePathRecursive(Path path) throws IOException {
-    try (Stream<Path> stream = Files.walk(path)) {
-      stream
-          .sorted(Comparator.reverseOrder())
-          .map(Path::toFile)
-          .forEach(
-              file -> {
-                if (!file.delete()) {
-                  logger.error("Failed to delete " + file.getAbsolutePath());
-                }
-              });
+    if (retainJfrFile) {
+      logger.info("JFR file retained at: {}", file.getAbsolutePath());
+    } else if (!file.delete()) {
+      logger.error("Failed to delete " + file.getAbsolutePath());
     }
   }
 }
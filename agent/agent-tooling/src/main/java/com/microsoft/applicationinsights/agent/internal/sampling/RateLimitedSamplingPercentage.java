@@ -11,31 +11,40 @@ package com.microsoft.applicationinsights.agent.internal.sampling;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.LongSupplier;
 
 // uses adaptive algorithm from OpenTelemetry Java Contrib's ConsistentRateLimitingSampler
 // (https://github.com/open-telemetry/opentelemetry-java-contrib/blob/main/consistent-sampling/src/main/java/io/opentelemetry/contrib/samplers/ConsistentRateLimitingSampler.java)
+//
+// but instead of updating the state on every call (which under high concurrency means CAS retries
+// and an allocation per root span), spans are only counted on every call (using a striped
+// counter), and the counts are periodically reconciled into the state and the effective sampling
+// percentage by a single thread, so that the per-call cost is a few reads and a counter increment
 class RateLimitedSamplingPercentage implements SamplingPercentage {
 
-  private static final class State {
-    private final double effectiveWindowCount;
-    private final double effectiveWindowNanos;
-    private final long lastNanoTime;
-
-    private State(double effectiveWindowCount, double effectiveWindowNanos, long lastNanoTime) {
-      this.effectiveWindowCount = effectiveWindowCount;
-      this.effectiveWindowNanos = effectiveWindowNanos;
-      this.lastNanoTime = lastNanoTime;
-    }
-  }
+  // the state is reconciled this many times per adaptation time, so that the counts are decayed
+  // at (close to) the same rate as if the state was updated on every call
+  private static final int RECONCILES_PER_ADAPTATION_TIME = 100;
 
   private final LongSupplier nanoTimeSupplier;
   private final double inverseAdaptationTimeNanos;
   private final double targetSpansPerNanosecondLimit;
-  private final AtomicReference<State> state;
+  private final long reconcileIntervalNanos;
   private final boolean roundToNearest;
 
+  private final LongAdder spanCount = new LongAdder();
+  private final AtomicBoolean reconciling = new AtomicBoolean();
+
+  // these are only accessed by the thread that is reconciling
+  private double effectiveWindowCount;
+  private double effectiveWindowNanos;
+
+  private volatile long lastNanoTime;
+  // no spans have been counted yet, so nothing to limit
+  private volatile double samplingPercentage = 100;
+
   RateLimitedSamplingPercentage(double targetSpansPerSecondLimit, double adaptationTimeSeconds) {
     this(targetSpansPerSecondLimit, adaptationTimeSeconds, System::nanoTime, true);
   }
@@ -57,40 +66,56 @@ class RateLimitedSamplingPercentage implements SamplingPercentage {
 
     this.inverseAdaptationTimeNanos = 1e-9 / adaptationTimeSeconds;
     this.targetSpansPerNanosecondLimit = 1e-9 * targetSpansPerSecondLimit;
+    this.reconcileIntervalNanos =
+        (long) (adaptationTimeSeconds * 1e9 / RECONCILES_PER_ADAPTATION_TIME);
 
-    this.state = new AtomicReference<>(new State(0, 0, nanoTimeSupplier.getAsLong()));
+    this.lastNanoTime = nanoTimeSupplier.getAsLong();
 
     this.roundToNearest = roundToNearest;
   }
 
-  private State updateState(State oldState, long currentNanoTime) {
-    if (currentNanoTime <= oldState.lastNanoTime) {
-      return new State(
-          oldState.effectiveWindowCount + 1, oldState.effectiveWindowNanos, oldState.lastNanoTime);
-    }
-    long nanoTimeDelta = currentNanoTime - oldState.lastNanoTime;
-    double decayFactor = Math.exp(-nanoTimeDelta * inverseAdaptationTimeNanos);
-    double currentEffectiveWindowCount = oldState.effectiveWindowCount * decayFactor + 1;
-    double currentEffectiveWindowNanos =
-        oldState.effectiveWindowNanos * decayFactor + nanoTimeDelta;
-    return new State(currentEffectiveWindowCount, currentEffectiveWindowNanos, currentNanoTime);
-  }
-
   @Override
   public double get() {
+    spanCount.increment();
     long currentNanoTime = nanoTimeSupplier.getAsLong();
-    State currentState = state.updateAndGet(s -> updateState(s, currentNanoTime));
+    if (currentNanoTime - lastNanoTime >= reconcileIntervalNanos
+        && reconciling.compareAndSet(false, true)) {
+      // other threads don't wait for this, they just keep using the current sampling percentage
+      try {
+        reconcile(currentNanoTime);
+      } finally {
+        reconciling.set(false);
+      }
+    }
+    return samplingPercentage;
+  }
+
+  private void reconcile(long currentNanoTime) {
+    long nanoTimeDelta = currentNanoTime - lastNanoTime;
+    if (nanoTimeDelta <= 0) {
+      // another thread just reconciled (or time went backwards)
+      return;
+    }
+    // all of the spans since the last reconcile are treated as if they arrived now, which is close
+    // enough since the reconcile interval is small compared to the adaptation time
+    double decayFactor = Math.exp(-nanoTimeDelta * inverseAdaptationTimeNanos);
+    effectiveWindowCount = effectiveWindowCount * decayFactor + spanCount.sumThenReset();
+    effectiveWindowNanos = effectiveWindowNanos * decayFactor + nanoTimeDelta;
+    lastNanoTime = currentNanoTime;
+
+    if (effectiveWindowCount == 0) {
+      return;
+    }
 
     double samplingProbability =
-        (currentState.effectiveWindowNanos * targetSpansPerNanosecondLimit)
-            / currentState.effectiveWindowCount;
+        (effectiveWindowNanos * targetSpansPerNanosecondLimit) / effectiveWindowCount;
 
     double samplingPercentage = 100 * Math.min(samplingProbability, 1);
 
     if (roundToNearest) {
       samplingPercentage = roundDownToNearest(samplingPercentage);
     }
-    return samplingPercentage;
+    this.samplingPercentage = samplingPercentage;
   }
 
   private static double roundDownToNearest(double samplingPercentage) {
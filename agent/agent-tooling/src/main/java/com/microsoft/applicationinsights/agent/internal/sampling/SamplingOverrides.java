@@ -12,55 +12,162 @@ import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.sdk.trace.samplers.Sampler;
 import io.opentelemetry.semconv.SemanticAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 // TODO find a better name for this class (and MatcherGroup too)
+//
+// the overrides are compiled into an index up front, so that sampling decisions stay cheap even
+// with hundreds of overrides: each override that has a strict attribute is indexed by the key and
+// value of its first strict attribute, so that only the overrides whose strict value matches need
+// to be evaluated, while the remaining overrides are evaluated in order as before
+//
+// (request vs dependency overrides are already split into separate instances by the caller)
 public class SamplingOverrides {
 
-  private final List<MatcherGroup> matcherGroups;
+  private static final int NO_MATCH = Integer.MAX_VALUE;
+
+  private final MatcherGroup[] matcherGroups;
+
+  private final IndexedAttribute[] indexedAttributes;
+
+  // indexes into matcherGroups, in ascending order
+  private final int[] unindexedGroups;
+
+  // whether any of the overrides looks at http.url, which needs a fallback that is expensive to
+  // compute, and so is only computed (at most once per sampling decision) when needed
+  private final boolean usesHttpUrl;
 
   public SamplingOverrides(List<SamplingOverride> overrides) {
-    matcherGroups = new ArrayList<>();
-    for (SamplingOverride override : overrides) {
-      matcherGroups.add(new MatcherGroup(override));
+    matcherGroups = new MatcherGroup[overrides.size()];
+    Map<String, Map<String, List<Integer>>> indexedGroups = new LinkedHashMap<>();
+    List<Integer> unindexedGroups = new ArrayList<>();
+    boolean usesHttpUrl = false;
+    for (int i = 0; i < overrides.size(); i++) {
+      SamplingOverride override = overrides.get(i);
+      matcherGroups[i] = new MatcherGroup(override);
+      for (SamplingOverrideAttribute attribute : override.attributes) {
+        usesHttpUrl |= attribute.key.equals(SemanticAttributes.HTTP_URL.getKey());
+      }
+      SamplingOverrideAttribute indexAttribute = getIndexAttribute(override);
+      if (indexAttribute == null) {
+        unindexedGroups.add(i);
+      } else {
+        indexedGroups
+            .computeIfAbsent(indexAttribute.key, k -> new HashMap<>())
+            .computeIfAbsent(indexAttribute.value, v -> new ArrayList<>())
+            .add(i);
+      }
     }
+    indexedAttributes = new IndexedAttribute[indexedGroups.size()];
+    int i = 0;
+    for (Map.Entry<String, Map<String, List<Integer>>> entry : indexedGroups.entrySet()) {
+      Map<String, int[]> groupsByValue = new HashMap<>();
+      for (Map.Entry<String, List<Integer>> valueEntry : entry.getValue().entrySet()) {
+        groupsByValue.put(valueEntry.getKey(), toArray(valueEntry.getValue()));
+      }
+      indexedAttributes[i++] =
+          new IndexedAttribute(new StringAttribute(entry.getKey()), groupsByValue);
+    }
+    this.unindexedGroups = toArray(unindexedGroups);
+    this.usesHttpUrl = usesHttpUrl;
   }
 
   @Nullable
   public Sampler getOverride(Attributes attributes) {
-    LazyHttpUrl lazyHttpUrl = new LazyHttpUrl(attributes);
-    for (MatcherGroup matcherGroups : matcherGroups) {
-      if (matcherGroups.matches(attributes, lazyHttpUrl)) {
-        return matcherGroups.getSampler();
-      }
-    }
-    return null;
+    LazyHttpUrl lazyHttpUrl = usesHttpUrl ? new LazyHttpUrl(attributes) : null;
+    int index = getFirstMatch(attributes, lazyHttpUrl);
+    return index == NO_MATCH ? null : matcherGroups[index].getSampler();
   }
 
   // used to do sampling inside the log exporter
   @Nullable
   public Double getOverridePercentage(Attributes attributes) {
-    for (MatcherGroup matcherGroups : matcherGroups) {
-      if (matcherGroups.matches(attributes, null)) {
-        return matcherGroups.getPercentage();
+    int index = getFirstMatch(attributes, null);
+    return index == NO_MATCH ? null : matcherGroups[index].getPercentage();
+  }
+
+  // only the first matching override (in configuration order) is used
+  private int getFirstMatch(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
+    int firstMatch = getFirstMatch(unindexedGroups, NO_MATCH, attributes, lazyHttpUrl);
+    for (IndexedAttribute indexedAttribute : indexedAttributes) {
+      String value = indexedAttribute.attribute.get(attributes, lazyHttpUrl);
+      if (value == null) {
+        continue;
+      }
+      int[] groups = indexedAttribute.groupsByValue.get(value);
+      if (groups != null) {
+        firstMatch = getFirstMatch(groups, firstMatch, attributes, lazyHttpUrl);
+      }
+    }
+    return firstMatch;
+  }
+
+  // returns the first matching group that comes before the given group, or else the given group
+  private int getFirstMatch(
+      int[] groups, int before, Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
+    for (int group : groups) {
+      if (group >= before) {
+        break;
+      }
+      if (matcherGroups[group].matches(attributes, lazyHttpUrl)) {
+        return group;
+      }
+    }
+    return before;
+  }
+
+  @Nullable
+  private static SamplingOverrideAttribute getIndexAttribute(SamplingOverride override) {
+    for (SamplingOverrideAttribute attribute : override.attributes) {
+      if (attribute.matchType == MatchType.STRICT
+          && attribute.value != null
+          && !isHttpHeaderAttribute(attribute)) {
+        return attribute;
       }
     }
     return null;
   }
 
+  private static boolean isHttpHeaderAttribute(SamplingOverrideAttribute attribute) {
+    // note that response headers are not typically available for sampling
+    return attribute.key.startsWith("http.request.header.")
+        || attribute.key.startsWith("http.response.header.");
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+
+  private static class IndexedAttribute {
+    private final StringAttribute attribute;
+    private final Map<String, int[]> groupsByValue;
+
+    private IndexedAttribute(StringAttribute attribute, Map<String, int[]> groupsByValue) {
+      this.attribute = attribute;
+      this.groupsByValue = groupsByValue;
+    }
+  }
+
   private static class MatcherGroup {
-    private final List<TempPredicate> predicates;
+    private final TempPredicate[] predicates;
     private final Sampler sampler;
     // for now only support fixed percentage, but could extend sampling overrides to support
     // rate-limited sampling
     private final SamplingPercentage samplingPercentage;
 
     private MatcherGroup(SamplingOverride override) {
-      predicates = new ArrayList<>();
-      for (SamplingOverrideAttribute attribute : override.attributes) {
-        predicates.add(toPredicate(attribute));
+      predicates = new TempPredicate[override.attributes.size()];
+      for (int i = 0; i < predicates.length; i++) {
+        predicates[i] = toPredicate(override.attributes.get(i));
       }
       samplingPercentage = SamplingPercentage.fixed(override.percentage);
       sampler = new AiSampler(samplingPercentage, samplingPercentage, false);
@@ -83,15 +190,6 @@ public class SamplingOverrides {
       return true;
     }
 
-    static String getValueIncludingThreadName(
-        Attributes attributes, AttributeKey<String> attributeKey) {
-      if (attributeKey.getKey().equals(SemanticAttributes.THREAD_NAME.getKey())) {
-        return Thread.currentThread().getName();
-      } else {
-        return attributes.get(attributeKey);
-      }
-    }
-
     private static TempPredicate toPredicate(SamplingOverrideAttribute attribute) {
       if (attribute.matchType == MatchType.STRICT) {
         if (isHttpHeaderAttribute(attribute)) {
@@ -111,30 +209,46 @@ public class SamplingOverrides {
         throw new IllegalStateException("Unexpected match type: " + attribute.matchType);
       }
     }
+  }
+
+  // string attribute lookup, including the special cases that are not (or not always) attributes
+  private static class StringAttribute {
+    private final AttributeKey<String> key;
+    private final boolean threadName;
+    private final boolean httpUrl;
+
+    private StringAttribute(String key) {
+      this.key = AttributeKey.stringKey(key);
+      threadName = key.equals(SemanticAttributes.THREAD_NAME.getKey());
+      httpUrl = key.equals(SemanticAttributes.HTTP_URL.getKey());
+    }
 
-    private static boolean isHttpHeaderAttribute(SamplingOverrideAttribute attribute) {
-      // note that response headers are not typically available for sampling
-      return attribute.key.startsWith("http.request.header.")
-          || attribute.key.startsWith("http.response.header.");
+    @Nullable
+    private String get(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
+      if (threadName) {
+        return Thread.currentThread().getName();
+      }
+      String value = attributes.get(key);
+      if (value == null && httpUrl && lazyHttpUrl != null) {
+        // this is temporary until semantic attributes stabilize and we make breaking change
+        value = lazyHttpUrl.get();
+      }
+      return value;
     }
   }
 
   private static class StrictMatcher implements TempPredicate {
-    private final AttributeKey<String> key;
+    private final StringAttribute attribute;
     private final String value;
 
     private StrictMatcher(String key, String value) {
-      this.key = AttributeKey.stringKey(key);
+      this.attribute = new StringAttribute(key);
       this.value = value;
     }
 
     @Override
-    public boolean test(Attributes attributes, LazyHttpUrl lazyHttpUrl) {
-      String val = MatcherGroup.getValueIncludingThreadName(attributes, key);
-      if (val == null && key.getKey().equals(SemanticAttributes.HTTP_URL.getKey())) {
-        val = lazyHttpUrl.get();
-      }
-      return value.equals(val);
+    public boolean test(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
+      return value.equals(attribute.get(attributes, lazyHttpUrl));
     }
   }
 
@@ -148,40 +262,35 @@ public class SamplingOverrides {
     }
 
     @Override
-    public boolean test(Attributes attributes, LazyHttpUrl lazyHttpUrl) {
+    public boolean test(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
       List<String> val = attributes.get(key);
       return val != null && val.contains(value);
     }
   }
 
   private static class RegexpMatcher implements TempPredicate {
-    private final AttributeKey<String> key;
-    private final Pattern value;
+    private final StringAttribute attribute;
+    private final StringPredicate value;
 
     private RegexpMatcher(String key, String value) {
-      this.key = AttributeKey.stringKey(key);
-      this.value = Pattern.compile(value);
+      this.attribute = new StringAttribute(key);
+      this.value = compileRegex(value);
     }
 
     @Override
     public boolean test(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
-      String val = MatcherGroup.getValueIncludingThreadName(attributes, key);
-      if (val == null
-          && key.getKey().equals(SemanticAttributes.HTTP_URL.getKey())
-          && lazyHttpUrl != null) {
-        val = lazyHttpUrl.get();
-      }
-      return val != null && value.matcher(val).matches();
+      String val = attribute.get(attributes, lazyHttpUrl);
+      return val != null && value.test(val);
     }
   }
 
   private static class RegexpArrayContainsMatcher implements TempPredicate {
     private final AttributeKey<List<String>> key;
-    private final Pattern value;
+    private final StringPredicate value;
 
     private RegexpArrayContainsMatcher(String key, String value) {
       this.key = AttributeKey.stringArrayKey(key);
-      this.value = Pattern.compile(value);
+      this.value = compileRegex(value);
     }
 
     @Override
@@ -191,7 +300,7 @@ public class SamplingOverrides {
         return false;
       }
       for (String v : val) {
-        if (value.matcher(v).matches()) {
+        if (value.test(v)) {
           return true;
         }
       }
@@ -200,25 +309,90 @@ public class SamplingOverrides {
   }
 
   private static class KeyOnlyMatcher implements TempPredicate {
-    private final AttributeKey<String> key;
+    private final StringAttribute attribute;
 
     private KeyOnlyMatcher(String key) {
-      this.key = AttributeKey.stringKey(key);
+      this.attribute = new StringAttribute(key);
     }
 
     @Override
     public boolean test(Attributes attributes, @Nullable LazyHttpUrl lazyHttpUrl) {
-      String val = MatcherGroup.getValueIncludingThreadName(attributes, key);
-      if (val == null
-          && key.getKey().equals(SemanticAttributes.HTTP_URL.getKey())
-          && lazyHttpUrl != null) {
-        val = lazyHttpUrl.get();
+      return attribute.get(attributes, lazyHttpUrl) != null;
+    }
+  }
+
+  // the regex always has to match the entire value, so the common forms "literal", "literal.*",
+  // ".*literal" and ".*literal.*" are turned into plain string comparisons, which (unlike
+  // Pattern.matcher()) don't allocate
+  private static StringPredicate compileRegex(String regex) {
+    Pattern pattern = Pattern.compile(regex);
+    boolean anyPrefix = regex.startsWith(".*");
+    String remaining = anyPrefix ? regex.substring(2) : regex;
+    // (not when the "." is escaped)
+    boolean anySuffix = remaining.endsWith(".*") && !remaining.endsWith("\\.*");
+    if (anySuffix) {
+      remaining = remaining.substring(0, remaining.length() - 2);
+    }
+    String literal = toLiteral(remaining);
+    if (literal == null) {
+      return value -> pattern.matcher(value).matches();
+    }
+    if (!anyPrefix && !anySuffix) {
+      return literal::equals;
+    }
+    StringPredicate wildcardMatch;
+    if (anyPrefix && anySuffix) {
+      wildcardMatch = value -> value.contains(literal);
+    } else if (anyPrefix) {
+      wildcardMatch = value -> value.endsWith(literal);
+    } else {
+      wildcardMatch = value -> value.startsWith(literal);
+    }
+    // "." doesn't match line terminators, so those values (which are rare) still go through the
+    // regex
+    return value ->
+        hasLineTerminator(value) ? pattern.matcher(value).matches() : wildcardMatch.test(value);
+  }
+
+  private static boolean hasLineTerminator(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+        return true;
       }
-      return val != null;
     }
+    return false;
+  }
+
+  // returns null if the regex is not a plain literal (after unescaping)
+  @Nullable
+  private static String toLiteral(String regex) {
+    StringBuilder literal = new StringBuilder(regex.length());
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (i + 1 == regex.length()) {
+          return null;
+        }
+        char next = regex.charAt(++i);
+        if (Character.isLetterOrDigit(next)) {
+          // e.g. \d, \s, \Q
+          return null;
+        }
+        literal.append(next);
+      } else if ("^$.|?*+()[]{}".indexOf(c) != -1) {
+        return null;
+      } else {
+        literal.append(c);
+      }
+    }
+    return literal.toString();
+  }
+
+  private interface StringPredicate {
+    boolean test(String value);
   }
 
-  // this is temporary until semantic attributes stabilize and we make breaking change
   private static class LazyHttpUrl {
     private final Attributes attributes;
     private boolean initialized;
@@ -228,6 +402,7 @@ public class SamplingOverrides {
       this.attributes = attributes;
     }
 
+    @Nullable
     private String get() {
       if (!initialized) {
         value = SpanDataMapper.getHttpUrlFromServerSpan(attributes);
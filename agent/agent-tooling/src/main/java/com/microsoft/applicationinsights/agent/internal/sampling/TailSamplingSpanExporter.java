@@ -0,0 +1,275 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.sampling;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.AiSemanticAttributes;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.TailSampling;
+import com.microsoft.applicationinsights.agent.internal.processors.MySpanData;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import javax.annotation.Nullable;
+
+// tail sampling: buffers the (already head sampled) spans of each trace until its local root span
+// ends, and then keeps or drops the whole trace based on errors, latency and attribute overrides
+//
+// traces are kept at the highest percentage of any of their spans, and traces that are kept at
+// less than 100% have their item count scaled up accordingly, so that counts stay correct in Azure
+// Monitor
+//
+// memory is bounded by maxBufferedSpans and maxBufferedSeconds, once either is exceeded the oldest
+// traces are decided early, based on the spans that have been buffered for them so far (the age
+// of the buffered traces is also checked periodically, so that traces are not held on to when no
+// more spans arrive)
+//
+// note that this sits in front of the exporter that also feeds live metrics, so live metrics only
+// sees the spans of the traces that are kept
+public final class TailSamplingSpanExporter implements SpanExporter {
+
+  private static final double DROPPED = 0;
+
+  private static final long EXPIRATION_CHECK_INTERVAL_MILLIS = 1000;
+
+  private final SpanExporter delegate;
+
+  private final double percentage;
+  private final boolean keepErrors;
+  private final long latencyThresholdNanos;
+  private final SamplingOverrides overrides;
+  private final int maxBufferedSpans;
+  private final long maxBufferedNanos;
+
+  private final Object lock = new Object();
+
+  // in the order that the first span of each trace arrived
+  private final Map<String, BufferedTrace> buffer = new LinkedHashMap<>();
+  private int bufferedSpans;
+
+  private final LongSupplier nanoTime;
+
+  // null in tests, which check for expired traces themselves
+  @Nullable private final ScheduledExecutorService scheduledExecutor;
+
+  // decisions for recently decided traces, so that spans which end after their local root (e.g.
+  // async work that was started by the request) follow the same decision as the rest of the trace
+  private final Cache<String, Double> decisions;
+
+  public TailSamplingSpanExporter(TailSampling config, SpanExporter delegate) {
+    this(
+        config,
+        delegate,
+        System::nanoTime,
+        Executors.newSingleThreadScheduledExecutor(
+            ThreadPoolUtils.createDaemonThreadFactory(TailSamplingSpanExporter.class)));
+  }
+
+  // visible for testing
+  TailSamplingSpanExporter(
+      TailSampling config,
+      SpanExporter delegate,
+      LongSupplier nanoTime,
+      @Nullable ScheduledExecutorService scheduledExecutor) {
+    this.delegate = delegate;
+    percentage = config.percentage;
+    keepErrors = config.keepErrors;
+    latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.latencyThresholdMillis);
+    overrides = new SamplingOverrides(config.overrides);
+    maxBufferedSpans = config.maxBufferedSpans;
+    maxBufferedNanos = TimeUnit.SECONDS.toNanos(config.maxBufferedSeconds);
+    decisions = Cache.bounded(config.maxBufferedSpans);
+    this.nanoTime = nanoTime;
+    this.scheduledExecutor = scheduledExecutor;
+    if (scheduledExecutor != null) {
+      scheduledExecutor.scheduleWithFixedDelay(
+          this::exportExpired,
+          EXPIRATION_CHECK_INTERVAL_MILLIS,
+          EXPIRATION_CHECK_INTERVAL_MILLIS,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public CompletableResultCode export(Collection<SpanData> spans) {
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (lock) {
+      long now = nanoTime.getAsLong();
+      for (SpanData span : spans) {
+        add(span, now, kept);
+      }
+      evictIfNeeded(now, kept);
+    }
+    return kept.isEmpty() ? CompletableResultCode.ofSuccess() : delegate.export(kept);
+  }
+
+  // visible for testing
+  void exportExpired() {
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (lock) {
+      evictIfNeeded(nanoTime.getAsLong(), kept);
+    }
+    if (!kept.isEmpty()) {
+      delegate.export(kept);
+    }
+  }
+
+  // decides all buffered traces, including the ones whose local root has not ended yet
+  @Override
+  public CompletableResultCode flush() {
+    List<SpanData> kept = new ArrayList<>();
+    synchronized (lock) {
+      for (Map.Entry<String, BufferedTrace> entry : buffer.entrySet()) {
+        decide(entry.getKey(), entry.getValue(), kept);
+      }
+      buffer.clear();
+    }
+    CompletableResultCode exportResult =
+        kept.isEmpty() ? CompletableResultCode.ofSuccess() : delegate.export(kept);
+    return CompletableResultCode.ofAll(Arrays.asList(exportResult, delegate.flush()));
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    if (scheduledExecutor != null) {
+      scheduledExecutor.shutdown();
+    }
+    flush();
+    return delegate.shutdown();
+  }
+
+  // visible for testing
+  int getBufferedSpans() {
+    synchronized (lock) {
+      return bufferedSpans;
+    }
+  }
+
+  // must be called while holding the lock
+  private void add(SpanData span, long now, List<SpanData> kept) {
+    String traceId = span.getTraceId();
+    Double decision = decisions.get(traceId);
+    if (decision != null) {
+      addIfKept(span, decision, kept);
+      return;
+    }
+
+    BufferedTrace trace = buffer.get(traceId);
+    if (trace == null) {
+      trace = new BufferedTrace(span, now);
+      buffer.put(traceId, trace);
+    }
+    trace.add(span, getPercentage(span));
+    bufferedSpans++;
+
+    if (isLocalRoot(span)) {
+      buffer.remove(traceId);
+      decide(traceId, trace, kept);
+    }
+  }
+
+  // must be called while holding the lock
+  private void evictIfNeeded(long now, List<SpanData> kept) {
+    Iterator<Map.Entry<String, BufferedTrace>> i = buffer.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<String, BufferedTrace> entry = i.next();
+      BufferedTrace trace = entry.getValue();
+      if (bufferedSpans <= maxBufferedSpans && now - trace.bufferedAtNanos < maxBufferedNanos) {
+        break;
+      }
+      i.remove();
+      decide(entry.getKey(), trace, kept);
+    }
+  }
+
+  // must be called while holding the lock (and the trace must already be removed from the buffer)
+  private void decide(String traceId, BufferedTrace trace, List<SpanData> kept) {
+    bufferedSpans -= trace.spans.size();
+
+    double decision = trace.percentage;
+    // the trace has already been head sampled at 100 / itemCount percent, and since both decisions
+    // use the same trace id score, this keeps the given percentage of the head sampled traces
+    if (decision != 100
+        && !AiSampler.shouldRecordAndSample(traceId, decision / trace.headItemCount)) {
+      decision = DROPPED;
+    }
+    decisions.put(traceId, decision);
+
+    for (SpanData span : trace.spans) {
+      addIfKept(span, decision, kept);
+    }
+  }
+
+  private double getPercentage(SpanData span) {
+    if (keepErrors && span.getStatus().getStatusCode() == StatusCode.ERROR) {
+      return 100;
+    }
+    // this looks at every span and not only at the local root, so that it also applies to traces
+    // that have to be decided before their local root ends
+    if (latencyThresholdNanos > 0
+        && span.getEndEpochNanos() - span.getStartEpochNanos() >= latencyThresholdNanos) {
+      return 100;
+    }
+    Double overridePercentage = overrides.getOverridePercentage(span.getAttributes());
+    return overridePercentage != null ? overridePercentage : percentage;
+  }
+
+  private static void addIfKept(SpanData span, double decision, List<SpanData> kept) {
+    if (decision == DROPPED) {
+      return;
+    }
+    if (decision == 100) {
+      kept.add(span);
+      return;
+    }
+    long itemCount = Math.round(getItemCount(span) * 100 / decision);
+    kept.add(
+        new MySpanData(
+            span,
+            span.getAttributes().toBuilder()
+                .put(AiSemanticAttributes.ITEM_COUNT, itemCount)
+                .build()));
+  }
+
+  private static long getItemCount(SpanData span) {
+    Long itemCount = span.getAttributes().get(AiSemanticAttributes.ITEM_COUNT);
+    return itemCount == null ? 1 : itemCount;
+  }
+
+  private static boolean isLocalRoot(SpanData span) {
+    SpanContext parentSpanContext = span.getParentSpanContext();
+    return !parentSpanContext.isValid() || parentSpanContext.isRemote();
+  }
+
+  private static class BufferedTrace {
+
+    private final List<SpanData> spans = new ArrayList<>();
+    private final long bufferedAtNanos;
+    private final long headItemCount;
+    private double percentage;
+
+    private BufferedTrace(SpanData firstSpan, long bufferedAtNanos) {
+      this.bufferedAtNanos = bufferedAtNanos;
+      headItemCount = getItemCount(firstSpan);
+    }
+
+    private void add(SpanData span, double spanPercentage) {
+      spans.add(span);
+      percentage = Math.max(percentage, spanPercentage);
+    }
+  }
+}
@@ -14,6 +14,7 @@ import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.internal.DaemonThreadFactory;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -23,6 +24,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 // copied from io.opentelemetry.sdk.trace.export.BatchSpanProcessor
 public final class BatchItemProcessor {
@@ -32,7 +34,8 @@ public final class BatchItemProcessor {
   private static final String WORKER_THREAD_NAME =
       BatchItemProcessor.class.getSimpleName() + "_WorkerThread";
 
-  private final Worker worker;
+  private final TelemetryItemExporter exporter;
+  private final Worker[] workers;
   private final AtomicBoolean isShutdown = new AtomicBoolean(false);
 
   /**
@@ -53,37 +56,105 @@ public final class BatchItemProcessor {
       int maxExportBatchSize,
       long exporterTimeoutNanos,
       int maxPendingExports,
+      int workerCount,
+      @Nullable DiskOverflowQueue overflow,
       String queueName) {
-    MpscArrayQueue<TelemetryItem> queue = new MpscArrayQueue<>(maxQueueSize);
-    this.worker =
-        new Worker(
-            exporter,
-            scheduleDelayNanos,
-            maxExportBatchSize,
-            exporterTimeoutNanos,
-            maxPendingExports,
-            queue,
-            queue.capacity(),
-            queueName);
-
-    Thread workerThread = new DaemonThreadFactory(WORKER_THREAD_NAME).newThread(worker);
-    workerThread.setUncaughtExceptionHandler((t, e) -> logger.error(e.getMessage(), e));
-    workerThread.start();
+    this.exporter = exporter;
+
+    // the configured queue size is split across the workers, but each queue rounds its capacity up
+    // to the next power of two (just like a single queue does), so unless the size per worker is a
+    // power of two, the total capacity can be up to almost twice the configured size (the actual
+    // total capacity is what gets reported when items are dropped)
+    int maxShardQueueSize = (maxQueueSize + workerCount - 1) / workerCount;
+    List<MpscArrayQueue<TelemetryItem>> queues = new ArrayList<>(workerCount);
+    int totalQueueCapacity = 0;
+    for (int i = 0; i < workerCount; i++) {
+      MpscArrayQueue<TelemetryItem> queue = new MpscArrayQueue<>(maxShardQueueSize);
+      queues.add(queue);
+      totalQueueCapacity += queue.capacity();
+    }
+
+    DaemonThreadFactory threadFactory = new DaemonThreadFactory(WORKER_THREAD_NAME);
+    workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      Worker worker =
+          new Worker(
+              exporter,
+              scheduleDelayNanos,
+              maxExportBatchSize,
+              exporterTimeoutNanos,
+              maxPendingExports,
+              queues.get(i),
+              totalQueueCapacity,
+              overflow,
+              queueName);
+      workers[i] = worker;
+
+      Thread workerThread = threadFactory.newThread(worker);
+      workerThread.setUncaughtExceptionHandler((t, e) -> logger.error(e.getMessage(), e));
+      workerThread.start();
+    }
   }
 
   public void trackAsync(TelemetryItem item) {
-    worker.addItem(item);
+    getWorker().addItem(item);
+  }
+
+  // items from the same thread always go to the same worker, which keeps per-thread ordering and
+  // spreads the producers across the workers without any coordination between them
+  private Worker getWorker() {
+    if (workers.length == 1) {
+      return workers[0];
+    }
+    return workers[(int) (Thread.currentThread().getId() % workers.length)];
   }
 
   public CompletableResultCode shutdown() {
     if (isShutdown.getAndSet(true)) {
       return CompletableResultCode.ofSuccess();
     }
-    return worker.shutdown();
+    CompletableResultCode result = new CompletableResultCode();
+
+    CompletableResultCode flushResult = forceFlush();
+    flushResult.whenComplete(
+        () -> {
+          for (Worker worker : workers) {
+            worker.continueWork = false;
+          }
+          if (!flushResult.isSuccess()) {
+            result.fail();
+          } else {
+            result.succeed();
+          }
+        });
+
+    return result;
   }
 
   public CompletableResultCode forceFlush() {
-    return worker.forceFlush();
+    List<CompletableResultCode> workerResults = new ArrayList<>(workers.length);
+    for (Worker worker : workers) {
+      workerResults.add(worker.forceFlushWorker());
+    }
+    CompletableResultCode overallResult = new CompletableResultCode();
+    CompletableResultCode workerResult = CompletableResultCode.ofAll(workerResults);
+    workerResult.whenComplete(
+        () -> {
+          if (!workerResult.isSuccess()) {
+            overallResult.fail();
+            return;
+          }
+          CompletableResultCode exporterResult = exporter.flush();
+          exporterResult.whenComplete(
+              () -> {
+                if (exporterResult.isSuccess()) {
+                  overallResult.succeed();
+                } else {
+                  overallResult.fail();
+                }
+              });
+        });
+    return overallResult;
   }
 
   // Worker is a thread that batches multiple items and calls the registered TelemetryItemExporter
@@ -100,6 +171,8 @@ public final class BatchItemProcessor {
 
     private final Queue<TelemetryItem> queue;
     private final int queueCapacity;
+    // shared by all of the workers, and only used once the queue is full
+    @Nullable private final DiskOverflowQueue overflow;
     private final String queueName;
     // When waiting on the items queue, exporter thread sets this atomic to the number of more
     // items it needs before doing an export. Writer threads would then wait for the queue to reach
@@ -130,6 +203,7 @@ public final class BatchItemProcessor {
         int maxPendingExports,
         Queue<TelemetryItem> queue,
         int queueCapacity,
+        @Nullable DiskOverflowQueue overflow,
         String queueName) {
       this.exporter = exporter;
       this.scheduleDelayNanos = scheduleDelayNanos;
@@ -138,6 +212,7 @@ public final class BatchItemProcessor {
       this.maxPendingExports = maxPendingExports;
       this.queue = queue;
       this.queueCapacity = queueCapacity;
+      this.overflow = overflow;
       this.queueName = queueName;
       this.signal = new ArrayBlockingQueue<>(1);
       this.batch = new ArrayList<>(this.maxExportBatchSize);
@@ -145,6 +220,10 @@ public final class BatchItemProcessor {
 
     private void addItem(TelemetryItem item) {
       if (!queue.offer(item)) {
+        if (overflow != null && overflow.offer(item)) {
+          // the worker is already busy draining the full queue, and picks up the overflow after
+          return;
+        }
         queuingItemLogger.recordFailure(
             "Max "
                 + queueName
@@ -178,11 +257,15 @@ public final class BatchItemProcessor {
         while (!queue.isEmpty() && batch.size() < maxExportBatchSize) {
           batch.add(queue.poll());
         }
+        if (overflow != null && queue.isEmpty()) {
+          // the queue has caught up, so now there is room to pick up the items that overflowed
+          overflow.drainTo(batch, maxExportBatchSize);
+        }
         if (batch.size() >= maxExportBatchSize || System.nanoTime() >= nextExportTime) {
           exportCurrentBatch();
           updateNextExportTime();
         }
-        if (queue.isEmpty()) {
+        if (queue.isEmpty() && (overflow == null || overflow.isEmpty())) {
           try {
             long pollWaitTime = nextExportTime - System.nanoTime();
             if (pollWaitTime > 0) {
@@ -209,6 +292,20 @@ public final class BatchItemProcessor {
           exportCurrentBatch();
         }
       }
+      if (overflow != null) {
+        // bounded by the current size, otherwise producers could keep the flush going forever
+        int overflowItemsToFlush = overflow.size();
+        while (overflowItemsToFlush > 0) {
+          TelemetryItem item = overflow.poll();
+          overflowItemsToFlush--;
+          if (item != null) {
+            batch.add(item);
+            if (batch.size() >= maxExportBatchSize) {
+              exportCurrentBatch();
+            }
+          }
+        }
+      }
       exportCurrentBatch();
       CompletableResultCode.ofAll(pendingExports).join(exporterTimeoutNanos, TimeUnit.NANOSECONDS);
       CompletableResultCode flushResult = flushRequested.get();
@@ -222,45 +319,6 @@ public final class BatchItemProcessor {
       nextExportTime = System.nanoTime() + scheduleDelayNanos;
     }
 
-    private CompletableResultCode shutdown() {
-      CompletableResultCode result = new CompletableResultCode();
-
-      CompletableResultCode flushResult = forceFlush();
-      flushResult.whenComplete(
-          () -> {
-            continueWork = false;
-            if (!flushResult.isSuccess()) {
-              result.fail();
-            } else {
-              result.succeed();
-            }
-          });
-
-      return result;
-    }
-
-    private CompletableResultCode forceFlush() {
-      CompletableResultCode overallResult = new CompletableResultCode();
-      CompletableResultCode workerResult = forceFlushWorker();
-      workerResult.whenComplete(
-          () -> {
-            if (!workerResult.isSuccess()) {
-              overallResult.fail();
-              return;
-            }
-            CompletableResultCode exporterResult = exporter.flush();
-            exporterResult.whenComplete(
-                () -> {
-                  if (exporterResult.isSuccess()) {
-                    overallResult.succeed();
-                  } else {
-                    overallResult.fail();
-                  }
-                });
-          });
-      return overallResult;
-    }
-
     private CompletableResultCode forceFlushWorker() {
       CompletableResultCode flushResult = new CompletableResultCode();
       // we set the atomic here to trigger the worker loop to do a flush of the entire queue.
@@ -8,6 +8,7 @@ import static java.util.Objects.requireNonNull;
 
 import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.TelemetryItemExporter;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 // copied from io.opentelemetry.sdk.trace.export.BatchSpanProcessorBuilder
 final class BatchItemProcessorBuilder {
@@ -19,6 +20,7 @@ final class BatchItemProcessorBuilder {
   private static final int DEFAULT_MAX_QUEUE_SIZE = 2048;
   private static final int DEFAULT_MAX_EXPORT_BATCH_SIZE = 512;
   private static final int DEFAULT_MAX_PENDING_EXPORTS = 1;
+  private static final int DEFAULT_WORKER_COUNT = 1;
 
   private final TelemetryItemExporter exporter;
   private final long scheduleDelayNanos =
@@ -29,6 +31,8 @@ final class BatchItemProcessorBuilder {
   private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
   private int maxExportBatchSize = DEFAULT_MAX_EXPORT_BATCH_SIZE;
   private int maxPendingExports = DEFAULT_MAX_PENDING_EXPORTS;
+  private int workerCount = DEFAULT_WORKER_COUNT;
+  @Nullable private DiskOverflowQueue overflow;
 
   BatchItemProcessorBuilder(TelemetryItemExporter exporter) {
     this.exporter = requireNonNull(exporter, "exporter");
@@ -72,7 +76,7 @@ final class BatchItemProcessorBuilder {
   /**
    * The maximum number of exports that can be pending at any time.
    *
-   * <p>The {@link BatchItemProcessor}'s single worker thread will keep processing as many batches
+   * <p>Each of the {@link BatchItemProcessor}'s worker threads will keep processing as many batches
    * as it can without blocking on the {@link io.opentelemetry.sdk.common.CompletableResultCode}s
    * that are returned from the {@code spanExporter}, but it will limit the total number of pending
    * exports in flight to this number.
@@ -89,6 +93,41 @@ final class BatchItemProcessorBuilder {
     return this;
   }
 
+  /**
+   * Sets the number of worker threads, each with its own queue. Items are assigned to a worker by
+   * the thread that submits them, so under load from many threads the batching and exporting work
+   * is spread across the workers instead of being serialized through a single thread.
+   *
+   * <p>The max queue size is split evenly across the workers (and, as with a single worker, each
+   * worker's queue is rounded up to a power of two), and the max pending exports applies to each
+   * worker.
+   *
+   * <p>Default value is {@code 1}.
+   *
+   * @param workerCount the number of worker threads.
+   * @return this.
+   * @see BatchItemProcessorBuilder#DEFAULT_WORKER_COUNT
+   */
+  public BatchItemProcessorBuilder setWorkerCount(int workerCount) {
+    checkArgument(workerCount > 0, "workerCount must be positive.");
+    this.workerCount = workerCount;
+    return this;
+  }
+
+  /**
+   * Sets the overflow tier that items are spilled to when the queue is full, instead of being
+   * dropped. Items in the overflow are drained back into the batches once the queue has caught up.
+   *
+   * <p>Default value is {@code null}, i.e. items are dropped when the queue is full.
+   *
+   * @param overflow the overflow tier.
+   * @return this.
+   */
+  BatchItemProcessorBuilder setOverflow(@Nullable DiskOverflowQueue overflow) {
+    this.overflow = overflow;
+    return this;
+  }
+
   /**
    * Returns a new {@link BatchItemProcessor} that batches, then converts items to proto and
    * forwards them to the given {@code exporter}.
@@ -104,6 +143,8 @@ final class BatchItemProcessorBuilder {
         maxExportBatchSize,
         exporterTimeoutNanos,
         maxPendingExports,
+        workerCount,
+        overflow,
         queueName);
   }
 }
@@ -0,0 +1,329 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static com.azure.monitor.opentelemetry.exporter.implementation.utils.AzureMonitorMsgId.BATCH_ITEM_PROCESSOR_ERROR;
+
+import com.azure.core.util.serializer.JacksonAdapter;
+import com.azure.core.util.serializer.SerializerAdapter;
+import com.azure.core.util.serializer.SerializerEncoding;
+import com.azure.monitor.opentelemetry.exporter.implementation.configuration.ConnectionString;
+import com.azure.monitor.opentelemetry.exporter.implementation.logging.OperationLogger;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// overflow tier for the BatchItemProcessor queues
+//
+// items that don't fit in the in-memory queue are serialized into a fixed ring of memory-mapped
+// segment files, and are drained back into the batch worker once it has caught up, so that short
+// ingestion slowdowns turn into latency instead of data loss, without growing the heap
+//
+// the segments are not meant to survive restarts (that is the job of the local storage that sits
+// behind the TelemetryItemExporter), so they are created in a fresh directory for every process
+//
+// the directory is only deleted on a normal exit, so each process holds a lock on a file in its
+// directory for as long as it is running, and directories that are no longer locked by anyone
+// (e.g. after the process was killed) are deleted the next time an overflow is created
+final class DiskOverflowQueue {
+
+  private static final Logger logger = LoggerFactory.getLogger(DiskOverflowQueue.class);
+
+  static final int SEGMENT_SIZE = 1024 * 1024;
+
+  private static final String DIR_PREFIX = "overflow-";
+  private static final String LOCK_FILE_NAME = "lock";
+
+  // a directory that was just created by another process may not be locked yet
+  private static final long STALE_DIR_MIN_AGE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  // record header: length of the serialized item, followed by the connection string index
+  private static final int HEADER_SIZE = 8;
+
+  private static final int NO_CONNECTION_STRING = -1;
+
+  // in practice there are only a handful of connection strings (one, plus connection string
+  // overrides), this just puts a bound on it
+  private static final int MAX_CONNECTION_STRINGS = 1000;
+
+  private static final OperationLogger overflowLogger =
+      new OperationLogger(DiskOverflowQueue.class, "Spilling telemetry item to disk");
+
+  private static final OperationLogger drainLogger =
+      new OperationLogger(DiskOverflowQueue.class, "Reading telemetry item back from disk");
+
+  private final SerializerAdapter serializer = JacksonAdapter.createDefaultSerializerAdapter();
+
+  private final File dir;
+  // held (and never released) for the life of the process, see above
+  @SuppressWarnings("unused") // only referenced so that it is not released when garbage collected
+  @Nullable
+  private final FileLock dirLock;
+  private final MappedByteBuffer[] segments;
+  private final int[] segmentLimits;
+
+  // ConnectionString is not part of the serialized item, but it is referenced by identity from the
+  // items, so it is kept here and only its index is written to disk
+  private final List<ConnectionString> connectionStrings = new ArrayList<>();
+
+  private int head;
+  private int headOffset;
+  private int tail;
+  private int usedSegments;
+  private int itemCount;
+
+  // this is read without holding the lock by the worker loop, which only uses it as a hint
+  private volatile boolean empty = true;
+
+  static DiskOverflowQueue create(File parentDir, String queueName, int maxSizeMb)
+      throws IOException {
+    String prefix = DIR_PREFIX + queueName + "-";
+    deleteStaleDirs(parentDir, prefix);
+    File dir = Files.createTempDirectory(parentDir.toPath(), prefix).toFile();
+    dir.deleteOnExit();
+    File lockFile = new File(dir, LOCK_FILE_NAME);
+    lockFile.deleteOnExit();
+    FileLock dirLock =
+        FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)
+            .lock();
+    int maxSegments = (int) Math.max(1, (maxSizeMb * 1024L * 1024L) / SEGMENT_SIZE);
+    return new DiskOverflowQueue(dir, dirLock, maxSegments);
+  }
+
+  DiskOverflowQueue(File dir, int maxSegments) {
+    this(dir, null, maxSegments);
+  }
+
+  private DiskOverflowQueue(File dir, @Nullable FileLock dirLock, int maxSegments) {
+    this.dir = dir;
+    this.dirLock = dirLock;
+    this.segments = new MappedByteBuffer[maxSegments];
+    this.segmentLimits = new int[maxSegments];
+  }
+
+  boolean isEmpty() {
+    return empty;
+  }
+
+  synchronized int size() {
+    return itemCount;
+  }
+
+  // returns false if the item could not be stored, in which case the caller is expected to drop it
+  boolean offer(TelemetryItem item) {
+    // the item is serialized before taking the lock, so that producers only contend on the copy
+    // into the segment
+    byte[] bytes;
+    try {
+      bytes = serializer.serializeToBytes(item, SerializerEncoding.JSON);
+    } catch (IOException | RuntimeException e) {
+      overflowLogger.recordFailure(e.getMessage(), e, BATCH_ITEM_PROCESSOR_ERROR);
+      return false;
+    }
+    int recordSize = HEADER_SIZE + bytes.length;
+    if (recordSize > SEGMENT_SIZE) {
+      return false;
+    }
+    while (true) {
+      int unmappedSegment;
+      synchronized (this) {
+        int connectionStringIndex = indexOf(item.getConnectionString());
+        if (connectionStringIndex == MAX_CONNECTION_STRINGS) {
+          return false;
+        }
+        int target;
+        if (usedSegments == 0) {
+          target = tail;
+        } else if (segmentLimits[tail] + recordSize > SEGMENT_SIZE) {
+          if (usedSegments == segments.length) {
+            // overflow is full too
+            return false;
+          }
+          target = (tail + 1) % segments.length;
+        } else {
+          target = tail;
+        }
+        MappedByteBuffer segment = segments[target];
+        if (segment != null) {
+          if (usedSegments == 0) {
+            head = target;
+            headOffset = 0;
+            segmentLimits[target] = 0;
+            usedSegments = 1;
+          } else if (target != tail) {
+            segmentLimits[target] = 0;
+            usedSegments++;
+          }
+          tail = target;
+          segment.position(segmentLimits[tail]);
+          segment.putInt(bytes.length);
+          segment.putInt(connectionStringIndex);
+          segment.put(bytes);
+          segmentLimits[tail] += recordSize;
+          itemCount++;
+          empty = false;
+          break;
+        }
+        unmappedSegment = target;
+      }
+      // creating and mapping the segment file is done without holding the lock, and then the
+      // space is looked up again, since other items may have been offered or polled meanwhile
+      try {
+        mapSegment(unmappedSegment);
+      } catch (IOException e) {
+        overflowLogger.recordFailure(e.getMessage(), e, BATCH_ITEM_PROCESSOR_ERROR);
+        return false;
+      }
+    }
+    overflowLogger.recordSuccess();
+    return true;
+  }
+
+  @Nullable
+  TelemetryItem poll() {
+    byte[] bytes;
+    int connectionStringIndex;
+    synchronized (this) {
+      if (itemCount == 0) {
+        return null;
+      }
+      MappedByteBuffer segment = segments[head];
+      segment.position(headOffset);
+      bytes = new byte[segment.getInt()];
+      connectionStringIndex = segment.getInt();
+      segment.get(bytes);
+      headOffset += HEADER_SIZE + bytes.length;
+      itemCount--;
+      if (itemCount == 0) {
+        // start over at the beginning of the current segment instead of moving through the ring
+        usedSegments = 0;
+        tail = head;
+        empty = true;
+      } else if (headOffset >= segmentLimits[head]) {
+        // the head segment has been fully read, and since there are still items, it can't be the
+        // tail segment, so it can be handed back to the writer right away
+        head = (head + 1) % segments.length;
+        headOffset = 0;
+        usedSegments--;
+      }
+    }
+    try {
+      TelemetryItem item =
+          serializer.deserialize(bytes, TelemetryItem.class, SerializerEncoding.JSON);
+      if (connectionStringIndex != NO_CONNECTION_STRING) {
+        item.setConnectionString(getConnectionString(connectionStringIndex));
+      }
+      drainLogger.recordSuccess();
+      return item;
+    } catch (IOException | RuntimeException e) {
+      drainLogger.recordFailure(e.getMessage(), e, BATCH_ITEM_PROCESSOR_ERROR);
+      return null;
+    }
+  }
+
+  // drains into the batch until it reaches maxBatchSize (or until there is nothing left)
+  void drainTo(List<TelemetryItem> batch, int maxBatchSize) {
+    while (batch.size() < maxBatchSize && !empty) {
+      TelemetryItem item = poll();
+      if (item != null) {
+        batch.add(item);
+      }
+    }
+  }
+
+  private synchronized ConnectionString getConnectionString(int index) {
+    return connectionStrings.get(index);
+  }
+
+  // must be called while holding the lock
+  private int indexOf(@Nullable ConnectionString connectionString) {
+    if (connectionString == null) {
+      return NO_CONNECTION_STRING;
+    }
+    for (int i = 0; i < connectionStrings.size(); i++) {
+      if (connectionStrings.get(i) == connectionString) {
+        return i;
+      }
+    }
+    if (connectionStrings.size() == MAX_CONNECTION_STRINGS) {
+      return MAX_CONNECTION_STRINGS;
+    }
+    connectionStrings.add(connectionString);
+    return connectionStrings.size() - 1;
+  }
+
+  // segments are mapped lazily and then reused for the life of the process, which avoids having
+  // to delete mapped files (which is not possible on Windows until the mapping is garbage
+  // collected)
+  private void mapSegment(int index) throws IOException {
+    File file = new File(dir, "segment-" + index + ".bin");
+    file.deleteOnExit();
+    MappedByteBuffer segment;
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+    }
+    synchronized (this) {
+      // another producer may have mapped it at the same time, in which case its mapping is kept
+      // (both are mappings of the same file, and neither has been written to yet)
+      if (segments[index] == null) {
+        segments[index] = segment;
+      }
+    }
+  }
+
+  private static void deleteStaleDirs(File parentDir, String prefix) {
+    File[] dirs = parentDir.listFiles(file -> file.getName().startsWith(prefix));
+    if (dirs == null) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    for (File dir : dirs) {
+      if (!dir.isDirectory() || now - dir.lastModified() < STALE_DIR_MIN_AGE_MILLIS) {
+        continue;
+      }
+      File lockFile = new File(dir, LOCK_FILE_NAME);
+      try (FileChannel channel =
+          FileChannel.open(
+              lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+        FileLock lock;
+        try {
+          lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+          // locked by this process
+          continue;
+        }
+        if (lock == null) {
+          // locked by another process that is still running
+          continue;
+        }
+        File[] files = dir.listFiles(file -> !file.getName().equals(LOCK_FILE_NAME));
+        if (files != null) {
+          for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+          }
+        }
+      } catch (IOException e) {
+        logger.debug("Could not delete stale overflow directory {}", dir, e);
+        continue;
+      }
+      // the lock file can only be deleted on Windows once it has been closed
+      if (!lockFile.delete() || !dir.delete()) {
+        logger.debug("Could not delete stale overflow directory {}", dir);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import com.azure.core.http.HttpPipelineCallContext;
+import com.azure.core.http.HttpPipelineNextPolicy;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.http.policy.HttpPipelinePolicy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Tracks whether a Live Metrics client is connected, from the header that the live metrics service
+ * returns on every ping and post.
+ *
+ * <p>While no client is connected, live metrics discards the telemetry that it is given, so there
+ * is no point in handing it over (see {@link TelemetryFanOut}).
+ */
+public final class LiveMetricsSessionPolicy implements HttpPipelinePolicy {
+
+  private static final String SUBSCRIBED_HEADER = "x-ms-qps-subscribed";
+
+  private volatile boolean subscribed;
+
+  @Override
+  public Mono<HttpResponse> process(HttpPipelineCallContext context, HttpPipelineNextPolicy next) {
+    return next.process()
+        .doOnNext(
+            response -> {
+              String value = response.getHeaderValue(SUBSCRIBED_HEADER);
+              if (value != null) {
+                subscribed = Boolean.parseBoolean(value);
+              }
+            })
+        // live metrics goes back to pinging when a post fails, and only starts collecting again
+        // once a ping says that a client is connected
+        .doOnError(e -> subscribed = false);
+  }
+
+  /** Returns true if a Live Metrics client was connected as of the last response. */
+  public boolean isSubscribed() {
+    return subscribed;
+  }
+}
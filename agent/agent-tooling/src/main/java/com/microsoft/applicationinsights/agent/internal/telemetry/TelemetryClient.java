@@ -38,6 +38,7 @@ import io.opentelemetry.sdk.autoconfigure.spi.internal.DefaultConfigProperties;
 import io.opentelemetry.sdk.common.CompletableResultCode;
 import io.opentelemetry.sdk.resources.Resource;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -46,9 +47,13 @@ import java.util.Map;
 import java.util.function.Supplier;
 import javax.annotation.Nullable;
 import org.apache.commons.text.StringSubstitutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class TelemetryClient {
 
+  private static final Logger logger = LoggerFactory.getLogger(TelemetryClient.class);
+
   private static final String TELEMETRY_FOLDER_NAME = "telemetry";
 
   @Nullable private static volatile TelemetryClient active;
@@ -77,10 +82,15 @@ public class TelemetryClient {
   @Nullable private final File tempDir;
   private final int generalExportQueueCapacity;
   private final int metricsExportQueueCapacity;
+  private final int exportWorkerCount;
+  private final int exportQueueOverflowMaxSizeMb;
   private final int diskPersistenceMaxSizeMb;
 
   @Nullable private final Configuration.AadAuthentication aadAuthentication;
 
+  // only used by benchmarks and tests, to send telemetry to an in-memory stand-in
+  @Nullable private final HttpPipeline httpPipeline;
+
   private final Object batchItemProcessorInitLock = new Object();
   @Nullable private volatile BatchItemProcessor generalBatchItemProcessor;
   @Nullable private volatile BatchItemProcessor metricsBatchItemProcessor;
@@ -108,12 +118,15 @@ public class TelemetryClient {
     this.tempDir = builder.tempDir;
     this.generalExportQueueCapacity = builder.generalExportQueueCapacity;
     this.metricsExportQueueCapacity = builder.metricsExportQueueCapacity;
+    this.exportWorkerCount = builder.exportWorkerCount;
+    this.exportQueueOverflowMaxSizeMb = builder.exportQueueOverflowMaxSizeMb;
     this.aadAuthentication = builder.aadAuthentication;
     this.connectionString = builder.connectionString;
     this.statsbeatConnectionString = builder.statsbeatConnectionString;
     this.roleName = builder.roleName;
     this.roleInstance = builder.roleInstance;
     this.diskPersistenceMaxSizeMb = builder.diskPersistenceMaxSizeMb;
+    this.httpPipeline = builder.httpPipeline;
 
     appIdSupplier = new AppIdSupplier();
     if (this.connectionString != null) {
@@ -166,11 +179,7 @@ public class TelemetryClient {
       throw new AssertionError("telemetry item is missing time");
     }
 
-    if (quickPulse != null) {
-      quickPulse.add(telemetryItem);
-    }
-
-    TelemetryObservers.INSTANCE.getObservers().forEach(consumer -> consumer.accept(telemetryItem));
+    TelemetryFanOut.getInstance().add(telemetryItem, quickPulse);
 
     // batching, retry, throttling, and writing to disk on failure occur downstream
     // for simplicity not reporting back success/failure from this layer
@@ -226,9 +235,11 @@ public class TelemetryClient {
       int exportQueueCapacity, int maxExportBatchSize, String queueName) {
 
     HttpPipeline httpPipeline =
-        LazyHttpClient.newHttpPipeLine(
-            aadAuthentication,
-            new NetworkStatsbeatHttpPipelinePolicy(statsbeatModule.getNetworkStatsbeat()));
+        this.httpPipeline != null
+            ? this.httpPipeline
+            : LazyHttpClient.newHttpPipeLine(
+                aadAuthentication,
+                new NetworkStatsbeatHttpPipelinePolicy(statsbeatModule.getNetworkStatsbeat()));
     TelemetryPipeline telemetryPipeline = new TelemetryPipeline(httpPipeline, statsbeatModule);
 
     TelemetryPipelineListener telemetryPipelineListener;
@@ -254,13 +265,33 @@ public class TelemetryClient {
                   false));
     }
 
+    DiskOverflowQueue overflow = null;
+    if (tempDir != null && exportQueueOverflowMaxSizeMb > 0) {
+      try {
+        overflow =
+            DiskOverflowQueue.create(
+                TempDirs.getSubDir(tempDir, TELEMETRY_FOLDER_NAME),
+                queueName,
+                exportQueueOverflowMaxSizeMb);
+      } catch (IOException e) {
+        logger.warn(
+            "Unable to create the overflow for the {} export queue,"
+                + " telemetry will be dropped when the export queue is full",
+            queueName,
+            e);
+      }
+    }
+
     return BatchItemProcessor.builder(
             new TelemetryItemExporter(telemetryPipeline, telemetryPipelineListener))
         .setMaxQueueSize(exportQueueCapacity)
         .setMaxExportBatchSize(maxExportBatchSize)
-        // the number 100 was calculated as the max number of concurrent exports that the single
+        // the number 100 was calculated as the max number of concurrent exports that a single
         // worker thread can drive, so anything higher than this should not increase throughput
+        // (this applies to each worker, so up to 100 times the worker count exports can be pending)
         .setMaxPendingExports(100)
+        .setWorkerCount(exportWorkerCount)
+        .setOverflow(overflow)
         .build(queueName);
   }
 
@@ -417,12 +448,15 @@ public class TelemetryClient {
     @Nullable private File tempDir;
     private int generalExportQueueCapacity;
     private int metricsExportQueueCapacity;
+    private int exportWorkerCount = 1;
+    private int exportQueueOverflowMaxSizeMb;
     @Nullable private Configuration.AadAuthentication aadAuthentication;
     @Nullable private ConnectionString connectionString;
     @Nullable private StatsbeatConnectionString statsbeatConnectionString;
     @Nullable private String roleName;
     @Nullable private String roleInstance;
     private int diskPersistenceMaxSizeMb;
+    @Nullable private HttpPipeline httpPipeline;
 
     public Builder setCustomDimensions(Map<String, String> customDimensions) {
       StringSubstitutor substitutor = new StringSubstitutor(System.getenv());
@@ -473,6 +507,17 @@ public class TelemetryClient {
       return this;
     }
 
+    public Builder setExportWorkerCount(int exportWorkerCount) {
+      this.exportWorkerCount = exportWorkerCount;
+      return this;
+    }
+
+    // zero (the default) disables the overflow
+    public Builder setExportQueueOverflowMaxSizeMb(int exportQueueOverflowMaxSizeMb) {
+      this.exportQueueOverflowMaxSizeMb = exportQueueOverflowMaxSizeMb;
+      return this;
+    }
+
     public Builder setAadAuthentication(Configuration.AadAuthentication aadAuthentication) {
       this.aadAuthentication = aadAuthentication;
       return this;
@@ -515,6 +560,12 @@ public class TelemetryClient {
       return this;
     }
 
+    // only used by benchmarks and tests
+    public Builder setHttpPipeline(HttpPipeline httpPipeline) {
+      this.httpPipeline = httpPipeline;
+      return this;
+    }
+
     public TelemetryClient build() {
       return new TelemetryClient(this);
     }
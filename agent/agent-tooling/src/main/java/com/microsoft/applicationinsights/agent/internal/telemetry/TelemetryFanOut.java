@@ -0,0 +1,121 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.quickpulse.QuickPulse;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.ThreadPoolUtils;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands telemetry over to the consumers that are not on the export path (live metrics and the
+ * {@link TelemetryObservers}), so that a slow consumer does not add latency to exporting.
+ *
+ * <p>Items are handed over through a bounded queue to a single worker thread, which calls the
+ * consumers in the order that the items were added. This never blocks the caller: if the queue is
+ * full, the item is not passed to these consumers (it is still exported), and the drop is counted.
+ *
+ * <p>Items are only handed over to live metrics while a Live Metrics client is connected, so that
+ * idle live metrics does not cost anything on the caller's thread.
+ */
+public final class TelemetryFanOut {
+
+  private static final Logger logger = LoggerFactory.getLogger(TelemetryFanOut.class);
+
+  private static final int DEFAULT_CAPACITY = 2048;
+
+  private static final TelemetryFanOut INSTANCE =
+      new TelemetryFanOut(DEFAULT_CAPACITY, TelemetryObservers.INSTANCE.getObservers());
+
+  private final List<Consumer<TelemetryItem>> observers;
+  private final ExecutorService executor;
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  // until live metrics reports its sessions, it is assumed to always have one
+  private volatile BooleanSupplier liveMetricsSubscribed = () -> true;
+
+  public static TelemetryFanOut getInstance() {
+    return INSTANCE;
+  }
+
+  // visible for testing
+  TelemetryFanOut(int capacity, List<Consumer<TelemetryItem>> observers) {
+    this.observers = observers;
+    // the worker thread is only started once the first item is added
+    executor =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacity),
+            ThreadPoolUtils.createDaemonThreadFactory(TelemetryFanOut.class),
+            (runnable, executor) -> onDropped());
+  }
+
+  /** Sets the source of whether a Live Metrics client is currently connected. */
+  public void setLiveMetricsSubscribed(BooleanSupplier liveMetricsSubscribed) {
+    this.liveMetricsSubscribed = liveMetricsSubscribed;
+  }
+
+  /**
+   * Passes the item to live metrics (if enabled and a Live Metrics client is connected) and to the
+   * telemetry observers.
+   */
+  public void add(TelemetryItem telemetryItem, @Nullable QuickPulse quickPulse) {
+    QuickPulse activeQuickPulse =
+        quickPulse != null && liveMetricsSubscribed.getAsBoolean() ? quickPulse : null;
+    if (activeQuickPulse == null && observers.isEmpty()) {
+      return;
+    }
+    try {
+      executor.execute(() -> notifyConsumers(telemetryItem, activeQuickPulse));
+    } catch (RejectedExecutionException e) {
+      // shutting down
+      onDropped();
+    }
+  }
+
+  /** Returns the number of items that were not passed on because the queue was full. */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private void notifyConsumers(TelemetryItem telemetryItem, @Nullable QuickPulse quickPulse) {
+    if (quickPulse != null) {
+      try {
+        quickPulse.add(telemetryItem);
+      } catch (RuntimeException e) {
+        logger.debug("Failed to pass telemetry to live metrics", e);
+      }
+    }
+    for (Consumer<TelemetryItem> observer : observers) {
+      try {
+        observer.accept(telemetryItem);
+      } catch (RuntimeException e) {
+        logger.debug("Failed to pass telemetry to observer", e);
+      }
+    }
+  }
+
+  private void onDropped() {
+    long dropped = droppedCount.incrementAndGet();
+    if (dropped == 1) {
+      logger.warn(
+          "Telemetry is being added faster than live metrics and the telemetry observers can"
+              + " process it, some telemetry will not be passed to them");
+    }
+  }
+}
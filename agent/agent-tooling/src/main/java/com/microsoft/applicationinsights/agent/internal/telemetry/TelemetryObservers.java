@@ -8,6 +8,12 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
+/**
+ * Consumers of all telemetry that is sent.
+ *
+ * <p>The observers are called on a single background thread (see {@link TelemetryFanOut}), and
+ * may miss telemetry if they fall too far behind.
+ */
 @SuppressWarnings("ImmutableEnumChecker")
 public enum TelemetryObservers {
   INSTANCE;
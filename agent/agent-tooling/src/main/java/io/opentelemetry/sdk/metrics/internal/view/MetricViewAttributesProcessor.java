@@ -10,15 +10,33 @@ import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.common.AttributesBuilder;
 import io.opentelemetry.api.trace.Span;
 import io.opentelemetry.context.Context;
+import io.opentelemetry.instrumentation.api.internal.cache.Cache;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
 
+/**
+ * Filters the attributes of the http and rpc duration metrics down to the attributes of the {@link
+ * MetricView}, and adds the connection string and role name overrides.
+ *
+ * <p>The attributes that these metrics are recorded with repeat a lot, so the processed attributes
+ * of the most recently used attributes are cached, which means that recording a measurement does
+ * not allocate once the cache is warm.
+ */
 @SuppressWarnings("rawtypes")
 class MetricViewAttributesProcessor extends AttributesProcessor {
 
+  // beyond this, the least recently used attributes are evicted, which bounds the memory used when
+  // the incoming attributes have a high cardinality (e.g. when they include the user agent)
+  // visible for testing
+  static final int MAX_CACHE_SIZE = 1000;
+
   private final Set<AttributeKey<?>> attributeKeys;
   private final boolean captureSynthetic;
 
+  private final Cache<Attributes, Processed> cache = Cache.bounded(MAX_CACHE_SIZE);
+
   MetricViewAttributesProcessor(Set<AttributeKey<?>> attributeKeys, boolean captureSynthetic) {
     this.attributeKeys = attributeKeys;
     this.captureSynthetic = captureSynthetic;
@@ -31,14 +49,36 @@ class MetricViewAttributesProcessor extends AttributesProcessor {
     // auto instrumentations
     Span.fromContext(context).setAttribute(AiSemanticAttributes.IS_PRE_AGGREGATED, true);
 
-    AttributesBuilder builder = Attributes.builder();
     String connectionString = context.get(AiContextKeys.CONNECTION_STRING);
+    String roleName = context.get(AiContextKeys.ROLE_NAME);
+
+    Processed processed = cache.get(incoming);
+    if (processed != null && processed.matches(connectionString, roleName)) {
+      return processed.attributes;
+    }
+    Attributes attributes = computeAttributes(incoming, connectionString, roleName);
+    // an entry for different overrides is replaced, since the same attributes are rarely recorded
+    // with different overrides
+    cache.put(incoming, new Processed(connectionString, roleName, attributes));
+    return attributes;
+  }
+
+  private Attributes computeAttributes(
+      Attributes incoming, @Nullable String connectionString, @Nullable String roleName) {
+    if (connectionString == null
+        && roleName == null
+        && !captureSynthetic
+        && attributeKeys.containsAll(incoming.asMap().keySet())) {
+      // nothing to add or to filter out
+      return incoming;
+    }
+
+    AttributesBuilder builder = Attributes.builder();
     if (connectionString != null) {
       // support for connectionStringOverrides
       // and for Classic SDK's setConnectionString()
       builder.put(AiSemanticAttributes.INTERNAL_CONNECTION_STRING, connectionString);
     }
-    String roleName = context.get(AiContextKeys.ROLE_NAME);
     if (roleName != null) {
       // support for roleNameOverrides and for Classic SDK's setConnectionString()
       // and Classic SDK set...
@@ -67,4 +107,23 @@ class MetricViewAttributesProcessor extends AttributesProcessor {
               }
             });
   }
+
+  private static class Processed {
+
+    @Nullable private final String connectionString;
+    @Nullable private final String roleName;
+    private final Attributes attributes;
+
+    private Processed(
+        @Nullable String connectionString, @Nullable String roleName, Attributes attributes) {
+      this.connectionString = connectionString;
+      this.roleName = roleName;
+      this.attributes = attributes;
+    }
+
+    private boolean matches(@Nullable String connectionString, @Nullable String roleName) {
+      return Objects.equals(this.connectionString, connectionString)
+          && Objects.equals(this.roleName, roleName);
+    }
+  }
 }
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.exc.UnrecognizedPropertyException;
+import com.microsoft.applicationinsights.agent.internal.common.FriendlyException;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.JmxMetric;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MatchType;
 import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.PreviewConfiguration;
@@ -691,6 +692,28 @@ class ConfigurationTest {
         .isInstanceOf(UnrecognizedPropertyException.class);
   }
 
+  @Test
+  void shouldNotAllowLessThanTwoExportQueueItemsPerWorker() {
+    Configuration configuration = new Configuration();
+    configuration.preview.exportWorkerCount = 4;
+    configuration.preview.generalExportQueueCapacity = 8;
+    configuration.validate();
+
+    configuration.preview.generalExportQueueCapacity = 7;
+    assertThatThrownBy(configuration::validate).isInstanceOf(FriendlyException.class);
+  }
+
+  @Test
+  void shouldNotAllowContinuousRecordingShorterThanTheLongestProfile() {
+    Configuration configuration = new Configuration();
+    configuration.preview.profiler.continuousRecording.enabled = true;
+    configuration.validate();
+
+    // the periodic profiles are 120 seconds long by default
+    configuration.preview.profiler.continuousRecording.maxAgeSeconds = 60;
+    assertThatThrownBy(configuration::validate).isInstanceOf(FriendlyException.class);
+  }
+
   @TestFactory
   public Collection<DynamicTest> canParseExampleProfilerConfigurations() {
     return Stream.of(
@@ -0,0 +1,148 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.diagnostics.log;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RateLimitingTurboFilterTests {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+  private final LoggerContext loggerContext = new LoggerContext();
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  private RateLimitingTurboFilter filter;
+  private Logger logger;
+
+  @BeforeEach
+  void setup() {
+    filter = new RateLimitingTurboFilter(2, 60, nanoTime::get);
+    filter.setContext(loggerContext);
+    filter.start();
+    loggerContext.addTurboFilter(filter);
+
+    appender.setContext(loggerContext);
+    appender.start();
+    logger = loggerContext.getLogger("test");
+    logger.setLevel(Level.INFO);
+    logger.addAppender(appender);
+  }
+
+  @AfterEach
+  void tearDown() {
+    loggerContext.stop();
+  }
+
+  @Test
+  void suppressesSimilarWarningsAndReportsThemInTheNextInterval() {
+    for (int i = 0; i < 5; i++) {
+      logger.warn("queue is full, dropping {} items", i);
+    }
+    assertThat(appender.list)
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .containsExactly("queue is full, dropping 0 items", "queue is full, dropping 1 items");
+
+    nanoTime.addAndGet(SECONDS.toNanos(60));
+    logger.warn("queue is full, dropping {} items", 5);
+
+    assertThat(appender.list)
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .containsExactly(
+            "queue is full, dropping 0 items",
+            "queue is full, dropping 1 items",
+            "3 similar messages were suppressed in the last 60 seconds:"
+                + " queue is full, dropping {} items",
+            "queue is full, dropping 5 items");
+    assertThat(appender.list.get(2).getLevel()).isEqualTo(Level.WARN);
+  }
+
+  @Test
+  void reportsSuppressedMessagesWhenTheFloodStops() {
+    for (int i = 0; i < 5; i++) {
+      logger.error("queue is full, dropping {} items", i);
+    }
+
+    // still in the same interval
+    nanoTime.addAndGet(SECONDS.toNanos(30));
+    filter.flush();
+    assertThat(appender.list).hasSize(2);
+
+    // the message is never logged again
+    nanoTime.addAndGet(SECONDS.toNanos(30));
+    filter.flush();
+
+    assertThat(appender.list)
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .containsExactly(
+            "queue is full, dropping 0 items",
+            "queue is full, dropping 1 items",
+            "3 similar messages were suppressed in the last 60 seconds:"
+                + " queue is full, dropping {} items");
+    assertThat(appender.list.get(2).getLevel()).isEqualTo(Level.ERROR);
+
+    // and is only reported once
+    nanoTime.addAndGet(SECONDS.toNanos(60));
+    filter.flush();
+    assertThat(appender.list).hasSize(3);
+
+    // the limit starts over
+    for (int i = 0; i < 3; i++) {
+      logger.error("queue is full, dropping {} items", i);
+    }
+    assertThat(appender.list).hasSize(5);
+  }
+
+  @Test
+  void keepsLimitingWhenTooManyDifferentMessagesAreTracked() {
+    for (int i = 0; i < 5; i++) {
+      logger.warn("queue is full");
+    }
+    nanoTime.addAndGet(SECONDS.toNanos(1));
+    // messages that are built using string concatenation are each tracked separately
+    for (int i = 0; i < 1000; i++) {
+      logger.warn("unexpected value: " + i);
+    }
+
+    // the oldest message is no longer tracked, and its suppressed messages were reported first
+    assertThat(appender.list)
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .contains("3 similar messages were suppressed in the last 1 seconds: queue is full");
+
+    // the other messages are still limited (this one was already logged once)
+    appender.list.clear();
+    for (int i = 0; i < 3; i++) {
+      logger.warn("unexpected value: 999");
+    }
+    assertThat(appender.list).hasSize(1);
+  }
+
+  @Test
+  void limitsEachMessageSeparately() {
+    for (int i = 0; i < 3; i++) {
+      logger.warn("first");
+      logger.error("second");
+    }
+    assertThat(appender.list)
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .containsExactly("first", "second", "first", "second");
+  }
+
+  @Test
+  void doesNotLimitInfo() {
+    for (int i = 0; i < 3; i++) {
+      logger.info("info");
+    }
+    assertThat(appender.list).hasSize(3);
+  }
+}
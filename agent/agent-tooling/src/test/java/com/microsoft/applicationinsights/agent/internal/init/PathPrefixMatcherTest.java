@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class PathPrefixMatcherTest {
+
+  @Test
+  void shouldReturnFirstMatchingPrefixInListOrder() {
+    PathPrefixMatcher<String> matcher = create("/api", "/api/orders", "/web", "/api");
+
+    assertThat(matcher.match("/api/orders/1")).isEqualTo("/api:0");
+    assertThat(matcher.match("/apix")).isEqualTo("/api:0");
+    assertThat(matcher.match("/web/index.html")).isEqualTo("/web:2");
+    assertThat(matcher.match("/other")).isNull();
+    assertThat(matcher.match("/ap")).isNull();
+    assertThat(matcher.match("")).isNull();
+    assertThat(matcher.match(null)).isNull();
+  }
+
+  @Test
+  void shouldPreferEarlierLongerPrefix() {
+    PathPrefixMatcher<String> matcher = create("/api/orders", "/api", "");
+
+    assertThat(matcher.match("/api/orders/1")).isEqualTo("/api/orders:0");
+    assertThat(matcher.match("/api/users")).isEqualTo("/api:1");
+    assertThat(matcher.match("/other")).isEqualTo(":2");
+  }
+
+  @Test
+  void shouldMatchTheSameAsStartsWith() {
+    Random random = new Random(42);
+    List<String> prefixes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      prefixes.add(randomPath(random));
+    }
+    PathPrefixMatcher<String> matcher = create(prefixes.toArray(new String[0]));
+
+    for (int i = 0; i < 2000; i++) {
+      String path = randomPath(random) + randomPath(random);
+      String expected = null;
+      for (int j = 0; j < prefixes.size(); j++) {
+        if (path.startsWith(prefixes.get(j))) {
+          expected = prefixes.get(j) + ":" + j;
+          break;
+        }
+      }
+      assertThat(matcher.match(path)).isEqualTo(expected);
+    }
+  }
+
+  private static PathPrefixMatcher<String> create(String... prefixes) {
+    List<Integer> indexes = new ArrayList<>();
+    for (int i = 0; i < prefixes.length; i++) {
+      indexes.add(i);
+    }
+    List<String> prefixList = Collections.unmodifiableList(asList(prefixes));
+    return PathPrefixMatcher.create(indexes, prefixList::get, i -> prefixList.get(i) + ":" + i);
+  }
+
+  private static String randomPath(Random random) {
+    StringBuilder sb = new StringBuilder();
+    int segments = random.nextInt(3);
+    for (int i = 0; i < segments; i++) {
+      sb.append('/').append((char) ('a' + random.nextInt(3)));
+    }
+    return sb.toString();
+  }
+}
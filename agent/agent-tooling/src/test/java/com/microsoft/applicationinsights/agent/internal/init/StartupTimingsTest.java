@@ -0,0 +1,59 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.init;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StartupTimingsTest {
+
+  @BeforeEach
+  @AfterEach
+  void reset() {
+    StartupTimings.reset();
+  }
+
+  @Test
+  void shouldReportPhasesInOrder() {
+    StartupTimings.mark("First");
+    assertThat(StartupTimings.time("Second", () -> "value")).isEqualTo("value");
+    StartupTimings.run("Third", () -> {});
+    StartupTimings.mark("First");
+
+    Map<String, Object> report = StartupTimings.getReport();
+
+    assertThat(report)
+        .containsOnlyKeys(
+            "TotalMs",
+            "PhasesMs",
+            "ByteBuddyTransformationMs",
+            "ByteBuddyTransformationCount",
+            "ClassFileTransformerMs");
+    @SuppressWarnings("unchecked")
+    Map<String, Long> phases = (Map<String, Long>) report.get("PhasesMs");
+    assertThat(phases).containsOnlyKeys("First", "Second", "Third");
+    assertThat(phases.keySet()).containsExactly("First", "Second", "Third");
+  }
+
+  @Test
+  void shouldRecordPhaseWhenItFails() {
+    try {
+      StartupTimings.run(
+          "Failing",
+          () -> {
+            throw new IllegalStateException();
+          });
+    } catch (IllegalStateException e) {
+      // expected
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Long> phases = (Map<String, Long>) StartupTimings.getReport().get("PhasesMs");
+    assertThat(phases).containsOnlyKeys("Failing");
+  }
+}
@@ -104,6 +104,55 @@ class JmxDataFetcherTest {
     performTest(attributes, 1000.0, 2000.0, 3000.0);
   }
 
+  @Test
+  void testResolvesPatternAgainAfterRegistrationChanges() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName first = new ObjectName("JSDKTests:type=TestStub4,name=first");
+    ObjectName second = new ObjectName("JSDKTests:type=TestStub4,name=second");
+    server.registerMBean(new TestStub(1, 2.0, 3L), first);
+
+    List<JmxAttributeData> attributes = new ArrayList<>();
+    attributes.add(new JmxAttributeData("Int", "IntSample"));
+    attributes.add(new JmxAttributeData("Long", "LongSample"));
+    JmxDataFetcher fetcher = new JmxDataFetcher("JSDKTests:type=TestStub4,*", attributes);
+
+    assertThat(fetcher.fetch().get("Int")).containsExactly(1);
+
+    server.registerMBean(new TestStub(10, 20.0, 30L), second);
+    assertThat(fetcher.fetch().get("Int")).containsExactlyInAnyOrder(1, 10);
+    assertThat(fetcher.fetch().get("Long")).containsExactlyInAnyOrder(3L, 30L);
+
+    server.unregisterMBean(first);
+    assertThat(fetcher.fetch().get("Int")).containsExactly(10);
+
+    server.unregisterMBean(second);
+    assertThatThrownBy(fetcher::fetch).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testOnlyResolvesPatternAgainAfterMatchingRegistrationChanges() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    server.registerMBean(
+        new TestStub(1, 2.0, 3L), new ObjectName("JSDKTests:type=TestStub5,name=first"));
+
+    List<JmxAttributeData> attributes = new ArrayList<>();
+    attributes.add(new JmxAttributeData("Int", "IntSample"));
+    JmxDataFetcher fetcher = new JmxDataFetcher("JSDKTests:type=TestStub5,*", attributes);
+    fetcher.fetch();
+    assertThat(fetcher.hasResolvedObjects()).isTrue();
+
+    ObjectName unrelated = new ObjectName("JSDKTests:type=TestStub6,name=first");
+    server.registerMBean(new TestStub(10, 20.0, 30L), unrelated);
+    server.unregisterMBean(unrelated);
+    assertThat(fetcher.hasResolvedObjects()).isTrue();
+
+    server.registerMBean(
+        new TestStub(10, 20.0, 30L), new ObjectName("JSDKTests:type=TestStub5,name=second"));
+    assertThat(fetcher.hasResolvedObjects()).isFalse();
+    assertThat(fetcher.fetch().get("Int")).containsExactlyInAnyOrder(1, 10);
+    assertThat(fetcher.hasResolvedObjects()).isTrue();
+  }
+
   private static void performTest(
       List<JmxAttributeData> attributes,
       double expectedInt,
@@ -0,0 +1,153 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.perfcounter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.microsoft.applicationinsights.agent.internal.telemetry.TelemetryClient;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PerformanceCounterCollectorTest {
+
+  private final TelemetryClient telemetryClient = TelemetryClient.createForTest();
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldSkipCountersThatHaveNotStartedByTheDeadline() {
+    PerformanceCounterCollector collector = new PerformanceCounterCollector(null, 50, 50);
+    CountingCounter slow = new CountingCounter(100);
+    CountingCounter overdue = new CountingCounter(0);
+    collector.register(slow);
+    collector.register(overdue);
+
+    collector.collect(telemetryClient);
+
+    assertThat(slow.reports.get()).isEqualTo(1);
+    assertThat(overdue.reports.get()).isZero();
+  }
+
+  @Test
+  void shouldNotSkipTheSameCountersOnEveryCollection() {
+    PerformanceCounterCollector collector = new PerformanceCounterCollector(null, 50, 50);
+    CountingCounter slow = new CountingCounter(100);
+    CountingCounter overdue = new CountingCounter(0);
+    collector.register(slow);
+    collector.register(overdue);
+
+    collector.collect(telemetryClient);
+    collector.collect(telemetryClient);
+
+    // the slow counter goes first in the first collection, and last in the second
+    assertThat(slow.reports.get()).isEqualTo(2);
+    assertThat(overdue.reports.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldRejectInvalidDeadlineAndThreshold() {
+    assertThatThrownBy(() -> new PerformanceCounterCollector(null, -1, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new PerformanceCounterCollector(null, 1000, -1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new PerformanceCounterCollector(null, 1000, 1001))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldNotDelayOtherCountersWhenCollectingInParallel() throws InterruptedException {
+    PerformanceCounterCollector collector = new PerformanceCounterCollector(executor, 5000, 5000);
+    CountDownLatch release = new CountDownLatch(1);
+    BlockingCounter blocked = new BlockingCounter(release);
+    CountingCounter other = new CountingCounter(0);
+    collector.register(blocked);
+    collector.register(other);
+
+    collector.collect(telemetryClient);
+    other.awaitReports(1);
+
+    // the blocked counter is still running, so it is skipped, but the other counter is not
+    collector.collect(telemetryClient);
+    other.awaitReports(2);
+    assertThat(blocked.reports.get()).isEqualTo(1);
+
+    release.countDown();
+    blocked.awaitNotRunning(collector, telemetryClient);
+    assertThat(blocked.reports.get()).isGreaterThanOrEqualTo(2);
+  }
+
+  private static class CountingCounter implements PerformanceCounter {
+
+    private final long sleepMillis;
+    private final AtomicInteger reports = new AtomicInteger();
+
+    private CountingCounter(long sleepMillis) {
+      this.sleepMillis = sleepMillis;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+      if (sleepMillis > 0) {
+        try {
+          Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      synchronized (this) {
+        reports.incrementAndGet();
+        notifyAll();
+      }
+    }
+
+    private synchronized void awaitReports(int count) throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (reports.get() < count && System.nanoTime() < deadline) {
+        wait(100);
+      }
+      assertThat(reports.get()).isEqualTo(count);
+    }
+  }
+
+  private static class BlockingCounter implements PerformanceCounter {
+
+    private final CountDownLatch release;
+    private final AtomicInteger reports = new AtomicInteger();
+
+    private BlockingCounter(CountDownLatch release) {
+      this.release = release;
+    }
+
+    @Override
+    public void report(TelemetryClient telemetryClient) {
+      reports.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    // keeps collecting until this counter is run again, which happens once the previous run is done
+    private void awaitNotRunning(
+        PerformanceCounterCollector collector, TelemetryClient telemetryClient)
+        throws InterruptedException {
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (reports.get() < 2 && System.nanoTime() < deadline) {
+        collector.collect(telemetryClient);
+        Thread.sleep(10);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.processors;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MatchType;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.NameConfig;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAction;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorActionType;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorAttribute;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorConfig;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorIncludeExclude;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.ProcessorType;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+class SpanExporterWithProcessorsTest {
+
+  private final Tracer tracer = OpenTelemetrySdk.builder().build().getTracer("test");
+
+  @Test
+  void laterProcessorsSeeEarlierChanges() {
+    MockSpanExporter mockSpanExporter = new MockSpanExporter();
+
+    ProcessorConfig insertConfig = new ProcessorConfig();
+    insertConfig.type = ProcessorType.ATTRIBUTE;
+    insertConfig.id = "insert";
+    insertConfig.actions.add(
+        new ProcessorAction("operation", ProcessorActionType.INSERT, "get", null, null, null));
+
+    // only matches because of the attribute inserted by the previous processor
+    ProcessorConfig renameConfig = new ProcessorConfig();
+    renameConfig.type = ProcessorType.SPAN;
+    renameConfig.id = "rename";
+    renameConfig.include = new ProcessorIncludeExclude();
+    renameConfig.include.matchType = MatchType.STRICT;
+    ProcessorAttribute attribute = new ProcessorAttribute();
+    attribute.key = "operation";
+    attribute.value = "get";
+    renameConfig.include.attributes = asList(attribute);
+    renameConfig.name = new NameConfig();
+    renameConfig.name.fromAttributes = asList("db.svc", "operation");
+    renameConfig.name.separator = "::";
+
+    ProcessorConfig deleteConfig = new ProcessorConfig();
+    deleteConfig.type = ProcessorType.ATTRIBUTE;
+    deleteConfig.id = "delete";
+    deleteConfig.actions.add(
+        new ProcessorAction("db.svc", ProcessorActionType.DELETE, null, null, null, null));
+
+    SpanExporter exampleExporter =
+        new SpanExporterWithProcessors(
+            asList(insertConfig, renameConfig, deleteConfig), mockSpanExporter);
+
+    Span span =
+        tracer
+            .spanBuilder("svcA")
+            .setAttribute("one", "1")
+            .setAttribute("two", 2L)
+            .setAttribute("db.svc", "location")
+            .startSpan();
+
+    exampleExporter.export(Collections.singletonList(((ReadableSpan) span).toSpanData()));
+
+    SpanData resultSpan = mockSpanExporter.getSpans().get(0);
+    assertThat(resultSpan.getName()).isEqualTo("location::get");
+    assertThat(resultSpan.getAttributes().get(AttributeKey.stringKey("operation")))
+        .isEqualTo("get");
+    assertThat(resultSpan.getAttributes().get(AttributeKey.stringKey("db.svc"))).isNull();
+    assertThat(resultSpan.getAttributes().get(AttributeKey.stringKey("one"))).isEqualTo("1");
+    assertThat(resultSpan.getAttributes().get(AttributeKey.longKey("two"))).isEqualTo(2L);
+  }
+
+  @Test
+  void unchangedSpanIsPassedThrough() {
+    MockSpanExporter mockSpanExporter = new MockSpanExporter();
+
+    ProcessorConfig config = new ProcessorConfig();
+    config.type = ProcessorType.ATTRIBUTE;
+    config.id = "unchanged";
+    config.actions.add(
+        new ProcessorAction("missing", ProcessorActionType.UPDATE, "redacted", null, null, null));
+
+    SpanExporter exampleExporter =
+        new SpanExporterWithProcessors(Collections.singletonList(config), mockSpanExporter);
+
+    Span span = tracer.spanBuilder("svcA").setAttribute("one", "1").startSpan();
+    SpanData spanData = ((ReadableSpan) span).toSpanData();
+
+    exampleExporter.export(Collections.singletonList(spanData));
+
+    assertThat(mockSpanExporter.getSpans().get(0)).isSameAs(spanData);
+  }
+}
@@ -0,0 +1,250 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.ServiceProfilerIndex;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadListener;
+import com.microsoft.applicationinsights.agent.internal.profiler.upload.UploadService;
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
+import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
+import com.microsoft.jfr.FlightRecorderConnection;
+import com.microsoft.jfr.Recording;
+import com.microsoft.jfr.RecordingConfiguration;
+import com.microsoft.jfr.RecordingOptions;
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+class ProfilerTest {
+
+  private static final Duration DURATION = Duration.ofSeconds(60);
+
+  @TempDir File tempDir;
+
+  private final UploadService uploadService = mock(UploadService.class);
+  // the scheduled tasks are only run when the test says so
+  private final List<Runnable> scheduledTasks = new ArrayList<>();
+  private final List<Recording> recordings = new ArrayList<>();
+  private final List<String> uploadListenerCalls = new ArrayList<>();
+
+  private final Configuration.ProfilerConfiguration config =
+      new Configuration.ProfilerConfiguration();
+
+  @Test
+  void coalescesOverlappingAlertsIntoOneProfile() {
+    Profiler profiler = newProfiler();
+    AlertBreach first = newAlertBreach(AlertMetricType.CPU);
+    AlertBreach second = newAlertBreach(AlertMetricType.CPU);
+
+    profiler.profileAndUpload(first, DURATION, uploadListener("first"));
+    profiler.profileAndUpload(second, DURATION, uploadListener("second"));
+
+    // the second alert extended the recording that the first alert started
+    assertThat(recordings).hasSize(1);
+
+    // the close task that was scheduled before the extension does nothing
+    runScheduledTasks();
+
+    List<AlertBreach> alertBreaches = verifyUpload();
+    assertThat(alertBreaches).containsExactly(first, second);
+    assertThat(uploadListenerCalls).containsExactly("first", "second");
+  }
+
+  @Test
+  void doesNotExtendBeyondTheMaximumDuration() {
+    Profiler profiler = newProfiler();
+    AlertBreach first = newAlertBreach(AlertMetricType.CPU);
+    AlertBreach second = newAlertBreach(AlertMetricType.CPU);
+
+    profiler.profileAndUpload(first, DURATION, uploadListener("first"));
+    // the recording can only be extended to twice the duration of the alert that started it
+    profiler.profileAndUpload(second, DURATION.multipliedBy(3), uploadListener("second"));
+
+    runScheduledTasks();
+
+    assertThat(verifyUpload()).containsExactly(first);
+    assertThat(uploadListenerCalls).containsExactly("first");
+  }
+
+  @Test
+  void queuesAlertsUntilTheCooldownHasPassed() {
+    Profiler profiler = newProfiler();
+    AlertBreach cpu = newAlertBreach(AlertMetricType.CPU);
+    AlertBreach memory = newAlertBreach(AlertMetricType.MEMORY);
+
+    profiler.profileAndUpload(cpu, DURATION, uploadListener("cpu"));
+    // uses different recording settings, so it can't extend the cpu profile
+    profiler.profileAndUpload(memory, DURATION, uploadListener("memory"));
+    assertThat(recordings).hasSize(1);
+
+    // closes the cpu profile, and schedules the end of the cooldown
+    runScheduledTasks();
+    assertThat(verifyUpload()).containsExactly(cpu);
+
+    // still cooling down
+    AlertBreach otherCpu = newAlertBreach(AlertMetricType.CPU);
+    profiler.profileAndUpload(otherCpu, DURATION, uploadListener("otherCpu"));
+    assertThat(recordings).hasSize(1);
+
+    // ends the cooldown, which starts a profile for the first queued alert, and queues the
+    // other one again, since it uses different recording settings
+    runScheduledTasks();
+    assertThat(recordings).hasSize(2);
+
+    runScheduledTasks();
+    assertThat(verifyUpload(2)).containsExactly(memory);
+
+    runScheduledTasks();
+    assertThat(recordings).hasSize(3);
+    runScheduledTasks();
+    assertThat(verifyUpload(3)).containsExactly(otherCpu);
+
+    assertThat(uploadListenerCalls).containsExactly("cpu", "memory", "otherCpu");
+  }
+
+  @Test
+  void dropsAlertsWhenTheQueueIsFull() {
+    config.maxQueuedTriggers = 1;
+    Profiler profiler = newProfiler();
+    AlertBreach cpu = newAlertBreach(AlertMetricType.CPU);
+    AlertBreach memory = newAlertBreach(AlertMetricType.MEMORY);
+    AlertBreach otherMemory = newAlertBreach(AlertMetricType.MEMORY);
+
+    profiler.profileAndUpload(cpu, DURATION, uploadListener("cpu"));
+    profiler.profileAndUpload(memory, DURATION, uploadListener("memory"));
+    profiler.profileAndUpload(otherMemory, DURATION, uploadListener("otherMemory"));
+
+    // closes the cpu profile
+    runScheduledTasks();
+    // ends the cooldown
+    runScheduledTasks();
+    // closes the memory profile
+    runScheduledTasks();
+
+    assertThat(recordings).hasSize(2);
+    assertThat(verifyUpload(2)).containsExactly(memory);
+    assertThat(uploadListenerCalls).containsExactly("memory");
+
+    // nothing else was queued
+    runScheduledTasks();
+    assertThat(scheduledTasks).isEmpty();
+    assertThat(recordings).hasSize(2);
+  }
+
+  @Test
+  void recordsProfilesLongerThanTheContinuousRecordingKeepsSeparately() {
+    config.continuousRecording.enabled = true;
+    config.continuousRecording.maxAgeSeconds = 30;
+    Profiler profiler = newProfiler();
+    assertThat(recordings).hasSize(1);
+
+    profiler.profileAndUpload(newAlertBreach(AlertMetricType.CPU), DURATION, uploadListener("cpu"));
+
+    assertThat(recordings).hasSize(2);
+  }
+
+  @Test
+  void closesTheContinuousRecordingOnShutdown() throws Exception {
+    config.continuousRecording.enabled = true;
+    Profiler profiler = newProfiler();
+    Recording continuousRecording = recordings.get(0);
+
+    profiler.shutdown();
+    verify(continuousRecording).close();
+
+    // alerts no longer use the closed recording
+    profiler.profileAndUpload(newAlertBreach(AlertMetricType.CPU), DURATION, uploadListener("cpu"));
+    assertThat(recordings).hasSize(2);
+  }
+
+  private Profiler newProfiler() {
+    Profiler profiler =
+        new Profiler(config, tempDir) {
+          @Override
+          protected Recording createRecording(
+              RecordingOptions recordingOptions, RecordingConfiguration recordingConfiguration) {
+            Recording recording = mock(Recording.class);
+            recordings.add(recording);
+            return recording;
+          }
+
+          @Override
+          protected File createJfrFile(Duration duration) {
+            return new File(tempDir, "recording-" + recordings.size() + ".jfr");
+          }
+        };
+    profiler.initialize(
+        uploadService, newScheduledExecutorService(), mock(FlightRecorderConnection.class));
+    return profiler;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ScheduledExecutorService newScheduledExecutorService() {
+    ScheduledExecutorService scheduledExecutorService = mock(ScheduledExecutorService.class);
+    when(scheduledExecutorService.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+        .thenAnswer(
+            invocation -> {
+              scheduledTasks.add(invocation.getArgument(0));
+              return mock(ScheduledFuture.class);
+            });
+    return scheduledExecutorService;
+  }
+
+  // runs the tasks that are currently scheduled (but not the ones that they schedule)
+  private void runScheduledTasks() {
+    List<Runnable> tasks = new ArrayList<>(scheduledTasks);
+    scheduledTasks.clear();
+    for (Runnable task : tasks) {
+      task.run();
+    }
+  }
+
+  private List<AlertBreach> verifyUpload() {
+    return verifyUpload(1);
+  }
+
+  // returns the alerts covered by the last upload, after notifying its upload listener
+  @SuppressWarnings("unchecked")
+  private List<AlertBreach> verifyUpload(int uploads) {
+    ArgumentCaptor<List<AlertBreach>> alertBreaches = ArgumentCaptor.forClass(List.class);
+    ArgumentCaptor<UploadListener> uploadListener = ArgumentCaptor.forClass(UploadListener.class);
+    verify(uploadService, times(uploads))
+        .upload(alertBreaches.capture(), anyLong(), any(File.class), uploadListener.capture());
+    uploadListener.getValue().onUpload(mock(ServiceProfilerIndex.class));
+    return alertBreaches.getValue();
+  }
+
+  private UploadListener uploadListener(String name) {
+    return serviceProfilerIndex -> uploadListenerCalls.add(name);
+  }
+
+  private static AlertBreach newAlertBreach(AlertMetricType type) {
+    return AlertBreach.builder()
+        .setType(type)
+        .setAlertValue(0)
+        .setAlertConfiguration(
+            AlertConfiguration.builder()
+                .setType(type)
+                .setProfileDurationSeconds((int) DURATION.getSeconds())
+                .build())
+        .build();
+  }
+}
@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.profiler.upload;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+class CompressedChunksTest {
+
+  @Test
+  void shouldCompressTraceIntoChunks() throws IOException {
+    byte[] trace = new byte[1024 * 1024];
+    // random data does not compress, so that it spans several chunks
+    new Random(0).nextBytes(trace);
+
+    List<ByteBuffer> chunks =
+        CompressedChunks.of(() -> new ByteArrayInputStream(trace), 64 * 1024)
+            .collectList()
+            .block();
+
+    assertThat(chunks).hasSizeGreaterThan(1);
+    for (ByteBuffer chunk : chunks.subList(0, chunks.size() - 1)) {
+      assertThat(chunk.remaining()).isGreaterThanOrEqualTo(64 * 1024);
+    }
+    assertThat(decompress(chunks)).isEqualTo(trace);
+  }
+
+  @Test
+  void shouldReadTraceAgainOnEverySubscription() throws IOException {
+    byte[] trace = "foobar".getBytes(UTF_8);
+    AtomicInteger opened = new AtomicInteger();
+
+    Flux<ByteBuffer> chunks =
+        CompressedChunks.of(
+            () -> {
+              opened.incrementAndGet();
+              return new ByteArrayInputStream(trace);
+            },
+            64 * 1024);
+
+    assertThat(decompress(chunks.collectList().block())).isEqualTo(trace);
+    assertThat(decompress(chunks.collectList().block())).isEqualTo(trace);
+    assertThat(opened.get()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldReadAndCompressTraceOffTheSubscribingThread() throws IOException {
+    byte[] trace = "foobar".getBytes(UTF_8);
+    Set<Thread> readingThreads = ConcurrentHashMap.newKeySet();
+    Set<Thread> emittingThreads = ConcurrentHashMap.newKeySet();
+
+    List<ByteBuffer> chunks =
+        CompressedChunks.of(
+                () -> {
+                  readingThreads.add(Thread.currentThread());
+                  return new ByteArrayInputStream(trace) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                      readingThreads.add(Thread.currentThread());
+                      return super.read(b, off, len);
+                    }
+                  };
+                },
+                64 * 1024)
+            .doOnNext(chunk -> emittingThreads.add(Thread.currentThread()))
+            .collectList()
+            .block();
+
+    assertThat(decompress(chunks)).isEqualTo(trace);
+    // the blob client subscribes from the http client's event loop, which must not be blocked
+    assertThat(readingThreads).isNotEmpty().doesNotContain(Thread.currentThread());
+    assertThat(emittingThreads).isNotEmpty().doesNotContain(Thread.currentThread());
+  }
+
+  private static byte[] decompress(List<ByteBuffer> chunks) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    for (ByteBuffer chunk : chunks) {
+      byte[] bytes = new byte[chunk.remaining()];
+      chunk.get(bytes);
+      compressed.write(bytes);
+    }
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        decompressed.write(buffer, 0, read);
+      }
+    }
+    return decompressed.toByteArray();
+  }
+}
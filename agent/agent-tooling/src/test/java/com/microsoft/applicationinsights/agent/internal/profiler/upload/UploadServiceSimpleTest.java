@@ -4,22 +4,36 @@
 package com.microsoft.applicationinsights.agent.internal.profiler.upload;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.azure.core.http.HttpPipeline;
 import com.azure.core.http.HttpPipelineBuilder;
 import com.azure.core.test.http.NoOpHttpClient;
-import com.azure.storage.blob.options.BlobUploadFromFileOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import com.microsoft.applicationinsights.agent.internal.profiler.service.BlobAccessPass;
 import com.microsoft.applicationinsights.agent.internal.profiler.service.ServiceProfilerClient;
+import com.microsoft.applicationinsights.alerting.alert.AlertBreach;
+import com.microsoft.applicationinsights.alerting.config.AlertConfiguration;
+import com.microsoft.applicationinsights.alerting.config.AlertMetricType;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 // TODO (trask) these tests do not make any http calls, is there a better way to write them that
 class UploadServiceSimpleTest {
@@ -37,7 +51,7 @@ class UploadServiceSimpleTest {
     File tmpFile = createFakeJfrFile();
     UUID appId = UUID.randomUUID();
 
-    BlobUploadFromFileOptions blobOptions =
+    BlobParallelUploadOptions blobOptions =
         new UploadService(
                 serviceProfilerClient,
                 builder -> {},
@@ -46,12 +60,12 @@ class UploadServiceSimpleTest {
                 appId::toString,
                 "a-role-name")
             .createBlockBlobOptions(
-                tmpFile,
+                Flux.empty(),
                 UploadContext.builder()
                     .setMachineName("a-machine-name")
                     .setDataCube(UUID.randomUUID())
                     .setSessionId(1)
-                    .setTraceFile(tmpFile)
+                    .setTraceSource(TraceSource.ofFile(tmpFile))
                     .setProfileId(UUID.randomUUID())
                     .setFileFormat("jfr")
                     .setExtension("jfr")
@@ -70,12 +84,12 @@ class UploadServiceSimpleTest {
                 appId::toString,
                 null)
             .createBlockBlobOptions(
-                tmpFile,
+                Flux.empty(),
                 UploadContext.builder()
                     .setMachineName("a-machine-name")
                     .setDataCube(UUID.randomUUID())
                     .setSessionId(1)
-                    .setTraceFile(tmpFile)
+                    .setTraceSource(TraceSource.ofFile(tmpFile))
                     .setProfileId(UUID.randomUUID())
                     .setFileFormat("jfr")
                     .setExtension("jfr")
@@ -115,6 +129,53 @@ class UploadServiceSimpleTest {
         .hasRootCauseInstanceOf(NoSuchFileException.class);
   }
 
+  @Test
+  void coveredAlertsAreAddedToTheIndex() throws Exception {
+    ServiceProfilerClient serviceProfilerClient = mock(ServiceProfilerClient.class);
+    when(serviceProfilerClient.getUploadAccess(any(UUID.class), anyString()))
+        .thenReturn(Mono.just(new BlobAccessPass(null, null, null)));
+    UUID appId = UUID.randomUUID();
+
+    UploadService uploadService =
+        new UploadService(
+            serviceProfilerClient,
+            builder -> {},
+            "a-machine-name",
+            "a-process-id",
+            appId::toString,
+            "a-role-name") {
+          @Override
+          protected Mono<UploadFinishArgs> performUpload(
+              UploadContext uploadContext, BlobAccessPass uploadPass) {
+            return Mono.just(new UploadFinishArgs("a-stamp-id", "2022-10-31T02:35:34.0337660Z"));
+          }
+        };
+
+    AlertBreach cpu = newAlertBreach(AlertMetricType.CPU);
+    AlertBreach memory = newAlertBreach(AlertMetricType.MEMORY);
+    CompletableFuture<ServiceProfilerIndex> serviceProfilerIndex = new CompletableFuture<>();
+
+    // a profile that was extended to cover a second alert
+    uploadService.upload(
+        Arrays.asList(cpu, memory), 321, createFakeJfrFile(), serviceProfilerIndex::complete);
+
+    Map<String, String> properties = serviceProfilerIndex.get(10, SECONDS).getProperties();
+    assertThat(
+            properties.get(
+                ServiceProfilerIndex.Builder.SERVICE_PROFILER_COVERED_ALERTS_PROPERTY_NAME))
+        .isEqualTo("CPU:" + cpu.getProfileId() + ",MEMORY:" + memory.getProfileId());
+  }
+
+  private static AlertBreach newAlertBreach(AlertMetricType type) {
+    return AlertBreach.builder()
+        .setType(type)
+        .setAlertValue(0)
+        .setAlertConfiguration(
+            AlertConfiguration.builder().setType(type).setProfileDurationSeconds(60).build())
+        .setProfileId(UUID.randomUUID().toString())
+        .build();
+  }
+
   private static File createFakeJfrFile() throws IOException {
     File tmpFile = File.createTempFile("a-jfr-file", "jfr");
     FileOutputStream fos = new FileOutputStream(tmpFile);
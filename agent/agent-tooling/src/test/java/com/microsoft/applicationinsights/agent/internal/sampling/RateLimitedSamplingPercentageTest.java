@@ -173,4 +173,43 @@ class RateLimitedSamplingPercentageTest {
     assertThat(numSampledSpansInLast5Seconds / 5.)
         .isCloseTo(targetSpansPerSecondLimit, Percentage.withPercentage(5));
   }
+
+  @Test
+  void testConcurrentCallsAreAllCounted() throws InterruptedException {
+
+    double targetSpansPerSecondLimit = 1000;
+    double adaptationTimeSeconds = 5;
+
+    RateLimitedSamplingPercentage samplingPercentage =
+        new RateLimitedSamplingPercentage(
+            targetSpansPerSecondLimit, adaptationTimeSeconds, nanoTimeSupplier, false);
+
+    int numThreads = 4;
+    int numSpansPerThread = 10000;
+
+    // time doesn't advance here, so these are only counted, and not reconciled yet
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < numThreads; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < numSpansPerThread; j++) {
+                  samplingPercentage.get();
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    advanceTime(TimeUnit.SECONDS.toNanos(1));
+
+    // one second worth of budget, shared between all of the spans (including this one)
+    assertThat(samplingPercentage.get())
+        .isCloseTo(
+            100 * targetSpansPerSecondLimit / (numThreads * numSpansPerThread + 1),
+            Percentage.withPercentage(0.001));
+  }
 }
@@ -16,6 +16,7 @@ import io.opentelemetry.sdk.trace.samplers.Sampler;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 import org.junit.jupiter.api.Test;
 
 class SamplingOverridesTest {
@@ -261,6 +262,61 @@ class SamplingOverridesTest {
     assertThat(sampler).isNull();
   }
 
+  @Test
+  void shouldUseFirstMatchAcrossIndexedAndUnindexedOverrides() {
+    // given
+    List<SamplingOverride> overrides =
+        Arrays.asList(
+            newOverride(10, newStrictAttribute("one", "2")),
+            newOverride(25, newRegexpAttribute("two", "2.*")),
+            newOverride(50, newStrictAttribute("one", "1")),
+            newOverride(75, newStrictAttribute("one", "1"), newRegexpAttribute("two", "2.*")));
+    SamplingOverrides samplingOverrides = new SamplingOverrides(overrides);
+    Attributes attributes =
+        Attributes.of(AttributeKey.stringKey("one"), "1", AttributeKey.stringKey("two"), "22");
+    Attributes otherAttributes =
+        Attributes.of(AttributeKey.stringKey("one"), "1", AttributeKey.stringKey("two"), "33");
+
+    // when
+    Sampler sampler = samplingOverrides.getOverride(attributes);
+    Sampler otherSampler = samplingOverrides.getOverride(otherAttributes);
+
+    // expect
+    assertThat(sampler).isNotNull();
+    assertThat(SamplingTestUtil.getCurrentSamplingPercentage(sampler)).isEqualTo(25);
+    assertThat(otherSampler).isNotNull();
+    assertThat(SamplingTestUtil.getCurrentSamplingPercentage(otherSampler)).isEqualTo(50);
+  }
+
+  @Test
+  void shouldMatchSimpleRegexpsTheSameAsThePattern() {
+    List<String> regexps =
+        Arrays.asList(
+            "/health", ".*/health", "/health.*", ".*/health.*", ".*\\.health", ".*", "/a|/b");
+    List<String> values =
+        Arrays.asList(
+            "/health",
+            "/api/health",
+            "/health/live",
+            "/api/health/live",
+            "x.health",
+            "xhealth",
+            "/api\n/health",
+            "/health\n",
+            "",
+            "/a");
+    for (String regexp : regexps) {
+      SamplingOverrides samplingOverrides =
+          new SamplingOverrides(singletonList(newOverride(25, newRegexpAttribute("one", regexp))));
+      for (String value : values) {
+        Attributes attributes = Attributes.of(AttributeKey.stringKey("one"), value);
+        assertThat(samplingOverrides.getOverride(attributes) != null)
+            .as("regexp %s, value %s", regexp, value)
+            .isEqualTo(Pattern.matches(regexp, value));
+      }
+    }
+  }
+
   private static SamplingOverride newOverride(
       double percentage, SamplingOverrideAttribute... attribute) {
     SamplingOverride override = new SamplingOverride();
@@ -0,0 +1,241 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.sampling;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.AiSemanticAttributes;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.MatchType;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SamplingOverride;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.SamplingOverrideAttribute;
+import com.microsoft.applicationinsights.agent.internal.configuration.Configuration.TailSampling;
+import com.microsoft.applicationinsights.agent.internal.processors.MockSpanExporter;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.sdk.testing.trace.TestSpanData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.data.StatusData;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+
+class TailSamplingSpanExporterTest {
+
+  // known to produce a score of 0.66 (out of 100)
+  private static final String LOW_SCORE_TRACE_ID = "27272727272727272727272727272727";
+
+  private final MockSpanExporter mockSpanExporter = new MockSpanExporter();
+
+  @Test
+  void shouldBufferUntilLocalRootEnds() {
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config(100), mockSpanExporter);
+
+    SpanData child = span(LOW_SCORE_TRACE_ID, "0000000000000002", "0000000000000001", false);
+    SpanData root = span(LOW_SCORE_TRACE_ID, "0000000000000001", null, false);
+
+    exporter.export(singletonList(child));
+    assertThat(mockSpanExporter.getSpans()).isEmpty();
+    assertThat(exporter.getBufferedSpans()).isEqualTo(1);
+
+    exporter.export(singletonList(root));
+    assertThat(mockSpanExporter.getSpans()).containsExactly(child, root);
+    assertThat(exporter.getBufferedSpans()).isZero();
+  }
+
+  @Test
+  void shouldKeepTracesWithErrors() {
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config(0), mockSpanExporter);
+
+    SpanData child = span(LOW_SCORE_TRACE_ID, "0000000000000002", "0000000000000001", true);
+    SpanData root = span(LOW_SCORE_TRACE_ID, "0000000000000001", null, false);
+    SpanData other = span("12341234123412341234123412341234", "0000000000000003", null, false);
+
+    exporter.export(asList(child, root, other));
+
+    assertThat(mockSpanExporter.getSpans()).containsExactly(child, root);
+  }
+
+  @Test
+  void shouldKeepSlowTraces() {
+    TailSampling config = config(0);
+    config.latencyThresholdMillis = 500;
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config, mockSpanExporter);
+
+    SpanData fast = span(LOW_SCORE_TRACE_ID, "0000000000000001", null, false);
+    SpanData slow =
+        TestSpanData.builder()
+            .setSpanContext(spanContext("12341234123412341234123412341234", "0000000000000001"))
+            .setName("slow")
+            .setKind(SpanKind.SERVER)
+            .setStartEpochNanos(0)
+            .setEndEpochNanos(TimeUnit.SECONDS.toNanos(1))
+            .setHasEnded(true)
+            .setStatus(StatusData.unset())
+            .setTotalRecordedEvents(0)
+            .setTotalRecordedLinks(0)
+            .build();
+
+    exporter.export(asList(fast, slow));
+
+    assertThat(mockSpanExporter.getSpans()).containsExactly(slow);
+  }
+
+  @Test
+  void shouldUseHighestOverridePercentageOfTrace() {
+    TailSampling config = config(100);
+    SamplingOverrideAttribute attribute = new SamplingOverrideAttribute();
+    attribute.key = "http.target";
+    attribute.value = "/health";
+    attribute.matchType = MatchType.STRICT;
+    SamplingOverride override = new SamplingOverride();
+    override.attributes = singletonList(attribute);
+    override.percentage = 0.0;
+    config.overrides = singletonList(override);
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config, mockSpanExporter);
+
+    Attributes health = Attributes.builder().put("http.target", "/health").build();
+    SpanData healthRoot =
+        span(LOW_SCORE_TRACE_ID, "0000000000000001", null, false, health, Attributes.empty());
+    SpanData otherChild =
+        span("12341234123412341234123412341234", "0000000000000003", "0000000000000002", false);
+    SpanData otherRoot =
+        span(
+            "12341234123412341234123412341234",
+            "0000000000000002",
+            null,
+            false,
+            health,
+            Attributes.empty());
+
+    exporter.export(asList(healthRoot, otherChild, otherRoot));
+
+    // the other trace is kept because of its child span, which doesn't match the override
+    assertThat(mockSpanExporter.getSpans()).containsExactly(otherChild, otherRoot);
+  }
+
+  @Test
+  void shouldScaleItemCount() {
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config(50), mockSpanExporter);
+
+    Attributes headSampled = Attributes.of(AiSemanticAttributes.ITEM_COUNT, 2L);
+    exporter.export(
+        singletonList(
+            span(
+                LOW_SCORE_TRACE_ID,
+                "0000000000000001",
+                null,
+                false,
+                Attributes.empty(),
+                headSampled)));
+
+    assertThat(mockSpanExporter.getSpans()).hasSize(1);
+    SpanData span = mockSpanExporter.getSpans().get(0);
+    assertThat(span.getAttributes().get(AiSemanticAttributes.ITEM_COUNT)).isEqualTo(4);
+  }
+
+  @Test
+  void shouldApplyDecisionToSpansEndingAfterLocalRoot() {
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config(0), mockSpanExporter);
+
+    SpanData root = span(LOW_SCORE_TRACE_ID, "0000000000000001", null, true);
+    SpanData asyncChild = span(LOW_SCORE_TRACE_ID, "0000000000000002", "0000000000000001", false);
+
+    exporter.export(singletonList(root));
+    exporter.export(singletonList(asyncChild));
+
+    assertThat(mockSpanExporter.getSpans()).containsExactly(root, asyncChild);
+    assertThat(exporter.getBufferedSpans()).isZero();
+  }
+
+  @Test
+  void shouldDecideOldestTraceEarlyWhenFull() {
+    TailSampling config = config(100);
+    config.maxBufferedSpans = 2;
+    TailSamplingSpanExporter exporter = new TailSamplingSpanExporter(config, mockSpanExporter);
+
+    SpanData first = span(LOW_SCORE_TRACE_ID, "0000000000000002", "0000000000000001", false);
+    SpanData second =
+        span("12341234123412341234123412341234", "0000000000000004", "0000000000000003", false);
+    SpanData third =
+        span("56785678567856785678567856785678", "0000000000000006", "0000000000000005", false);
+
+    exporter.export(asList(first, second, third));
+
+    assertThat(mockSpanExporter.getSpans()).containsExactly(first);
+    assertThat(exporter.getBufferedSpans()).isEqualTo(2);
+
+    exporter.flush();
+
+    assertThat(mockSpanExporter.getSpans()).containsExactly(first, second, third);
+    assertThat(exporter.getBufferedSpans()).isZero();
+  }
+
+  @Test
+  void shouldDecideBufferedTracesOnceTheyTimeOutWithoutMoreSpans() {
+    TailSampling config = config(100);
+    config.maxBufferedSeconds = 30;
+    AtomicLong nanoTime = new AtomicLong();
+    TailSamplingSpanExporter exporter =
+        new TailSamplingSpanExporter(config, mockSpanExporter, nanoTime::get, null);
+
+    SpanData child = span(LOW_SCORE_TRACE_ID, "0000000000000002", "0000000000000001", false);
+    exporter.export(singletonList(child));
+
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(29));
+    exporter.exportExpired();
+    assertThat(mockSpanExporter.getSpans()).isEmpty();
+    assertThat(exporter.getBufferedSpans()).isEqualTo(1);
+
+    // no more spans arrived for this (or any other) trace
+    nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    exporter.exportExpired();
+    assertThat(mockSpanExporter.getSpans()).containsExactly(child);
+    assertThat(exporter.getBufferedSpans()).isZero();
+  }
+
+  private static TailSampling config(double percentage) {
+    TailSampling config = new TailSampling();
+    config.enabled = true;
+    config.percentage = percentage;
+    return config;
+  }
+
+  private static SpanData span(
+      String traceId, String spanId, @Nullable String parentSpanId, boolean error) {
+    return span(traceId, spanId, parentSpanId, error, Attributes.empty(), Attributes.empty());
+  }
+
+  private static SpanData span(
+      String traceId,
+      String spanId,
+      @Nullable String parentSpanId,
+      boolean error,
+      Attributes attributes,
+      Attributes headSamplingAttributes) {
+    return TestSpanData.builder()
+        .setSpanContext(spanContext(traceId, spanId))
+        .setParentSpanContext(
+            parentSpanId == null ? SpanContext.getInvalid() : spanContext(traceId, parentSpanId))
+        .setName("span")
+        .setKind(parentSpanId == null ? SpanKind.SERVER : SpanKind.CLIENT)
+        .setStartEpochNanos(0)
+        .setEndEpochNanos(TimeUnit.MILLISECONDS.toNanos(10))
+        .setHasEnded(true)
+        .setStatus(error ? StatusData.error() : StatusData.unset())
+        .setAttributes(attributes.toBuilder().putAll(headSamplingAttributes).build())
+        .setTotalRecordedEvents(0)
+        .setTotalRecordedLinks(0)
+        .build();
+  }
+
+  private static SpanContext spanContext(String traceId, String spanId) {
+    return SpanContext.create(traceId, spanId, TraceFlags.getSampled(), TraceState.getDefault());
+  }
+}
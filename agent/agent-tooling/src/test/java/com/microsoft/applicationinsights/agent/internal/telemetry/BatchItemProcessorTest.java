@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static java.util.concurrent.TimeUnit.HOURS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.pipeline.TelemetryItemExporter;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BatchItemProcessorTest {
+
+  private static final int WORKER_COUNT = 2;
+
+  // the batches that were sent, by item name
+  private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+  private final CountDownLatch releaseExports = new CountDownLatch(1);
+
+  private BatchItemProcessor processor;
+
+  @AfterEach
+  void tearDown() {
+    releaseExports.countDown();
+    processor.shutdown().join(10, SECONDS);
+  }
+
+  @Test
+  void flushDrainsAllWorkersAndKeepsPerThreadOrder() throws InterruptedException {
+    // nothing is exported until the flush, since the batches are never full and the schedule delay
+    // is never reached
+    processor = newProcessor(HOURS.toNanos(1), 100, 100, false);
+
+    runOnWorker(0, () -> trackItems("a", 0, 10));
+    runOnWorker(1, () -> trackItems("b", 0, 10));
+
+    assertThat(batches).isEmpty();
+    assertThat(processor.forceFlush().join(10, SECONDS).isSuccess()).isTrue();
+
+    // each thread's items were all queued to the same worker, and each worker exports its own
+    // queue in a single batch
+    assertThat(batches).containsExactlyInAnyOrder(names("a", 0, 10), names("b", 0, 10));
+  }
+
+  @Test
+  void dropsItemsOnlyForTheFullWorker() throws InterruptedException {
+    // two items per worker, with each worker holding up to one more item in the (blocked) export
+    processor = newProcessor(MILLISECONDS.toNanos(10), 4, 1, true);
+
+    runOnWorker(0, () -> trackItems("a", 0, 1));
+    waitForBatches(1);
+    runOnWorker(0, () -> trackItems("a", 1, 10));
+    runOnWorker(1, () -> trackItems("b", 0, 2));
+
+    releaseExports.countDown();
+    assertThat(processor.forceFlush().join(10, SECONDS).isSuccess()).isTrue();
+
+    List<String> exported = batches.stream().flatMap(List::stream).collect(Collectors.toList());
+    // the first worker's queue only had room for two more items while it was stuck exporting
+    assertThat(exported.stream().filter(name -> name.startsWith("a")))
+        .containsExactly("a0", "a1", "a2");
+    // which doesn't affect the second worker
+    assertThat(exported.stream().filter(name -> name.startsWith("b")))
+        .containsExactly("b0", "b1");
+  }
+
+  private BatchItemProcessor newProcessor(
+      long scheduleDelayNanos, int maxQueueSize, int maxExportBatchSize, boolean blockExports) {
+    TelemetryItemExporter exporter = mock(TelemetryItemExporter.class);
+    when(exporter.send(any()))
+        .thenAnswer(
+            invocation -> {
+              List<TelemetryItem> batch = invocation.getArgument(0);
+              batches.add(batch.stream().map(TelemetryItem::getName).collect(Collectors.toList()));
+              if (blockExports) {
+                releaseExports.await();
+              }
+              return CompletableResultCode.ofSuccess();
+            });
+    when(exporter.flush()).thenReturn(CompletableResultCode.ofSuccess());
+    return new BatchItemProcessor(
+        exporter,
+        scheduleDelayNanos,
+        maxQueueSize,
+        maxExportBatchSize,
+        SECONDS.toNanos(10),
+        1,
+        WORKER_COUNT,
+        null,
+        "test");
+  }
+
+  private void trackItems(String prefix, int from, int to) {
+    for (int i = from; i < to; i++) {
+      TelemetryItem item = new TelemetryItem();
+      item.setName(prefix + i);
+      processor.trackAsync(item);
+    }
+  }
+
+  private void waitForBatches(int count) throws InterruptedException {
+    long deadline = System.nanoTime() + SECONDS.toNanos(10);
+    while (batches.size() < count) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  // items are assigned to a worker by the id of the thread that submits them
+  private static void runOnWorker(int worker, Runnable runnable) throws InterruptedException {
+    Thread thread;
+    do {
+      thread = new Thread(runnable);
+    } while (thread.getId() % WORKER_COUNT != worker);
+    thread.start();
+    thread.join();
+  }
+
+  private static List<String> names(String prefix, int from, int to) {
+    List<String> names = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      names.add(prefix + i);
+    }
+    return names;
+  }
+}
@@ -0,0 +1,145 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.builders.MessageTelemetryBuilder;
+import com.azure.monitor.opentelemetry.exporter.implementation.configuration.ConnectionString;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.MessageData;
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import com.azure.monitor.opentelemetry.exporter.implementation.utils.FormattedTime;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiskOverflowQueueTest {
+
+  @TempDir File tempFolder;
+
+  @Test
+  void shouldRoundTripItemsInOrder() {
+    DiskOverflowQueue overflow = new DiskOverflowQueue(tempFolder, 2);
+    ConnectionString connectionString =
+        ConnectionString.parse("InstrumentationKey=00000000-0000-0000-0000-0000000000ff");
+
+    assertThat(overflow.isEmpty()).isTrue();
+    for (int i = 0; i < 3; i++) {
+      assertThat(overflow.offer(newItem("message " + i, connectionString))).isTrue();
+    }
+    assertThat(overflow.isEmpty()).isFalse();
+    assertThat(overflow.size()).isEqualTo(3);
+
+    for (int i = 0; i < 3; i++) {
+      TelemetryItem item = overflow.poll();
+      assertThat(item).isNotNull();
+      assertThat(getMessage(item)).isEqualTo("message " + i);
+      assertThat(item.getConnectionString()).isSameAs(connectionString);
+    }
+    assertThat(overflow.poll()).isNull();
+    assertThat(overflow.isEmpty()).isTrue();
+  }
+
+  @Test
+  void shouldRejectItemsWhenFull() {
+    DiskOverflowQueue overflow = new DiskOverflowQueue(tempFolder, 1);
+    String message = new String(new char[1024]).replace('\0', 'x');
+
+    int offered = 0;
+    while (overflow.offer(newItem(message, null))) {
+      offered++;
+    }
+    assertThat(offered).isGreaterThan(0);
+    assertThat(overflow.size()).isEqualTo(offered);
+
+    // making room again, by draining everything
+    List<TelemetryItem> batch = new ArrayList<>();
+    while (!overflow.isEmpty()) {
+      overflow.drainTo(batch, offered);
+    }
+    assertThat(batch).hasSize(offered);
+    assertThat(overflow.offer(newItem(message, null))).isTrue();
+  }
+
+  @Test
+  void shouldWrapAroundTheSegments() {
+    DiskOverflowQueue overflow = new DiskOverflowQueue(tempFolder, 2);
+    // (staying under the max message length, which would otherwise truncate the message)
+    String message = new String(new char[30 * 1024]).replace('\0', 'x');
+
+    // several segments worth of items in total, while always keeping a few items in flight, so
+    // that the head and the tail have to move around the ring
+    for (int i = 0; i < 5; i++) {
+      assertThat(overflow.offer(newItem(message + i, null))).isTrue();
+    }
+    for (int i = 5; i < 150; i++) {
+      assertThat(overflow.offer(newItem(message + i, null))).isTrue();
+      assertThat(getMessage(overflow.poll())).isEqualTo(message + (i - 5));
+    }
+    for (int i = 145; i < 150; i++) {
+      assertThat(getMessage(overflow.poll())).isEqualTo(message + i);
+    }
+    assertThat(overflow.isEmpty()).isTrue();
+  }
+
+  @Test
+  void shouldDeleteStaleDirectories() throws IOException {
+    // left behind by a process that was killed
+    File staleDir = new File(tempFolder, "overflow-test-123");
+    assertThat(staleDir.mkdir()).isTrue();
+    Files.write(new File(staleDir, "segment-0.bin").toPath(), new byte[10]);
+    Files.write(new File(staleDir, "lock").toPath(), new byte[0]);
+    makeOld(staleDir);
+    // belongs to a different queue
+    File otherQueueDir = new File(tempFolder, "overflow-other-123");
+    assertThat(otherQueueDir.mkdir()).isTrue();
+    makeOld(otherQueueDir);
+
+    DiskOverflowQueue.create(tempFolder, "test", 1);
+
+    assertThat(staleDir).doesNotExist();
+    assertThat(otherQueueDir).exists();
+    assertThat(tempFolder.listFiles(file -> file.getName().startsWith("overflow-test-")))
+        .hasSize(1);
+  }
+
+  @Test
+  void shouldNotDeleteDirectoriesInUse() throws IOException {
+    DiskOverflowQueue.create(tempFolder, "test", 1);
+    File[] dirs = tempFolder.listFiles();
+    assertThat(dirs).hasSize(1);
+    makeOld(dirs[0]);
+
+    DiskOverflowQueue.create(tempFolder, "test", 1);
+
+    assertThat(dirs[0]).exists();
+    assertThat(tempFolder.listFiles()).hasSize(2);
+  }
+
+  private static void makeOld(File dir) {
+    assertThat(dir.setLastModified(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1)))
+        .isTrue();
+  }
+
+  private static TelemetryItem newItem(
+      String message, @Nullable ConnectionString connectionString) {
+    MessageTelemetryBuilder builder = MessageTelemetryBuilder.create();
+    builder.setMessage(message);
+    builder.setTime(FormattedTime.offSetDateTimeFromNow());
+    TelemetryItem item = builder.build();
+    item.setConnectionString(connectionString);
+    return item;
+  }
+
+  private static String getMessage(@Nullable TelemetryItem item) {
+    assertThat(item).isNotNull();
+    return ((MessageData) item.getData().getBaseData()).getMessage();
+  }
+}
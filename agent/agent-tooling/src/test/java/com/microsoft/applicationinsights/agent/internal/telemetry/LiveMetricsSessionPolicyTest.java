@@ -0,0 +1,78 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpMethod;
+import com.azure.core.http.HttpPipeline;
+import com.azure.core.http.HttpPipelineBuilder;
+import com.azure.core.http.HttpRequest;
+import com.azure.core.test.http.MockHttpResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+class LiveMetricsSessionPolicyTest {
+
+  private final LiveMetricsSessionPolicy policy = new LiveMetricsSessionPolicy();
+  private final AtomicReference<String> subscribedHeader = new AtomicReference<>();
+  private volatile boolean fail;
+
+  private final HttpPipeline pipeline =
+      new HttpPipelineBuilder()
+          .httpClient(
+              request -> {
+                if (fail) {
+                  return Mono.error(new IOException("connection refused"));
+                }
+                HttpHeaders headers = new HttpHeaders();
+                String value = subscribedHeader.get();
+                if (value != null) {
+                  headers.set("x-ms-qps-subscribed", value);
+                }
+                return Mono.just(new MockHttpResponse(request, 200, headers));
+              })
+          .policies(policy)
+          .build();
+
+  @Test
+  void shouldTrackSubscribedHeader() {
+    assertThat(policy.isSubscribed()).isFalse();
+
+    send("true");
+    assertThat(policy.isSubscribed()).isTrue();
+
+    // responses without the header leave the state as is
+    send(null);
+    assertThat(policy.isSubscribed()).isTrue();
+
+    send("false");
+    assertThat(policy.isSubscribed()).isFalse();
+  }
+
+  @Test
+  void shouldNotBeSubscribedAfterFailure() {
+    send("true");
+    assertThat(policy.isSubscribed()).isTrue();
+
+    fail = true;
+    try {
+      send("true");
+    } catch (RuntimeException expected) {
+      // the failure itself is handled by live metrics
+    }
+    assertThat(policy.isSubscribed()).isFalse();
+  }
+
+  private void send(@Nullable String subscribed) {
+    subscribedHeader.set(subscribed);
+    pipeline
+        .send(new HttpRequest(HttpMethod.POST, "https://localhost/QuickPulseService.svc/ping"))
+        .block();
+  }
+}
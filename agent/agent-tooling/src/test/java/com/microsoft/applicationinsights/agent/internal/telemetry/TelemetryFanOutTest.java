@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent.internal.telemetry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.models.TelemetryItem;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.Test;
+
+class TelemetryFanOutTest {
+
+  @Test
+  void shouldPassItemsToObserversInOrder() throws InterruptedException {
+    List<Consumer<TelemetryItem>> observers = new CopyOnWriteArrayList<>();
+    List<TelemetryItem> observed = new CopyOnWriteArrayList<>();
+    CountDownLatch latch = new CountDownLatch(3);
+    observers.add(
+        item -> {
+          observed.add(item);
+          latch.countDown();
+        });
+    TelemetryFanOut fanOut = new TelemetryFanOut(10, observers);
+
+    List<TelemetryItem> items = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      TelemetryItem item = new TelemetryItem();
+      items.add(item);
+      fanOut.add(item, null);
+    }
+
+    assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(observed).containsExactlyElementsOf(items);
+    assertThat(fanOut.getDroppedCount()).isZero();
+  }
+
+  @Test
+  void shouldDropInsteadOfBlockingWhenObserverIsSlow() throws InterruptedException {
+    List<Consumer<TelemetryItem>> observers = new CopyOnWriteArrayList<>();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    observers.add(
+        item -> {
+          started.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    TelemetryFanOut fanOut = new TelemetryFanOut(1, observers);
+
+    // the first item is taken by the worker, which then blocks in the observer
+    fanOut.add(new TelemetryItem(), null);
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+
+    // the second item fills the queue, and the rest are dropped
+    for (int i = 0; i < 3; i++) {
+      fanOut.add(new TelemetryItem(), null);
+    }
+    assertThat(fanOut.getDroppedCount()).isEqualTo(2);
+
+    release.countDown();
+  }
+
+  @Test
+  void shouldSkipWhenThereAreNoConsumers() {
+    TelemetryFanOut fanOut = new TelemetryFanOut(1, new CopyOnWriteArrayList<>());
+
+    for (int i = 0; i < 3; i++) {
+      fanOut.add(new TelemetryItem(), null);
+    }
+
+    assertThat(fanOut.getDroppedCount()).isZero();
+  }
+}
@@ -0,0 +1,89 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package io.opentelemetry.sdk.metrics.internal.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.azure.monitor.opentelemetry.exporter.implementation.AiSemanticAttributes;
+import com.microsoft.applicationinsights.agent.internal.init.AiContextKeys;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.semconv.SemanticAttributes;
+import org.junit.jupiter.api.Test;
+
+class MetricViewAttributesProcessorTest {
+
+  @Test
+  void shouldFilterAndReuseProcessedAttributes() {
+    MetricViewAttributesProcessor processor =
+        new MetricViewAttributesProcessor(MetricView.HTTP_SERVER_VIEW.getAttributeKeys(), true);
+
+    Attributes processed = processor.process(serverAttributes(), Context.root());
+
+    assertThat(processed)
+        .isEqualTo(
+            Attributes.of(
+                SemanticAttributes.HTTP_STATUS_CODE,
+                200L,
+                AiSemanticAttributes.IS_SYNTHETIC,
+                false));
+    // equal attributes get the same processed attributes
+    assertThat(processor.process(serverAttributes(), Context.root())).isSameAs(processed);
+  }
+
+  @Test
+  void shouldNotReuseProcessedAttributesAcrossOverrides() {
+    MetricViewAttributesProcessor processor =
+        new MetricViewAttributesProcessor(MetricView.HTTP_SERVER_VIEW.getAttributeKeys(), false);
+    Context context = Context.root().with(AiContextKeys.ROLE_NAME, "role-a");
+
+    Attributes processed = processor.process(serverAttributes(), context);
+    Attributes otherProcessed =
+        processor.process(serverAttributes(), Context.root().with(AiContextKeys.ROLE_NAME, "b"));
+
+    assertThat(processed.get(AiSemanticAttributes.INTERNAL_ROLE_NAME)).isEqualTo("role-a");
+    assertThat(otherProcessed.get(AiSemanticAttributes.INTERNAL_ROLE_NAME)).isEqualTo("b");
+  }
+
+  @Test
+  void shouldReturnIncomingAttributesWhenNothingChanges() {
+    MetricViewAttributesProcessor processor =
+        new MetricViewAttributesProcessor(MetricView.HTTP_SERVER_VIEW.getAttributeKeys(), false);
+    Attributes incoming = Attributes.of(SemanticAttributes.HTTP_STATUS_CODE, 200L);
+
+    assertThat(processor.process(incoming, Context.root())).isSameAs(incoming);
+  }
+
+  @Test
+  void shouldKeepCachingWhenIncomingAttributesVaryBeyondTheCacheSize() {
+    MetricViewAttributesProcessor processor =
+        new MetricViewAttributesProcessor(MetricView.HTTP_SERVER_VIEW.getAttributeKeys(), true);
+
+    for (int i = 0; i < 2 * MetricViewAttributesProcessor.MAX_CACHE_SIZE; i++) {
+      Attributes incoming = serverAttributes().toBuilder().put("client.id", i).build();
+      Attributes processed = processor.process(incoming, Context.root());
+      assertThat(processed)
+          .isEqualTo(
+              Attributes.of(
+                  SemanticAttributes.HTTP_STATUS_CODE,
+                  200L,
+                  AiSemanticAttributes.IS_SYNTHETIC,
+                  false));
+    }
+
+    // attributes that repeat are still cached after many others have been seen
+    Attributes processed = processor.process(serverAttributes(), Context.root());
+    assertThat(processor.process(serverAttributes(), Context.root())).isSameAs(processed);
+  }
+
+  private static Attributes serverAttributes() {
+    return Attributes.of(
+        SemanticAttributes.HTTP_STATUS_CODE,
+        200L,
+        SemanticAttributes.HTTP_ROUTE,
+        "/orders",
+        SemanticAttributes.USER_AGENT_ORIGINAL,
+        "Mozilla/5.0");
+  }
+}
@@ -47,6 +47,8 @@ dependencies {
   upstreamAgent("io.opentelemetry.javaagent:opentelemetry-javaagent:$otelInstrumentationVersion")
 
   licenseReportDependencies(project(":agent:agent-tooling"))
+
+  testImplementation("org.assertj:assertj-core")
 }
 
 val javaagentDependencies = dependencies
@@ -0,0 +1,162 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts a profile written by {@link StartupProfiler} into collapsed stacks (one line per
+ * distinct thread and stack, with the frames from the outermost to the innermost separated by
+ * semicolons, followed by the number of samples), which is the input format of most flame graph
+ * tools.
+ *
+ * <p>Usage: {@code java -cp applicationinsights-agent.jar
+ * com.microsoft.applicationinsights.agent.StartupProfileConverter <profile> [<output>]} (writes to
+ * standard out when no output file is given).
+ */
+public final class StartupProfileConverter {
+
+  @SuppressWarnings("SystemOut")
+  public static void main(String... args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println(
+          "Usage: java -cp applicationinsights-agent.jar "
+              + StartupProfileConverter.class.getName()
+              + " <profile> [<output>]");
+      System.exit(1);
+    }
+    Map<String, Long> collapsedStacks;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(args[0]))))) {
+      collapsedStacks = read(in);
+    }
+    Writer writer =
+        args.length == 2
+            ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+            : new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    try (PrintWriter out = new PrintWriter(writer)) {
+      for (Map.Entry<String, Long> entry : collapsedStacks.entrySet()) {
+        out.print(entry.getKey());
+        out.print(' ');
+        out.println(entry.getValue());
+      }
+    }
+  }
+
+  // returns the number of samples per collapsed stack (which includes the thread name as the
+  // outermost frame), in the order in which they first occur
+  static Map<String, Long> read(DataInputStream in) throws IOException {
+    if (in.readInt() != StartupProfiler.MAGIC) {
+      throw new IOException("Not a startup profile");
+    }
+    int version = in.readUnsignedByte();
+    if (version != StartupProfiler.VERSION) {
+      throw new IOException("Unsupported startup profile version: " + version);
+    }
+
+    List<String> threadNames = new ArrayList<>();
+    List<String> frames = new ArrayList<>();
+    List<int[]> stacks = new ArrayList<>();
+    // collapsed stack per (thread name id, stack id), so that each is only built once
+    Map<Long, String> collapsedStackCache = new LinkedHashMap<>();
+    Map<String, Long> samples = new LinkedHashMap<>();
+
+    while (true) {
+      int tag = in.read();
+      if (tag == -1) {
+        break;
+      }
+      try {
+        switch (tag) {
+          case StartupProfiler.THREAD_NAME:
+            threadNames.add(sanitize(in.readUTF()));
+            break;
+          case StartupProfiler.FRAME:
+            frames.add(readFrame(in));
+            break;
+          case StartupProfiler.STACK:
+            int[] stack = new int[(int) readVarInt(in)];
+            for (int i = 0; i < stack.length; i++) {
+              stack[i] = (int) readVarInt(in);
+            }
+            stacks.add(stack);
+            break;
+          case StartupProfiler.SAMPLE:
+            readVarInt(in); // uptime
+            String[] sample = new String[(int) readVarInt(in)];
+            for (int i = 0; i < sample.length; i++) {
+              int threadNameId = (int) readVarInt(in);
+              in.readUnsignedByte(); // thread state
+              int stackId = (int) readVarInt(in);
+              sample[i] =
+                  collapsedStackCache.computeIfAbsent(
+                      ((long) threadNameId << 32) | stackId,
+                      k -> collapse(threadNames.get(threadNameId), stacks.get(stackId), frames));
+            }
+            // only counted once the whole sample has been read
+            for (String collapsedStack : sample) {
+              samples.merge(collapsedStack, 1L, Long::sum);
+            }
+            break;
+          default:
+            throw new IOException("Unexpected record in startup profile: " + tag);
+        }
+      } catch (EOFException e) {
+        // the profile is still being written, or the JVM exited while it was being written,
+        // in which case the last (partial) sample is dropped
+        break;
+      }
+    }
+    return samples;
+  }
+
+  private static String readFrame(DataInputStream in) throws IOException {
+    String className = in.readUTF();
+    String methodName = in.readUTF();
+    in.readUTF(); // file name
+    in.readInt(); // line number
+    return sanitize(className + "." + methodName);
+  }
+
+  private static String collapse(String threadName, int[] stack, List<String> frames) {
+    StringBuilder sb = new StringBuilder(threadName);
+    // the stack starts with the innermost frame
+    for (int i = stack.length - 1; i >= 0; i--) {
+      sb.append(';').append(frames.get(stack[i]));
+    }
+    return sb.toString();
+  }
+
+  // semicolons and spaces separate the frames and the count in the collapsed stacks format
+  private static String sanitize(String name) {
+    return name.replace(';', ':').replace(' ', '_');
+  }
+
+  private static long readVarInt(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in startup profile");
+  }
+
+  private StartupProfileConverter() {}
+}
@@ -5,18 +5,53 @@ package com.microsoft.applicationinsights.agent;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
 
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * Samples the stacks of all threads during startup, and writes them in a compact binary format
+ * (see {@link StartupProfileConverter} for converting it to collapsed stacks).
+ *
+ * <p>The stack frames, the stacks and the thread names are each written only once, the first time
+ * they are seen, and each sample then only refers to them by id. Since the same few stacks show
+ * up over and over again during startup, this keeps the size of the file, and the time spent
+ * writing it, low. Capturing the full stacks of all threads every 50 milliseconds still takes
+ * time, though (this is usually the bigger cost), so profiling does slow down the startup that
+ * is being profiled.
+ *
+ * <p>File format: the {@link #MAGIC} and {@link #VERSION} header, followed by records that each
+ * start with a tag byte. Ids are assigned sequentially (starting from 0) per record type, and
+ * integers are written as unsigned varints unless noted otherwise.
+ *
+ * <ul>
+ *   <li>{@link #THREAD_NAME}: name (modified UTF-8)
+ *   <li>{@link #FRAME}: class name, method name, file name (empty if unknown), all modified UTF-8,
+ *       then line number (4 byte signed int, negative if unknown)
+ *   <li>{@link #STACK}: number of frames, then the frame ids (innermost frame first)
+ *   <li>{@link #SAMPLE}: JVM uptime in milliseconds, number of threads, then per thread: thread
+ *       name id, {@link Thread.State} ordinal (1 byte), stack id
+ * </ul>
+ */
 final class StartupProfiler {
 
+  static final int MAGIC = 0x41495350; // "AISP"
+  static final int VERSION = 1;
+
+  static final int THREAD_NAME = 1;
+  static final int FRAME = 2;
+  static final int STACK = 3;
+  static final int SAMPLE = 4;
+
   @SuppressWarnings("SystemOut")
   public static void start() {
     String tempDirectory = System.getProperty("java.io.tmpdir");
@@ -26,87 +61,223 @@ final class StartupProfiler {
       return;
     }
 
-    File dumpFile = new File(folder, getThreadDumpFilename());
-    System.out.println("Writing startup profiler to '" + dumpFile.getPath() + "'");
+    File profileFile = new File(folder, getProfileFilename());
+    System.out.println(
+        "Writing startup profiler to '"
+            + profileFile.getPath()
+            + "' (convert it to collapsed stacks with: java -cp <applicationinsights-agent.jar> "
+            + StartupProfileConverter.class.getName()
+            + " <profile> <output>)");
 
-    PrintWriter printWriter;
+    ProfileWriter writer;
     try {
-      printWriter =
-          new PrintWriter(Files.newBufferedWriter(dumpFile.toPath(), Charset.defaultCharset()));
+      writer =
+          new ProfileWriter(
+              new DataOutputStream(
+                  new BufferedOutputStream(Files.newOutputStream(profileFile.toPath()))));
     } catch (IOException e) {
-      System.out.println("Error occurred when writing dump to " + dumpFile.getPath());
+      System.out.println("Error occurred when writing profile to " + profileFile.getPath());
       e.printStackTrace();
       return;
     }
 
-    start(printWriter);
+    start(writer);
   }
 
-  private static void start(PrintWriter out) {
-    Thread thread = new Thread(new ThreadDump(out), "StartupProfiler");
+  private static void start(ProfileWriter writer) {
+    Thread thread = new Thread(new ThreadSampler(writer), "StartupProfiler");
     thread.setDaemon(true);
     thread.start();
   }
 
-  private static String getThreadDumpFilename() {
-    return "stacktrace-" + System.currentTimeMillis() + ".txt";
+  private static String getProfileFilename() {
+    return "startup-profile-" + System.currentTimeMillis() + ".bin";
+  }
+
+  static void writeVarInt(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
   }
 
-  private static class ThreadDump implements Runnable {
+  private static class ThreadSampler implements Runnable {
 
-    private final PrintWriter out;
+    private final ProfileWriter writer;
 
-    private ThreadDump(PrintWriter out) {
-      this.out = out;
+    private ThreadSampler(ProfileWriter writer) {
+      this.writer = writer;
     }
 
     @Override
     @SuppressWarnings("SystemOut")
     public void run() {
-      long start = System.currentTimeMillis();
-      while (System.currentTimeMillis() - start < MINUTES.toMillis(10)) {
+      try {
+        long start = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < MINUTES.toMillis(10)) {
+          try {
+            Thread.sleep(50);
+          } catch (InterruptedException e) {
+            System.out.println("Startup profiler interrupted");
+            return;
+          }
+          captureSample();
+        }
+      } catch (IOException e) {
+        System.out.println("Error occurred when writing startup profile");
+        e.printStackTrace();
+      } finally {
         try {
-          Thread.sleep(50);
-        } catch (InterruptedException e) {
-          System.out.println("Startup profiler interrupted");
-          return;
+          writer.close();
+        } catch (IOException ignored) {
+          // nothing else to do
         }
-        captureThreadDump();
       }
     }
 
-    private void captureThreadDump() {
-      out.println("========================================");
+    private void captureSample() throws IOException {
       RuntimeMXBean runtimeBean = ManagementFactory.getRuntimeMXBean();
-      out.print("uptime: ");
-      out.println(runtimeBean.getUptime());
-      out.println();
+      long uptime = runtimeBean.getUptime();
       ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+      // locked monitors and synchronizers are not captured, since they are expensive to collect
+      // and are not needed for the stacks
       ThreadInfo[] threadInfos =
-          threadBean.getThreadInfo(
-              threadBean.getAllThreadIds(), threadBean.isObjectMonitorUsageSupported(), false);
+          threadBean.getThreadInfo(threadBean.getAllThreadIds(), Integer.MAX_VALUE);
       long currentThreadId = Thread.currentThread().getId();
       for (ThreadInfo threadInfo : threadInfos) {
         // If a thread of a given ID is not alive or does not exist, the corresponding element in
         // the returned array will contain null
-        if (threadInfo == null) {
+        if (threadInfo == null || threadInfo.getThreadId() == currentThreadId) {
           continue;
         }
+        writer.addThread(
+            threadInfo.getThreadName(), threadInfo.getThreadState(), threadInfo.getStackTrace());
+      }
+      writer.writeSample(uptime);
+    }
+  }
 
-        if (threadInfo.getThreadId() != currentThreadId) {
-          write(threadInfo);
-        }
+  /**
+   * Writes the profile (see the file format above), one sample at a time: the threads of the
+   * sample are added first, and then the sample is written.
+   */
+  // visible for testing
+  static final class ProfileWriter {
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> threadNameIds = new HashMap<>();
+    private final Map<StackTraceElement, Integer> frameIds = new HashMap<>();
+    private final Map<StackKey, Integer> stackIds = new HashMap<>();
+
+    // the threads of the current sample, reused across samples
+    private int count;
+    private int[] sampleThreadNameIds = new int[16];
+    private int[] sampleThreadStates = new int[16];
+    private int[] sampleStackIds = new int[16];
+
+    ProfileWriter(DataOutputStream out) throws IOException {
+      this.out = out;
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+    }
+
+    void addThread(String threadName, Thread.State state, StackTraceElement[] stackTrace)
+        throws IOException {
+      if (count == sampleStackIds.length) {
+        sampleThreadNameIds = Arrays.copyOf(sampleThreadNameIds, 2 * count);
+        sampleThreadStates = Arrays.copyOf(sampleThreadStates, 2 * count);
+        sampleStackIds = Arrays.copyOf(sampleStackIds, 2 * count);
+      }
+      // new thread names, frames and stacks are written before the sample that refers to them
+      sampleThreadNameIds[count] = getThreadNameId(threadName);
+      sampleThreadStates[count] = state.ordinal();
+      sampleStackIds[count] = getStackId(stackTrace);
+      count++;
+    }
+
+    void writeSample(long uptime) throws IOException {
+      out.writeByte(SAMPLE);
+      writeVarInt(out, uptime);
+      writeVarInt(out, count);
+      for (int i = 0; i < count; i++) {
+        writeVarInt(out, sampleThreadNameIds[i]);
+        out.writeByte(sampleThreadStates[i]);
+        writeVarInt(out, sampleStackIds[i]);
       }
       out.flush();
+      count = 0;
     }
 
-    private void write(ThreadInfo threadInfo) {
-      out.println(threadInfo.getThreadName() + " #" + threadInfo.getThreadId());
-      out.println("   java.lang.Thread.State: " + threadInfo.getThreadState());
-      for (StackTraceElement ste : threadInfo.getStackTrace()) {
-        out.println("        " + ste);
+    void close() throws IOException {
+      out.close();
+    }
+
+    private int getThreadNameId(String threadName) throws IOException {
+      Integer id = threadNameIds.get(threadName);
+      if (id == null) {
+        id = threadNameIds.size();
+        threadNameIds.put(threadName, id);
+        out.writeByte(THREAD_NAME);
+        out.writeUTF(threadName);
+      }
+      return id;
+    }
+
+    private int getStackId(StackTraceElement[] stackTrace) throws IOException {
+      int[] frames = new int[stackTrace.length];
+      for (int i = 0; i < stackTrace.length; i++) {
+        frames[i] = getFrameId(stackTrace[i]);
       }
-      out.println();
+      StackKey key = new StackKey(frames);
+      Integer id = stackIds.get(key);
+      if (id == null) {
+        id = stackIds.size();
+        stackIds.put(key, id);
+        out.writeByte(STACK);
+        writeVarInt(out, frames.length);
+        for (int frame : frames) {
+          writeVarInt(out, frame);
+        }
+      }
+      return id;
+    }
+
+    private int getFrameId(StackTraceElement frame) throws IOException {
+      Integer id = frameIds.get(frame);
+      if (id == null) {
+        id = frameIds.size();
+        frameIds.put(frame, id);
+        out.writeByte(FRAME);
+        out.writeUTF(frame.getClassName());
+        out.writeUTF(frame.getMethodName());
+        String fileName = frame.getFileName();
+        out.writeUTF(fileName == null ? "" : fileName);
+        out.writeInt(frame.getLineNumber());
+      }
+      return id;
+    }
+  }
+
+  private static final class StackKey {
+
+    private final int[] frames;
+    private final int hashCode;
+
+    private StackKey(int[] frames) {
+      this.frames = frames;
+      hashCode = Arrays.hashCode(frames);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StackKey && Arrays.equals(frames, ((StackKey) obj).frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
     }
   }
 
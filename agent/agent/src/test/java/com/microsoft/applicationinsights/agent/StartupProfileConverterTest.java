@@ -0,0 +1,94 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.agent;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class StartupProfileConverterTest {
+
+  private static final StackTraceElement MAIN = frame("com.example.App", "main");
+  private static final StackTraceElement LOAD = frame("com.example.App", "load");
+  private static final StackTraceElement READ = frame("java.io.FileInputStream", "read");
+  private static final StackTraceElement PARK = frame("sun.misc.Unsafe", "park");
+
+  @Test
+  void convertsSamplesToCollapsedStacks() throws IOException {
+    byte[] profile = writeProfile();
+
+    Map<String, Long> collapsedStacks = read(profile);
+
+    assertThat(collapsedStacks)
+        .containsExactly(
+            entry("main;com.example.App.main;com.example.App.load", 2L),
+            entry("worker_1;sun.misc.Unsafe.park", 4L),
+            entry(
+                "main;com.example.App.main;com.example.App.load;java.io.FileInputStream.read", 1L),
+            entry("odd:name;com.example.App.main", 1L));
+  }
+
+  @Test
+  void dropsThePartialSampleOfATruncatedProfile() throws IOException {
+    byte[] profile = writeProfile();
+
+    // cuts the last sample off in the middle of its second thread
+    Map<String, Long> collapsedStacks = read(Arrays.copyOf(profile, profile.length - 2));
+
+    assertThat(collapsedStacks)
+        .containsExactly(
+            entry("main;com.example.App.main;com.example.App.load", 2L),
+            entry("worker_1;sun.misc.Unsafe.park", 3L),
+            entry(
+                "main;com.example.App.main;com.example.App.load;java.io.FileInputStream.read", 1L));
+  }
+
+  private static byte[] writeProfile() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    StartupProfiler.ProfileWriter writer =
+        new StartupProfiler.ProfileWriter(new DataOutputStream(bytes));
+
+    writer.addThread("main", Thread.State.RUNNABLE, stack(LOAD, MAIN));
+    writer.addThread("worker 1", Thread.State.WAITING, stack(PARK));
+    writer.writeSample(100);
+
+    writer.addThread("main", Thread.State.RUNNABLE, stack(READ, LOAD, MAIN));
+    writer.addThread("worker 1", Thread.State.WAITING, stack(PARK));
+    writer.writeSample(150);
+
+    // only refers to thread names, frames and stacks that were already written
+    writer.addThread("main", Thread.State.RUNNABLE, stack(LOAD, MAIN));
+    writer.addThread("worker 1", Thread.State.WAITING, stack(PARK));
+    writer.writeSample(200);
+
+    // the last thread (a new thread name, with a new stack of known frames) is what gets truncated
+    writer.addThread("worker 1", Thread.State.WAITING, stack(PARK));
+    writer.addThread("odd;name", Thread.State.BLOCKED, stack(MAIN));
+    writer.writeSample(250);
+
+    writer.close();
+    return bytes.toByteArray();
+  }
+
+  private static Map<String, Long> read(byte[] profile) throws IOException {
+    return StartupProfileConverter.read(new DataInputStream(new ByteArrayInputStream(profile)));
+  }
+
+  private static StackTraceElement frame(String className, String methodName) {
+    return new StackTraceElement(className, methodName, null, -1);
+  }
+
+  // innermost frame first, like Thread.getStackTrace()
+  private static StackTraceElement[] stack(StackTraceElement... frames) {
+    return frames;
+  }
+}
@@ -19,19 +19,45 @@ import io.micrometer.core.instrument.TimeGauge;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.step.StepMeterRegistry;
 import io.micrometer.core.lang.Nullable;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Publishes micrometer meters as Azure Monitor metrics.
+ *
+ * <p>The name, the properties (which are immutable, and so are shared across publishes) and the
+ * kind of each meter are computed the first time the meter is published, and then cached for as
+ * long as the meter is registered.
+ *
+ * <p>Timers and distribution summaries that were not recorded to during a step are never
+ * published. Counters and long task timers are also skipped when idle if {@code
+ * suppressUnchangedMeters} is enabled, so that the cost of publishing (and the number of exported
+ * metrics) scales with activity instead of with the number of meters.
+ */
 public class AzureMonitorMeterRegistry extends StepMeterRegistry {
 
   public static final AzureMonitorMeterRegistry INSTANCE =
       new AzureMonitorMeterRegistry(Clock.SYSTEM);
 
+  private final boolean suppressUnchangedMeters;
+
+  private final Map<Meter.Id, PublishedMeter> publishedMeters = new ConcurrentHashMap<>();
+  private long publishGeneration;
+
   // visible for testing
   public AzureMonitorMeterRegistry(Clock clock) {
+    this(clock, AzureMonitorRegistryConfig.INSTANCE.suppressUnchangedMeters());
+  }
+
+  // visible for testing
+  public AzureMonitorMeterRegistry(Clock clock, boolean suppressUnchangedMeters) {
     super(AzureMonitorRegistryConfig.INSTANCE, clock);
+    this.suppressUnchangedMeters = suppressUnchangedMeters;
     config().namingConvention(new AzureMonitorNamingConvention());
     start(new DaemonThreadFactory("azure-micrometer-publisher"));
   }
@@ -43,57 +69,81 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
 
   @Override
   protected void publish() {
-    for (Meter meter : getMeters()) {
-      if (meter instanceof TimeGauge) {
-        trackTimeGauge((TimeGauge) meter);
-      } else if (meter instanceof Gauge) {
-        trackGauge((Gauge) meter);
-      } else if (meter instanceof Counter) {
-        trackCounter((Counter) meter);
-      } else if (meter instanceof Timer) {
-        trackTimer((Timer) meter);
-      } else if (meter instanceof DistributionSummary) {
-        trackDistributionSummary((DistributionSummary) meter);
-      } else if (meter instanceof LongTaskTimer) {
-        trackLongTaskTimer((LongTaskTimer) meter);
-      } else if (meter instanceof FunctionCounter) {
-        trackFunctionCounter((FunctionCounter) meter);
-      } else if (meter instanceof FunctionTimer) {
-        trackFunctionTimer((FunctionTimer) meter);
-      } else {
-        trackMeter(meter);
+    long generation = ++publishGeneration;
+    List<Meter> meters = getMeters();
+    for (Meter meter : meters) {
+      PublishedMeter published = getPublishedMeter(meter);
+      published.generation = generation;
+      switch (published.kind) {
+        case TIME_GAUGE:
+          trackTimeGauge((TimeGauge) meter, published);
+          break;
+        case GAUGE:
+          trackGauge((Gauge) meter, published);
+          break;
+        case COUNTER:
+          trackCounter((Counter) meter, published);
+          break;
+        case TIMER:
+          trackTimer((Timer) meter, published);
+          break;
+        case DISTRIBUTION_SUMMARY:
+          trackDistributionSummary((DistributionSummary) meter, published);
+          break;
+        case LONG_TASK_TIMER:
+          trackLongTaskTimer((LongTaskTimer) meter, published);
+          break;
+        case FUNCTION_COUNTER:
+          trackFunctionCounter((FunctionCounter) meter, published);
+          break;
+        case FUNCTION_TIMER:
+          trackFunctionTimer((FunctionTimer) meter, published);
+          break;
+        default:
+          trackMeter(meter, published);
       }
     }
+    if (publishedMeters.size() > meters.size()) {
+      // meters that have been removed from the registry (which is only possible in later versions
+      // of micrometer)
+      publishedMeters.values().removeIf(published -> published.generation != generation);
+    }
   }
 
-  private void trackTimeGauge(TimeGauge gauge) {
+  private PublishedMeter getPublishedMeter(Meter meter) {
+    PublishedMeter published = publishedMeters.get(meter.getId());
+    if (published == null || published.meter != meter) {
+      published = new PublishedMeter(meter, getName(meter, null), getProperties(meter));
+      publishedMeters.put(meter.getId(), published);
+    }
+    return published;
+  }
+
+  private void trackTimeGauge(TimeGauge gauge, PublishedMeter published) {
     trackMetric(
-        getName(gauge),
+        published.name,
         getNamespace(),
         gauge.value(getBaseTimeUnit()),
         null,
         null,
         null,
-        getProperties(gauge));
+        published.properties);
   }
 
-  private void trackGauge(Gauge gauge) {
+  private static void trackGauge(Gauge gauge, PublishedMeter published) {
     trackMetric(
-        getName(gauge), getNamespace(), gauge.value(), null, null, null, getProperties(gauge));
+        published.name, getNamespace(), gauge.value(), null, null, null, published.properties);
   }
 
-  private void trackCounter(Counter counter) {
-    trackMetric(
-        getName(counter),
-        getNamespace(),
-        counter.count(),
-        null,
-        null,
-        null,
-        getProperties(counter));
+  private void trackCounter(Counter counter, PublishedMeter published) {
+    double count = counter.count();
+    if (count == 0 && suppressUnchangedMeters) {
+      return;
+    }
+    trackMetric(published.name, getNamespace(), count, null, null, null, published.properties);
   }
 
-  private void trackTimer(Timer timer) {
+  private void trackTimer(Timer timer, PublishedMeter published) {
     long count = timer.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
@@ -101,16 +151,17 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
     }
     // min is not supported, see https://github.com/micrometer-metrics/micrometer/issues/457
     trackMetric(
-        getName(timer),
+        published.name,
         getNamespace(),
         timer.totalTime(getBaseTimeUnit()),
         castCountToInt(count),
         null,
         timer.max(getBaseTimeUnit()),
-        getProperties(timer));
+        published.properties);
   }
 
-  private void trackDistributionSummary(DistributionSummary summary) {
+  private static void trackDistributionSummary(
+      DistributionSummary summary, PublishedMeter published) {
     long count = summary.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
@@ -118,80 +169,75 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
     }
     // min is not supported, see https://github.com/micrometer-metrics/micrometer/issues/457
     trackMetric(
-        getName(summary),
+        published.name,
         getNamespace(),
         summary.totalAmount(),
         castCountToInt(count),
         null,
         summary.max(),
-        getProperties(summary));
+        published.properties);
   }
 
-  private void trackLongTaskTimer(LongTaskTimer timer) {
-    Map<String, String> properties = getProperties(timer);
+  private void trackLongTaskTimer(LongTaskTimer timer, PublishedMeter published) {
+    int activeTasks = timer.activeTasks();
+    if (activeTasks == 0 && suppressUnchangedMeters) {
+      return;
+    }
     trackMetric(
-        getName(timer, "active"),
+        published.getName(this, "active"),
         getNamespace(),
-        timer.activeTasks(),
+        activeTasks,
         null,
         null,
         null,
-        properties);
+        published.properties);
     trackMetric(
-        getName(timer, "duration"),
+        published.getName(this, "duration"),
         getNamespace(),
         timer.duration(getBaseTimeUnit()),
         null,
         null,
         null,
-        properties);
+        published.properties);
   }
 
-  private void trackFunctionCounter(FunctionCounter counter) {
-    trackMetric(
-        getName(counter),
-        getNamespace(),
-        counter.count(),
-        null,
-        null,
-        null,
-        getProperties(counter));
+  private void trackFunctionCounter(FunctionCounter counter, PublishedMeter published) {
+    double count = counter.count();
+    if (count == 0 && suppressUnchangedMeters) {
+      return;
+    }
+    trackMetric(published.name, getNamespace(), count, null, null, null, published.properties);
   }
 
-  private void trackFunctionTimer(FunctionTimer timer) {
+  private void trackFunctionTimer(FunctionTimer timer, PublishedMeter published) {
     double count = timer.count();
     if (count == 0) {
       // important not to send explicit count of 0 because breeze converts that to 1
       return;
     }
     trackMetric(
-        getName(timer),
+        published.name,
         getNamespace(),
         timer.totalTime(getBaseTimeUnit()),
         castCountToInt(count),
         null,
         null,
-        getProperties(timer));
+        published.properties);
   }
 
-  private void trackMeter(Meter meter) {
-    Map<String, String> properties = getProperties(meter);
+  private void trackMeter(Meter meter, PublishedMeter published) {
     for (Measurement measurement : meter.measure()) {
       trackMetric(
-          getName(meter, measurement.getStatistic().toString().toLowerCase(Locale.ROOT)),
+          published.getName(this, measurement.getStatistic().toString().toLowerCase(Locale.ROOT)),
           getNamespace(),
           measurement.getValue(),
           null,
           null,
           null,
-          properties);
+          published.properties);
     }
   }
 
-  private String getName(Meter meter) {
-    return getName(meter, null);
-  }
-
   private String getName(Meter meter, @Nullable String suffix) {
     Meter.Id meterId = meter.getId();
     return config()
@@ -208,11 +254,15 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
   }
 
   private Map<String, String> getProperties(Meter meter) {
+    List<Tag> tags = getConventionTags(meter.getId());
+    if (tags.isEmpty()) {
+      return Collections.emptyMap();
+    }
     Map<String, String> properties = new HashMap<>();
-    for (Tag tag : getConventionTags(meter.getId())) {
+    for (Tag tag : tags) {
       properties.put(tag.getKey(), tag.getValue());
     }
-    return properties;
+    return Collections.unmodifiableMap(properties);
   }
 
   private static int castCountToInt(long count) {
@@ -222,4 +272,66 @@ public class AzureMonitorMeterRegistry extends StepMeterRegistry {
   private static int castCountToInt(double count) {
     return count < Integer.MAX_VALUE ? (int) count : Integer.MAX_VALUE;
   }
+
+  private enum Kind {
+    TIME_GAUGE,
+    GAUGE,
+    COUNTER,
+    TIMER,
+    DISTRIBUTION_SUMMARY,
+    LONG_TASK_TIMER,
+    FUNCTION_COUNTER,
+    FUNCTION_TIMER,
+    OTHER;
+
+    private static Kind of(Meter meter) {
+      if (meter instanceof TimeGauge) {
+        return TIME_GAUGE;
+      } else if (meter instanceof Gauge) {
+        return GAUGE;
+      } else if (meter instanceof Counter) {
+        return COUNTER;
+      } else if (meter instanceof Timer) {
+        return TIMER;
+      } else if (meter instanceof DistributionSummary) {
+        return DISTRIBUTION_SUMMARY;
+      } else if (meter instanceof LongTaskTimer) {
+        return LONG_TASK_TIMER;
+      } else if (meter instanceof FunctionCounter) {
+        return FUNCTION_COUNTER;
+      } else if (meter instanceof FunctionTimer) {
+        return FUNCTION_TIMER;
+      } else {
+        return OTHER;
+      }
+    }
+  }
+
+  private static class PublishedMeter {
+
+    private final Meter meter;
+    private final Kind kind;
+    private final String name;
+    private final Map<String, String> properties;
+    // names with a suffix, used by meters that are published as several metrics
+    private final Map<String, String> suffixedNames = new HashMap<>();
+    // the last publish that this meter was part of
+    private long generation;
+
+    private PublishedMeter(Meter meter, String name, Map<String, String> properties) {
+      this.meter = meter;
+      this.kind = Kind.of(meter);
+      this.name = name;
+      this.properties = properties;
+    }
+
+    private String getName(AzureMonitorMeterRegistry registry, String suffix) {
+      String suffixedName = suffixedNames.get(suffix);
+      if (suffixedName == null) {
+        suffixedName = registry.getName(meter, suffix);
+        suffixedNames.put(suffix, suffixedName);
+      }
+      return suffixedName;
+    }
+  }
 }
@@ -12,6 +12,7 @@ public class AzureMonitorRegistryConfig implements StepRegistryConfig {
 
   private final Duration step;
   @Nullable private final String namespace;
+  private final boolean suppressUnchangedMeters;
 
   public static final AzureMonitorRegistryConfig INSTANCE = new AzureMonitorRegistryConfig();
 
@@ -22,6 +23,10 @@ public class AzureMonitorRegistryConfig implements StepRegistryConfig {
                 "applicationinsights.internal.micrometer.step.millis", Duration.ofSeconds(60));
     namespace =
         InstrumentationConfig.get().getString("applicationinsights.internal.micrometer.namespace");
+    suppressUnchangedMeters =
+        InstrumentationConfig.get()
+            .getBoolean(
+                "applicationinsights.internal.micrometer.suppress-unchanged-meters", false);
   }
 
   @Override
@@ -43,4 +48,8 @@ public class AzureMonitorRegistryConfig implements StepRegistryConfig {
   public String namespace() {
     return namespace;
   }
+
+  public boolean suppressUnchangedMeters() {
+    return suppressUnchangedMeters;
+  }
 }
@@ -3,6 +3,7 @@
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 import com.microsoft.applicationinsights.agent.bootstrap.MicrometerUtil;
 import io.micrometer.core.instrument.Clock;
@@ -243,6 +244,31 @@ class MicrometerTest {
     assertThat(measurement.namespace).isNull();
   }
 
+  @Test
+  void shouldSuppressUnchangedMeters() throws InterruptedException {
+    // given
+    AzureMonitorMeterRegistry registry = new AzureMonitorMeterRegistry(Clock.SYSTEM, true);
+    Counter activeCounter =
+        Counter.builder("test-suppressed-active-counter").tag("tag1", "value1").register(registry);
+    Counter.builder("test-suppressed-idle-counter").register(registry);
+
+    // when
+    activeCounter.increment(7.7);
+    Thread.sleep(SLEEP_MILLISECONDS);
+    registry.close();
+
+    // then
+    AgentTestingMicrometerDelegate.Measurement measurement =
+        getLastMeasurement("test-suppressed-active-counter");
+    assertThat(measurement.value).isEqualTo(7.7);
+    assertThat(measurement.properties).containsExactly(entry("tag1", "value1"));
+    assertThat(delegate.getMeasurements())
+        .noneMatch(
+            m ->
+                m.name.equals("test-suppressed-active-counter") && m.value == 0
+                    || m.name.equals("test-suppressed-idle-counter"));
+  }
+
   public AgentTestingMicrometerDelegate.Measurement getLastMeasurement(String name) {
     List<AgentTestingMicrometerDelegate.Measurement> measurements =
         delegate.getMeasurements().stream()
@@ -0,0 +1,40 @@
+plugins {
+  id("me.champeau.jmh")
+  id("io.morethan.jmhreport")
+}
+
+dependencies {
+  jmh(platform(project(":dependencyManagement")))
+  jmh("org.openjdk.jmh:jmh-core")
+  jmh("org.openjdk.jmh:jmh-generator-bytecode")
+}
+
+// invoke jmh on a single benchmark class like so:
+//   ./gradlew -PjmhIncludeSingleClass=BatchItemProcessorBenchmark :agent:agent-benchmarks:jmh
+jmh {
+  failOnError.set(true)
+  resultFormat.set("JSON")
+  // Otherwise JMH will try to run benchmarks from the dependencies as well
+  includeTests.set(false)
+
+  val jmhIncludeSingleClass: String? by project
+  if (jmhIncludeSingleClass != null) {
+    includes.add(jmhIncludeSingleClass as String)
+  }
+}
+
+jmhReport {
+  jmhResultPath = file("$buildDir/results/jmh/results.json").absolutePath
+  jmhReportOutput = file("$buildDir/results/jmh").absolutePath
+}
+
+tasks {
+  named("jmh") {
+    finalizedBy(named("jmhReport"))
+  }
+
+  // benchmarks are not shipped, so no need for the findsecbugs compliance scan
+  named("spotbugsJmh") {
+    enabled = false
+  }
+}
@@ -56,6 +56,7 @@ include(":agent:agent-profiler:agent-diagnostics-api")
 include(":agent:agent-profiler:agent-diagnostics")
 include(":agent:agent-profiler:agent-alerting")
 
+include(":agent:agent-benchmarks")
 include(":agent:agent-bootstrap")
 include(":agent:agent-tooling")
 include(":agent:agent-for-testing")
@@ -81,6 +82,7 @@ hideFromDependabot(":smoke-tests:apps:AutoPerfCounters")
 hideFromDependabot(":smoke-tests:apps:AzureSdk")
 hideFromDependabot(":smoke-tests:apps:BrowserSdkLoader")
 hideFromDependabot(":smoke-tests:apps:Cassandra")
+hideFromDependabot(":smoke-tests:apps:ClassDataSharing")
 hideFromDependabot(":smoke-tests:apps:ClassicSdkLog4j1Interop2x")
 hideFromDependabot(":smoke-tests:apps:ClassicSdkLog4j2Interop2x")
 hideFromDependabot(":smoke-tests:apps:ClassicSdkLogbackInterop2x")
@@ -0,0 +1,3 @@
+plugins {
+  id("ai.smoke-test-jar")
+}
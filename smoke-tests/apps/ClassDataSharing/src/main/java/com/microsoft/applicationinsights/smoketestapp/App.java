@@ -0,0 +1,114 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.smoketestapp;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+// measures the startup time of child JVMs (which pick up the agent from JAVA_TOOL_OPTIONS) with and
+// without a class data sharing archive that was created by a training run
+public class App {
+
+  private static final Logger logger = Logger.getLogger("smoketestapp");
+
+  private static final int RUNS = 3;
+
+  private static final String ARCHIVED_CLASS_SOURCE = " source: shared objects file (top)";
+
+  // classes from the agent's bootstrap jar. JDK classes are in the archive either way, so only
+  // these show that the agent's classes were archived
+  private static final String[] AGENT_CLASS_PREFIXES = {
+    "com.microsoft.applicationinsights.agent.", "io.opentelemetry.javaagent.bootstrap."
+  };
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("child")) {
+      // only the startup is being measured
+      return;
+    }
+
+    File archive = new File(System.getProperty("java.io.tmpdir"), "applicationinsights-agent.jsa");
+    File classLoadLog = File.createTempFile("class-load", ".log");
+    try {
+      // the archive is written when the training run exits
+      run(null, "-XX:ArchiveClassesAtExit=" + archive);
+
+      long withoutArchive = Long.MAX_VALUE;
+      long withArchive = Long.MAX_VALUE;
+      for (int i = 0; i < RUNS; i++) {
+        withoutArchive = Math.min(withoutArchive, run(null, "-Xshare:auto"));
+        // -Xshare:on fails the run if the archive cannot be used
+        withArchive =
+            Math.min(withArchive, run(null, "-XX:SharedArchiveFile=" + archive, "-Xshare:on"));
+      }
+
+      run(classLoadLog, "-XX:SharedArchiveFile=" + archive, "-Xshare:on", "-Xlog:class+load=info");
+      long archivedAgentClasses;
+      try (Stream<String> lines = Files.lines(classLoadLog.toPath(), StandardCharsets.UTF_8)) {
+        archivedAgentClasses = lines.filter(App::isArchivedAgentClass).count();
+      }
+
+      logger.info(
+          "startup without archive: "
+              + withoutArchive
+              + " ms, with archive: "
+              + withArchive
+              + " ms, agent classes loaded from archive: "
+              + archivedAgentClasses);
+    } finally {
+      Files.deleteIfExists(archive.toPath());
+      Files.deleteIfExists(classLoadLog.toPath());
+    }
+  }
+
+  // e.g. "[0.123s][info][class,load] java.lang.Object source: shared objects file (top)"
+  private static boolean isArchivedAgentClass(String line) {
+    if (!line.endsWith(ARCHIVED_CLASS_SOURCE)) {
+      return false;
+    }
+    String className =
+        line.substring(line.lastIndexOf(']') + 1, line.length() - ARCHIVED_CLASS_SOURCE.length())
+            .trim();
+    for (String prefix : AGENT_CLASS_PREFIXES) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // returns the duration of the child JVM in milliseconds
+  private static long run(File output, String... jvmArgs)
+      throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(asList(jvmArgs));
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(App.class.getName());
+    command.add("child");
+
+    ProcessBuilder processBuilder = new ProcessBuilder(command).inheritIO();
+    if (output != null) {
+      processBuilder.redirectOutput(output);
+    }
+    long start = System.nanoTime();
+    int exitCode = processBuilder.start().waitFor();
+    long durationMillis = NANOSECONDS.toMillis(System.nanoTime() - start);
+    if (exitCode != 0) {
+      throw new IllegalStateException("child JVM " + command + " exited with " + exitCode);
+    }
+    return durationMillis;
+  }
+}
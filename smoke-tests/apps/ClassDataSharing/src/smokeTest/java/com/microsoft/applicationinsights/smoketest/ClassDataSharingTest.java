@@ -0,0 +1,68 @@
+// Copyright (c) Microsoft Corporation. All rights reserved.
+// Licensed under the MIT License.
+
+package com.microsoft.applicationinsights.smoketest;
+
+import static com.microsoft.applicationinsights.smoketest.EnvironmentValue.JAVA_17;
+import static com.microsoft.applicationinsights.smoketest.EnvironmentValue.JAVA_20;
+import static com.microsoft.applicationinsights.smoketest.EnvironmentValue.JAVA_21;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.microsoft.applicationinsights.smoketest.schemav2.Data;
+import com.microsoft.applicationinsights.smoketest.schemav2.Envelope;
+import com.microsoft.applicationinsights.smoketest.schemav2.MessageData;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+// dynamic class data sharing archives (-XX:ArchiveClassesAtExit) need HotSpot 13+
+@UseAgent
+abstract class ClassDataSharingTest {
+
+  private static final Pattern RESULT =
+      Pattern.compile(
+          "startup without archive: (\\d+) ms, with archive: (\\d+) ms,"
+              + " agent classes loaded from archive: (\\d+)");
+
+  @RegisterExtension
+  static final SmokeTestExtension testing =
+      SmokeTestExtension.builder().setSkipHealthCheck(true).build();
+
+  @Test
+  void test() throws Exception {
+    // the app runs several child JVMs before it reports
+    Envelope mdEnvelope =
+        testing.mockedIngestion.waitForItem(
+            envelope -> {
+              if (!envelope.getData().getBaseType().equals("MessageData")) {
+                return false;
+              }
+              MessageData md = (MessageData) ((Data<?>) envelope.getData()).getBaseData();
+              return md.getMessage().startsWith("startup without archive");
+            },
+            2,
+            TimeUnit.MINUTES);
+
+    MessageData md = (MessageData) ((Data<?>) mdEnvelope.getData()).getBaseData();
+    System.out.println("Class data sharing: " + md.getMessage());
+
+    Matcher matcher = RESULT.matcher(md.getMessage());
+    assertThat(matcher.matches()).isTrue();
+    // the timings are only reported, since they are too noisy to assert on
+    assertThat(Long.parseLong(matcher.group(1))).isPositive();
+    assertThat(Long.parseLong(matcher.group(2))).isPositive();
+    // the agent's own classes (and not only the JDK classes) were loaded from the archive
+    assertThat(Long.parseLong(matcher.group(3))).isPositive();
+  }
+
+  @Environment(JAVA_17)
+  static class Java17Test extends ClassDataSharingTest {}
+
+  @Environment(JAVA_20)
+  static class JavaLatestTest extends ClassDataSharingTest {}
+
+  @Environment(JAVA_21)
+  static class JavaPrereleaseTest extends ClassDataSharingTest {}
+}